@@ -11,6 +11,9 @@ import java.util.Map;
 /**
  * Factory/registry for {@link DevelopmentComponent} objects.
  *
+ * Registering, looking up and removing development components is synchronized so that the registry can be shared by the threads resolving
+ * activities from the DTR concurrently.
+ *
  * @author Dirk Weigenand
  */
 public final class DevelopmentComponentFactory {
@@ -19,6 +22,11 @@ public final class DevelopmentComponentFactory {
      */
     private final Map<String, DevelopmentComponent> componentMap = new HashMap<String, DevelopmentComponent>();
 
+    /**
+     * memoized reachability index (<code>null</code> when none was created yet or the registry changed since).
+     */
+    private RebuildImpactIndex rebuildImpactIndex;
+
     /**
      * Default constructor.
      */
@@ -52,12 +60,13 @@ public final class DevelopmentComponentFactory {
      *            the type of this development component.
      * @return the newly created or already registered development component
      */
-    public DevelopmentComponent create(final String vendor, final String name, final DevelopmentComponentType type) {
+    public synchronized DevelopmentComponent create(final String vendor, final String name, final DevelopmentComponentType type) {
         DevelopmentComponent component = this.get(vendor, name);
 
         if (null == component) {
             component = new DevelopmentComponent(name, vendor, type);
             componentMap.put(createComponentKey(name, vendor), component);
+            rebuildImpactIndex = null;
         }
 
         return component;
@@ -122,7 +131,7 @@ public final class DevelopmentComponentFactory {
      *
      * @return a collection of all registered development components.
      */
-    public Collection<DevelopmentComponent> getAll() {
+    public synchronized Collection<DevelopmentComponent> getAll() {
         final Collection<DevelopmentComponent> components = new ArrayList<DevelopmentComponent>(componentMap.size());
         components.addAll(componentMap.values());
 
@@ -132,35 +141,47 @@ public final class DevelopmentComponentFactory {
     /**
      * Update the using DCs for all registered DCs.
      *
-     * For each registered development component the list of public parts it references will be iterated. The respective development
-     * component will be looked up and the currently worked on DC will be added to its using DCs.
+     * The dependency graph of the registered development components is built (in one pass over their public part references) and each
+     * development component is added to the using DCs of the development components it references.
      */
-    public void updateUsingDCs() {
-        for (final DevelopmentComponent component : componentMap.values()) {
-            this.updateUsingDCs(component);
+    public synchronized void updateUsingDCs() {
+        final DevelopmentComponentGraph graph = createDependencyGraph();
+        rebuildImpactIndex = null;
+
+        for (int id = 0; id < graph.size(); id++) {
+            final DevelopmentComponent component = graph.getComponent(id);
+
+            for (int i = 0; i < graph.getUsingCount(id); i++) {
+                component.addUsingDC(graph.getComponent(graph.getUsing(id, i)));
+            }
         }
     }
 
     /**
-     * Updates the using DCs for the given DC.
+     * Create the dependency graph of all registered development components from their public part references.
      *
-     * @param root
-     *            development component whose using DCs are to be updated.
+     * @return the dependency graph of all registered development components.
      */
-    private void updateUsingDCs(final DevelopmentComponent root) {
-        for (final DevelopmentComponent dc : componentMap.values()) {
-            final Collection<PublicPartReference> references = dc.getUsedDevelopmentComponents();
-
-            for (final PublicPartReference reference : references) {
-                if (reference.references(root)) {
-                    root.addUsingDC(dc);
-
-                    if (dc.getUsingDevelopmentComponents().isEmpty()) {
-                        this.updateUsingDCs(dc);
-                    }
-                }
-            }
+    public synchronized DevelopmentComponentGraph createDependencyGraph() {
+        return new DevelopmentComponentGraph(componentMap.values());
+    }
+
+    /**
+     * Returns the reachability index answering which development components must be rebuilt when others change.
+     *
+     * The index is memoized for the given version of the development configuration. A new one is created when another version is asked for
+     * or when development components were registered or removed or the usage relations were updated since.
+     *
+     * @param version
+     *            version of the development configuration.
+     * @return the reachability index of all registered development components.
+     */
+    public synchronized RebuildImpactIndex getRebuildImpactIndex(final String version) {
+        if (rebuildImpactIndex == null || !rebuildImpactIndex.getVersion().equals(version == null ? "" : version)) {
+            rebuildImpactIndex = new RebuildImpactIndex(createDependencyGraph(), version);
         }
+
+        return rebuildImpactIndex;
     }
 
     /**
@@ -172,7 +193,7 @@ public final class DevelopmentComponentFactory {
      *            name of development component.
      * @return the development component asked for or <code>null</code> if it is not registered.
      */
-    public DevelopmentComponent get(final String vendor, final String name) {
+    public synchronized DevelopmentComponent get(final String vendor, final String name) {
         return componentMap.get(createComponentKey(name, vendor));
     }
 
@@ -183,7 +204,7 @@ public final class DevelopmentComponentFactory {
      *            reference to a development components public part.
      * @return the development component asked for or <code>null</code> if it is not registered.
      */
-    public DevelopmentComponent get(final PublicPartReference ppRef) {
+    public synchronized DevelopmentComponent get(final PublicPartReference ppRef) {
         return componentMap.get(createComponentKey(ppRef.getComponentName(), ppRef.getVendor()));
     }
 
@@ -193,8 +214,9 @@ public final class DevelopmentComponentFactory {
      * @param component
      *            the development component to be removed from this registry.
      */
-    public void remove(final DevelopmentComponent component) {
+    public synchronized void remove(final DevelopmentComponent component) {
         componentMap.remove(createComponentKey(component.getName(), component.getVendor()));
+        rebuildImpactIndex = null;
         final Compartment compartment = component.getCompartment();
 
         if (compartment != null) {
@@ -0,0 +1,325 @@
+/**
+ *
+ */
+package org.arachna.netweaver.dc.types;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dependency graph of development components built from their {@link PublicPartReference}s.
+ *
+ * Each development component gets a dense integer id (in the order the components were passed in). The edges are kept in compressed
+ * adjacency arrays: the ids of the development components used by the component with id <code>i</code> are
+ * <code>used[usedOffsets[i]]</code> to <code>used[usedOffsets[i + 1] - 1]</code> (in the order of its public part references), the ids
+ * of the components using it are kept the same way in <code>using</code> (in ascending order). The graph is built in one pass over the
+ * public part references: references to development components not contained in the graph are ignored, multiple references to the same
+ * development component yield one edge.
+ *
+ * The graph is a snapshot. It is not updated when public part references are added to or removed from development components afterwards.
+ *
+ * @author Dirk Weigenand
+ */
+public final class DevelopmentComponentGraph {
+    /**
+     * development components indexed by id.
+     */
+    private final DevelopmentComponent[] components;
+
+    /**
+     * ids mapped by 'vendor:component name'.
+     */
+    private final Map<String, Integer> ids;
+
+    /**
+     * start of the used components of each component in {@link #used} (one additional entry marking the end of the last component).
+     */
+    private final int[] usedOffsets;
+
+    /**
+     * ids of the used components of all components.
+     */
+    private final int[] used;
+
+    /**
+     * start of the using components of each component in {@link #using} (one additional entry marking the end of the last component).
+     */
+    private final int[] usingOffsets;
+
+    /**
+     * ids of the using components of all components.
+     */
+    private final int[] using;
+
+    /**
+     * Create the dependency graph of the given development components.
+     *
+     * @param components
+     *            development components to build the graph of.
+     */
+    public DevelopmentComponentGraph(final Collection<DevelopmentComponent> components) {
+        this.components = components.toArray(new DevelopmentComponent[components.size()]);
+        ids = new HashMap<String, Integer>(this.components.length * 4 / 3 + 1);
+
+        for (int id = 0; id < this.components.length; id++) {
+            ids.put(createKey(this.components[id].getVendor(), this.components[id].getName()), id);
+        }
+
+        usedOffsets = new int[this.components.length + 1];
+        used = collectUsedComponents();
+        usingOffsets = new int[this.components.length + 1];
+        using = invert();
+    }
+
+    /**
+     * Determine the used components of all components from their public part references.
+     *
+     * @return ids of the used components of all components (their starts are set in {@link #usedOffsets}).
+     */
+    private int[] collectUsedComponents() {
+        final int[] lastSeenBy = new int[components.length];
+        Arrays.fill(lastSeenBy, -1);
+        int[] edges = new int[Math.max(16, components.length * 2)];
+        int edgeCount = 0;
+
+        for (int id = 0; id < components.length; id++) {
+            usedOffsets[id] = edgeCount;
+
+            for (final PublicPartReference reference : components[id].getUsedDevelopmentComponents()) {
+                final Integer usedId = ids.get(createKey(reference.getVendor(), reference.getComponentName()));
+
+                if (usedId != null && lastSeenBy[usedId] != id) {
+                    lastSeenBy[usedId] = id;
+
+                    if (edgeCount == edges.length) {
+                        edges = Arrays.copyOf(edges, edges.length * 2);
+                    }
+
+                    edges[edgeCount++] = usedId;
+                }
+            }
+        }
+
+        usedOffsets[components.length] = edgeCount;
+
+        return Arrays.copyOf(edges, edgeCount);
+    }
+
+    /**
+     * Determine the using components of all components by inverting the edges to the used components.
+     *
+     * @return ids of the using components of all components (their starts are set in {@link #usingOffsets}).
+     */
+    private int[] invert() {
+        for (final int usedId : used) {
+            usingOffsets[usedId + 1]++;
+        }
+
+        for (int id = 0; id < components.length; id++) {
+            usingOffsets[id + 1] += usingOffsets[id];
+        }
+
+        final int[] edges = new int[used.length];
+        final int[] next = Arrays.copyOf(usingOffsets, components.length);
+
+        for (int id = 0; id < components.length; id++) {
+            for (int i = usedOffsets[id]; i < usedOffsets[id + 1]; i++) {
+                edges[next[used[i]]++] = id;
+            }
+        }
+
+        return edges;
+    }
+
+    /**
+     * Create the key of a development component.
+     *
+     * @param vendor
+     *            vendor of development component.
+     * @param name
+     *            name of development component.
+     * @return the concatenation of the given vendor, ':' and the given component name.
+     */
+    private static String createKey(final String vendor, final String name) {
+        return vendor + ":" + name;
+    }
+
+    /**
+     * Returns the number of development components in this graph.
+     *
+     * @return the number of development components in this graph.
+     */
+    public int size() {
+        return components.length;
+    }
+
+    /**
+     * Returns the number of dependencies (edges) in this graph.
+     *
+     * @return the number of dependencies in this graph.
+     */
+    public int getEdgeCount() {
+        return used.length;
+    }
+
+    /**
+     * Returns the id of the given development component.
+     *
+     * @param component
+     *            the development component.
+     * @return the id of the given development component or <code>-1</code> if it is not contained in this graph.
+     */
+    public int getId(final DevelopmentComponent component) {
+        final Integer id = ids.get(createKey(component.getVendor(), component.getName()));
+
+        return id == null ? -1 : id.intValue();
+    }
+
+    /**
+     * Returns the development component with the given id.
+     *
+     * @param id
+     *            id of development component.
+     * @return the development component with the given id.
+     */
+    public DevelopmentComponent getComponent(final int id) {
+        return components[id];
+    }
+
+    /**
+     * Returns the number of development components used by the component with the given id.
+     *
+     * @param id
+     *            id of development component.
+     * @return the number of development components used by the component with the given id.
+     */
+    public int getUsedCount(final int id) {
+        return usedOffsets[id + 1] - usedOffsets[id];
+    }
+
+    /**
+     * Returns the id of a development component used by the component with the given id.
+     *
+     * @param id
+     *            id of development component.
+     * @param index
+     *            index of used component (<code>0</code> to <code>getUsedCount(id) - 1</code>).
+     * @return the id of the used development component.
+     */
+    public int getUsed(final int id, final int index) {
+        return used[usedOffsets[id] + index];
+    }
+
+    /**
+     * Returns the number of development components using the component with the given id.
+     *
+     * @param id
+     *            id of development component.
+     * @return the number of development components using the component with the given id.
+     */
+    public int getUsingCount(final int id) {
+        return usingOffsets[id + 1] - usingOffsets[id];
+    }
+
+    /**
+     * Returns the id of a development component using the component with the given id.
+     *
+     * @param id
+     *            id of development component.
+     * @param index
+     *            index of using component (<code>0</code> to <code>getUsingCount(id) - 1</code>).
+     * @return the id of the using development component.
+     */
+    public int getUsing(final int id, final int index) {
+        return using[usingOffsets[id] + index];
+    }
+
+    /**
+     * Returns the development components used by the given component.
+     *
+     * @param component
+     *            the development component.
+     * @return the development components used by the given component (empty if it is not contained in this graph).
+     */
+    public List<DevelopmentComponent> getUsedComponents(final DevelopmentComponent component) {
+        final int id = getId(component);
+
+        return id < 0 ? new ArrayList<DevelopmentComponent>() : new ComponentList(used, usedOffsets[id], usedOffsets[id + 1]);
+    }
+
+    /**
+     * Returns the development components using the given component.
+     *
+     * @param component
+     *            the development component.
+     * @return the development components using the given component (empty if it is not contained in this graph).
+     */
+    public List<DevelopmentComponent> getUsingComponents(final DevelopmentComponent component) {
+        final int id = getId(component);
+
+        return id < 0 ? new ArrayList<DevelopmentComponent>() : new ComponentList(using, usingOffsets[id], usingOffsets[id + 1]);
+    }
+
+    /**
+     * Read only view of development components given by a range of ids in an adjacency array.
+     *
+     * @author Dirk Weigenand
+     */
+    private final class ComponentList extends AbstractList<DevelopmentComponent> {
+        /**
+         * the adjacency array.
+         */
+        private final int[] edges;
+
+        /**
+         * start of range (inclusive).
+         */
+        private final int start;
+
+        /**
+         * end of range (exclusive).
+         */
+        private final int end;
+
+        /**
+         * Create a view of the given range of the given adjacency array.
+         *
+         * @param edges
+         *            the adjacency array.
+         * @param start
+         *            start of range (inclusive).
+         * @param end
+         *            end of range (exclusive).
+         */
+        ComponentList(final int[] edges, final int start, final int end) {
+            this.edges = edges;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public DevelopmentComponent get(final int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            }
+
+            return components[edges[start + index]];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return end - start;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ *
+ */
+package org.arachna.netweaver.dc.types;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reachability index answering which development components must be rebuilt when a given set of development components changes.
+ *
+ * The impact of a change of a development component is the component itself and (transitively) all components using it. Components not
+ * contained in a compartment are neither part of an impact nor do they propagate it (as with the rebuild of a development configuration).
+ *
+ * The impact of each development component is computed once (iteratively, as a bit set over the ids of the
+ * {@link DevelopmentComponentGraph}) when first asked for and memoized. The impact of a set of development components is the union of
+ * the impacts of its members. Traversals stop at components whose impact is already known, so a query touching memoized components costs
+ * no more than combining their bit sets.
+ *
+ * The index belongs to a version of a development configuration and is a snapshot of the dependency graph it was created from.
+ *
+ * @author Dirk Weigenand
+ */
+public final class RebuildImpactIndex {
+    /**
+     * dependency graph the index was created from.
+     */
+    private final DevelopmentComponentGraph graph;
+
+    /**
+     * version of the development configuration the index belongs to.
+     */
+    private final String version;
+
+    /**
+     * memoized impacts indexed by id of development component (<code>null</code> when not yet computed).
+     */
+    private final BitSet[] impacts;
+
+    /**
+     * Create a reachability index over the given dependency graph.
+     *
+     * @param graph
+     *            dependency graph of development components.
+     * @param version
+     *            version of the development configuration the index belongs to.
+     */
+    public RebuildImpactIndex(final DevelopmentComponentGraph graph, final String version) {
+        this.graph = graph;
+        this.version = version == null ? "" : version;
+        impacts = new BitSet[graph.size()];
+    }
+
+    /**
+     * Returns the dependency graph the index was created from.
+     *
+     * @return the dependency graph the index was created from.
+     */
+    public DevelopmentComponentGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the version of the development configuration the index belongs to.
+     *
+     * @return the version of the development configuration the index belongs to.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Determine the ids of the development components that must be rebuilt when the given development components change.
+     *
+     * @param components
+     *            the changed development components.
+     * @return the ids (in the dependency graph) of the development components that must be rebuilt.
+     */
+    public BitSet getImpact(final Collection<DevelopmentComponent> components) {
+        final BitSet impact = new BitSet(graph.size());
+
+        for (final DevelopmentComponent component : components) {
+            final int id = graph.getId(component);
+
+            if (id > -1) {
+                impact.or(getImpact(id));
+            }
+        }
+
+        return impact;
+    }
+
+    /**
+     * Determine the development components that must be rebuilt when the given development components change.
+     *
+     * @param components
+     *            the changed development components.
+     * @return the development components that must be rebuilt (ordered by their ids in the dependency graph).
+     */
+    public List<DevelopmentComponent> getImpactedComponents(final Collection<DevelopmentComponent> components) {
+        final BitSet impact = getImpact(components);
+        final List<DevelopmentComponent> impactedComponents = new ArrayList<DevelopmentComponent>(impact.cardinality());
+
+        for (int id = impact.nextSetBit(0); id > -1; id = impact.nextSetBit(id + 1)) {
+            impactedComponents.add(graph.getComponent(id));
+        }
+
+        return impactedComponents;
+    }
+
+    /**
+     * Returns the memoized impact of the development component with the given id. Computes it first if necessary.
+     *
+     * @param id
+     *            id of development component.
+     * @return the ids of the development components that must be rebuilt when the given development component changes (must not be
+     *         modified).
+     */
+    private synchronized BitSet getImpact(final int id) {
+        if (impacts[id] == null) {
+            impacts[id] = computeImpact(id);
+        }
+
+        return impacts[id];
+    }
+
+    /**
+     * Compute the impact of the development component with the given id by traversing the using components. The memoized impacts of
+     * components reached are merged instead of traversing them again.
+     *
+     * @param root
+     *            id of development component.
+     * @return the ids of the development components that must be rebuilt when the given development component changes.
+     */
+    private BitSet computeImpact(final int root) {
+        final BitSet impact = new BitSet(graph.size());
+
+        if (graph.getComponent(root).getCompartment() == null) {
+            return impact;
+        }
+
+        final int[] stack = new int[graph.size()];
+        int top = 0;
+        stack[top++] = root;
+        impact.set(root);
+
+        while (top > 0) {
+            final int id = stack[--top];
+
+            for (int i = 0; i < graph.getUsingCount(id); i++) {
+                final int usingId = graph.getUsing(id, i);
+
+                if (impact.get(usingId) || graph.getComponent(usingId).getCompartment() == null) {
+                    continue;
+                }
+
+                if (impacts[usingId] != null) {
+                    impact.or(impacts[usingId]);
+                }
+                else {
+                    impact.set(usingId);
+                    stack[top++] = usingId;
+                }
+            }
+        }
+
+        return impact;
+    }
+}
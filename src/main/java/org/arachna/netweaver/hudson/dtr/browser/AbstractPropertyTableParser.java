@@ -0,0 +1,166 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base class for parsers of DTR detail pages. Those pages show the properties of an object in a table (the third table of the page not
+ * contained in a form, i.e. <code>/html/body/table[3]</code>) with the name of a property followed by its value.
+ *
+ * The text of the cells (<code>/html/body/table[3]/tr/td</code>) is collected while the page is read and handed to
+ * {@link #parseInternal(List)} afterwards.
+ *
+ * @author Dirk Weigenand
+ */
+abstract class AbstractPropertyTableParser extends AbstractResourceParser {
+    /**
+     * position of property table among the tables of a page (not contained in other tables or forms).
+     */
+    private static final int PROPERTY_TABLE = 3;
+
+    /**
+     * text of the cells of the property table.
+     */
+    private final List<String> cells = new ArrayList<String>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    HtmlScanner.Handler createHandler() {
+        cells.clear();
+
+        return new PropertyTableHandler();
+    }
+
+    /**
+     * Verify that the expected number of cells was found and extract the properties from them.
+     */
+    @Override
+    final void endOfPage() {
+        if (cells.size() < getExpectedNodeLen()) {
+            throw new IllegalStateException(String.format("/html/body/table[%d]/tr/td did not yield expected node count!",
+                PROPERTY_TABLE));
+        }
+
+        parseInternal(cells);
+    }
+
+    /**
+     * Returns the text of the cell at the given index.
+     *
+     * @param cells
+     *            text of the cells of the property table.
+     * @param index
+     *            index into the list of cells
+     *
+     * @return text of the cell at the given index.
+     */
+    protected final String nodeValueAt(final List<String> cells, final int index) {
+        return cells.get(index);
+    }
+
+    /**
+     * Extract properties from the given list of cells.
+     *
+     * @param cells
+     *            text of the cells of the property table.
+     */
+    abstract void parseInternal(List<String> cells);
+
+    /**
+     * Return the minimum count of cells the property table is expected to contain.
+     *
+     * @return minimum count of cells the property table is expected to contain.
+     */
+    abstract int getExpectedNodeLen();
+
+    /**
+     * Handler collecting the text preceding the first child element of the cells of the property table.
+     *
+     * @author Dirk Weigenand
+     */
+    private final class PropertyTableHandler extends HtmlScanner.Handler {
+        /**
+         * number of tables (not contained in other tables or forms) seen so far.
+         */
+        private int tables;
+
+        /**
+         * number of currently open tables and forms.
+         */
+        private int openTablesAndForms;
+
+        /**
+         * depth of the property table (-1 when not inside it).
+         */
+        private int tableDepth = -1;
+
+        /**
+         * text of current cell (<code>null</code> when not inside a cell or after its first child element).
+         */
+        private StringBuilder cell;
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void startElement(final String name, final Map<String, String> attributes, final int depth) {
+            if ("table".equals(name) || "form".equals(name)) {
+                if ("table".equals(name) && openTablesAndForms == 0 && ++tables == PROPERTY_TABLE) {
+                    tableDepth = depth;
+                }
+
+                openTablesAndForms++;
+            }
+
+            if (tableDepth > -1) {
+                if ("td".equals(name) && depth == tableDepth + 2) {
+                    cell = new StringBuilder();
+                }
+                else if (cell != null) {
+                    addCell();
+                }
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void endElement(final String name, final int depth) {
+            if ("table".equals(name) || "form".equals(name)) {
+                openTablesAndForms--;
+
+                if (depth == tableDepth) {
+                    tableDepth = -1;
+                }
+            }
+            else if ("td".equals(name) && depth == tableDepth + 2 && cell != null) {
+                addCell();
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void text(final String text, final int depth) {
+            if (cell != null) {
+                cell.append(text);
+            }
+        }
+
+        /**
+         * Add the text collected for the current cell to the list of cells.
+         */
+        private void addCell() {
+            cells.add(HtmlScanner.normalize(cell));
+            cell = null;
+        }
+    }
+}
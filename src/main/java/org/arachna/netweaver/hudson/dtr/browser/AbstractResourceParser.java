@@ -5,83 +5,67 @@ package org.arachna.netweaver.hudson.dtr.browser;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.List;
-
-import org.jaxen.JaxenException;
-import org.jaxen.dom.DOMXPath;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
+import java.io.InputStreamReader;
 
 /**
  * Base class for resource parsers. Implements logic common to all parsers extracting information read from the DTR.
- * 
+ *
+ * Pages are read using a {@link HtmlScanner}, i.e. sequentially without building a document tree. Parsers provide a
+ * {@link HtmlScanner.Handler} extracting the information they need while the page is being read.
+ *
  * @author Dirk Weigenand
  */
 abstract class AbstractResourceParser {
+    /**
+     * encoding of DTR pages.
+     */
+    static final String ENCODING = "ISO-8859-1";
+
     /**
      * Parses the given <code>InputStream</code> and updates the activities details.
-     * 
+     *
      * @param content
      *            of the activities detail HTML page.
      */
     final void parse(final InputStream content) {
-        final Document document = JTidyHelper.getDocument(content);
-
         try {
-            content.close();
-            final DOMXPath xPath = new DOMXPath(getXPath());
-
-            final List selectedNodes = xPath.selectNodes(document);
-
-            if (selectedNodes.size() < getExpectedNodeLen()) {
-                throw new IllegalStateException(String.format("%s did not yield expected node count!", getXPath()));
-            }
-
-            parseInternal(selectedNodes);
-        }
-        catch (final JaxenException e) {
-            throw new IllegalStateException(e);
+            new HtmlScanner(createHandler()).scan(new InputStreamReader(content, ENCODING));
         }
         catch (final IOException e) {
             throw new IllegalStateException(e);
         }
-    }
-
-    /**
-     * Extracts the node's value as text at the given index.
-     * 
-     * @param nodes
-     *            a list of {@link Nodes} representing a XPath selection result.
-     * @param index
-     *            index into the list of nodes
-     * 
-     * @return node's value as text at the given index.
-     */
-    protected final String nodeValueAt(final List<Object> nodes, final int index) {
-        final Node textNode = ((Node)nodes.get(index)).getFirstChild();
+        finally {
+            close(content);
+        }
 
-        return textNode == null ? "" : textNode.getNodeValue();
+        endOfPage();
     }
 
     /**
-     * Extract resources from the given list of nodes.
-     * 
-     * @param nodes
-     *            list of selected nodes
+     * Close the given stream.
+     *
+     * @param content
+     *            the stream to close.
      */
-    abstract void parseInternal(List nodes);
+    private void close(final InputStream content) {
+        try {
+            content.close();
+        }
+        catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
     /**
-     * Get the XPath to use extracting resources.
-     * 
-     * @return XPath to use extracting resources.
+     * Create the handler extracting information from the page being parsed.
+     *
+     * @return handler extracting information from the page being parsed.
      */
-    abstract String getXPath();
+    abstract HtmlScanner.Handler createHandler();
 
     /**
-     * Return the minimum count of nodes one can expect when applying the XPath expression returned by {@see #getXPath()}.
-     * 
-     * @return minimum count of nodes selected by getXPath().
+     * Called when the page was read completely. Does nothing by default.
      */
-    abstract int getExpectedNodeLen();
+    void endOfPage() {
+    }
 }
@@ -55,6 +55,11 @@ public final class Activity {
      */
     private final Map<String, String> activityUrlParams = new LinkedHashMap<String, String>();
 
+    /**
+     * Integration sequence numbers of this activity mapped by the workspaces it was integrated into.
+     */
+    private final Map<String, Integer> integrationSequenceNumbers = new LinkedHashMap<String, Integer>();
+
     /**
      * Create an instance of an <code>Activity</code> using the principal that created it, its description and checkin date. Also contains
      * the relative URL where the content of the activity can be browsed.
@@ -116,6 +121,49 @@ public final class Activity {
         this.description = description;
     }
 
+    /**
+     * Add an integration of this activity into the given workspace.
+     * 
+     * @param workspace
+     *            path of workspace the activity was integrated into (e.g. '/ws/track/vendor_SC/dev/inactive/').
+     * @param integrationSequenceNumber
+     *            the integration sequence number of the activity in the given workspace.
+     */
+    void addIntegration(final String workspace, final int integrationSequenceNumber) {
+        integrationSequenceNumbers.put(normalizeWorkspace(workspace), Integer.valueOf(integrationSequenceNumber));
+    }
+
+    /**
+     * Returns the integration sequence number of this activity in the given workspace.
+     * 
+     * @param workspace
+     *            path of workspace (leading and trailing '/' are ignored).
+     * @return the integration sequence number of this activity in the given workspace or <code>null</code> when it is not known.
+     */
+    public Integer getIntegrationSequenceNumber(final String workspace) {
+        return integrationSequenceNumbers.get(normalizeWorkspace(workspace));
+    }
+
+    /**
+     * Returns the integration sequence numbers of this activity mapped by the workspaces it was integrated into.
+     * 
+     * @return the integration sequence numbers of this activity mapped by workspace.
+     */
+    Map<String, Integer> getIntegrationSequenceNumbers() {
+        return Collections.unmodifiableMap(integrationSequenceNumbers);
+    }
+
+    /**
+     * Remove leading and trailing '/' from the given workspace path.
+     * 
+     * @param workspace
+     *            workspace path to normalize.
+     * @return the normalized workspace path.
+     */
+    private static String normalizeWorkspace(final String workspace) {
+        return StringUtils.strip(workspace, "/");
+    }
+
     /**
      * @return the activityUrl
      */
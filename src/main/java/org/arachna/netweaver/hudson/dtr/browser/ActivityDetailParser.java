@@ -3,23 +3,28 @@
  */
 package org.arachna.netweaver.hudson.dtr.browser;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Parser for an activity detail HTML page.
  * 
+ * Besides the long description the integrations of the activity are read, i.e. the integration sequence numbers the activity was
+ * integrated with into the workspaces listed in the integrations table.
+ * 
  * @author Dirk Weigenand
  */
-final class ActivityDetailParser extends AbstractResourceParser {
+final class ActivityDetailParser extends AbstractPropertyTableParser {
     /**
      * index of long description in details table.
      */
     private static final int LONG_DESCRIPTION = 15;
 
     /**
-     * XPath expression for selecting the <td>s of the activity's properties.
+     * prefix of workspace paths.
      */
-    private static final String XPATH = "/html/body/table[3]/tr/td";
+    private static final String WORKSPACE_PREFIX = "/ws/";
 
     /**
      * {@link Activity} to update.
@@ -37,19 +42,45 @@ final class ActivityDetailParser extends AbstractResourceParser {
     }
 
     /**
-     * Updates the activity's long description.
+     * Create a handler reading the property table and the integrations of the activity.
      * 
-     * @param nodes
-     *            list of nodes containing an activity's details.
+     * @return handler reading the property table and the integrations of the activity.
      */
     @Override
-    void parseInternal(final List nodes) {
-        activity.setDescription(nodeValueAt(nodes, LONG_DESCRIPTION));
+    HtmlScanner.Handler createHandler() {
+        final HtmlScanner.Handler propertyTableHandler = super.createHandler();
+        final HtmlScanner.Handler integrationsHandler = new IntegrationsHandler();
+
+        return new HtmlScanner.Handler() {
+            @Override
+            void startElement(final String name, final Map<String, String> attributes, final int depth) {
+                propertyTableHandler.startElement(name, attributes, depth);
+                integrationsHandler.startElement(name, attributes, depth);
+            }
+
+            @Override
+            void endElement(final String name, final int depth) {
+                propertyTableHandler.endElement(name, depth);
+                integrationsHandler.endElement(name, depth);
+            }
+
+            @Override
+            void text(final String text, final int depth) {
+                propertyTableHandler.text(text, depth);
+                integrationsHandler.text(text, depth);
+            }
+        };
     }
 
+    /**
+     * Updates the activity's long description.
+     * 
+     * @param nodes
+     *            text of the cells containing an activity's details.
+     */
     @Override
-    String getXPath() {
-        return XPATH;
+    void parseInternal(final List<String> nodes) {
+        activity.setDescription(nodeValueAt(nodes, LONG_DESCRIPTION));
     }
 
     /**
@@ -57,6 +88,73 @@ final class ActivityDetailParser extends AbstractResourceParser {
      */
     @Override
     int getExpectedNodeLen() {
-        return LONG_DESCRIPTION;
+        return LONG_DESCRIPTION + 1;
+    }
+
+    /**
+     * Handler reading the rows of the integrations table. Each row starts with the workspace followed by the integration sequence number
+     * of the activity in this workspace.
+     * 
+     * @author Dirk Weigenand
+     */
+    private final class IntegrationsHandler extends HtmlScanner.Handler {
+        /**
+         * text of the cells of the currently open rows (the innermost last). Text is only collected for the innermost row.
+         */
+        private final List<List<StringBuilder>> rows = new ArrayList<List<StringBuilder>>();
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void startElement(final String name, final Map<String, String> attributes, final int depth) {
+            if ("tr".equals(name)) {
+                rows.add(new ArrayList<StringBuilder>());
+            }
+            else if ("td".equals(name) && !rows.isEmpty()) {
+                rows.get(rows.size() - 1).add(new StringBuilder());
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void endElement(final String name, final int depth) {
+            if ("tr".equals(name) && !rows.isEmpty()) {
+                addIntegration(rows.remove(rows.size() - 1));
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void text(final String text, final int depth) {
+            if (!rows.isEmpty()) {
+                final List<StringBuilder> cells = rows.get(rows.size() - 1);
+
+                if (!cells.isEmpty()) {
+                    cells.get(cells.size() - 1).append(text);
+                }
+            }
+        }
+
+        /**
+         * Add an integration to the activity when the given row describes one.
+         * 
+         * @param cells
+         *            text of the cells of the row.
+         */
+        private void addIntegration(final List<StringBuilder> cells) {
+            if (cells.size() > 1) {
+                final String workspace = HtmlScanner.normalize(cells.get(0));
+                final String isn = HtmlScanner.normalize(cells.get(1));
+
+                if (workspace.startsWith(WORKSPACE_PREFIX) && isn.matches("\\d+")) {
+                    activity.addIntegration(workspace, Integer.parseInt(isn));
+                }
+            }
+        }
     }
 }
@@ -8,10 +8,8 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
-import org.jaxen.JaxenException;
-import org.jaxen.dom.DOMXPath;
-import org.w3c.dom.Node;
 
 /**
  * Parser for a DTR activity list.
@@ -28,56 +26,54 @@ final class ActivityListParser extends AbstractResourceParser {
     static final String ACTIVITY_DATE_FORMAT = "dd.MM.yyyy HH:mm:ss z";
 
     /**
-     * XPath expression for extracting activities.
+     * prefix of links to activities.
      */
-    private static final String XPATH =
-        "//a[starts-with(@href, '/dtr/system-tools/reports/ResourceDetails?') and contains(@href, 'path=/act/')]/../..";
+    private static final String ACTIVITY_LINK = "/dtr/system-tools/reports/ResourceDetails?";
 
     /**
-     * List of extracted activities.
+     * path prefix of activities in links to activities.
      */
-    private final List<Activity> activities = new ArrayList<Activity>();
+    private static final String ACTIVITY_PATH = "path=/act/";
 
     /**
-     * {@link ActivityFilter} to use when parsing activities. Initialized with an accept all filter.
+     * column containing the link to the activity (with its short description as text).
      */
-    private ActivityFilter activityFilter = new ActivityFilter() {
-        @Override
-        public boolean accept(final Activity activity) {
-            return true;
-        }
-    };
+    private static final int ACTIVITY_COLUMN = 1;
 
     /**
-     * date parser for check in times.
+     * column containing the link to the principal.
      */
-    private final SimpleDateFormat dateParser = new SimpleDateFormat(ACTIVITY_DATE_FORMAT);
+    private static final int PRINCIPAL_COLUMN = 3;
 
     /**
-     * XPath for matching check in dates.
+     * column containing the check in date.
      */
-    private DOMXPath checkInDateXPath;
+    private static final int CHECK_IN_DATE_COLUMN = 4;
 
     /**
-     * XPath for matching the short description of an activity.
+     * List of extracted activities.
      */
-    private DOMXPath commentXPath;
+    private final List<Activity> activities = new ArrayList<Activity>();
 
     /**
-     * XPath for matching the principal of an activity.
+     * {@link ActivityFilter} to use when parsing activities. Initialized with an accept all filter.
      */
-    private DOMXPath principalXPath;
+    private ActivityFilter activityFilter = new ActivityFilter() {
+        @Override
+        public boolean accept(final Activity activity) {
+            return true;
+        }
+    };
 
     /**
-     * XPath for matching check in dates.
+     * date parser for check in times.
      */
-    private DOMXPath activityXPath;
+    private final SimpleDateFormat dateParser = new SimpleDateFormat(ACTIVITY_DATE_FORMAT);
 
     /**
      * Create an instance of an {@link ActivityListParser}.
      */
     ActivityListParser() {
-        setUpXPaths();
     }
 
     /**
@@ -94,146 +90,269 @@ final class ActivityListParser extends AbstractResourceParser {
         }
 
         this.activityFilter = activityFilter;
-        setUpXPaths();
     }
 
     /**
-     * Initialize XPath expression used later on to extract details of activities.
+     * Create a handler extracting activities from the rows of the activity list (<code>//a[starts-with(@href,
+     * '/dtr/system-tools/reports/ResourceDetails?') and contains(@href, 'path=/act/')]/../..</code>). Each row is converted into an
+     * {@link Activity} as soon as it has been read.
+     * 
+     * @return handler extracting activities.
      */
-    private void setUpXPaths() {
-        try {
-            commentXPath = new DOMXPath("td[1]/a");
-            principalXPath = new DOMXPath("td[3]/a");
-            checkInDateXPath = new DOMXPath("td[4]/text()");
-            activityXPath = new DOMXPath("td[1]/a/@href");
-        }
-        catch (final JaxenException e) {
-            throw new IllegalStateException(e);
-        }
+    @Override
+    HtmlScanner.Handler createHandler() {
+        return new ActivityRowHandler();
     }
 
     /**
-     * Create an instance of an {@link Activity} from the given {@link org.w3c.dom.Node}.
+     * Create an instance of an {@link Activity} from the given row and add it to the list of activities when it is accepted by the
+     * activity filter.
      * 
-     * @param node
-     *            the node the activity's data should be read from.
-     * @return the activity extracted from the given node.
-     * @throws JaxenException
-     *             when there was an error evaluating the XPath expressions used to extract the data
-     * @throws ParseException
-     *             when there was an error parsing the activity's date.
-     */
-    private Activity createActivity(final Node node) throws JaxenException, ParseException {
-    	if ("".equals(checkInDateXPath.stringValueOf(node))) {
-    		// filter empty dates
-    		return null;
-    	}
-    	
-        return new Activity(getActivityUrl(node), getPrincipal(node), getComment(node), getCheckInDate(node));
-    }
+     * @param row
+     *            the row the activity's data should be read from.
+     */
+    private void addActivity(final ActivityRow row) {
+        final String checkInDate = row.getText(CHECK_IN_DATE_COLUMN);
 
-    /**
-     * Get the short description from the given node.
-     * 
-     * @param node
-     *            the node the short description should be read from.
-     * @return the short description extracted from the given node.
-     * @throws JaxenException
-     *             when there was an error evaluating the XPath expressions used to extract the data
-     */
-    private String getComment(final Node node) throws JaxenException {
-        return commentXPath.stringValueOf(node);
-    }
+        // filter empty dates
+        if (!"".equals(checkInDate)) {
+            try {
+                final Activity activity =
+                    new Activity(row.getLinkReference(ACTIVITY_COLUMN), new Principal(row.getLinkText(PRINCIPAL_COLUMN).replace(
+                        "/principals/", "")), row.getLinkText(ACTIVITY_COLUMN), dateParser.parse(checkInDate));
 
-    /**
-     * Get the check in date from the given node.
-     * 
-     * @param node
-     *            the node the activity's check in date should be read from.
-     * @return the check in date extracted from the given node.
-     * @throws JaxenException
-     *             when there was an error evaluating the XPath expressions used to extract the data
-     * @throws ParseException
-     *             when there was an error parsing the activity's date.
-     */
-    private Date getCheckInDate(final Node node) throws JaxenException, ParseException {
-        return dateParser.parse(checkInDateXPath.stringValueOf(node));
+                if (activityFilter.accept(activity)) {
+                    activities.add(activity);
+                }
+            }
+            catch (final ParseException e) {
+                throw new IllegalStateException(e);
+            }
+        }
     }
 
     /**
-     * Get the UME principal's name of the activity from the given node.
+     * Returns the list of extracted activities.
      * 
-     * @param node
-     *            the node the UME princiapl's name should be read from.
-     * @return the UME principal's name extracted from the given node.
-     * @throws JaxenException
-     *             when there was an error evaluating the XPath expressions used to extract the data
-     */
-    private Principal getPrincipal(final Node node) throws JaxenException {
-        return new Principal(principalXPath.stringValueOf(node).replace("/principals/", ""));
+     * @return the list of extracted activities.
+     */
+    List<Activity> getActivities() {
+        return activities;
     }
 
     /**
-     * Get the activity's url from the given node.
+     * Handler collecting the cells of table rows and adding activities for rows containing a link to an activity.
      * 
-     * @param node
-     *            the node the activity's url should be read from.
-     * @return the activity's url extracted from the given node.
-     * @throws JaxenException
-     *             when there was an error evaluating the XPath expressions used to extract the data
-     */
-    private String getActivityUrl(final Node node) throws JaxenException {
-        return activityXPath.stringValueOf(node);
+     * @author Dirk Weigenand
+     */
+    private final class ActivityRowHandler extends HtmlScanner.Handler {
+        /**
+         * currently open rows (the innermost last).
+         */
+        private final List<ActivityRow> rows = new ArrayList<ActivityRow>();
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void startElement(final String name, final Map<String, String> attributes, final int depth) {
+            if ("tr".equals(name)) {
+                rows.add(new ActivityRow(depth));
+            }
+            else if (!rows.isEmpty()) {
+                rows.get(rows.size() - 1).startElement(name, attributes, depth);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void endElement(final String name, final int depth) {
+            if (!rows.isEmpty()) {
+                final ActivityRow row = rows.get(rows.size() - 1);
+
+                if ("tr".equals(name) && depth == row.depth) {
+                    rows.remove(rows.size() - 1);
+
+                    if (row.containsActivityLink) {
+                        addActivity(row);
+                    }
+                }
+                else {
+                    row.endElement(depth);
+                }
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        void text(final String text, final int depth) {
+            if (!rows.isEmpty()) {
+                rows.get(rows.size() - 1).text(text, depth);
+            }
+        }
     }
 
     /**
-     * Extract activities from the given {@link java.io.InputStream}.
+     * The cells of a table row: their text and the text and reference of the first link contained in them.
      * 
-     * @param nodes
-     *            extracted from activity list.
+     * @author Dirk Weigenand
      */
-    @Override
-    void parseInternal(final List nodes) {
-        Node node;
-        Activity activity;
+    private static final class ActivityRow {
+        /**
+         * depth of row element.
+         */
+        private final int depth;
 
-        try {
-            for (final Object returnValue : nodes) {
-                node = (Node)returnValue;
-                activity = createActivity(node);
+        /**
+         * text of cells (i.e. of the first text node contained in them).
+         */
+        private final List<StringBuilder> texts = new ArrayList<StringBuilder>();
 
-                if (activity != null && activityFilter.accept(activity)) {
-                    activities.add(activity);
+        /**
+         * text of the first link contained in each cell.
+         */
+        private final List<StringBuilder> linkTexts = new ArrayList<StringBuilder>();
+
+        /**
+         * reference of the first link contained in each cell.
+         */
+        private final List<String> linkReferences = new ArrayList<String>();
+
+        /**
+         * whether this row contains a link to an activity.
+         */
+        private boolean containsActivityLink;
+
+        /**
+         * whether the text of the current cell is complete (i.e. a child element followed text in it).
+         */
+        private boolean textComplete;
+
+        /**
+         * whether the current cell is open.
+         */
+        private boolean inCell;
+
+        /**
+         * depth of first link in current cell (-1 when not inside it).
+         */
+        private int linkDepth = -1;
+
+        /**
+         * Create a row with the given depth.
+         * 
+         * @param depth
+         *            depth of row element.
+         */
+        ActivityRow(final int depth) {
+            this.depth = depth;
+        }
+
+        /**
+         * An element inside the row was opened.
+         * 
+         * @param name
+         *            element name.
+         * @param attributes
+         *            attributes of element.
+         * @param elementDepth
+         *            depth of element.
+         */
+        void startElement(final String name, final Map<String, String> attributes, final int elementDepth) {
+            if ("td".equals(name) && elementDepth == depth + 1) {
+                texts.add(new StringBuilder());
+                linkTexts.add(null);
+                linkReferences.add(null);
+                inCell = true;
+                textComplete = false;
+            }
+            else if (inCell) {
+                final int cell = texts.size() - 1;
+                textComplete = texts.get(cell).length() > 0;
+
+                if ("a".equals(name) && elementDepth == depth + 2 && linkReferences.get(cell) == null) {
+                    final String href = attributes.get("href");
+                    linkReferences.set(cell, href == null ? "" : href);
+                    linkTexts.set(cell, new StringBuilder());
+                    linkDepth = elementDepth;
+                    containsActivityLink |= href != null && href.startsWith(ACTIVITY_LINK) && href.contains(ACTIVITY_PATH);
                 }
             }
         }
-        catch (final ParseException e) {
-            throw new IllegalStateException(e);
+
+        /**
+         * An element inside the row was closed.
+         * 
+         * @param elementDepth
+         *            depth of element.
+         */
+        void endElement(final int elementDepth) {
+            if (elementDepth == linkDepth) {
+                linkDepth = -1;
+            }
+            else if (elementDepth == depth + 1) {
+                inCell = false;
+            }
         }
-        catch (final JaxenException e) {
-            throw new IllegalStateException(e);
+
+        /**
+         * Text inside the row was read.
+         * 
+         * @param text
+         *            the text read.
+         * @param textDepth
+         *            depth of element containing the text.
+         */
+        void text(final String text, final int textDepth) {
+            if (inCell) {
+                final int cell = texts.size() - 1;
+
+                if (textDepth == depth + 1 && !textComplete) {
+                    texts.get(cell).append(text);
+                }
+
+                if (linkDepth > -1) {
+                    linkTexts.get(cell).append(text);
+                }
+            }
         }
-    }
 
-    @Override
-    String getXPath() {
-        return XPATH;
-    }
+        /**
+         * Returns the text of the given column (the first column is 1).
+         * 
+         * @param column
+         *            the column to return the text for.
+         * @return text of the given column or the empty string when there is no such column.
+         */
+        String getText(final int column) {
+            return column > texts.size() ? "" : HtmlScanner.normalize(texts.get(column - 1));
+        }
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    int getExpectedNodeLen() {
-        return 0;
-    }
+        /**
+         * Returns the text of the first link in the given column (the first column is 1).
+         * 
+         * @param column
+         *            the column to return the link text for.
+         * @return text of the first link in the given column or the empty string when there is no such link.
+         */
+        String getLinkText(final int column) {
+            return column > linkTexts.size() || linkTexts.get(column - 1) == null ? "" : HtmlScanner.normalize(linkTexts
+                .get(column - 1));
+        }
 
-    /**
-     * Returns the list of extracted activities.
-     * 
-     * @return the list of extracted activities.
-     */
-    List<Activity> getActivities() {
-        return activities;
+        /**
+         * Returns the reference of the first link in the given column (the first column is 1).
+         * 
+         * @param column
+         *            the column to return the link reference for.
+         * @return reference of the first link in the given column or the empty string when there is no such link.
+         */
+        String getLinkReference(final int column) {
+            return column > linkReferences.size() || linkReferences.get(column - 1) == null ? "" : linkReferences.get(column - 1);
+        }
     }
 }
@@ -3,13 +3,12 @@
  */
 package org.arachna.netweaver.hudson.dtr.browser;
 
-import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.arachna.netweaver.dc.types.DevelopmentComponent;
 import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
-import org.w3c.dom.Node;
 
 /**
  * A parser for {@link ActivityResource}s. Parses a DTR HTML report of a specific activity and returns the found resources.
@@ -18,10 +17,14 @@ import org.w3c.dom.Node;
  */
 public final class ActivityResourceParser extends AbstractResourceParser {
     /**
-     * XPath expression to extract resources.
+     * prefix of links to resource details.
      */
-    private static final String XPATH =
-        "//a[starts-with(@href, '/dtr/system-tools/reports/ResourceDetails?') and contains(@href, 'path=/vh/')]";
+    private static final String RESOURCE_DETAILS_LINK = "/dtr/system-tools/reports/ResourceDetails?";
+
+    /**
+     * path prefix of resource versions in links to resource details.
+     */
+    private static final String RESOURCE_VERSION_PATH = "path=/vh/";
 
     /**
      * Pattern matching the resources ID.
@@ -74,39 +77,79 @@ public final class ActivityResourceParser extends AbstractResourceParser {
         this.activity = activity;
     }
 
-    @Override
-    String getXPath() {
-        return XPATH;
-    }
-
     /**
-     * Parses a DTR HTML report of a specific activity and updates the activity with the found resources.
+     * Create a handler extracting the links to resource versions (<code>//a[starts-with(@href,
+     * '/dtr/system-tools/reports/ResourceDetails?') and contains(@href, 'path=/vh/')]</code>) and updating the activity with the found
+     * resources.
      * 
-     * @param nodes
-     *            DOM nodes representing the extracted resources.
+     * @return handler extracting resources.
      */
     @Override
-    public void parseInternal(final List nodes) {
-        for (final Object returnValue : nodes) {
-            addResource((Node)returnValue);
-        }
+    HtmlScanner.Handler createHandler() {
+        return new HtmlScanner.Handler() {
+            /**
+             * reference of current link to a resource version (<code>null</code> when not inside such a link).
+             */
+            private String href;
+
+            /**
+             * text of current link.
+             */
+            private final StringBuilder text = new StringBuilder();
+
+            @Override
+            void startElement(final String name, final Map<String, String> attributes, final int depth) {
+                addResource();
+
+                if ("a".equals(name)) {
+                    final String reference = attributes.get("href");
+
+                    if (reference != null && reference.startsWith(RESOURCE_DETAILS_LINK)
+                        && reference.contains(RESOURCE_VERSION_PATH)) {
+                        href = reference;
+                    }
+                }
+            }
+
+            @Override
+            void endElement(final String name, final int depth) {
+                addResource();
+            }
+
+            @Override
+            void text(final String text, final int depth) {
+                if (href != null) {
+                    this.text.append(text);
+                }
+            }
+
+            /**
+             * Add a resource for the current link (if any) using the text preceding its first child element.
+             */
+            private void addResource() {
+                if (href != null) {
+                    ActivityResourceParser.this.addResource(HtmlScanner.normalize(text), href);
+                    href = null;
+                    text.setLength(0);
+                }
+            }
+        };
     }
 
     /**
-     * Create a {@link ActivityResource} from the given <code>Node</code>.
+     * Create a {@link ActivityResource} from the given resource path and link.
      * 
-     * @param node
-     *            node to extract the <code>ActivityResource</code> from.
+     * @param resourcePath
+     *            path of the resource (i.e. the text of the link).
+     * @param href
+     *            link to the details of the resource version.
      */
-    private void addResource(final Node node) {
-        final String resourcePath = node.getChildNodes().item(0).getNodeValue();
-
+    private void addResource(final String resourcePath, final String href) {
         if (isResourcePathDevelopmentComponentResource(resourcePath)) {
             final DevelopmentComponent component =
                 developmentComponentFactory.create(getVendor(resourcePath), getDevelopmentComponentName(resourcePath));
             final ActivityResource resource =
-                new ActivityResource(activity, component, getResourcePath(resourcePath), getResourceId(node.getAttributes()
-                    .getNamedItem("href").getNodeValue()));
+                new ActivityResource(activity, component, getResourcePath(resourcePath), getResourceId(href));
             activity.add(resource);
         }
     }
@@ -182,11 +225,4 @@ public final class ActivityResourceParser extends AbstractResourceParser {
         return matcher.group(1);
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    int getExpectedNodeLen() {
-        return 0;
-    }
 }
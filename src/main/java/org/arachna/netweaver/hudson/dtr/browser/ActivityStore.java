@@ -0,0 +1,554 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+
+/**
+ * Persistent store for the details and resources of closed DTR activities.
+ *
+ * Closed activities and the resource versions contained in them never change.
+ * The store keeps what was read from the DTR about them in an append only file
+ * (keyed by activity path and resource id) so that they need not be read again
+ * in later builds.
+ *
+ * The file starts with a header identifying its format followed by one record
+ * per activity. A record which could not be read completely (i.e. writing it
+ * was interrupted) is discarded along with all following data.
+ *
+ * @author Dirk Weigenand
+ */
+public final class ActivityStore {
+    /**
+     * Logger to use.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ActivityStore.class.getName());
+
+    /**
+     * header identifying the format of the store. Has to be changed whenever
+     * the format of the records changes so that stores written in another
+     * format are discarded as a whole instead of being read partially.
+     */
+    private static final int HEADER = 0x4e574433;
+
+    /**
+     * marker for a missing integer value.
+     */
+    private static final int NO_VALUE = -1;
+
+    /**
+     * file containing the stored activities.
+     */
+    private final File file;
+
+    /**
+     * stored activities mapped by their path. <code>null</code> until the
+     * file was read.
+     */
+    private Map<String, StoredActivity> activities;
+
+    /**
+     * Create an activity store using the given file.
+     *
+     * @param file
+     *            file to read stored activities from and to append new ones
+     *            to.
+     */
+    public ActivityStore(final File file) {
+        if (file == null) {
+            throw new IllegalArgumentException("file must not be null!");
+        }
+
+        this.file = file;
+    }
+
+    /**
+     * Update the given activity with the description and resources stored
+     * for it.
+     *
+     * @param activity
+     *            activity to update.
+     * @param dcFactory
+     *            registry to use for creating/getting the development
+     *            components the resources of the activity belong to.
+     * @return <code>true</code> when the activity was found in the store and
+     *         updated, <code>false</code> otherwise.
+     */
+    public synchronized boolean restore(final Activity activity, final DevelopmentComponentFactory dcFactory) {
+        final StoredActivity stored = getActivities().get(activity.getActivityPath());
+
+        if (stored != null) {
+            stored.restore(activity, dcFactory);
+        }
+
+        return stored != null;
+    }
+
+    /**
+     * Returns whether the given activity is contained in this store.
+     *
+     * @param activity
+     *            activity to look up.
+     * @return <code>true</code> when the given activity is contained in this
+     *         store, <code>false</code> otherwise.
+     */
+    public synchronized boolean contains(final Activity activity) {
+        return getActivities().containsKey(activity.getActivityPath());
+    }
+
+    /**
+     * Append the description and resources of the given activity to the
+     * store. Activities already stored are ignored.
+     *
+     * @param activity
+     *            activity to store.
+     */
+    public synchronized void store(final Activity activity) {
+        if (!contains(activity)) {
+            final StoredActivity stored = new StoredActivity(activity);
+
+            try {
+                append(stored);
+                activities.put(stored.path, stored);
+            }
+            catch (final IOException e) {
+                LOGGER.log(Level.WARNING, String.format("Could not write activity %s to %s.", stored.path, file), e);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of stored activities.
+     *
+     * @return number of stored activities.
+     */
+    public synchronized int size() {
+        return getActivities().size();
+    }
+
+    /**
+     * Returns the stored activities. Reads the file on first access.
+     *
+     * @return the stored activities mapped by their path.
+     */
+    private Map<String, StoredActivity> getActivities() {
+        if (activities == null) {
+            activities = new HashMap<String, StoredActivity>();
+
+            try {
+                read();
+            }
+            catch (final IOException e) {
+                LOGGER.log(Level.WARNING, String.format("Could not read stored activities from %s.", file), e);
+            }
+        }
+
+        return activities;
+    }
+
+    /**
+     * Read the stored activities from the file. Truncates the file after the
+     * last complete record.
+     *
+     * @throws IOException
+     *             when reading the file fails.
+     */
+    private void read() throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        long validLength = 0;
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+        try {
+            if (input.readInt() == HEADER) {
+                validLength = Integer.SIZE / Byte.SIZE;
+
+                int length = input.readInt();
+
+                while (length > 0) {
+                    final byte[] record = new byte[length];
+                    input.readFully(record);
+
+                    final StoredActivity stored =
+                        new StoredActivity(new DataInputStream(new ByteArrayInputStream(record)));
+                    activities.put(stored.path, stored);
+                    validLength += Integer.SIZE / Byte.SIZE + length;
+                    length = input.readInt();
+                }
+            }
+        }
+        catch (final EOFException e) {
+            // end of file or incomplete record reached.
+        }
+        finally {
+            input.close();
+        }
+
+        if (validLength < file.length()) {
+            truncate(validLength);
+        }
+    }
+
+    /**
+     * Truncate the file to the given length.
+     *
+     * @param length
+     *            the new length of the file.
+     * @throws IOException
+     *             when truncating the file fails
+     */
+    private void truncate(final long length) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+        try {
+            raf.setLength(length);
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Append the given activity to the file. The record is written in a single
+     * operation preceded by its length.
+     *
+     * @param stored
+     *            activity to append.
+     * @throws IOException
+     *             when writing the file fails.
+     */
+    private void append(final StoredActivity stored) throws IOException {
+        final ByteArrayOutputStream record = new ByteArrayOutputStream();
+        final DataOutputStream recordOutput = new DataOutputStream(record);
+        stored.write(recordOutput);
+        recordOutput.close();
+
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(buffer);
+
+        if (!file.exists() || file.length() == 0) {
+            output.writeInt(HEADER);
+        }
+
+        output.writeInt(record.size());
+        record.writeTo(output);
+        output.close();
+
+        final FileOutputStream fileOutput = new FileOutputStream(file, true);
+
+        try {
+            buffer.writeTo(fileOutput);
+        }
+        finally {
+            fileOutput.close();
+        }
+    }
+
+    /**
+     * Write the given string (which may be <code>null</code>) to the given
+     * output.
+     *
+     * @param output
+     *            output to write to.
+     * @param value
+     *            string to write.
+     * @throws IOException
+     *             when writing fails
+     */
+    private static void writeString(final DataOutputStream output, final String value) throws IOException {
+        if (value == null) {
+            output.writeInt(NO_VALUE);
+        }
+        else {
+            final byte[] bytes = value.getBytes("UTF-8");
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    /**
+     * Read a string (which may be <code>null</code>) from the given input.
+     *
+     * @param input
+     *            input to read from.
+     * @return the string read.
+     * @throws IOException
+     *             when reading fails
+     */
+    private static String readString(final DataInputStream input) throws IOException {
+        final int length = input.readInt();
+
+        if (length == NO_VALUE) {
+            return null;
+        }
+
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+
+        return new String(bytes, "UTF-8");
+    }
+
+    /**
+     * An activity as kept in the store.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class StoredActivity {
+        /**
+         * path of activity.
+         */
+        private final String path;
+
+        /**
+         * long description of activity.
+         */
+        private final String description;
+
+        /**
+         * resources of activity.
+         */
+        private final List<StoredResource> resources = new ArrayList<StoredResource>();
+
+        /**
+         * integration sequence numbers of activity mapped by workspace.
+         */
+        private final Map<String, Integer> integrations = new LinkedHashMap<String, Integer>();
+
+        /**
+         * Create a stored activity from the given activity.
+         *
+         * @param activity
+         *            activity to store.
+         */
+        StoredActivity(final Activity activity) {
+            path = activity.getActivityPath();
+            description = activity.getDescription();
+
+            for (final ActivityResource resource : activity.getResources()) {
+                resources.add(new StoredResource(resource));
+            }
+
+            integrations.putAll(activity.getIntegrationSequenceNumbers());
+        }
+
+        /**
+         * Read a stored activity from the given input.
+         *
+         * @param input
+         *            input to read from.
+         * @throws IOException
+         *             when reading fails
+         */
+        StoredActivity(final DataInputStream input) throws IOException {
+            path = readString(input);
+            description = readString(input);
+
+            final int count = input.readInt();
+
+            for (int i = 0; i < count; i++) {
+                resources.add(new StoredResource(input));
+            }
+
+            final int integrationCount = input.readInt();
+
+            for (int i = 0; i < integrationCount; i++) {
+                integrations.put(readString(input), Integer.valueOf(input.readInt()));
+            }
+        }
+
+        /**
+         * Write this activity to the given output.
+         *
+         * @param output
+         *            output to write to.
+         * @throws IOException
+         *             when writing fails
+         */
+        void write(final DataOutputStream output) throws IOException {
+            writeString(output, path);
+            writeString(output, description);
+            output.writeInt(resources.size());
+
+            for (final StoredResource resource : resources) {
+                resource.write(output);
+            }
+
+            output.writeInt(integrations.size());
+
+            for (final Map.Entry<String, Integer> integration : integrations.entrySet()) {
+                writeString(output, integration.getKey());
+                output.writeInt(integration.getValue().intValue());
+            }
+        }
+
+        /**
+         * Update the given activity with the stored description, resources and integrations.
+         *
+         * @param activity
+         *            activity to update.
+         * @param dcFactory
+         *            registry for development components.
+         */
+        void restore(final Activity activity, final DevelopmentComponentFactory dcFactory) {
+            activity.setDescription(description);
+
+            for (final StoredResource resource : resources) {
+                activity.add(resource.restore(activity, dcFactory));
+            }
+
+            for (final Map.Entry<String, Integer> integration : integrations.entrySet()) {
+                activity.addIntegration(integration.getKey(), integration.getValue().intValue());
+            }
+        }
+    }
+
+    /**
+     * A resource as kept in the store.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class StoredResource {
+        /**
+         * resource ID.
+         */
+        private final String id;
+
+        /**
+         * path of resource.
+         */
+        private final String path;
+
+        /**
+         * vendor of development component the resource belongs to.
+         */
+        private final String vendor;
+
+        /**
+         * name of development component the resource belongs to.
+         */
+        private final String name;
+
+        /**
+         * creation date of resource.
+         */
+        private final long creationDate;
+
+        /**
+         * last modification date of resource.
+         */
+        private final long lastModified;
+
+        /**
+         * whether the resource was deleted.
+         */
+        private final boolean deleted;
+
+        /**
+         * sequence number of resource (or {@link ActivityStore#NO_VALUE}).
+         */
+        private final int sequenceNumber;
+
+        /**
+         * Create a stored resource from the given resource.
+         *
+         * @param resource
+         *            resource to store.
+         */
+        StoredResource(final ActivityResource resource) {
+            final DevelopmentComponent component = resource.getDevelopmentComponent();
+            id = resource.getId();
+            path = resource.getPath();
+            vendor = component.getVendor();
+            name = component.getName();
+            creationDate = resource.getCreationDate().getTime();
+            lastModified = resource.getLastModified().getTime();
+            deleted = Boolean.TRUE.equals(resource.isDeleted());
+            sequenceNumber = resource.getSequenceNumber() == null ? NO_VALUE : resource.getSequenceNumber();
+        }
+
+        /**
+         * Read a stored resource from the given input.
+         *
+         * @param input
+         *            input to read from.
+         * @throws IOException
+         *             when reading fails
+         */
+        StoredResource(final DataInputStream input) throws IOException {
+            id = readString(input);
+            path = readString(input);
+            vendor = readString(input);
+            name = readString(input);
+            creationDate = input.readLong();
+            lastModified = input.readLong();
+            deleted = input.readBoolean();
+            sequenceNumber = input.readInt();
+        }
+
+        /**
+         * Write this resource to the given output.
+         *
+         * @param output
+         *            output to write to.
+         * @throws IOException
+         *             when writing fails
+         */
+        void write(final DataOutputStream output) throws IOException {
+            writeString(output, id);
+            writeString(output, path);
+            writeString(output, vendor);
+            writeString(output, name);
+            output.writeLong(creationDate);
+            output.writeLong(lastModified);
+            output.writeBoolean(deleted);
+            output.writeInt(sequenceNumber);
+        }
+
+        /**
+         * Create an {@link ActivityResource} for the given activity from this
+         * stored resource.
+         *
+         * @param activity
+         *            activity the resource belongs to.
+         * @param dcFactory
+         *            registry for development components.
+         * @return the restored resource.
+         */
+        ActivityResource restore(final Activity activity, final DevelopmentComponentFactory dcFactory) {
+            final ActivityResource resource = new ActivityResource(activity, dcFactory.create(vendor, name), path, id);
+            resource.setCreationDate(new Date(creationDate));
+            resource.setLastModified(new Date(lastModified));
+            resource.setDeleted(Boolean.valueOf(deleted));
+
+            if (sequenceNumber != NO_VALUE) {
+                resource.setSequenceNumber(Integer.valueOf(sequenceNumber));
+            }
+
+            return resource;
+        }
+    }
+}
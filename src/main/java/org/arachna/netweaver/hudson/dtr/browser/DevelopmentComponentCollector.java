@@ -4,15 +4,22 @@
 package org.arachna.netweaver.hudson.dtr.browser;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.http.client.ClientProtocolException;
 import org.arachna.netweaver.dc.types.DevelopmentComponent;
 import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.hudson.dtr.browser.ResolutionStageTimings.Stage;
 
 /**
  * Collector for development components from activities.
@@ -71,6 +78,28 @@ final class DevelopmentComponentCollector {
      */
     private final DevelopmentComponentFactory dcFactory;
 
+    /**
+     * maximum number of DTR requests executed concurrently.
+     */
+    private final int parallelism;
+
+    /**
+     * timings of the various stages of resolving activities.
+     */
+    private final ResolutionStageTimings timings = new ResolutionStageTimings();
+
+    /**
+     * store for activities already read from the DTR (may be
+     * <code>null</code>).
+     */
+    private final ActivityStore activityStore;
+
+    /**
+     * resolutions of the activities read by the last call to
+     * {@link #collect(List)} whose resource details are still being read.
+     */
+    private final List<ActivityResolution> pendingResolutions = new ArrayList<ActivityResolution>();
+
     /**
      * Create an instance of a <code>DevelopmentComponentCollector</code> with
      * the list of given activities.
@@ -86,15 +115,79 @@ final class DevelopmentComponentCollector {
      */
     public DevelopmentComponentCollector(final DtrHttpClient dtrHttpClient, final String dtrUrl,
         final DevelopmentComponentFactory dcFactory) {
+        this(dtrHttpClient, dtrUrl, dcFactory, 1);
+    }
+
+    /**
+     * Create an instance of a <code>DevelopmentComponentCollector</code> with
+     * the list of given activities.
+     * 
+     * @param dtrHttpClient
+     *            HTTP-Client for querying the DTR.
+     * @param dtrUrl
+     *            URL of DTR server.
+     * @param dcFactory
+     *            registry for {@link DevelopmentComponent} objects. Used to
+     *            create and register development components that are related to
+     *            an activity in the DTR.
+     * @param parallelism
+     *            maximum number of DTR requests to execute concurrently.
+     */
+    public DevelopmentComponentCollector(final DtrHttpClient dtrHttpClient, final String dtrUrl,
+        final DevelopmentComponentFactory dcFactory, final int parallelism) {
+        this(dtrHttpClient, dtrUrl, dcFactory, parallelism, null);
+    }
+
+    /**
+     * Create an instance of a <code>DevelopmentComponentCollector</code> with
+     * the list of given activities.
+     * 
+     * @param dtrHttpClient
+     *            HTTP-Client for querying the DTR.
+     * @param dtrUrl
+     *            URL of DTR server.
+     * @param dcFactory
+     *            registry for {@link DevelopmentComponent} objects. Used to
+     *            create and register development components that are related to
+     *            an activity in the DTR.
+     * @param parallelism
+     *            maximum number of DTR requests to execute concurrently.
+     * @param activityStore
+     *            store for activities already read from the DTR. Activities
+     *            found there are not read again, activities read from the DTR
+     *            are added to it. May be <code>null</code>.
+     */
+    public DevelopmentComponentCollector(final DtrHttpClient dtrHttpClient, final String dtrUrl,
+        final DevelopmentComponentFactory dcFactory, final int parallelism, final ActivityStore activityStore) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1!");
+        }
+
         this.dtrHttpClient = dtrHttpClient;
         this.dtrUrl = dtrUrl;
         this.dcFactory = dcFactory;
+        this.parallelism = parallelism;
+        this.activityStore = activityStore;
     }
 
     /**
      * Collect development components associated to the given list of
      * activities.
      * 
+     * Activity details and version sets are read concurrently using at most
+     * <code>parallelism</code> threads. The development components are taken
+     * from the version sets alone. The returned set contains them in the order
+     * of the given activities and their resources.
+     * 
+     * The details of the resources (creation date, sequence number and
+     * deletion flag) are needed for the change log only. They are read in the
+     * background afterwards. Call {@link #resolveResourceDetails()} to wait
+     * for them before using them.
+     * 
+     * Activities contained in the activity store are restored from it instead
+     * of being read from the DTR. Activities read completely from the DTR are
+     * added to the store once their resource details are known.
+     * 
      * @param activities
      *            list of activities the associated development components are
      *            to belooked up
@@ -103,60 +196,153 @@ final class DevelopmentComponentCollector {
     public Set<DevelopmentComponent> collect(final List<Activity> activities) {
         final Set<DevelopmentComponent> components = new LinkedHashSet<DevelopmentComponent>();
 
-        if (activities != null) {
-            for (final Activity activity : activities) {
-                components.addAll(calculateAffectedDevelopmentComponents(activity));
+        if (activities != null && !activities.isEmpty()) {
+            final long start = System.currentTimeMillis();
+            final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, activities.size()));
+
+            try {
+                final List<Future<ActivityResolution>> resolutions = new ArrayList<Future<ActivityResolution>>(activities.size());
+
+                for (final Activity activity : activities) {
+                    resolutions.add(executor.submit(new ActivityResolver(activity)));
+                }
+
+                for (final Future<ActivityResolution> future : resolutions) {
+                    final ActivityResolution resolution = waitFor(future);
+
+                    for (final ActivityResource resource : resolution.getActivity().getResources()) {
+                        components.add(resource.getDevelopmentComponent());
+                    }
+
+                    pendingResolutions.add(resolution);
+                }
+            }
+            finally {
+                executor.shutdownNow();
+                timings.setElapsedTime(System.currentTimeMillis() - start);
             }
+
+            readResourceDetails();
         }
 
         return components;
     }
 
     /**
-     * Calculate the set of development components affected by the given
-     * activity. The affected components will have their
-     * {@link DevelopmentComponent#isNeedsRebuild()} property set to
-     * <code>true</code>.
-     * 
-     * @param activity
-     *            activity to calculate affected development components for.
-     * @return set of development components affected by the given activity.
+     * Wait for the details of the resources of the activities read by the last
+     * call to {@link #collect(List)}. Adds the activities read completely from
+     * the DTR to the activity store.
      */
-    private Set<DevelopmentComponent> calculateAffectedDevelopmentComponents(final Activity activity) {
-        final Set<DevelopmentComponent> components = new LinkedHashSet<DevelopmentComponent>();
+    public void resolveResourceDetails() {
+        for (final ActivityResolution resolution : pendingResolutions) {
+            resolution.waitForResourceDetails();
 
-        try {
-            updateActivityDetails(activity);
-            createActivityResources(activity);
+            if (activityStore != null && resolution.isComplete()) {
+                activityStore.store(resolution.getActivity());
+            }
+        }
+
+        pendingResolutions.clear();
+    }
 
-            for (final ActivityResource resource : activity.getResources()) {
-                final String queryURL = String.format(RESOURCE_DETAIL_QUERY_TEMPLATE, dtrUrl, resource.getId());
+    /**
+     * Start reading the details of the resources of the activities read from
+     * the DTR in the background. The threads used terminate when all details
+     * were read.
+     */
+    private void readResourceDetails() {
+        final List<ActivityResource> resources = new ArrayList<ActivityResource>();
 
-                try {
-                    new ResourceDetailsParser(resource).parse(dtrHttpClient.getContent(queryURL));
-                    components.add(resource.getDevelopmentComponent());
-                }
-                catch (final IllegalStateException ise) {
-                    // This means that the resource was deleted from the DTR.
-                    // Verify this using the URL printed below.
-                    LOGGER.log(
-                        Level.FINE,
-                        String.format(RESOURCE_NOT_FOUND_IN_X_PATH_EXPRESSION_FOR_RESOURCE_EXTRACTION, queryURL,
-                            ise.getMessage()));
+        for (final ActivityResolution resolution : pendingResolutions) {
+            if (resolution.isReadFromDtr()) {
+                resources.addAll(resolution.getActivity().getResources());
+            }
+        }
+
+        if (!resources.isEmpty()) {
+            final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, resources.size()));
+
+            for (final ActivityResolution resolution : pendingResolutions) {
+                if (resolution.isReadFromDtr()) {
+                    for (final ActivityResource resource : resolution.getActivity().getResources()) {
+                        resolution.add(executor.submit(new Callable<Void>() {
+                            @Override
+                            public Void call() throws IOException {
+                                updateResourceDetails(resource);
+
+                                return null;
+                            }
+                        }));
+                    }
                 }
             }
+
+            executor.shutdown();
         }
-        catch (final ClientProtocolException e) {
-            LOGGER.log(Level.SEVERE, ERROR_CALCULATING_AFFECTED_DEVELOPMENT_COMPONENTS, e);
+    }
+
+    /**
+     * Returns the timings of the stages executed while collecting development
+     * components.
+     * 
+     * @return timings of the stages executed while collecting development
+     *         components.
+     */
+    public ResolutionStageTimings getTimings() {
+        return timings;
+    }
+
+    /**
+     * Wait for the given future to complete and return its result.
+     * 
+     * @param <T>
+     *            type of the result.
+     * @param future
+     *            the future to wait for.
+     * @return the result of the given future.
+     */
+    private static <T> T waitFor(final Future<T> future) {
+        try {
+            return future.get();
         }
-        catch (final IllegalStateException e) {
-            LOGGER.log(Level.SEVERE, ERROR_CALCULATING_AFFECTED_DEVELOPMENT_COMPONENTS, e);
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ERROR_CALCULATING_AFFECTED_DEVELOPMENT_COMPONENTS, e);
         }
-        catch (final IOException e) {
-            LOGGER.log(Level.SEVERE, ERROR_CALCULATING_AFFECTED_DEVELOPMENT_COMPONENTS, e);
+        catch (final ExecutionException e) {
+            throw new IllegalStateException(ERROR_CALCULATING_AFFECTED_DEVELOPMENT_COMPONENTS, e.getCause());
         }
+    }
 
-        return components;
+    /**
+     * Read the details of the given resource. A resource whose details could
+     * not be found was deleted from the DTR. It is marked as deleted, since
+     * the deletion is permanent there is nothing left to read later.
+     * 
+     * @param resource
+     *            resource whose details should be read.
+     * @throws IOException
+     *             when reading the DTR report fails
+     */
+    private void updateResourceDetails(final ActivityResource resource) throws IOException {
+        final String queryURL = String.format(RESOURCE_DETAIL_QUERY_TEMPLATE, dtrUrl, resource.getId());
+        final long start = System.currentTimeMillis();
+
+        try {
+            new ResourceDetailsParser(resource).parse(dtrHttpClient.getContent(queryURL));
+        }
+        catch (final IllegalStateException ise) {
+            // This means that the resource was deleted from the DTR.
+            // Verify this using the URL printed below.
+            LOGGER.log(
+                Level.FINE,
+                String.format(RESOURCE_NOT_FOUND_IN_X_PATH_EXPRESSION_FOR_RESOURCE_EXTRACTION, queryURL,
+                    ise.getMessage()));
+            resource.setDeleted(Boolean.TRUE);
+        }
+        finally {
+            timings.record(Stage.ResourceDetails, start);
+        }
     }
 
     /**
@@ -166,19 +352,24 @@ final class DevelopmentComponentCollector {
      *            the Activity to be updated.
      * @throws IOException
      *             when reading the DTR report fails
+     * @throws IllegalStateException
+     *             when the version set could not be extracted from the DTR
+     *             report (the activity must not be stored then).
      */
     private void createActivityResources(final Activity activity) throws IOException {
         final ActivityResourceParser activityResourceParser = new ActivityResourceParser(dcFactory, activity);
         final String queryURL = String.format(RESOURCE_QUERY_TEMPLATE, dtrUrl, activity.getActivityPath());
+        final long start = System.currentTimeMillis();
 
         try {
             activityResourceParser.parse(dtrHttpClient.getContent(queryURL));
         }
         catch (final IllegalStateException ise) {
-            LOGGER.log(
-                Level.SEVERE,
-                String.format(RESOURCE_NOT_FOUND_IN_X_PATH_EXPRESSION_FOR_RESOURCE_EXTRACTION, queryURL,
-                    ise.getMessage()));
+            throw new IllegalStateException(String.format(RESOURCE_NOT_FOUND_IN_X_PATH_EXPRESSION_FOR_RESOURCE_EXTRACTION,
+                queryURL, ise.getMessage()), ise);
+        }
+        finally {
+            timings.record(Stage.VersionSet, start);
         }
     }
 
@@ -193,6 +384,181 @@ final class DevelopmentComponentCollector {
     private void updateActivityDetails(final Activity activity) throws IOException {
         final ActivityDetailParser activityDetailParser = new ActivityDetailParser(activity);
         final String queryURL = String.format(ACTIVITY_DETAIL_QUERY_TEMPLATE, dtrUrl, activity.getActivityPath());
-        activityDetailParser.parse(dtrHttpClient.getContent(queryURL));
+        final long start = System.currentTimeMillis();
+
+        try {
+            activityDetailParser.parse(dtrHttpClient.getContent(queryURL));
+        }
+        finally {
+            timings.record(Stage.ActivityDetails, start);
+        }
+    }
+
+    /**
+     * Task reading the details and version set of an activity.
+     * 
+     * @author Dirk Weigenand
+     */
+    private final class ActivityResolver implements Callable<ActivityResolution> {
+        /**
+         * the activity to resolve.
+         */
+        private final Activity activity;
+
+        /**
+         * Create a task resolving the given activity.
+         * 
+         * @param activity
+         *            the activity to resolve.
+         */
+        ActivityResolver(final Activity activity) {
+            this.activity = activity;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public ActivityResolution call() {
+            final ActivityResolution resolution = new ActivityResolution(activity);
+
+            if (activityStore != null && activityStore.restore(activity, dcFactory)) {
+                timings.recordRestoredActivity();
+                resolution.restored();
+
+                return resolution;
+            }
+
+            try {
+                updateActivityDetails(activity);
+                createActivityResources(activity);
+            }
+            catch (final ClientProtocolException e) {
+                LOGGER.log(Level.SEVERE, ERROR_CALCULATING_AFFECTED_DEVELOPMENT_COMPONENTS, e);
+                resolution.failed();
+            }
+            catch (final IllegalStateException e) {
+                LOGGER.log(Level.SEVERE, ERROR_CALCULATING_AFFECTED_DEVELOPMENT_COMPONENTS, e);
+                resolution.failed();
+            }
+            catch (final IOException e) {
+                LOGGER.log(Level.SEVERE, ERROR_CALCULATING_AFFECTED_DEVELOPMENT_COMPONENTS, e);
+                resolution.failed();
+            }
+
+            return resolution;
+        }
+    }
+
+    /**
+     * The resolution of an activity and its pending resource detail requests.
+     * 
+     * @author Dirk Weigenand
+     */
+    private static final class ActivityResolution {
+        /**
+         * the activity being resolved.
+         */
+        private final Activity activity;
+
+        /**
+         * pending requests for the resources of the activity (in order of the
+         * resources).
+         */
+        private final List<Future<Void>> resources = new ArrayList<Future<Void>>();
+
+        /**
+         * whether the activity was restored from the activity store.
+         */
+        private boolean restored;
+
+        /**
+         * whether all requests for the activity succeeded.
+         */
+        private boolean complete = true;
+
+        /**
+         * Create the resolution of the given activity.
+         * 
+         * @param activity
+         *            the activity being resolved.
+         */
+        ActivityResolution(final Activity activity) {
+            this.activity = activity;
+        }
+
+        /**
+         * Add a pending resource detail request.
+         * 
+         * @param resource
+         *            pending resource detail request.
+         */
+        void add(final Future<Void> resource) {
+            resources.add(resource);
+        }
+
+        /**
+         * Indicate that the activity was restored from the activity store.
+         */
+        void restored() {
+            restored = true;
+        }
+
+        /**
+         * Indicate that reading the activity from the DTR failed.
+         */
+        void failed() {
+            complete = false;
+        }
+
+        /**
+         * Returns the activity being resolved.
+         * 
+         * @return the activity being resolved.
+         */
+        Activity getActivity() {
+            return activity;
+        }
+
+        /**
+         * Returns whether the activity and its version set were read from the
+         * DTR (i.e. it was neither restored from the activity store nor did
+         * reading it fail).
+         * 
+         * @return <code>true</code> when the activity and its version set were
+         *         read from the DTR, <code>false</code> otherwise.
+         */
+        boolean isReadFromDtr() {
+            return complete && !restored;
+        }
+
+        /**
+         * Returns whether the activity was read completely from the DTR (and
+         * not restored from the activity store). Valid only after
+         * {@link #waitForResourceDetails()} was called.
+         * 
+         * @return <code>true</code> when the activity was read completely from
+         *         the DTR, <code>false</code> otherwise.
+         */
+        boolean isComplete() {
+            return complete && !restored;
+        }
+
+        /**
+         * Wait for the resource detail requests to complete. Reading the
+         * details of a resource deleted from the DTR completes it too, only
+         * failing requests leave the activity incomplete.
+         */
+        void waitForResourceDetails() {
+            for (final Future<Void> resource : resources) {
+                try {
+                    waitFor(resource);
+                }
+                catch (final IllegalStateException e) {
+                    LOGGER.log(Level.SEVERE, ERROR_CALCULATING_AFFECTED_DEVELOPMENT_COMPONENTS, e);
+                    complete = false;
+                }
+            }
+        }
     }
 }
@@ -5,8 +5,22 @@ package org.arachna.netweaver.hudson.dtr.browser;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.apache.http.client.ClientProtocolException;
 import org.arachna.netweaver.dc.types.Compartment;
@@ -18,9 +32,30 @@ import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
 /**
  * A browser for the design time repository's web browser interface.
  * 
+ * Activities are queried per compartment. When the highest integration
+ * sequence number (ISN) of a compartment's inactive workspace seen so far is
+ * known only activities integrated after it are queried. Otherwise all closed
+ * activities of the compartment are read and filtered by their check in date.
+ * 
+ * The compartments are queried concurrently (at most <code>parallelism</code>
+ * at a time). Their activities are merged ordered by compartment name. A
+ * compartment whose query fails is reported via
+ * {@link #getCompartmentFailures()} and does not abort the queries of the
+ * other compartments.
+ * 
  * @author Dirk Weigenand
  */
 public final class DtrBrowser {
+    /**
+     * Default for the maximum number of DTR requests executed concurrently.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Logger to use.
+     */
+    private static final Logger LOGGER = Logger.getLogger(DtrBrowser.class.getName());
+
     /**
      * Error message indicating a communication error with the DTR.
      */
@@ -32,11 +67,34 @@ public final class DtrBrowser {
     private static final String ERROR_READING_ACTIVITIES =
         "There was an error reading the list of activities (URL: %s) from the DTR.";
 
+    /**
+     * Error message when reading a workspace listing from DTR failed.
+     */
+    private static final String ERROR_READING_WORKSPACES =
+        "There was an error reading the list of workspaces (URL: %s) from the DTR.";
+
     /**
      * query for reading activities for a given compartment.
      */
     private static final String ACTIVITY_QUERY = "%s/system-tools/reports/ActivityQuery?wspPath=/%s"
-        + "&user=&closedOnly=on&isnFrom=&isnTo=&nonEmptyOnly=on&folderPath=&command=Show";
+        + "&user=&closedOnly=on&isnFrom=%s&isnTo=&nonEmptyOnly=on&folderPath=&command=Show";
+
+    /**
+     * listing of a workspace folder.
+     */
+    private static final String WORKSPACE_LISTING = "%s/%s";
+
+    /**
+     * number of path segments of a track's workspace folder (e.g.
+     * <code>ws/Example</code>).
+     */
+    private static final int TRACK_FOLDER_SEGMENTS = 2;
+
+    /**
+     * number of path segments of a software component's workspace folder
+     * (e.g. <code>ws/Example/example.com_EXAMPLE_SC1</code>).
+     */
+    private static final int SOFTWARE_COMPONENT_FOLDER_SEGMENTS = 3;
 
     /**
      * DtrHttpClient for browsing the DTR.
@@ -48,6 +106,36 @@ public final class DtrBrowser {
      */
     private final DevelopmentConfiguration config;
 
+    /**
+     * maximum number of DTR requests to execute concurrently.
+     */
+    private final int parallelism;
+
+    /**
+     * collector of the development components affected by the activities
+     * read last (<code>null</code> as long as no activities were resolved).
+     */
+    private DevelopmentComponentCollector collector;
+
+    /**
+     * timings of the stages executed while resolving activities into
+     * development components.
+     */
+    private ResolutionStageTimings timings = new ResolutionStageTimings();
+
+    /**
+     * highest integration sequence numbers of the inactive workspaces of the
+     * compartments mapped by compartment name as determined by the last
+     * resolution of activities.
+     */
+    private Map<String, Integer> integrationSequenceNumbers = Collections.emptyMap();
+
+    /**
+     * errors that occurred querying the activities of compartments mapped by
+     * compartment name.
+     */
+    private final Map<String, Throwable> compartmentFailures = new LinkedHashMap<String, Throwable>();
+
     /**
      * Create an instance of a <code>DtrBrowser</code>.
      * 
@@ -59,7 +147,25 @@ public final class DtrBrowser {
      *            password to authenticate the user against the DTR's UME.
      */
     public DtrBrowser(final DevelopmentConfiguration config, final String dtrUser, final String password) {
+        this(config, dtrUser, password, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Create an instance of a <code>DtrBrowser</code>.
+     * 
+     * @param config
+     *            the {@link DevelopmentConfiguration} to use in queries.
+     * @param dtrUser
+     *            user for accessing the DTR.
+     * @param password
+     *            password to authenticate the user against the DTR's UME.
+     * @param parallelism
+     *            maximum number of DTR requests to execute concurrently.
+     */
+    public DtrBrowser(final DevelopmentConfiguration config, final String dtrUser, final String password,
+        final int parallelism) {
         this.config = config;
+        this.parallelism = parallelism;
         dtrHttpClient = new DtrHttpClient(dtrUser, password);
     }
 
@@ -71,11 +177,17 @@ public final class DtrBrowser {
      *            compartment to use for retrieving activities.
      * @param activityFilter
      *            filter for NWDI activities.
+     * @param integrationSequenceNumber
+     *            only activities integrated after this integration sequence
+     *            number will be retrieved (may be <code>null</code> to
+     *            retrieve all activities).
      * @return list of retrieved activities (may be empty).
      */
-    private List<Activity> getActivities(final Compartment compartment, final ActivityFilter activityFilter) {
+    private List<Activity> getActivities(final Compartment compartment, final ActivityFilter activityFilter,
+        final Integer integrationSequenceNumber) {
         final String queryUrl =
-            String.format(ACTIVITY_QUERY, compartment.getDtrUrl(), compartment.getInactiveLocation());
+            String.format(ACTIVITY_QUERY, compartment.getDtrUrl(), compartment.getInactiveLocation(),
+                integrationSequenceNumber == null ? "" : Integer.toString(integrationSequenceNumber.intValue() + 1));
 
         try {
             final ActivityListParser activityListBrowser = new ActivityListParser(activityFilter);
@@ -94,35 +206,106 @@ public final class DtrBrowser {
     }
 
     /**
-     * Get a list of activities in the given workspace matching the given
-     * {@link ActivityFilter}.
+     * Get the activities of the compartments in source state mapped by
+     * compartment.
      * 
-     * @param activityFilter
-     *            an {@link ActivityFilter} for filtering the list of returned
-     *            activities.
-     * @return a list of activities matching the given {@link ActivityFilter} in
-     *         the given workspace.
+     * Activities of compartments with a known integration sequence number are
+     * queried starting after this number. The activities of the other
+     * compartments are filtered by the given date.
+     * 
+     * @param since
+     *            date after which to look for activities in compartments
+     *            without a known integration sequence number.
+     * @param integrationSequenceNumbers
+     *            highest integration sequence numbers of the compartments
+     *            already seen mapped by compartment name.
+     * @return activities of the compartments in source state mapped by
+     *         compartment.
      */
-    private List<Activity> getActivities(final ActivityFilter activityFilter) {
-        final List<Activity> activities = new ArrayList<Activity>();
+    private Map<Compartment, List<Activity>> getActivitiesByCompartment(final Date since,
+        final Map<String, Integer> integrationSequenceNumbers) {
+        final List<Compartment> compartments = new ArrayList<Compartment>(config.getCompartments(CompartmentState.Source));
+        final Map<Compartment, List<Activity>> activities = new LinkedHashMap<Compartment, List<Activity>>();
+        compartmentFailures.clear();
 
-        for (final Compartment compartment : config.getCompartments(CompartmentState.Source)) {
-            activities.addAll(this.getActivities(compartment, activityFilter));
+        if (compartments.isEmpty()) {
+            return activities;
+        }
+
+        Collections.sort(compartments, new Comparator<Compartment>() {
+            @Override
+            public int compare(final Compartment first, final Compartment second) {
+                return first.getName().compareTo(second.getName());
+            }
+        });
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, compartments.size()));
+
+        try {
+            final Map<Compartment, Future<List<Activity>>> queries =
+                new LinkedHashMap<Compartment, Future<List<Activity>>>();
+
+            for (final Compartment compartment : compartments) {
+                queries.put(compartment,
+                    executor.submit(new ActivityQuery(compartment, since, integrationSequenceNumbers.get(compartment
+                        .getName()))));
+            }
+
+            for (final Map.Entry<Compartment, Future<List<Activity>>> query : queries.entrySet()) {
+                try {
+                    activities.put(query.getKey(), query.getValue().get());
+                }
+                catch (final ExecutionException e) {
+                    LOGGER.log(Level.WARNING,
+                        String.format("Could not read activities of compartment %s.", query.getKey().getName()),
+                        e.getCause());
+                    compartmentFailures.put(query.getKey().getName(), e.getCause());
+                }
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ERROR_COMMUNICATING_WITH_DTR, e);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        if (activities.isEmpty()) {
+            throw new IllegalStateException(ERROR_COMMUNICATING_WITH_DTR, compartmentFailures.values().iterator()
+                .next());
         }
 
         return activities;
     }
 
     /**
-     * Get a list of activities in the given workspace matching the given
-     * {@link ActivityFilter}.
+     * Get a list of activities in the given workspace checked in after the
+     * given date.
      * 
      * @param since
      *            date after which to look for activities.
      * @return a list of activities in the given workspace.
      */
     public List<Activity> getActivities(final Date since) {
-        final List<Activity> activities = this.getActivities(new ActivityCheckinDateFilter(since));
+        return getActivities(since, Collections.<String, Integer> emptyMap());
+    }
+
+    /**
+     * Get a list of activities in the given workspace integrated after the
+     * given integration sequence numbers. Activities of compartments without
+     * a known integration sequence number are filtered by the given date.
+     * 
+     * @param since
+     *            date after which to look for activities in compartments
+     *            without a known integration sequence number.
+     * @param integrationSequenceNumbers
+     *            highest integration sequence numbers of the compartments
+     *            already seen mapped by compartment name.
+     * @return a list of activities in the given workspace.
+     */
+    public List<Activity> getActivities(final Date since, final Map<String, Integer> integrationSequenceNumbers) {
+        final List<Activity> activities = flatten(getActivitiesByCompartment(since, integrationSequenceNumbers));
 
         dtrHttpClient.close();
 
@@ -145,15 +328,350 @@ public final class DtrBrowser {
 
     public List<Activity> getActivitiesWithResourcesAndDevelopmentComponents(
         final DevelopmentComponentFactory dcFactory, final Date since) {
-        final List<Activity> activities = this.getActivities(new ActivityCheckinDateFilter(since));
+        return getActivitiesWithResourcesAndDevelopmentComponents(dcFactory, since,
+            Collections.<String, Integer> emptyMap(), null);
+    }
 
-        for (final DevelopmentComponent component : new DevelopmentComponentCollector(dtrHttpClient,
-            config.getCmsUrl(), dcFactory).collect(activities)) {
+    /**
+     * Determine activities from DTR that were integrated after the given
+     * integration sequence numbers (or checked in after the given date
+     * <code>since</code> for compartments without a known integration
+     * sequence number). Also collect the affected resources and development
+     * components. Those components will have the property
+     * <code>needsRebuild</code> set to <code>true</code> afterwards.
+     * 
+     * Details and resources of activities contained in the given activity
+     * store are taken from the store. Those of the other activities are read
+     * from the DTR and added to the store.
+     * 
+     * The development components are determined from the version sets of the
+     * activities. The details of their resources are read in the background.
+     * Call {@link #resolveResourceDetails()} before using them.
+     * 
+     * The highest integration sequence numbers found are available via
+     * {@link #getIntegrationSequenceNumbers()} afterwards.
+     * 
+     * @param dcFactory
+     *            registry for development components to use for when querying
+     *            development components affected by activities.
+     * @param since
+     *            date since when new activities should be detected in
+     *            compartments without a known integration sequence number.
+     * @param integrationSequenceNumbers
+     *            highest integration sequence numbers of the compartments
+     *            already seen mapped by compartment name.
+     * @param activityStore
+     *            store for activities already read from the DTR (may be
+     *            <code>null</code>).
+     * @return list of detected activities.
+     */
+    public List<Activity> getActivitiesWithResourcesAndDevelopmentComponents(
+        final DevelopmentComponentFactory dcFactory, final Date since,
+        final Map<String, Integer> integrationSequenceNumbers, final ActivityStore activityStore) {
+        final Map<Compartment, List<Activity>> activitiesByCompartment =
+            getActivitiesByCompartment(since, integrationSequenceNumbers);
+        final List<Activity> activities = flatten(activitiesByCompartment);
+        collector =
+            new DevelopmentComponentCollector(dtrHttpClient, config.getCmsUrl(), dcFactory, parallelism,
+                activityStore);
+
+        for (final DevelopmentComponent component : collector.collect(activities)) {
             component.setNeedsRebuild(true);
         }
 
+        timings = collector.getTimings();
+        this.integrationSequenceNumbers =
+            getIntegrationSequenceNumbers(integrationSequenceNumbers, activitiesByCompartment);
         dtrHttpClient.close();
 
         return activities;
     }
+
+    /**
+     * Wait for the details of the resources of the activities returned by the
+     * last call to
+     * {@link #getActivitiesWithResourcesAndDevelopmentComponents(DevelopmentComponentFactory, Date, Map, ActivityStore)}
+     * (creation date, sequence number and deletion flag). Activities read
+     * completely are added to the activity store afterwards.
+     */
+    public void resolveResourceDetails() {
+        if (collector != null) {
+            collector.resolveResourceDetails();
+        }
+    }
+
+    /**
+     * Returns the highest integration sequence numbers of the compartments
+     * determined by the last call to
+     * {@link #getActivitiesWithResourcesAndDevelopmentComponents(DevelopmentComponentFactory, Date, Map, ActivityStore)}
+     * .
+     * 
+     * @return highest integration sequence numbers of the inactive workspaces
+     *         of the compartments mapped by compartment name.
+     */
+    public Map<String, Integer> getIntegrationSequenceNumbers() {
+        return Collections.unmodifiableMap(integrationSequenceNumbers);
+    }
+
+    /**
+     * Returns the workspace folders of the software components in source
+     * state of the development configuration (e.g.
+     * <code>ws/Example/example.com_EXAMPLE_SC1</code>).
+     * 
+     * @return the workspace folders of the software components in source
+     *         state (sorted).
+     */
+    public Set<String> getConfiguredWorkspaces() {
+        final Set<String> workspaces = new TreeSet<String>();
+
+        for (final Compartment compartment : config.getCompartments(CompartmentState.Source)) {
+            workspaces.add(getFolder(compartment.getInactiveLocation(), SOFTWARE_COMPONENT_FOLDER_SEGMENTS));
+        }
+
+        return workspaces;
+    }
+
+    /**
+     * Read the workspace folders of the software components listed in the
+     * DTR in the track folders of the compartments in source state. Those
+     * differ from {@link #getConfiguredWorkspaces()} when software components
+     * were added to or removed from the track after the development
+     * configuration was read.
+     * 
+     * @return the workspace folders of the software components listed in the
+     *         DTR (sorted).
+     */
+    public Set<String> getListedWorkspaces() {
+        final Map<String, String> trackFolders = new LinkedHashMap<String, String>();
+
+        for (final Compartment compartment : config.getCompartments(CompartmentState.Source)) {
+            trackFolders.put(getFolder(compartment.getInactiveLocation(), TRACK_FOLDER_SEGMENTS), compartment.getDtrUrl());
+        }
+
+        final Set<String> workspaces = new TreeSet<String>();
+
+        for (final Map.Entry<String, String> trackFolder : trackFolders.entrySet()) {
+            final String queryUrl = String.format(WORKSPACE_LISTING, trackFolder.getValue(), trackFolder.getKey());
+            final WorkspaceListParser parser = new WorkspaceListParser(trackFolder.getKey());
+
+            try {
+                parser.parse(dtrHttpClient.getContent(queryUrl));
+            }
+            catch (final IOException e) {
+                throw new IllegalStateException(String.format(ERROR_READING_WORKSPACES, queryUrl), e);
+            }
+
+            workspaces.addAll(parser.getWorkspaces());
+        }
+
+        dtrHttpClient.close();
+
+        return workspaces;
+    }
+
+    /**
+     * Returns the given number of leading segments of the given DTR path.
+     * 
+     * @param location
+     *            DTR path (e.g.
+     *            <code>ws/Example/example.com_EXAMPLE_SC1/dev/inactive/</code>
+     *            ).
+     * @param segments
+     *            number of leading segments to return.
+     * @return the given number of leading segments of the given path (e.g.
+     *         <code>ws/Example</code>).
+     */
+    private static String getFolder(final String location, final int segments) {
+        final StringBuilder folder = new StringBuilder();
+        int count = 0;
+
+        for (final String segment : location.split("/")) {
+            if (segment.length() > 0 && count++ < segments) {
+                if (folder.length() > 0) {
+                    folder.append('/');
+                }
+
+                folder.append(segment);
+            }
+        }
+
+        return folder.toString();
+    }
+
+    /**
+     * Returns the errors that occurred querying the activities of
+     * compartments during the last query. The activities of those
+     * compartments are missing from the result of the query.
+     * 
+     * @return errors that occurred querying the activities of compartments
+     *         mapped by compartment name (empty when all queries succeeded).
+     */
+    public Map<String, Throwable> getCompartmentFailures() {
+        return Collections.unmodifiableMap(compartmentFailures);
+    }
+
+    /**
+     * Merge the given integration sequence numbers with the highest ones of
+     * the given activities. The integration sequence number of a compartment
+     * is only advanced when the integration sequence numbers of all its
+     * activities are known, so no activity will be missed by the next query.
+     * 
+     * @param previous
+     *            highest integration sequence numbers known before mapped by
+     *            compartment name.
+     * @param activities
+     *            activities mapped by compartment.
+     * @return the merged highest integration sequence numbers mapped by
+     *         compartment name.
+     */
+    private Map<String, Integer> getIntegrationSequenceNumbers(final Map<String, Integer> previous,
+        final Map<Compartment, List<Activity>> activities) {
+        final Map<String, Integer> merged = new HashMap<String, Integer>(previous);
+
+        for (final Map.Entry<Compartment, List<Activity>> entry : activities.entrySet()) {
+            final Integer highest = getHighestIntegrationSequenceNumber(entry.getKey(), entry.getValue());
+            final Integer known = merged.get(entry.getKey().getName());
+
+            if (highest != null && (known == null || known.intValue() < highest.intValue())) {
+                merged.put(entry.getKey().getName(), highest);
+            }
+        }
+
+        return merged;
+    }
+
+    /**
+     * Determine the highest integration sequence number of the given
+     * activities in the inactive workspace of the given compartment.
+     * 
+     * @param compartment
+     *            compartment the activities were read from.
+     * @param activities
+     *            activities of the compartment.
+     * @return the highest integration sequence number of the given activities
+     *         or <code>null</code> when there are no activities or the
+     *         integration sequence number of one of them is not known.
+     */
+    private Integer getHighestIntegrationSequenceNumber(final Compartment compartment,
+        final List<Activity> activities) {
+        Integer highest = null;
+
+        for (final Activity activity : activities) {
+            final Integer integrationSequenceNumber =
+                activity.getIntegrationSequenceNumber(compartment.getInactiveLocation());
+
+            if (integrationSequenceNumber == null) {
+                return null;
+            }
+
+            if (highest == null || highest.intValue() < integrationSequenceNumber.intValue()) {
+                highest = integrationSequenceNumber;
+            }
+        }
+
+        return highest;
+    }
+
+    /**
+     * Collect the activities of all compartments into one list.
+     * 
+     * @param activities
+     *            activities mapped by compartment.
+     * @return list of activities of all compartments.
+     */
+    private List<Activity> flatten(final Map<Compartment, List<Activity>> activities) {
+        final List<Activity> result = new ArrayList<Activity>();
+
+        for (final List<Activity> compartmentActivities : activities.values()) {
+            result.addAll(compartmentActivities);
+        }
+
+        return result;
+    }
+
+    /**
+     * Record the pages read from the DTR by this browser using the given
+     * recorder.
+     * 
+     * @param recorder
+     *            recorder for the pages read (<code>null</code> to stop
+     *            recording).
+     */
+    public void setTrafficRecorder(final DtrTrafficRecorder recorder) {
+        dtrHttpClient.setRecorder(recorder);
+    }
+
+    /**
+     * Returns the metrics of the requests sent to the DTR by this browser.
+     * 
+     * @return the metrics of the requests sent to the DTR by this browser.
+     */
+    public DtrRequestMetrics getRequestMetrics() {
+        return dtrHttpClient.getMetrics();
+    }
+
+    /**
+     * Returns the timings of the stages executed by the last call to
+     * {@link #getActivitiesWithResourcesAndDevelopmentComponents(DevelopmentComponentFactory, Date, Map, ActivityStore)}.
+     * 
+     * @return timings of the stages executed resolving activities into
+     *         development components.
+     */
+    public ResolutionStageTimings getTimings() {
+        return timings;
+    }
+
+    /**
+     * Query for the activities of one compartment.
+     * 
+     * @author Dirk Weigenand
+     */
+    private final class ActivityQuery implements Callable<List<Activity>> {
+        /**
+         * compartment to query activities for.
+         */
+        private final Compartment compartment;
+
+        /**
+         * date after which to look for activities when no integration
+         * sequence number is known.
+         */
+        private final Date since;
+
+        /**
+         * highest integration sequence number of the compartment already
+         * seen (may be <code>null</code>).
+         */
+        private final Integer integrationSequenceNumber;
+
+        /**
+         * Create a query for the activities of the given compartment.
+         * 
+         * @param compartment
+         *            compartment to query activities for.
+         * @param since
+         *            date after which to look for activities when no
+         *            integration sequence number is known.
+         * @param integrationSequenceNumber
+         *            highest integration sequence number of the compartment
+         *            already seen (may be <code>null</code>).
+         */
+        ActivityQuery(final Compartment compartment, final Date since, final Integer integrationSequenceNumber) {
+            this.compartment = compartment;
+            this.since = since;
+            this.integrationSequenceNumber = integrationSequenceNumber;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public List<Activity> call() {
+            final ActivityFilter activityFilter =
+                integrationSequenceNumber == null ? new ActivityCheckinDateFilter(since)
+                    : new ActivityCheckinDateFilter();
+
+            return getActivities(compartment, activityFilter, integrationSequenceNumber);
+        }
+    }
 }
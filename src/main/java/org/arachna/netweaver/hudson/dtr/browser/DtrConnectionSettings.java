@@ -0,0 +1,200 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import java.util.Arrays;
+
+/**
+ * Settings for the connections kept open to DTR servers.
+ *
+ * @author Dirk Weigenand
+ */
+public final class DtrConnectionSettings {
+    /**
+     * Default for the maximum number of connections kept per DTR server.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 8;
+
+    /**
+     * Default for the number of seconds an unused connection is kept open.
+     */
+    public static final int DEFAULT_IDLE_TIMEOUT = 60;
+
+    /**
+     * Default for the number of seconds to wait for a connection to a DTR
+     * server when all connections are in use.
+     */
+    public static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT = 120;
+
+    /**
+     * Default settings.
+     */
+    public static final DtrConnectionSettings DEFAULT = new DtrConnectionSettings(DEFAULT_MAX_CONNECTIONS_PER_ROUTE,
+        DEFAULT_IDLE_TIMEOUT, true, true);
+
+    /**
+     * maximum number of connections kept per DTR server.
+     */
+    private final int maxConnectionsPerRoute;
+
+    /**
+     * number of seconds an unused connection is kept open.
+     */
+    private final int idleTimeout;
+
+    /**
+     * whether compressed responses should be requested.
+     */
+    private final boolean compression;
+
+    /**
+     * whether pages already read should be requested conditionally (using
+     * their ETag or modification date).
+     */
+    private final boolean conditionalRequests;
+
+    /**
+     * number of seconds to wait for a connection when all connections are in
+     * use.
+     */
+    private final int connectionRequestTimeout;
+
+    /**
+     * Create settings for the connections to DTR servers using the default
+     * timeout for waiting for a connection.
+     *
+     * @param maxConnectionsPerRoute
+     *            maximum number of connections kept per DTR server.
+     * @param idleTimeout
+     *            number of seconds an unused connection is kept open.
+     * @param compression
+     *            whether compressed responses should be requested.
+     * @param conditionalRequests
+     *            whether pages already read should be requested conditionally.
+     */
+    public DtrConnectionSettings(final int maxConnectionsPerRoute, final int idleTimeout, final boolean compression,
+        final boolean conditionalRequests) {
+        this(maxConnectionsPerRoute, idleTimeout, compression, conditionalRequests, DEFAULT_CONNECTION_REQUEST_TIMEOUT);
+    }
+
+    /**
+     * Create settings for the connections to DTR servers.
+     *
+     * @param maxConnectionsPerRoute
+     *            maximum number of connections kept per DTR server.
+     * @param idleTimeout
+     *            number of seconds an unused connection is kept open.
+     * @param compression
+     *            whether compressed responses should be requested.
+     * @param conditionalRequests
+     *            whether pages already read should be requested conditionally.
+     * @param connectionRequestTimeout
+     *            number of seconds to wait for a connection when all
+     *            connections are in use.
+     */
+    public DtrConnectionSettings(final int maxConnectionsPerRoute, final int idleTimeout, final boolean compression,
+        final boolean conditionalRequests, final int connectionRequestTimeout) {
+        if (maxConnectionsPerRoute < 1) {
+            throw new IllegalArgumentException("The maximum number of connections must be at least 1!");
+        }
+
+        if (idleTimeout < 1) {
+            throw new IllegalArgumentException("The idle timeout must be at least 1 second!");
+        }
+
+        if (connectionRequestTimeout < 1) {
+            throw new IllegalArgumentException("The connection request timeout must be at least 1 second!");
+        }
+
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        this.idleTimeout = idleTimeout;
+        this.compression = compression;
+        this.conditionalRequests = conditionalRequests;
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+
+    /**
+     * Returns the maximum number of connections kept per DTR server.
+     *
+     * @return the maximum number of connections kept per DTR server.
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * Returns the number of seconds an unused connection is kept open.
+     *
+     * @return the number of seconds an unused connection is kept open.
+     */
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Returns whether compressed responses should be requested.
+     *
+     * @return <code>true</code> when compressed responses should be requested,
+     *         <code>false</code> otherwise.
+     */
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * Returns whether pages already read should be requested conditionally.
+     *
+     * @return <code>true</code> when pages already read should be requested
+     *         conditionally, <code>false</code> otherwise.
+     */
+    public boolean isConditionalRequests() {
+        return conditionalRequests;
+    }
+
+    /**
+     * Returns the number of seconds to wait for a connection when all
+     * connections are in use.
+     *
+     * @return the number of seconds to wait for a connection when all
+     *         connections are in use.
+     */
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(getValues());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        boolean result = this == obj;
+
+        if (!result && obj != null) {
+            result = getClass() == obj.getClass();
+
+            if (result) {
+                result = Arrays.equals(getValues(), ((DtrConnectionSettings)obj).getValues());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the values of these settings.
+     *
+     * @return the values of these settings.
+     */
+    private Object[] getValues() {
+        return new Object[] { maxConnectionsPerRoute, idleTimeout, compression, conditionalRequests, connectionRequestTimeout };
+    }
+}
@@ -3,39 +3,57 @@
  */
 package org.arachna.netweaver.hudson.dtr.browser;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.logging.Logger;
 
-import org.apache.http.HttpResponse;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.protocol.ClientContext;
+import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HttpContext;
 
 /**
  * DTR client using the <code>http</code> protocol.
  * 
+ * Requests are executed using the {@link DtrHttpTransport} shared by all clients talking to the same DTR server (see
+ * {@link DtrHttpTransports}). The credentials of this client are passed along with each request.
+ * 
+ * The client may be used by several threads concurrently. Each thread uses its own {@link HttpContext} so authentication state is not
+ * shared between concurrent conversations.
+ * 
  * @author Dirk Weigenand
  */
 final class DtrHttpClient {
     /**
-     * Logger.
+     * credentials of the DTR user.
      */
-    private final Logger logger = Logger.getLogger(DtrHttpClient.class.getName());
+    private final CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
 
     /**
-     * HTTP client to use for requests.
+     * Context to use for conversations (one per thread).
      */
-    private final DefaultHttpClient httpClient = new DefaultHttpClient(new PoolingClientConnectionManager());
+    private final ThreadLocal<HttpContext> localContext = new ThreadLocal<HttpContext>() {
+        @Override
+        protected HttpContext initialValue() {
+            final HttpContext context = new BasicHttpContext();
+            context.setAttribute(ClientContext.CREDS_PROVIDER, credentialsProvider);
+
+            return context;
+        }
+    };
 
     /**
-     * Context to use for conversations.
+     * metrics of the requests sent by this client.
      */
-    private final HttpContext localContext = new BasicHttpContext();
+    private final DtrRequestMetrics metrics = new DtrRequestMetrics();
+
+    /**
+     * recorder for the pages read (<code>null</code> when not recording).
+     */
+    private volatile DtrTrafficRecorder recorder;
 
     /**
      * Create an instance of a <code>DtrHttpClient</code>.
@@ -49,8 +67,7 @@ final class DtrHttpClient {
         validateArgument(dtrUser, "DTR user");
         validateArgument(password, "password");
 
-        httpClient.getCredentialsProvider().setCredentials(AuthScope.ANY,
-            new UsernamePasswordCredentials(dtrUser, password));
+        credentialsProvider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(dtrUser, password));
     }
 
     /**
@@ -78,18 +95,40 @@ final class DtrHttpClient {
      *             when an error occurred reading the response.
      */
     InputStream getContent(final String queryUrl) throws IOException {
-        logger.fine(queryUrl);
+        final InputStream content = DtrHttpTransports.get(queryUrl).getContent(queryUrl, localContext.get(), metrics.get(queryUrl));
+        final DtrTrafficRecorder currentRecorder = recorder;
+
+        if (currentRecorder == null) {
+            return content;
+        }
 
-        final HttpGet httpget = new HttpGet(queryUrl);
-        final HttpResponse response = httpClient.execute(httpget, localContext);
+        return new ByteArrayInputStream(currentRecorder.record(queryUrl, content));
+    }
 
-        return response.getEntity().getContent();
+    /**
+     * Record the pages read by this client using the given recorder.
+     * 
+     * @param recorder
+     *            recorder for the pages read (<code>null</code> to stop recording).
+     */
+    void setRecorder(final DtrTrafficRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Returns the metrics of the requests sent by this client.
+     * 
+     * @return the metrics of the requests sent by this client.
+     */
+    DtrRequestMetrics getMetrics() {
+        return metrics;
     }
 
     /**
-     * Shut down the underlying {@link DefaultHTTPClient}'s connection manager.
+     * End the conversations of this client. The connections to the DTR are kept open by the shared {@link DtrHttpTransport} for reuse
+     * by later clients.
      */
     public void close() {
-        httpClient.getConnectionManager().shutdown();
+        localContext.remove();
     }
 }
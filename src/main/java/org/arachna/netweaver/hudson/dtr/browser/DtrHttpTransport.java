@@ -0,0 +1,424 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.params.ClientPNames;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.RequestAcceptEncoding;
+import org.apache.http.client.protocol.ResponseContentEncoding;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Connections to one DTR server shared by all {@link DtrHttpClient}s talking
+ * to it.
+ *
+ * Connections are kept alive and pooled (bounded by the configured number of
+ * connections per route) until they were not used for the configured idle
+ * timeout. Requests waiting for a connection while all are in use fail after
+ * the configured connection request timeout instead of blocking forever. Compressed responses are requested when configured. Pages carrying
+ * an ETag or modification date are kept (up to a bounded size) and requested
+ * conditionally afterwards, so unchanged pages need not be transferred again.
+ *
+ * @author Dirk Weigenand
+ */
+final class DtrHttpTransport {
+    /**
+     * maximum size of a page kept for conditional requests.
+     */
+    private static final int MAX_CACHED_PAGE_SIZE = 512 * 1024;
+
+    /**
+     * maximum size of all pages kept for conditional requests.
+     */
+    private static final int MAX_CACHE_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * milliseconds per second.
+     */
+    private static final long A_THOUSAND_MSECS = 1000L;
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(DtrHttpTransport.class.getName());
+
+    /**
+     * connection manager pooling the connections to the DTR server.
+     */
+    private final PoolingClientConnectionManager connectionManager;
+
+    /**
+     * HTTP client to use for requests.
+     */
+    private final DefaultHttpClient httpClient;
+
+    /**
+     * settings used for this transport.
+     */
+    private final DtrConnectionSettings settings;
+
+    /**
+     * pages kept for conditional requests mapped by URL (least recently used
+     * first).
+     */
+    private final Map<String, CachedPage> pages = new LinkedHashMap<String, CachedPage>(16, 0.75f, true);
+
+    /**
+     * size of the pages kept for conditional requests.
+     */
+    private long cacheSize;
+
+    /**
+     * Create a transport using the given settings.
+     *
+     * @param settings
+     *            settings for the connections to the DTR server.
+     */
+    DtrHttpTransport(final DtrConnectionSettings settings) {
+        this.settings = settings;
+        connectionManager = new PoolingClientConnectionManager();
+        connectionManager.setDefaultMaxPerRoute(settings.getMaxConnectionsPerRoute());
+        connectionManager.setMaxTotal(Math.max(settings.getMaxConnectionsPerRoute(), connectionManager.getMaxTotal()));
+
+        httpClient = new DefaultHttpClient(connectionManager);
+        httpClient.getParams().setLongParameter(ClientPNames.CONN_MANAGER_TIMEOUT,
+            settings.getConnectionRequestTimeout() * A_THOUSAND_MSECS);
+        httpClient.setKeepAliveStrategy(new IdleTimeoutKeepAliveStrategy(settings.getIdleTimeout() * A_THOUSAND_MSECS));
+
+        if (settings.isCompression()) {
+            httpClient.addRequestInterceptor(new RequestAcceptEncoding());
+            httpClient.addResponseInterceptor(new ResponseContentEncoding());
+        }
+    }
+
+    /**
+     * Get the content of the page at the given URL. The request and the page
+     * read are recorded with the given metrics.
+     *
+     * @param url
+     *            URL of page to read.
+     * @param context
+     *            context of conversation (carrying the credentials to use).
+     * @param metrics
+     *            metrics of the endpoint the URL belongs to.
+     * @return the content of the page.
+     * @throws IOException
+     *             when an error occurred reading the response.
+     */
+    InputStream getContent(final String url, final HttpContext context, final EndpointMetrics metrics) throws IOException {
+        final CachedPage cachedPage = settings.isConditionalRequests() ? getCachedPage(url) : null;
+        final long start = System.currentTimeMillis();
+        final HttpResponse response;
+
+        try {
+            response = execute(url, context, cachedPage);
+        }
+        catch (final IOException e) {
+            metrics.recordRequest(System.currentTimeMillis() - start, true);
+            throw e;
+        }
+
+        metrics.recordRequest(System.currentTimeMillis() - start,
+            response.getStatusLine().getStatusCode() >= HttpStatus.SC_BAD_REQUEST);
+
+        return new MeteredInputStream(getContent(url, response, cachedPage), metrics);
+    }
+
+    /**
+     * Execute a request for the page at the given URL. Adds the conditions for
+     * requesting the page only when it was modified if a copy is kept.
+     *
+     * @param url
+     *            URL of page to read.
+     * @param context
+     *            context of conversation (carrying the credentials to use).
+     * @param cachedPage
+     *            the copy kept of the page (may be <code>null</code>).
+     * @return the response to the request.
+     * @throws IOException
+     *             when an error occurred executing the request.
+     */
+    private HttpResponse execute(final String url, final HttpContext context, final CachedPage cachedPage) throws IOException {
+        LOGGER.fine(url);
+
+        final HttpGet request = new HttpGet(url);
+
+        if (cachedPage != null) {
+            cachedPage.addConditions(request);
+        }
+
+        return httpClient.execute(request, context);
+    }
+
+    /**
+     * Get the content of the page from the given response. Returns the copy
+     * kept when the page was not modified and keeps a copy of pages carrying
+     * an ETag or modification date.
+     *
+     * @param url
+     *            URL of page.
+     * @param response
+     *            response to the request for the page.
+     * @param cachedPage
+     *            the copy kept of the page (may be <code>null</code>).
+     * @return the content of the page.
+     * @throws IOException
+     *             when an error occurred reading the response.
+     */
+    private InputStream getContent(final String url, final HttpResponse response, final CachedPage cachedPage)
+        throws IOException {
+        final HttpEntity entity = response.getEntity();
+
+        if (cachedPage != null && response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+            EntityUtils.consume(entity);
+
+            return new ByteArrayInputStream(cachedPage.content);
+        }
+
+        if (settings.isConditionalRequests() && response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+            final String eTag = getHeaderValue(response, HttpHeaders.ETAG);
+            final String lastModified = getHeaderValue(response, HttpHeaders.LAST_MODIFIED);
+
+            if (eTag != null || lastModified != null) {
+                return readAndCache(url, entity.getContent(), eTag, lastModified);
+            }
+        }
+
+        return entity.getContent();
+    }
+
+    /**
+     * Close connections that were not used for longer than the idle timeout
+     * or have expired.
+     */
+    void closeIdleConnections() {
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(settings.getIdleTimeout(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns whether connections of this transport are currently in use.
+     *
+     * @return <code>true</code> when connections of this transport are
+     *         currently in use, <code>false</code> otherwise.
+     */
+    boolean isInUse() {
+        return connectionManager.getTotalStats().getLeased() > 0;
+    }
+
+    /**
+     * Close all connections of this transport.
+     */
+    void shutdown() {
+        connectionManager.shutdown();
+    }
+
+    /**
+     * Read the given page content and keep it for conditional requests when
+     * it is not too large. Larger pages are returned without being kept.
+     *
+     * @param url
+     *            URL of page.
+     * @param content
+     *            content of page.
+     * @param eTag
+     *            the ETag of the page (may be <code>null</code>).
+     * @param lastModified
+     *            modification date of the page (may be <code>null</code>).
+     * @return the content of the page.
+     * @throws IOException
+     *             when reading the content fails.
+     */
+    private InputStream readAndCache(final String url, final InputStream content, final String eTag,
+        final String lastModified) throws IOException {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[4096];
+        int count = content.read(chunk);
+
+        while (count > -1) {
+            buffer.write(chunk, 0, count);
+
+            if (buffer.size() > MAX_CACHED_PAGE_SIZE) {
+                return new SequenceInputStream(new ByteArrayInputStream(buffer.toByteArray()), content);
+            }
+
+            count = content.read(chunk);
+        }
+
+        content.close();
+
+        final byte[] page = buffer.toByteArray();
+        putCachedPage(url, new CachedPage(page, eTag, lastModified));
+
+        return new ByteArrayInputStream(page);
+    }
+
+    /**
+     * Returns the page kept for the given URL.
+     *
+     * @param url
+     *            URL of page.
+     * @return the page kept for the given URL or <code>null</code> if none was
+     *         kept.
+     */
+    private synchronized CachedPage getCachedPage(final String url) {
+        return pages.get(url);
+    }
+
+    /**
+     * Keep the given page. Removes the least recently used pages when the
+     * maximum size of all pages kept is exceeded.
+     *
+     * @param url
+     *            URL of page.
+     * @param page
+     *            the page to keep.
+     */
+    private synchronized void putCachedPage(final String url, final CachedPage page) {
+        final CachedPage previous = pages.put(url, page);
+
+        if (previous != null) {
+            cacheSize -= previous.content.length;
+        }
+
+        cacheSize += page.content.length;
+
+        final Iterator<CachedPage> eldest = pages.values().iterator();
+
+        while (cacheSize > MAX_CACHE_SIZE && eldest.hasNext()) {
+            cacheSize -= eldest.next().content.length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Returns the value of the given header of the given response.
+     *
+     * @param response
+     *            the response.
+     * @param name
+     *            name of header.
+     * @return value of header or <code>null</code> when the response does not
+     *         contain the header.
+     */
+    private static String getHeaderValue(final HttpResponse response, final String name) {
+        final Header header = response.getFirstHeader(name);
+
+        return header == null ? null : header.getValue();
+    }
+
+    /**
+     * A page kept for conditional requests.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class CachedPage {
+        /**
+         * content of page.
+         */
+        private final byte[] content;
+
+        /**
+         * the ETag of the page (may be <code>null</code>).
+         */
+        private final String eTag;
+
+        /**
+         * modification date of the page (may be <code>null</code>).
+         */
+        private final String lastModified;
+
+        /**
+         * Create a page kept for conditional requests.
+         *
+         * @param content
+         *            content of page.
+         * @param eTag
+         *            the ETag of the page (may be <code>null</code>).
+         * @param lastModified
+         *            modification date of the page (may be <code>null</code>).
+         */
+        CachedPage(final byte[] content, final String eTag, final String lastModified) {
+            this.content = content;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Add the conditions for requesting this page only when it was
+         * modified to the given request.
+         *
+         * @param request
+         *            request for this page.
+         */
+        void addConditions(final HttpGet request) {
+            if (eTag != null) {
+                request.addHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+            }
+
+            if (lastModified != null) {
+                request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+            }
+        }
+    }
+
+    /**
+     * Keep alive strategy limiting the time a connection is kept alive to the
+     * idle timeout (or the time announced by the server, if shorter).
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class IdleTimeoutKeepAliveStrategy implements ConnectionKeepAliveStrategy {
+        /**
+         * strategy evaluating the 'Keep-Alive' header.
+         */
+        private final ConnectionKeepAliveStrategy delegate = new DefaultConnectionKeepAliveStrategy();
+
+        /**
+         * idle timeout in milliseconds.
+         */
+        private final long idleTimeout;
+
+        /**
+         * Create a keep alive strategy using the given idle timeout.
+         *
+         * @param idleTimeout
+         *            idle timeout in milliseconds.
+         */
+        IdleTimeoutKeepAliveStrategy(final long idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long getKeepAliveDuration(final HttpResponse response, final HttpContext context) {
+            final long duration = delegate.getKeepAliveDuration(response, context);
+
+            return duration < 0 ? idleTimeout : Math.min(duration, idleTimeout);
+        }
+    }
+}
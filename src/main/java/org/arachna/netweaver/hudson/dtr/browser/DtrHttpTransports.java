@@ -0,0 +1,180 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Registry of the {@link DtrHttpTransport}s to the DTR servers. One transport
+ * per DTR server is kept as long as the plugin is running, so connections are
+ * reused across polls and builds.
+ *
+ * Connections not used for the configured idle timeout are closed
+ * periodically. When the settings change, new transports are created. The
+ * previous ones are shut down as soon as none of their connections are in use
+ * anymore.
+ *
+ * @author Dirk Weigenand
+ */
+public final class DtrHttpTransports {
+    /**
+     * milliseconds per second.
+     */
+    private static final long A_THOUSAND_MSECS = 1000L;
+
+    /**
+     * transports mapped by DTR server (scheme, host and port).
+     */
+    private static final Map<String, DtrHttpTransport> TRANSPORTS = new HashMap<String, DtrHttpTransport>();
+
+    /**
+     * transports replaced due to changed settings whose connections are still
+     * in use.
+     */
+    private static final List<DtrHttpTransport> RETIRED_TRANSPORTS = new ArrayList<DtrHttpTransport>();
+
+    /**
+     * settings to use for new transports.
+     */
+    private static DtrConnectionSettings settings = DtrConnectionSettings.DEFAULT;
+
+    /**
+     * timer closing idle connections (<code>null</code> as long as no
+     * transport was created).
+     */
+    private static Timer evictionTimer;
+
+    /**
+     * Utility class, no instances.
+     */
+    private DtrHttpTransports() {
+    }
+
+    /**
+     * Use the given settings for the connections to DTR servers. Transports
+     * created using other settings are replaced.
+     *
+     * @param newSettings
+     *            settings for the connections to DTR servers.
+     */
+    public static synchronized void configure(final DtrConnectionSettings newSettings) {
+        if (!settings.equals(newSettings)) {
+            settings = newSettings;
+            RETIRED_TRANSPORTS.addAll(TRANSPORTS.values());
+            TRANSPORTS.clear();
+            cancelEvictionTimer();
+            closeIdleConnections();
+
+            if (!RETIRED_TRANSPORTS.isEmpty()) {
+                startEvictionTimer();
+            }
+        }
+    }
+
+    /**
+     * Shut down all transports.
+     */
+    public static synchronized void shutdown() {
+        cancelEvictionTimer();
+
+        for (final DtrHttpTransport transport : TRANSPORTS.values()) {
+            transport.shutdown();
+        }
+
+        for (final DtrHttpTransport transport : RETIRED_TRANSPORTS) {
+            transport.shutdown();
+        }
+
+        TRANSPORTS.clear();
+        RETIRED_TRANSPORTS.clear();
+    }
+
+    /**
+     * Returns the transport to the DTR server the given URL points to.
+     *
+     * @param url
+     *            URL of a page on a DTR server.
+     * @return the transport to the DTR server.
+     */
+    static synchronized DtrHttpTransport get(final String url) {
+        final String server = getServer(url);
+        DtrHttpTransport transport = TRANSPORTS.get(server);
+
+        if (transport == null) {
+            transport = new DtrHttpTransport(settings);
+            TRANSPORTS.put(server, transport);
+            startEvictionTimer();
+        }
+
+        return transport;
+    }
+
+    /**
+     * Close idle connections of all transports. Shut down replaced transports
+     * when their connections are no longer in use.
+     */
+    static synchronized void closeIdleConnections() {
+        for (final DtrHttpTransport transport : TRANSPORTS.values()) {
+            transport.closeIdleConnections();
+        }
+
+        final Iterator<DtrHttpTransport> retired = RETIRED_TRANSPORTS.iterator();
+
+        while (retired.hasNext()) {
+            final DtrHttpTransport transport = retired.next();
+
+            if (!transport.isInUse()) {
+                transport.shutdown();
+                retired.remove();
+            }
+        }
+    }
+
+    /**
+     * Determine the server (scheme, host and port) of the given URL.
+     *
+     * @param url
+     *            the URL.
+     * @return the server the given URL points to.
+     */
+    private static String getServer(final String url) {
+        final URI uri = URI.create(url);
+
+        return String.format("%s://%s:%d", uri.getScheme(), uri.getHost(), uri.getPort());
+    }
+
+    /**
+     * Start the timer closing idle connections if not already running.
+     */
+    private static void startEvictionTimer() {
+        if (evictionTimer == null) {
+            final long period = Math.max(A_THOUSAND_MSECS, settings.getIdleTimeout() * A_THOUSAND_MSECS / 2);
+
+            evictionTimer = new Timer("DTR idle connection eviction", true);
+            evictionTimer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    closeIdleConnections();
+                }
+            }, period, period);
+        }
+    }
+
+    /**
+     * Cancel the timer closing idle connections.
+     */
+    private static void cancelEvictionTimer() {
+        if (evictionTimer != null) {
+            evictionTimer.cancel();
+            evictionTimer = null;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Metrics of the requests sent to the DTR by a {@link DtrBrowser}, kept per
+ * kind of DTR report (endpoint).
+ *
+ * @author Dirk Weigenand
+ */
+public final class DtrRequestMetrics {
+    /**
+     * Kinds of DTR reports requested.
+     *
+     * @author Dirk Weigenand
+     */
+    public static enum Endpoint {
+        /**
+         * activity query (list of activities of a compartment).
+         */
+        ActivityQuery("activity queries"),
+
+        /**
+         * details (long description, integrations) of an activity.
+         */
+        ActivityDetails("activity details"),
+
+        /**
+         * version set (resources) of an activity.
+         */
+        ResourceSetDetails("version sets"),
+
+        /**
+         * details of a resource.
+         */
+        ResourceDetails("resource details"),
+
+        /**
+         * any other page (e.g. workspace listings).
+         */
+        Other("other pages");
+
+        /**
+         * description of endpoint.
+         */
+        private final String description;
+
+        /**
+         * Create an endpoint with the given description.
+         *
+         * @param description
+         *            description of endpoint.
+         */
+        private Endpoint(final String description) {
+            this.description = description;
+        }
+
+        /**
+         * Determine the endpoint the given URL belongs to.
+         *
+         * @param url
+         *            URL of DTR report.
+         * @return the endpoint the given URL belongs to.
+         */
+        static Endpoint of(final String url) {
+            Endpoint endpoint = Other;
+
+            if (url.contains("/ActivityQuery")) {
+                endpoint = ActivityQuery;
+            }
+            else if (url.contains("/ResourceSetDetails")) {
+                endpoint = ResourceSetDetails;
+            }
+            else if (url.contains("/ResourceDetails")) {
+                endpoint = url.contains("path=/vh/") ? ResourceDetails : ActivityDetails;
+            }
+
+            return endpoint;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    /**
+     * metrics mapped by endpoint.
+     */
+    private final Map<Endpoint, EndpointMetrics> metrics = new EnumMap<Endpoint, EndpointMetrics>(Endpoint.class);
+
+    /**
+     * Create an empty set of request metrics.
+     */
+    DtrRequestMetrics() {
+        for (final Endpoint endpoint : Endpoint.values()) {
+            metrics.put(endpoint, new EndpointMetrics(endpoint));
+        }
+    }
+
+    /**
+     * Returns the metrics of the given endpoint.
+     *
+     * @param endpoint
+     *            the endpoint to get the metrics for.
+     * @return the metrics of the given endpoint.
+     */
+    public EndpointMetrics get(final Endpoint endpoint) {
+        return metrics.get(endpoint);
+    }
+
+    /**
+     * Returns the metrics of the endpoint the given URL belongs to.
+     *
+     * @param url
+     *            URL of DTR report.
+     * @return the metrics of the endpoint the given URL belongs to.
+     */
+    EndpointMetrics get(final String url) {
+        return metrics.get(Endpoint.of(url));
+    }
+
+    /**
+     * Returns the metrics of the endpoints that were requested at least once.
+     *
+     * @return the metrics of the endpoints that were requested (in order of
+     *         {@link Endpoint}).
+     */
+    public Collection<EndpointMetrics> getRequestedEndpoints() {
+        final Collection<EndpointMetrics> requested = new ArrayList<EndpointMetrics>();
+
+        for (final EndpointMetrics endpointMetrics : metrics.values()) {
+            if (endpointMetrics.getRequests() > 0) {
+                requested.add(endpointMetrics);
+            }
+        }
+
+        return requested;
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Archive of DTR traffic recorded by a {@link DtrTrafficRecorder}: the pages
+ * returned by the DTR mapped by the request (path and query of the URL
+ * requested) they were returned for.
+ *
+ * The archive is a ZIP file containing the pages (<code>pages/1</code>,
+ * <code>pages/2</code>, ...) and an index (<code>index.txt</code>) listing the
+ * name of each page and the request it was returned for separated by a
+ * tabulator, one page per line.
+ *
+ * @author Dirk Weigenand
+ */
+public final class DtrTrafficArchive {
+    /**
+     * name of index entry.
+     */
+    static final String INDEX = "index.txt";
+
+    /**
+     * prefix of page entries.
+     */
+    static final String PAGES = "pages/";
+
+    /**
+     * encoding of index.
+     */
+    static final String INDEX_ENCODING = "UTF-8";
+
+    /**
+     * separator of page name and request in index.
+     */
+    static final char SEPARATOR = '\t';
+
+    /**
+     * pages mapped by request (in order of recording).
+     */
+    private final Map<String, byte[]> pages;
+
+    /**
+     * Create an archive containing the given pages.
+     *
+     * @param pages
+     *            pages mapped by request.
+     */
+    private DtrTrafficArchive(final Map<String, byte[]> pages) {
+        this.pages = pages;
+    }
+
+    /**
+     * Read the archive from the given file.
+     *
+     * @param archive
+     *            the archive file.
+     * @return the archive read.
+     * @throws IOException
+     *             when reading the archive fails.
+     */
+    public static DtrTrafficArchive read(final File archive) throws IOException {
+        final ZipFile zip = new ZipFile(archive);
+
+        try {
+            final ZipEntry index = zip.getEntry(INDEX);
+
+            if (index == null) {
+                throw new IOException(String.format("%s does not contain an index of recorded DTR pages!", archive));
+            }
+
+            final Map<String, byte[]> pages = new LinkedHashMap<String, byte[]>();
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(zip.getInputStream(index), INDEX_ENCODING));
+            String line = reader.readLine();
+
+            while (line != null) {
+                final int separator = line.indexOf(SEPARATOR);
+
+                if (separator > 0) {
+                    final ZipEntry page = zip.getEntry(line.substring(0, separator));
+
+                    if (page != null) {
+                        pages.put(line.substring(separator + 1), read(zip.getInputStream(page)));
+                    }
+                }
+
+                line = reader.readLine();
+            }
+
+            return new DtrTrafficArchive(pages);
+        }
+        finally {
+            zip.close();
+        }
+    }
+
+    /**
+     * Create an archive from the given pages (e.g. for tests).
+     *
+     * @param pages
+     *            pages mapped by request.
+     * @return the archive containing the given pages.
+     */
+    public static DtrTrafficArchive create(final Map<String, byte[]> pages) {
+        return new DtrTrafficArchive(new LinkedHashMap<String, byte[]>(pages));
+    }
+
+    /**
+     * Returns the request (path and query) of the given URL, i.e. strips
+     * scheme, host and port.
+     *
+     * @param url
+     *            the URL requested.
+     * @return path and query of the URL.
+     */
+    public static String getRequest(final String url) {
+        final int authority = url.indexOf("://");
+        final int path = authority < 0 ? 0 : url.indexOf('/', authority + "://".length());
+
+        return path < 0 ? "/" : url.substring(path);
+    }
+
+    /**
+     * Returns the page recorded for the given request.
+     *
+     * @param request
+     *            path and query of the URL requested.
+     * @return the page recorded for the request or <code>null</code> if none
+     *         was recorded.
+     */
+    public byte[] getPage(final String request) {
+        return pages.get(request);
+    }
+
+    /**
+     * Returns the requests recorded.
+     *
+     * @return the requests recorded (in order of recording).
+     */
+    public Set<String> getRequests() {
+        return Collections.unmodifiableSet(pages.keySet());
+    }
+
+    /**
+     * Returns the number of pages recorded per kind of DTR report.
+     *
+     * @return the number of pages recorded per kind of DTR report.
+     */
+    public Map<DtrRequestMetrics.Endpoint, Integer> getRequestCounts() {
+        final Map<DtrRequestMetrics.Endpoint, Integer> counts = new HashMap<DtrRequestMetrics.Endpoint, Integer>();
+
+        for (final String request : pages.keySet()) {
+            final DtrRequestMetrics.Endpoint endpoint = DtrRequestMetrics.Endpoint.of(request);
+            final Integer count = counts.get(endpoint);
+            counts.put(endpoint, count == null ? 1 : count + 1);
+        }
+
+        return counts;
+    }
+
+    /**
+     * Read the given stream completely and close it.
+     *
+     * @param content
+     *            the stream to read.
+     * @return content read.
+     * @throws IOException
+     *             when reading fails.
+     */
+    static byte[] read(final InputStream content) throws IOException {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[4096];
+
+        try {
+            int count = content.read(chunk);
+
+            while (count > -1) {
+                buffer.write(chunk, 0, count);
+                count = content.read(chunk);
+            }
+        }
+        finally {
+            content.close();
+        }
+
+        return buffer.toByteArray();
+    }
+}
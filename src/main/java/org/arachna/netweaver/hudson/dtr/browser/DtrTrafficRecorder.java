@@ -0,0 +1,105 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Records the pages read from the DTR into an archive (see
+ * {@link DtrTrafficArchive}) so the traffic of a poll or checkout can be
+ * replayed later, e.g. for profiling without access to a DTR.
+ *
+ * @author Dirk Weigenand
+ */
+public final class DtrTrafficRecorder {
+    /**
+     * the archive being written.
+     */
+    private final ZipOutputStream archive;
+
+    /**
+     * index of the pages recorded.
+     */
+    private final StringBuilder index = new StringBuilder();
+
+    /**
+     * number of pages recorded.
+     */
+    private int pages;
+
+    /**
+     * Create a recorder writing into the given archive file.
+     *
+     * @param archive
+     *            the archive file to create.
+     * @throws IOException
+     *             when the archive could not be created.
+     */
+    public DtrTrafficRecorder(final File archive) throws IOException {
+        final File folder = archive.getAbsoluteFile().getParentFile();
+
+        if (folder != null && !folder.exists() && !folder.mkdirs()) {
+            throw new IOException(String.format("Could not create folder %s!", folder));
+        }
+
+        this.archive = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(archive)));
+    }
+
+    /**
+     * Read the given page completely and record it for the given URL.
+     *
+     * @param url
+     *            the URL requested.
+     * @param content
+     *            the page returned by the DTR (closed afterwards).
+     * @return the content of the page.
+     * @throws IOException
+     *             when reading or recording the page fails.
+     */
+    byte[] record(final String url, final InputStream content) throws IOException {
+        final byte[] page = DtrTrafficArchive.read(content);
+
+        synchronized (archive) {
+            final String name = DtrTrafficArchive.PAGES + ++pages;
+            archive.putNextEntry(new ZipEntry(name));
+            archive.write(page);
+            archive.closeEntry();
+            index.append(name).append(DtrTrafficArchive.SEPARATOR).append(DtrTrafficArchive.getRequest(url)).append('\n');
+        }
+
+        return page;
+    }
+
+    /**
+     * Returns the number of pages recorded.
+     *
+     * @return the number of pages recorded.
+     */
+    public int getPages() {
+        synchronized (archive) {
+            return pages;
+        }
+    }
+
+    /**
+     * Write the index and close the archive.
+     *
+     * @throws IOException
+     *             when writing the archive fails.
+     */
+    public void close() throws IOException {
+        synchronized (archive) {
+            archive.putNextEntry(new ZipEntry(DtrTrafficArchive.INDEX));
+            archive.write(index.toString().getBytes(DtrTrafficArchive.INDEX_ENCODING));
+            archive.closeEntry();
+            archive.close();
+        }
+    }
+}
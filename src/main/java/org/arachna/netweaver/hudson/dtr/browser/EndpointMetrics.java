@@ -0,0 +1,188 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import org.arachna.netweaver.hudson.dtr.browser.DtrRequestMetrics.Endpoint;
+
+/**
+ * Metrics of the requests sent to one kind of DTR report: number of requests,
+ * failed requests, bytes read and a histogram of the latencies.
+ *
+ * The latency of a request is the time until the response headers were
+ * received, i.e. the time the DTR took to answer. The read time is the time
+ * spent afterwards until the page was read completely. Since pages are parsed
+ * while being read, it covers both the transfer over the network and parsing.
+ *
+ * @author Dirk Weigenand
+ */
+public final class EndpointMetrics {
+    /**
+     * upper bounds (in milliseconds) of the buckets of the latency histogram.
+     * The last bucket of the histogram holds the latencies exceeding the
+     * largest bound.
+     */
+    private static final long[] LATENCY_BOUNDS = { 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+    /**
+     * the endpoint these metrics belong to.
+     */
+    private final Endpoint endpoint;
+
+    /**
+     * number of requests.
+     */
+    private long requests;
+
+    /**
+     * number of requests that failed or were answered with an error status.
+     */
+    private long errors;
+
+    /**
+     * number of bytes read.
+     */
+    private long bytes;
+
+    /**
+     * accumulated latency in milliseconds.
+     */
+    private long latency;
+
+    /**
+     * accumulated read time in milliseconds.
+     */
+    private long readTime;
+
+    /**
+     * number of requests per latency bucket.
+     */
+    private final long[] latencyHistogram = new long[LATENCY_BOUNDS.length + 1];
+
+    /**
+     * Create empty metrics for the given endpoint.
+     *
+     * @param endpoint
+     *            the endpoint these metrics belong to.
+     */
+    EndpointMetrics(final Endpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Record a request answered after the given latency.
+     *
+     * @param requestLatency
+     *            time in milliseconds until the response headers were
+     *            received (or the request failed).
+     * @param error
+     *            whether the request failed or was answered with an error
+     *            status.
+     */
+    synchronized void recordRequest(final long requestLatency, final boolean error) {
+        requests++;
+        latency += requestLatency;
+
+        if (error) {
+            errors++;
+        }
+
+        int bucket = 0;
+
+        while (bucket < LATENCY_BOUNDS.length && requestLatency > LATENCY_BOUNDS[bucket]) {
+            bucket++;
+        }
+
+        latencyHistogram[bucket]++;
+    }
+
+    /**
+     * Record a page that was read.
+     *
+     * @param pageSize
+     *            number of bytes read.
+     * @param pageReadTime
+     *            time in milliseconds spent reading the page.
+     */
+    synchronized void recordRead(final long pageSize, final long pageReadTime) {
+        bytes += pageSize;
+        readTime += pageReadTime;
+    }
+
+    /**
+     * Returns the endpoint these metrics belong to.
+     *
+     * @return the endpoint these metrics belong to.
+     */
+    public Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Returns the number of requests.
+     *
+     * @return the number of requests.
+     */
+    public synchronized long getRequests() {
+        return requests;
+    }
+
+    /**
+     * Returns the number of requests that failed or were answered with an
+     * error status.
+     *
+     * @return the number of failed requests.
+     */
+    public synchronized long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Returns the number of bytes read.
+     *
+     * @return the number of bytes read.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the accumulated latency of all requests.
+     *
+     * @return the accumulated latency in milliseconds.
+     */
+    public synchronized long getLatency() {
+        return latency;
+    }
+
+    /**
+     * Returns the accumulated time spent reading pages.
+     *
+     * @return the accumulated read time in milliseconds.
+     */
+    public synchronized long getReadTime() {
+        return readTime;
+    }
+
+    /**
+     * Returns the number of requests per latency bucket. The bucket at index
+     * <code>i</code> holds the requests whose latency did not exceed
+     * {@link #getLatencyBounds()}<code>[i]</code> (and exceeded the previous
+     * bound). The last bucket holds the requests exceeding the largest bound.
+     *
+     * @return the number of requests per latency bucket.
+     */
+    public synchronized long[] getLatencyHistogram() {
+        return latencyHistogram.clone();
+    }
+
+    /**
+     * Returns the upper bounds of the buckets of the latency histogram.
+     *
+     * @return the upper bounds (in milliseconds) of the buckets of the latency
+     *         histogram.
+     */
+    public static long[] getLatencyBounds() {
+        return LATENCY_BOUNDS.clone();
+    }
+}
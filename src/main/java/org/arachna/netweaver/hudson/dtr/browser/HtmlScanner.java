@@ -0,0 +1,685 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Event based scanner for the HTML pages generated by the DTR.
+ *
+ * The scanner reads the page sequentially and reports start tags, end tags and text to a {@link Handler}. No document tree is built, so
+ * memory consumption does not depend on the size of the page. Element and attribute names are reported in lower case, entities in text
+ * and attribute values are resolved.
+ *
+ * The scanner is lenient like browsers are: void elements (e.g. <code>&lt;br&gt;</code>) are reported as being closed immediately, end
+ * tags close all elements opened after the matching start tag, end tags without matching start tag are ignored and table cells and rows
+ * are closed implicitly by the next cell or row. Thus start and end events reported to the handler are always balanced.
+ *
+ * @author Dirk Weigenand
+ */
+final class HtmlScanner {
+    /**
+     * Handler for events reported by the {@link HtmlScanner}. The default implementations ignore the respective event.
+     *
+     * @author Dirk Weigenand
+     */
+    abstract static class Handler {
+        /**
+         * An element was opened.
+         *
+         * @param name
+         *            element name (lower case).
+         * @param attributes
+         *            attributes of element mapped by their (lower case) names.
+         * @param depth
+         *            nesting depth of element (the outermost element has depth 0).
+         */
+        void startElement(final String name, final Map<String, String> attributes, final int depth) {
+        }
+
+        /**
+         * An element was closed.
+         *
+         * @param name
+         *            element name (lower case).
+         * @param depth
+         *            nesting depth of element.
+         */
+        void endElement(final String name, final int depth) {
+        }
+
+        /**
+         * Text was read.
+         *
+         * @param text
+         *            the text read (with entities resolved).
+         * @param depth
+         *            nesting depth of the element containing the text.
+         */
+        void text(final String text, final int depth) {
+        }
+    }
+
+    /**
+     * size of read buffer.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * maximum length of an entity reference.
+     */
+    private static final int MAX_ENTITY_LENGTH = 10;
+
+    /**
+     * radix of hexadecimal character references.
+     */
+    private static final int HEX = 16;
+
+    /**
+     * elements without content.
+     */
+    private static final Set<String> VOID_ELEMENTS = new HashSet<String>(Arrays.asList("area", "base", "br", "col", "embed", "hr",
+        "img", "input", "link", "meta", "param", "source", "wbr"));
+
+    /**
+     * elements whose content is not HTML.
+     */
+    private static final Set<String> RAW_TEXT_ELEMENTS = new HashSet<String>(Arrays.asList("script", "style"));
+
+    /**
+     * table cell elements.
+     */
+    private static final Set<String> CELLS = new HashSet<String>(Arrays.asList("td", "th"));
+
+    /**
+     * table row element.
+     */
+    private static final Set<String> ROW = Collections.singleton("tr");
+
+    /**
+     * table element.
+     */
+    private static final Set<String> TABLE = Collections.singleton("table");
+
+    /**
+     * table row and table elements.
+     */
+    private static final Set<String> ROW_AND_TABLE = new HashSet<String>(Arrays.asList("tr", "table"));
+
+    /**
+     * named entities known to the scanner.
+     */
+    private static final Map<String, Character> ENTITIES = new HashMap<String, Character>();
+
+    static {
+        ENTITIES.put("amp", '&');
+        ENTITIES.put("lt", '<');
+        ENTITIES.put("gt", '>');
+        ENTITIES.put("quot", '"');
+        ENTITIES.put("apos", '\'');
+        ENTITIES.put("nbsp", '\u00a0');
+    }
+
+    /**
+     * handler to report events to.
+     */
+    private final Handler handler;
+
+    /**
+     * names of currently open elements.
+     */
+    private final List<String> openElements = new ArrayList<String>();
+
+    /**
+     * read buffer.
+     */
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    /**
+     * current position in read buffer.
+     */
+    private int position;
+
+    /**
+     * number of valid characters in read buffer.
+     */
+    private int limit;
+
+    /**
+     * reader to scan.
+     */
+    private Reader reader;
+
+    /**
+     * Create a scanner reporting to the given handler.
+     *
+     * @param handler
+     *            handler to report events to.
+     */
+    HtmlScanner(final Handler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler must not be null!");
+        }
+
+        this.handler = handler;
+    }
+
+    /**
+     * Scan the HTML read from the given reader. The reader is not closed.
+     *
+     * @param reader
+     *            reader to scan.
+     * @throws IOException
+     *             when reading fails
+     */
+    void scan(final Reader reader) throws IOException {
+        this.reader = reader;
+        position = 0;
+        limit = 0;
+        openElements.clear();
+
+        final StringBuilder text = new StringBuilder();
+        int c = read();
+
+        while (c != -1) {
+            if (c == '<') {
+                final int next = peek();
+
+                if (next == '/' || next == '!' || next == '?' || Character.isLetter(next)) {
+                    reportText(text);
+                    scanMarkup();
+                }
+                else {
+                    text.append('<');
+                }
+            }
+            else if (c == '&') {
+                text.append(readEntity());
+            }
+            else {
+                text.append((char)c);
+            }
+
+            c = read();
+        }
+
+        reportText(text);
+        closeElements(0);
+    }
+
+    /**
+     * Report the collected text (if any) to the handler and clear it.
+     *
+     * @param text
+     *            collected text.
+     */
+    private void reportText(final StringBuilder text) {
+        if (text.length() > 0) {
+            handler.text(text.toString(), openElements.size() - 1);
+            text.setLength(0);
+        }
+    }
+
+    /**
+     * Scan markup following a '&lt;'.
+     *
+     * @throws IOException
+     *             when reading fails
+     */
+    private void scanMarkup() throws IOException {
+        final int c = read();
+
+        if (c == '/') {
+            scanEndTag();
+        }
+        else if (c == '!') {
+            if (peek() == '-') {
+                skipComment();
+            }
+            else {
+                skipTo('>');
+            }
+        }
+        else if (c == '?') {
+            skipTo('>');
+        }
+        else {
+            scanStartTag((char)c);
+        }
+    }
+
+    /**
+     * Scan a start tag whose name starts with the given character.
+     *
+     * @param first
+     *            first character of the element name.
+     * @throws IOException
+     *             when reading fails
+     */
+    private void scanStartTag(final char first) throws IOException {
+        final StringBuilder name = new StringBuilder().append(first);
+        int c = readName(name);
+        final String elementName = name.toString().toLowerCase();
+        final Map<String, String> attributes = new LinkedHashMap<String, String>();
+        boolean selfClosing = false;
+
+        while (c != -1 && c != '>') {
+            if (c == '/') {
+                selfClosing = peek() == '>';
+                c = read();
+            }
+            else if (isWhitespace(c)) {
+                c = read();
+            }
+            else {
+                c = readAttribute((char)c, attributes);
+            }
+        }
+
+        startElement(elementName, attributes);
+
+        if (selfClosing || VOID_ELEMENTS.contains(elementName)) {
+            closeElements(openElements.size() - 1);
+        }
+        else if (RAW_TEXT_ELEMENTS.contains(elementName)) {
+            skipRawText(elementName);
+            closeElements(openElements.size() - 1);
+        }
+    }
+
+    /**
+     * Read an attribute starting with the given character and put it into the given map.
+     *
+     * @param first
+     *            first character of the attribute name.
+     * @param attributes
+     *            map to put the attribute into.
+     * @return the character following the attribute.
+     * @throws IOException
+     *             when reading fails
+     */
+    private int readAttribute(final char first, final Map<String, String> attributes) throws IOException {
+        final StringBuilder name = new StringBuilder().append(first);
+        int c = readName(name);
+
+        while (isWhitespace(c)) {
+            c = read();
+        }
+
+        String value = "";
+
+        if (c == '=') {
+            c = read();
+
+            while (isWhitespace(c)) {
+                c = read();
+            }
+
+            final StringBuilder v = new StringBuilder();
+
+            if (c == '"' || c == '\'') {
+                final int quote = c;
+                c = read();
+
+                while (c != -1 && c != quote) {
+                    appendValueCharacter(v, c);
+                    c = read();
+                }
+
+                c = read();
+            }
+            else {
+                while (c != -1 && c != '>' && !isWhitespace(c)) {
+                    appendValueCharacter(v, c);
+                    c = read();
+                }
+            }
+
+            value = v.toString();
+        }
+
+        final String attributeName = name.toString().toLowerCase();
+
+        if (!attributes.containsKey(attributeName)) {
+            attributes.put(attributeName, value);
+        }
+
+        return c;
+    }
+
+    /**
+     * Append the given character of an attribute value to the given buffer resolving entities.
+     *
+     * @param value
+     *            buffer for attribute value.
+     * @param c
+     *            character to append.
+     * @throws IOException
+     *             when reading fails
+     */
+    private void appendValueCharacter(final StringBuilder value, final int c) throws IOException {
+        if (c == '&') {
+            value.append(readEntity());
+        }
+        else {
+            value.append((char)c);
+        }
+    }
+
+    /**
+     * Read the remaining characters of a name into the given buffer.
+     *
+     * @param name
+     *            buffer for name.
+     * @return the character following the name.
+     * @throws IOException
+     *             when reading fails
+     */
+    private int readName(final StringBuilder name) throws IOException {
+        int c = read();
+
+        while (c != -1 && c != '>' && c != '/' && c != '=' && !isWhitespace(c)) {
+            name.append((char)c);
+            c = read();
+        }
+
+        return c;
+    }
+
+    /**
+     * Scan an end tag.
+     *
+     * @throws IOException
+     *             when reading fails
+     */
+    private void scanEndTag() throws IOException {
+        final StringBuilder name = new StringBuilder();
+        int c = readName(name);
+
+        while (c != -1 && c != '>') {
+            c = read();
+        }
+
+        final int index = openElements.lastIndexOf(name.toString().toLowerCase());
+
+        if (index > -1) {
+            closeElements(index);
+        }
+    }
+
+    /**
+     * Report the start of the given element after implicitly closing table cells and rows.
+     *
+     * @param name
+     *            element name.
+     * @param attributes
+     *            attributes of element.
+     */
+    private void startElement(final String name, final Map<String, String> attributes) {
+        if ("td".equals(name) || "th".equals(name)) {
+            closeImplicitly(CELLS, ROW_AND_TABLE);
+        }
+        else if ("tr".equals(name)) {
+            closeImplicitly(ROW, TABLE);
+        }
+
+        handler.startElement(name, Collections.unmodifiableMap(attributes), openElements.size());
+        openElements.add(name);
+    }
+
+    /**
+     * Close the innermost open element contained in the given set of closable elements unless an element contained in the set of
+     * delimiting elements was opened after it.
+     *
+     * @param closable
+     *            names of elements to close.
+     * @param delimiters
+     *            names of elements delimiting the search for an element to close.
+     */
+    private void closeImplicitly(final Set<String> closable, final Set<String> delimiters) {
+        for (int i = openElements.size() - 1; i >= 0; i--) {
+            final String open = openElements.get(i);
+
+            if (closable.contains(open)) {
+                closeElements(i);
+                break;
+            }
+
+            if (delimiters.contains(open)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Close all open elements from the given index on (innermost first).
+     *
+     * @param index
+     *            index of outermost element to close.
+     */
+    private void closeElements(final int index) {
+        for (int i = openElements.size() - 1; i >= index; i--) {
+            handler.endElement(openElements.remove(i), i);
+        }
+    }
+
+    /**
+     * Skip the content of a raw text element up to its end tag.
+     *
+     * @param name
+     *            name of raw text element.
+     * @throws IOException
+     *             when reading fails
+     */
+    private void skipRawText(final String name) throws IOException {
+        final String endTag = "</" + name;
+        int matched = 0;
+        int c = read();
+
+        while (c != -1 && matched < endTag.length()) {
+            if (Character.toLowerCase((char)c) == endTag.charAt(matched)) {
+                matched++;
+            }
+            else {
+                matched = c == '<' ? 1 : 0;
+            }
+
+            c = read();
+        }
+
+        while (c != -1 && c != '>') {
+            c = read();
+        }
+    }
+
+    /**
+     * Skip a comment (the leading '&lt;!' was already read).
+     *
+     * @throws IOException
+     *             when reading fails
+     */
+    private void skipComment() throws IOException {
+        int dashes = 0;
+        int c = read();
+
+        // skip the dashes opening the comment
+        while (c == '-' && dashes < 2) {
+            dashes++;
+            c = read();
+        }
+
+        dashes = 0;
+
+        while (c != -1 && !(c == '>' && dashes >= 2)) {
+            dashes = c == '-' ? dashes + 1 : 0;
+            c = read();
+        }
+    }
+
+    /**
+     * Skip all characters up to and including the given one.
+     *
+     * @param end
+     *            character to skip to.
+     * @throws IOException
+     *             when reading fails
+     */
+    private void skipTo(final char end) throws IOException {
+        int c = read();
+
+        while (c != -1 && c != end) {
+            c = read();
+        }
+    }
+
+    /**
+     * Read an entity reference (the leading '&amp;' was already read) and return the text it stands for. Unknown or malformed references
+     * are returned unchanged.
+     *
+     * @return text the entity reference stands for.
+     * @throws IOException
+     *             when reading fails
+     */
+    private String readEntity() throws IOException {
+        final StringBuilder entity = new StringBuilder();
+        int c = peek();
+
+        while (c != -1 && c != ';' && (Character.isLetterOrDigit(c) || c == '#') && entity.length() < MAX_ENTITY_LENGTH) {
+            entity.append((char)read());
+            c = peek();
+        }
+
+        if (c == ';') {
+            read();
+            final String resolved = resolveEntity(entity.toString());
+
+            if (resolved != null) {
+                return resolved;
+            }
+
+            entity.append(';');
+        }
+
+        return entity.insert(0, '&').toString();
+    }
+
+    /**
+     * Resolve the given entity name or character reference.
+     *
+     * @param entity
+     *            entity name or character reference (without '&amp;' and ';').
+     * @return the resolved text or <code>null</code> when the entity is unknown.
+     */
+    private String resolveEntity(final String entity) {
+        if (entity.startsWith("#")) {
+            try {
+                final int codePoint =
+                    entity.startsWith("#x") || entity.startsWith("#X") ? Integer.parseInt(entity.substring(2), HEX) : Integer
+                        .parseInt(entity.substring(1));
+
+                return new String(Character.toChars(codePoint));
+            }
+            catch (final NumberFormatException e) {
+                return null;
+            }
+            catch (final IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        final Character character = ENTITIES.get(entity.toLowerCase());
+
+        return character == null ? null : character.toString();
+    }
+
+    /**
+     * Checks whether the given character is white space.
+     *
+     * @param c
+     *            character to check.
+     * @return <code>true</code> when the given character is white space, <code>false</code> otherwise.
+     */
+    private static boolean isWhitespace(final int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    /**
+     * Read the next character.
+     *
+     * @return the next character or -1 at the end of input.
+     * @throws IOException
+     *             when reading fails
+     */
+    private int read() throws IOException {
+        final int c = peek();
+
+        if (c != -1) {
+            position++;
+        }
+
+        return c;
+    }
+
+    /**
+     * Return the next character without consuming it.
+     *
+     * @return the next character or -1 at the end of input.
+     * @throws IOException
+     *             when reading fails
+     */
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+
+            if (limit <= 0) {
+                limit = 0;
+
+                return -1;
+            }
+        }
+
+        return buffer[position];
+    }
+
+    /**
+     * Collapse white space in the given text into single blanks and remove leading and trailing white space.
+     *
+     * @param text
+     *            text to normalize.
+     * @return the normalized text.
+     */
+    static String normalize(final CharSequence text) {
+        final StringBuilder normalized = new StringBuilder(text.length());
+        boolean whitespace = false;
+
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+
+            if (isWhitespace(c)) {
+                whitespace = true;
+            }
+            else {
+                if (whitespace && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+
+                normalized.append(c);
+                whitespace = false;
+            }
+        }
+
+        return normalized.toString();
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Stream counting the bytes read from a DTR page. Records the size of the page
+ * and the time spent reading it with the metrics of its endpoint when it is
+ * closed.
+ *
+ * @author Dirk Weigenand
+ */
+final class MeteredInputStream extends FilterInputStream {
+    /**
+     * metrics to record the page with.
+     */
+    private final EndpointMetrics metrics;
+
+    /**
+     * time in milliseconds the reading of the page started at.
+     */
+    private final long start = System.currentTimeMillis();
+
+    /**
+     * number of bytes read.
+     */
+    private long bytes;
+
+    /**
+     * whether the page was recorded already.
+     */
+    private boolean recorded;
+
+    /**
+     * Create a stream counting the bytes read from the given page.
+     *
+     * @param page
+     *            content of the page.
+     * @param metrics
+     *            metrics to record the page with.
+     */
+    MeteredInputStream(final InputStream page, final EndpointMetrics metrics) {
+        super(page);
+        this.metrics = metrics;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read() throws IOException {
+        final int c = super.read();
+
+        if (c > -1) {
+            bytes++;
+        }
+
+        return c;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+        final int count = super.read(buffer, offset, length);
+
+        if (count > 0) {
+            bytes += count;
+        }
+
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long skip(final long n) throws IOException {
+        final long skipped = super.skip(n);
+        bytes += skipped;
+
+        return skipped;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        }
+        finally {
+            if (!recorded) {
+                recorded = true;
+                metrics.recordRead(bytes, System.currentTimeMillis() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timings of the stages resolving activities into resources and development components.
+ *
+ * Since the requests of a stage are executed concurrently the accumulated duration of a stage may exceed the time spent resolving all
+ * activities.
+ *
+ * @author Dirk Weigenand
+ */
+public final class ResolutionStageTimings {
+    /**
+     * Stages of resolving an activity.
+     *
+     * @author Dirk Weigenand
+     */
+    public static enum Stage {
+        /**
+         * reading the details (long description) of an activity.
+         */
+        ActivityDetails("activity details"),
+
+        /**
+         * reading the version set (resources) of an activity.
+         */
+        VersionSet("version sets"),
+
+        /**
+         * reading the details of a resource.
+         */
+        ResourceDetails("resource details");
+
+        /**
+         * description of stage.
+         */
+        private final String description;
+
+        /**
+         * Create a stage with the given description.
+         *
+         * @param description
+         *            description of stage.
+         */
+        private Stage(final String description) {
+            this.description = description;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    /**
+     * number of requests per stage.
+     */
+    private final Map<Stage, AtomicLong> counts = new EnumMap<Stage, AtomicLong>(Stage.class);
+
+    /**
+     * accumulated duration of requests per stage in milliseconds.
+     */
+    private final Map<Stage, AtomicLong> durations = new EnumMap<Stage, AtomicLong>(Stage.class);
+
+    /**
+     * time in milliseconds spent resolving all activities.
+     */
+    private volatile long elapsedTime;
+
+    /**
+     * number of activities restored from the activity store.
+     */
+    private final AtomicLong restoredActivities = new AtomicLong();
+
+    /**
+     * Create an empty set of stage timings.
+     */
+    ResolutionStageTimings() {
+        for (final Stage stage : Stage.values()) {
+            counts.put(stage, new AtomicLong());
+            durations.put(stage, new AtomicLong());
+        }
+    }
+
+    /**
+     * Record a request of the given stage that started at the given time and ended now.
+     *
+     * @param stage
+     *            the stage to record the request for.
+     * @param start
+     *            start time of request in milliseconds.
+     */
+    void record(final Stage stage, final long start) {
+        counts.get(stage).incrementAndGet();
+        durations.get(stage).addAndGet(System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Record an activity that was restored from the activity store instead of
+     * being read from the DTR.
+     */
+    void recordRestoredActivity() {
+        restoredActivities.incrementAndGet();
+    }
+
+    /**
+     * Set the time spent resolving all activities.
+     *
+     * @param elapsedTime
+     *            time in milliseconds spent resolving all activities.
+     */
+    void setElapsedTime(final long elapsedTime) {
+        this.elapsedTime = elapsedTime;
+    }
+
+    /**
+     * Returns the number of requests executed in the given stage.
+     *
+     * @param stage
+     *            the stage to get the number of requests for.
+     * @return number of requests executed in the given stage.
+     */
+    public long getCount(final Stage stage) {
+        return counts.get(stage).get();
+    }
+
+    /**
+     * Returns the accumulated duration of all requests executed in the given stage.
+     *
+     * @param stage
+     *            the stage to get the accumulated duration for.
+     * @return accumulated duration in milliseconds.
+     */
+    public long getDuration(final Stage stage) {
+        return durations.get(stage).get();
+    }
+
+    /**
+     * Returns the number of activities restored from the activity store.
+     *
+     * @return number of activities restored from the activity store.
+     */
+    public long getRestoredActivities() {
+        return restoredActivities.get();
+    }
+
+    /**
+     * Returns the time spent resolving all activities.
+     *
+     * @return time in milliseconds spent resolving all activities.
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Parser for the listing of a DTR workspace folder (e.g. <code>/dtr/ws/Example</code>). Extracts the paths of the workspaces contained in
+ * the listed folder (e.g. <code>ws/Example/example.com_EXAMPLE_SC1</code>).
+ *
+ * @author Dirk Weigenand
+ */
+final class WorkspaceListParser extends AbstractResourceParser {
+    /**
+     * prefix of links to DTR resources.
+     */
+    private static final String DTR_LINK = "/dtr/";
+
+    /**
+     * path of listed workspace folder (e.g. <code>ws/Example</code>).
+     */
+    private final String folder;
+
+    /**
+     * paths of the workspaces found in the listing.
+     */
+    private final Set<String> workspaces = new TreeSet<String>();
+
+    /**
+     * Create a parser for the listing of the given workspace folder.
+     *
+     * @param folder
+     *            path of listed workspace folder (e.g. <code>ws/Example</code>).
+     */
+    WorkspaceListParser(final String folder) {
+        this.folder = folder;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    HtmlScanner.Handler createHandler() {
+        final String prefix = DTR_LINK + folder + '/';
+
+        return new HtmlScanner.Handler() {
+            @Override
+            void startElement(final String name, final Map<String, String> attributes, final int depth) {
+                final String href = attributes.get("href");
+
+                if ("a".equals(name) && href != null && href.startsWith(prefix)) {
+                    addWorkspace(href.substring(prefix.length()));
+                }
+            }
+        };
+    }
+
+    /**
+     * Add the workspace named in the given link (relative to the listed folder).
+     *
+     * @param link
+     *            the link relative to the listed folder.
+     */
+    private void addWorkspace(final String link) {
+        int end = 0;
+
+        while (end < link.length() && link.charAt(end) != '/' && link.charAt(end) != '?') {
+            end++;
+        }
+
+        if (end > 0) {
+            workspaces.add(folder + '/' + link.substring(0, end));
+        }
+    }
+
+    /**
+     * Returns the paths of the workspaces found in the listing.
+     *
+     * @return paths of the workspaces found in the listing (sorted).
+     */
+    Set<String> getWorkspaces() {
+        return Collections.unmodifiableSet(workspaces);
+    }
+}
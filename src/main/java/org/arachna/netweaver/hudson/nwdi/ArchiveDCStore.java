@@ -0,0 +1,719 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import hudson.Util;
+import hudson.model.TaskListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.Compartment;
+import org.arachna.netweaver.dc.types.CompartmentState;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
+
+/**
+ * Store of development components in archive state shared by all workspaces (of all NWDI projects) on a node.
+ *
+ * Entries are keyed by compartment and the name and version of the development configuration the development components were
+ * synchronized for (the version of a development configuration changes when software components are imported into the track). Each entry
+ * contains the <code>_comp</code> folder of one development component. Workspaces are filled from the store by replacing the
+ * <code>_comp</code> folder of a development component with a symbolic link to the entry, so these development components need not be
+ * synchronized by dctool. Development components synchronized into a workspace are moved into the store afterwards and replaced with a
+ * link likewise.
+ *
+ * Modifications of an entry are coordinated between concurrent builds using a lock file next to the entry. Each build leases the entries
+ * it links until it has finished (a shared lock on a lease file next to the entry), so they are not evicted while it compiles against
+ * them. When the entries exceed the configured disk budget the least recently used ones not leased by any build are evicted.
+ *
+ * The lock and lease files of an evicted entry are deleted with it, as are the folders left empty. A lock file is marked before it is
+ * deleted, so processes that waited for its lock meanwhile notice the deletion and lock the lock file created anew.
+ *
+ * @author Dirk Weigenand
+ */
+final class ArchiveDCStore {
+    /**
+     * extension of lock files.
+     */
+    private static final String LOCK_EXTENSION = ".lock";
+
+    /**
+     * extension of lease files.
+     */
+    private static final String LEASE_EXTENSION = ".lease";
+
+    /**
+     * number of attempts to open a lock file (its folder might be removed meanwhile by the eviction of another entry).
+     */
+    private static final int LOCK_ATTEMPTS = 3;
+
+    /**
+     * extension of entries being written.
+     */
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    /**
+     * name of development component descriptor.
+     */
+    private static final String DCDEF = ".dcdef";
+
+    /**
+     * name of folder containing a development component in the workspace.
+     */
+    private static final String COMP_FOLDER = "_comp";
+
+    /**
+     * handles of the entries in use in this JVM (file locks only guard against other processes) mapped by path of entry. Handles are
+     * removed when no longer in use.
+     */
+    private static final Map<String, EntryHandle> HANDLES = new HashMap<String, EntryHandle>();
+
+    /**
+     * folder containing the entries.
+     */
+    private final File folder;
+
+    /**
+     * maximum size of all entries in bytes (not limited when not positive).
+     */
+    private final long budget;
+
+    /**
+     * development configuration whose development components in archive state are to be stored.
+     */
+    private final DevelopmentConfiguration config;
+
+    /**
+     * helper to determine the location of development components in the workspace.
+     */
+    private final AntHelper antHelper;
+
+    /**
+     * listener for logging and creating links.
+     */
+    private final TaskListener listener;
+
+    /**
+     * time this store was created (entries used since are not evicted).
+     */
+    private final long created = System.currentTimeMillis();
+
+    /**
+     * entries leased by the build using this store mapped to their handles.
+     */
+    private final Map<File, EntryHandle> leases = new HashMap<File, EntryHandle>();
+
+    /**
+     * Create a store of development components in archive state in the given folder.
+     *
+     * @param folder
+     *            folder containing the entries.
+     * @param budget
+     *            maximum size of all entries in bytes (not limited when not positive).
+     * @param config
+     *            development configuration whose development components in archive state are to be stored.
+     * @param antHelper
+     *            helper to determine the location of development components in the workspace.
+     * @param listener
+     *            listener for logging and creating links.
+     */
+    ArchiveDCStore(final File folder, final long budget, final DevelopmentConfiguration config, final AntHelper antHelper,
+        final TaskListener listener) {
+        this.folder = folder;
+        this.budget = budget;
+        this.config = config;
+        this.antHelper = antHelper;
+        this.listener = listener;
+    }
+
+    /**
+     * Link the development components in archive state of the development configuration found in the store into the workspace and lease
+     * their entries. Links to entries evicted meanwhile are removed.
+     *
+     * @return the development components linked from the store (these need not be synchronized).
+     * @throws IOException
+     *             when linking fails.
+     * @throws InterruptedException
+     *             when creating a link was interrupted.
+     */
+    Collection<DevelopmentComponent> link() throws IOException, InterruptedException {
+        final Collection<DevelopmentComponent> linked = new ArrayList<DevelopmentComponent>();
+
+        for (final DevelopmentComponent component : getArchivedComponents()) {
+            final File comp = new File(antHelper.getBaseLocation(component));
+            final File entry = getEntry(component);
+            final EntryHandle handle = acquireHandle(entry);
+
+            try {
+                synchronized (handle) {
+                    final FileLock lock = lock(entry);
+
+                    try {
+                        if (isEntry(entry)) {
+                            linkEntry(comp, entry);
+                            lease(entry, handle);
+                            linked.add(component);
+                        }
+                        else {
+                            if (Util.isSymlink(comp)) {
+                                comp.delete();
+                            }
+
+                            delete(entry, lock);
+                        }
+                    }
+                    finally {
+                        release(lock);
+                    }
+                }
+            }
+            finally {
+                releaseHandle(entry, handle);
+            }
+        }
+
+        listener.getLogger().println(Messages.ArchiveDCStore_linked_development_components(linked.size()));
+
+        return linked;
+    }
+
+    /**
+     * Move the development components in archive state synchronized into the workspace into the store, replace them with links to their
+     * entries and lease these. Evict the least recently used entries afterwards when the store exceeds its budget.
+     *
+     * @throws IOException
+     *             when moving development components fails.
+     * @throws InterruptedException
+     *             when creating a link was interrupted.
+     */
+    void adopt() throws IOException, InterruptedException {
+        for (final DevelopmentComponent component : getArchivedComponents()) {
+            final File comp = new File(antHelper.getBaseLocation(component));
+
+            if (new File(comp, DCDEF).isFile() && !Util.isSymlink(comp)) {
+                final File entry = getEntry(component);
+                final EntryHandle handle = acquireHandle(entry);
+
+                try {
+                    synchronized (handle) {
+                        final FileLock lock = lock(entry);
+
+                        try {
+                            if (!isEntry(entry)) {
+                                final File temp = new File(entry.getPath() + TEMP_EXTENSION);
+                                FileUtils.deleteDirectory(temp);
+                                FileUtils.moveDirectory(comp, temp);
+
+                                if (!temp.renameTo(entry)) {
+                                    throw new IOException(String.format("Could not rename %s to %s!", temp, entry));
+                                }
+                            }
+
+                            linkEntry(comp, entry);
+                            lease(entry, handle);
+                        }
+                        finally {
+                            release(lock);
+                        }
+                    }
+                }
+                finally {
+                    releaseHandle(entry, handle);
+                }
+            }
+        }
+
+        evict();
+    }
+
+    /**
+     * Release the leases of the entries linked into the workspace (when the build using them has finished).
+     *
+     * @throws IOException
+     *             when releasing a lease fails.
+     */
+    void releaseLeases() throws IOException {
+        try {
+            for (final Map.Entry<File, EntryHandle> lease : leases.entrySet()) {
+                final EntryHandle handle = lease.getValue();
+
+                try {
+                    synchronized (handle) {
+                        handle.leases--;
+
+                        if (handle.leases == 0) {
+                            final FileLock leaseLock = handle.leaseLock;
+                            handle.leaseLock = null;
+                            release(leaseLock);
+                        }
+                    }
+                }
+                finally {
+                    releaseHandle(lease.getKey(), handle);
+                }
+            }
+        }
+        finally {
+            leases.clear();
+        }
+    }
+
+    /**
+     * Evict the least recently used entries until the size of the remaining ones is within the budget. Entries used since this store was
+     * created and entries leased by a build (in this or another process) are kept.
+     *
+     * @throws IOException
+     *             when deleting an entry fails.
+     */
+    void evict() throws IOException {
+        if (budget <= 0) {
+            return;
+        }
+
+        final List<File> entries = new ArrayList<File>();
+        collectEntries(folder, entries);
+
+        final Map<File, Long> sizes = new HashMap<File, Long>();
+        final Map<File, Long> lastUsed = new HashMap<File, Long>();
+        long size = 0;
+
+        for (final File entry : entries) {
+            sizes.put(entry, FileUtils.sizeOfDirectory(entry));
+            lastUsed.put(entry, entry.lastModified());
+            size += sizes.get(entry);
+        }
+
+        Collections.sort(entries, new Comparator<File>() {
+            public int compare(final File entry, final File other) {
+                return lastUsed.get(entry).compareTo(lastUsed.get(other));
+            }
+        });
+
+        for (final File entry : entries) {
+            if (size <= budget || lastUsed.get(entry) >= created) {
+                break;
+            }
+
+            if (evict(entry)) {
+                size -= sizes.get(entry);
+                listener.getLogger().println(Messages.ArchiveDCStore_evicted_entry(entry.getAbsolutePath()));
+            }
+        }
+    }
+
+    /**
+     * Delete the given entry and its lock and lease files unless a build leases it.
+     *
+     * @param entry
+     *            the entry to delete.
+     * @return <code>true</code> when the entry was deleted, <code>false</code> when it is leased.
+     * @throws IOException
+     *             when deleting the entry fails.
+     */
+    private boolean evict(final File entry) throws IOException {
+        final EntryHandle handle = acquireHandle(entry);
+
+        try {
+            synchronized (handle) {
+                if (handle.leases > 0) {
+                    return false;
+                }
+
+                final FileLock lock = lock(entry);
+
+                try {
+                    final FileLock leaseLock = tryLockLease(entry);
+
+                    if (leaseLock == null) {
+                        return false;
+                    }
+
+                    try {
+                        FileUtils.deleteDirectory(entry);
+                    }
+                    finally {
+                        release(leaseLock);
+                    }
+
+                    delete(entry, lock);
+                }
+                finally {
+                    release(lock);
+                }
+            }
+        }
+        finally {
+            releaseHandle(entry, handle);
+        }
+
+        return true;
+    }
+
+    /**
+     * Lease the given entry for the build using this store (unless it was leased already). The first lease of an entry in this JVM
+     * acquires a shared lock on its lease file, so processes evicting entries skip it.
+     *
+     * @param entry
+     *            the entry to lease.
+     * @param handle
+     *            the handle of the entry (whose monitor the calling thread holds).
+     * @throws IOException
+     *             when acquiring the lock on the lease file fails.
+     */
+    private void lease(final File entry, final EntryHandle handle) throws IOException {
+        if (leases.containsKey(entry)) {
+            return;
+        }
+
+        if (handle.leases == 0) {
+            handle.leaseLock = openLeaseFile(entry).getChannel().lock(0, Long.MAX_VALUE, true);
+        }
+
+        handle.leases++;
+        retainHandle(handle);
+        leases.put(entry, handle);
+    }
+
+    /**
+     * Try to acquire an exclusive lock on the lease file of the given entry.
+     *
+     * @param entry
+     *            the entry.
+     * @return the acquired lock or <code>null</code> when another process leases the entry.
+     * @throws IOException
+     *             when acquiring the lock fails.
+     */
+    private FileLock tryLockLease(final File entry) throws IOException {
+        final RandomAccessFile leaseFile = openLeaseFile(entry);
+
+        try {
+            final FileLock leaseLock = leaseFile.getChannel().tryLock();
+
+            if (leaseLock == null) {
+                leaseFile.close();
+            }
+
+            return leaseLock;
+        }
+        catch (final IOException e) {
+            leaseFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open the lease file of the given entry.
+     *
+     * @param entry
+     *            the entry.
+     * @return the opened lease file.
+     * @throws IOException
+     *             when opening the lease file fails.
+     */
+    private RandomAccessFile openLeaseFile(final File entry) throws IOException {
+        FileUtils.forceMkdir(entry.getParentFile());
+
+        return new RandomAccessFile(entry.getPath() + LEASE_EXTENSION, "rw");
+    }
+
+    /**
+     * Replace the given <code>_comp</code> folder with a link to the given entry and mark the entry as used.
+     *
+     * @param comp
+     *            <code>_comp</code> folder of a development component in the workspace.
+     * @param entry
+     *            the entry in the store.
+     * @throws IOException
+     *             when replacing the folder fails.
+     * @throws InterruptedException
+     *             when creating the link was interrupted.
+     */
+    private void linkEntry(final File comp, final File entry) throws IOException, InterruptedException {
+        if (Util.isSymlink(comp)) {
+            comp.delete();
+        }
+        else if (comp.exists()) {
+            FileUtils.deleteDirectory(comp);
+        }
+
+        FileUtils.forceMkdir(comp.getParentFile());
+        Util.createSymlink(comp.getParentFile(), entry.getAbsolutePath(), COMP_FOLDER, listener);
+        entry.setLastModified(System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the development components in archive state of the development configuration.
+     *
+     * @return the development components in archive state.
+     */
+    private Collection<DevelopmentComponent> getArchivedComponents() {
+        final Collection<DevelopmentComponent> components = new ArrayList<DevelopmentComponent>();
+
+        for (final Compartment compartment : config.getCompartments(CompartmentState.Archive)) {
+            components.addAll(compartment.getDevelopmentComponents());
+        }
+
+        return components;
+    }
+
+    /**
+     * Returns the entry for the given development component.
+     *
+     * @param component
+     *            development component in archive state.
+     * @return the entry for the given development component.
+     */
+    private File getEntry(final DevelopmentComponent component) {
+        final File key =
+            new File(new File(folder, component.getCompartment().getName()), String.format("%s_%s", config.getName(),
+                config.getVersion()));
+
+        return new File(new File(key, component.getVendor()), component.getName());
+    }
+
+    /**
+     * Determine whether the given entry exists (i.e. contains a development component).
+     *
+     * @param entry
+     *            the entry.
+     * @return <code>true</code> when the entry contains a development component descriptor, <code>false</code> otherwise.
+     */
+    private boolean isEntry(final File entry) {
+        return new File(entry, DCDEF).isFile();
+    }
+
+    /**
+     * Collect the entries in the given folder and its sub folders.
+     *
+     * @param parent
+     *            the folder to search.
+     * @param entries
+     *            list of entries to add to.
+     */
+    private void collectEntries(final File parent, final List<File> entries) {
+        final List<File> pending = new ArrayList<File>();
+        pending.add(parent);
+
+        while (!pending.isEmpty()) {
+            final File current = pending.remove(pending.size() - 1);
+
+            if (isEntry(current)) {
+                entries.add(current);
+            }
+            else {
+                final File[] children = current.listFiles();
+
+                if (children != null) {
+                    for (final File child : children) {
+                        if (child.isDirectory()) {
+                            pending.add(child);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Acquire the lock file of the given entry (waiting until other processes released it). When the lock file was deleted while waiting
+     * for it the lock file created anew is locked instead.
+     *
+     * @param entry
+     *            the entry to lock.
+     * @return the acquired lock.
+     * @throws IOException
+     *             when acquiring the lock fails.
+     */
+    private FileLock lock(final File entry) throws IOException {
+        while (true) {
+            final RandomAccessFile lockFile = openLockFile(entry);
+
+            try {
+                final FileLock lock = lockFile.getChannel().lock();
+
+                // a deleted lock file is marked as such
+                if (lockFile.length() == 0) {
+                    return lock;
+                }
+
+                release(lock);
+            }
+            catch (final IOException e) {
+                lockFile.close();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Open the lock file of the given entry creating the folders containing it as needed.
+     *
+     * @param entry
+     *            the entry.
+     * @return the opened lock file.
+     * @throws IOException
+     *             when opening the lock file fails.
+     */
+    private RandomAccessFile openLockFile(final File entry) throws IOException {
+        int attempt = 1;
+
+        while (true) {
+            try {
+                FileUtils.forceMkdir(entry.getParentFile());
+
+                return new RandomAccessFile(entry.getPath() + LOCK_EXTENSION, "rw");
+            }
+            catch (final IOException e) {
+                if (attempt++ == LOCK_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete the lease and lock files of the given (deleted) entry holding the given lock on it and remove the folders left empty. Lease
+     * files are opened only holding the lock, the lock file is marked first so processes waiting for its lock notice the deletion.
+     *
+     * @param entry
+     *            the deleted entry.
+     * @param lock
+     *            lock on the lock file of the entry.
+     * @throws IOException
+     *             when marking the lock file fails.
+     */
+    private void delete(final File entry, final FileLock lock) throws IOException {
+        new File(entry.getPath() + LEASE_EXTENSION).delete();
+        lock.channel().write(ByteBuffer.wrap(new byte[] { 1 }), 0);
+
+        if (!new File(entry.getPath() + LOCK_EXTENSION).delete()) {
+            lock.channel().truncate(0);
+
+            return;
+        }
+
+        File parent = entry.getParentFile();
+
+        while (!parent.equals(folder) && parent.delete()) {
+            parent = parent.getParentFile();
+        }
+    }
+
+    /**
+     * Release the given lock and close its lock file.
+     *
+     * @param lock
+     *            the lock to release.
+     * @throws IOException
+     *             when releasing the lock fails.
+     */
+    private void release(final FileLock lock) throws IOException {
+        try {
+            lock.release();
+        }
+        finally {
+            lock.channel().close();
+        }
+    }
+
+    /**
+     * Returns the handle of the given entry guarding it against concurrent modification in this JVM and mark it as in use. Each handle
+     * acquired must be released using {@link #releaseHandle(File, EntryHandle)}.
+     *
+     * @param entry
+     *            the entry.
+     * @return the handle of the given entry.
+     */
+    private static EntryHandle acquireHandle(final File entry) {
+        synchronized (HANDLES) {
+            final String path = entry.getAbsolutePath();
+            EntryHandle handle = HANDLES.get(path);
+
+            if (handle == null) {
+                handle = new EntryHandle();
+                HANDLES.put(path, handle);
+            }
+
+            handle.references++;
+
+            return handle;
+        }
+    }
+
+    /**
+     * Mark the given handle as in use once more (by a lease).
+     *
+     * @param handle
+     *            the handle acquired already.
+     */
+    private static void retainHandle(final EntryHandle handle) {
+        synchronized (HANDLES) {
+            handle.references++;
+        }
+    }
+
+    /**
+     * Release the given handle of the given entry. The handle is removed when no longer in use.
+     *
+     * @param entry
+     *            the entry.
+     * @param handle
+     *            the handle of the entry.
+     */
+    private static void releaseHandle(final File entry, final EntryHandle handle) {
+        synchronized (HANDLES) {
+            handle.references--;
+
+            if (handle.references == 0) {
+                HANDLES.remove(entry.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entry handles in use in this JVM.
+     *
+     * @return the number of entry handles in use in this JVM.
+     */
+    static int getHandleCount() {
+        synchronized (HANDLES) {
+            return HANDLES.size();
+        }
+    }
+
+    /**
+     * Handle of an entry in use in this JVM. Its monitor guards the entry against concurrent modification.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class EntryHandle {
+        /**
+         * number of threads using the handle and leases of builds holding it (guarded by {@link ArchiveDCStore#HANDLES}).
+         */
+        private int references;
+
+        /**
+         * number of builds in this JVM leasing the entry (guarded by the monitor of this handle).
+         */
+        private int leases;
+
+        /**
+         * shared lock on the lease file held while builds in this JVM lease the entry (guarded by the monitor of this handle).
+         */
+        private FileLock leaseLock;
+    }
+}
@@ -0,0 +1,232 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cache of the names of the build spaces known to a CBS. The names are listed in the background using the given {@link Loader}, requests
+ * for them are always answered from memory. Names older than the time to live are still returned while they are refreshed.
+ *
+ * @author Dirk Weigenand
+ */
+final class BuildSpaceNamesCache {
+    /**
+     * Logger to use.
+     */
+    private static final Logger LOGGER = Logger.getLogger(BuildSpaceNamesCache.class.getName());
+
+    /**
+     * default time to live of listed build space names in minutes.
+     */
+    static final int DEFAULT_TIME_TO_LIVE = 15;
+
+    /**
+     * Lists the names of the build spaces known to a CBS.
+     *
+     * @author Dirk Weigenand
+     */
+    interface Loader {
+        /**
+         * List the names of the build spaces known to the CBS with the given URL.
+         *
+         * @param cbsUrl
+         *            URL of the CBS.
+         * @return names of the build spaces known to the CBS.
+         * @throws Exception
+         *             when listing the build spaces fails.
+         */
+        Collection<String> load(String cbsUrl) throws Exception;
+    }
+
+    /**
+     * Build space names listed for a CBS.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class Entry {
+        /**
+         * sorted names of build spaces.
+         */
+        private List<String> names = Collections.emptyList();
+
+        /**
+         * time the names were last listed (<code>0</code> when they were never listed).
+         */
+        private long loaded;
+
+        /**
+         * whether the names are being listed.
+         */
+        private boolean loading;
+    }
+
+    /**
+     * build space names mapped to the URL of their CBS.
+     */
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+    /**
+     * lists the names of build spaces.
+     */
+    private final Loader loader;
+
+    /**
+     * executes the listing of build space names in the background.
+     */
+    private final Executor executor;
+
+    /**
+     * time to live of listed build space names in milliseconds.
+     */
+    private volatile long timeToLive = TimeUnit.MINUTES.toMillis(DEFAULT_TIME_TO_LIVE);
+
+    /**
+     * Create a cache listing the names of build spaces with the given loader.
+     *
+     * @param loader
+     *            lists the names of build spaces.
+     * @param executor
+     *            executes the listing of build space names in the background.
+     */
+    BuildSpaceNamesCache(final Loader loader, final Executor executor) {
+        this.loader = loader;
+        this.executor = executor;
+    }
+
+    /**
+     * Set the time to live of listed build space names.
+     *
+     * @param minutes
+     *            time to live of listed build space names in minutes.
+     */
+    void setTimeToLive(final int minutes) {
+        timeToLive = TimeUnit.MINUTES.toMillis(minutes < 1 ? DEFAULT_TIME_TO_LIVE : minutes);
+    }
+
+    /**
+     * Returns the names of the build spaces known to the CBS with the given URL. Listing the names is started in the background when they
+     * were not listed yet or their time to live expired. The names known so far are returned without waiting for it.
+     *
+     * @param cbsUrl
+     *            URL of the CBS.
+     * @return sorted names of the build spaces known so far (an empty list when they were not listed yet).
+     */
+    List<String> get(final String cbsUrl) {
+        final Entry entry;
+
+        synchronized (entries) {
+            entry = getEntry(cbsUrl);
+
+            if (System.currentTimeMillis() - entry.loaded < timeToLive) {
+                return entry.names;
+            }
+        }
+
+        load(cbsUrl, entry);
+
+        synchronized (entries) {
+            return entry.names;
+        }
+    }
+
+    /**
+     * Start listing the names of the build spaces known to the CBS with the given URL in the background regardless of their time to live.
+     *
+     * @param cbsUrl
+     *            URL of the CBS.
+     */
+    void refresh(final String cbsUrl) {
+        final Entry entry;
+
+        synchronized (entries) {
+            entry = getEntry(cbsUrl);
+        }
+
+        load(cbsUrl, entry);
+    }
+
+    /**
+     * Returns whether the names of the build spaces known to the CBS with the given URL are being listed.
+     *
+     * @param cbsUrl
+     *            URL of the CBS.
+     * @return <code>true</code> when the names are being listed, <code>false</code> otherwise.
+     */
+    boolean isLoading(final String cbsUrl) {
+        synchronized (entries) {
+            return getEntry(cbsUrl).loading;
+        }
+    }
+
+    /**
+     * Returns the entry for the CBS with the given URL. Has to be called while holding the lock on {@link #entries}.
+     *
+     * @param cbsUrl
+     *            URL of the CBS.
+     * @return the entry for the CBS with the given URL.
+     */
+    private Entry getEntry(final String cbsUrl) {
+        Entry entry = entries.get(cbsUrl);
+
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(cbsUrl, entry);
+        }
+
+        return entry;
+    }
+
+    /**
+     * List the names of the build spaces into the given entry in the background unless they are being listed already.
+     *
+     * @param cbsUrl
+     *            URL of the CBS.
+     * @param entry
+     *            entry to update.
+     */
+    private void load(final String cbsUrl, final Entry entry) {
+        synchronized (entries) {
+            if (entry.loading) {
+                return;
+            }
+
+            entry.loading = true;
+        }
+
+        executor.execute(new Runnable() {
+            public void run() {
+                List<String> names = null;
+
+                try {
+                    names = new ArrayList<String>(loader.load(cbsUrl));
+                    Collections.sort(names);
+                }
+                catch (final Exception e) {
+                    LOGGER.log(Level.SEVERE, String.format("Could not list build spaces of %s.", cbsUrl), e);
+                }
+                finally {
+                    synchronized (entries) {
+                        if (names != null) {
+                            entry.names = Collections.unmodifiableList(names);
+                        }
+
+                        // failures are retried when the time to live expired again or on explicit refresh
+                        entry.loaded = System.currentTimeMillis();
+                        entry.loading = false;
+                    }
+                }
+            }
+        });
+    }
+}
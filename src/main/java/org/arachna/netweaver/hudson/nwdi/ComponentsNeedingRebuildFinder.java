@@ -3,7 +3,9 @@
  */
 package org.arachna.netweaver.hudson.nwdi;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -12,6 +14,9 @@ import org.arachna.netweaver.dc.types.DevelopmentComponent;
 /**
  * Calculate transitive hull for development components that need rebuilding.
  * 
+ * Builds use the memoized {@link org.arachna.netweaver.dc.types.RebuildImpactIndex}
+ * instead; this class works on the using DCs of the given components alone.
+ * 
  * @author Dirk Weigenand
  */
 public final class ComponentsNeedingRebuildFinder {
@@ -42,19 +47,26 @@ public final class ComponentsNeedingRebuildFinder {
     }
 
     /**
-     * Update the <code>needsRebuild</code> property recursively for the given
-     * components using DCs.
+     * Add the given component and (transitively) its using DCs to the
+     * components needing a rebuild. The using DCs are traversed iteratively
+     * so deep dependency chains do not exhaust the stack.
      * 
      * @param component
      *            the development component whose using DCs have to be set up as
      *            needing a rebuild.
      */
     private void calculateDevelopmentComponentsThatNeedRebuilding(final DevelopmentComponent component) {
-        if (!this.componentsNeedRebuilding.contains(component)) {
-            this.componentsNeedRebuilding.add(component);
+        final Deque<DevelopmentComponent> pending = new ArrayDeque<DevelopmentComponent>();
+
+        if (this.componentsNeedRebuilding.add(component)) {
+            pending.push(component);
+        }
 
-            for (final DevelopmentComponent usingDC : component.getUsingDevelopmentComponents()) {
-                calculateDevelopmentComponentsThatNeedRebuilding(usingDC);
+        while (!pending.isEmpty()) {
+            for (final DevelopmentComponent usingDC : pending.pop().getUsingDevelopmentComponents()) {
+                if (this.componentsNeedRebuilding.add(usingDC)) {
+                    pending.push(usingDC);
+                }
             }
         }
     }
@@ -0,0 +1,136 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+
+/**
+ * Avoids building development components whose inputs did not change since a previous successful build.
+ *
+ * Before building, the input digest of each development component to build is computed (see {@link DCInputDigester}). When the build
+ * cache contains the build results for the digest they are restored into the <code>gen/default</code> folder of the development
+ * component, only the remaining components are handed to dctool. After building, the results of the components dctool reported as built
+ * successfully are put into the build cache. Components whose build failed, that were not reached or not built at all keep stale build
+ * results that must not be cached under their new input digests.
+ *
+ * @author Dirk Weigenand
+ */
+final class DCBuildAvoidance {
+    /**
+     * helper to determine the location of development components in the workspace.
+     */
+    private final AntHelper antHelper;
+
+    /**
+     * computes input digests of development components.
+     */
+    private final DCInputDigester digester;
+
+    /**
+     * cache of build results.
+     */
+    private final DCBuildCache cache;
+
+    /**
+     * Logger to console.
+     */
+    private final PrintStream logger;
+
+    /**
+     * input digests of the development components to build.
+     */
+    private Map<DevelopmentComponent, String> digests;
+
+    /**
+     * Create a build avoidance using the given build cache.
+     *
+     * @param antHelper
+     *            helper to determine the location of development components in the workspace.
+     * @param dcFactory
+     *            registry for development components.
+     * @param toolchain
+     *            description of the toolchain used for building (see {@link DCInputDigester#describeToolchain}).
+     * @param cache
+     *            cache of build results.
+     * @param logger
+     *            Logger to console.
+     */
+    DCBuildAvoidance(final AntHelper antHelper, final DevelopmentComponentFactory dcFactory, final String toolchain,
+        final DCBuildCache cache, final PrintStream logger) {
+        this.antHelper = antHelper;
+        digester = new DCInputDigester(antHelper, dcFactory, toolchain);
+        this.cache = cache;
+        this.logger = logger;
+    }
+
+    /**
+     * Restore the build results of the given development components from the build cache where their input digests match.
+     *
+     * @param components
+     *            development components to build (in build order).
+     * @return the development components whose build results could not be restored and that have to be built.
+     * @throws IOException
+     *             when computing the input digests or restoring build results fails.
+     */
+    List<DevelopmentComponent> restore(final Collection<DevelopmentComponent> components) throws IOException {
+        digests = digester.digest(components);
+
+        final List<DevelopmentComponent> misses = new ArrayList<DevelopmentComponent>();
+
+        for (final DevelopmentComponent component : components) {
+            if (cache.restore(digests.get(component), getGenDefault(component))) {
+                logger.println(Messages.DCBuildAvoidance_restored_development_component(component.getVendor(), component.getName()));
+            }
+            else {
+                misses.add(component);
+            }
+        }
+
+        logger.println(Messages.DCBuildAvoidance_restored_development_components(components.size() - misses.size(), components.size()));
+
+        return misses;
+    }
+
+    /**
+     * Put the build results of the given development components into the build cache. The least recently used entries are evicted when
+     * the cache exceeds its budget afterwards.
+     *
+     * @param builtComponents
+     *            the development components dctool reported as built successfully.
+     * @throws IOException
+     *             when storing build results fails.
+     */
+    void store(final Collection<DevelopmentComponent> builtComponents) throws IOException {
+        for (final DevelopmentComponent component : builtComponents) {
+            final String digest = digests == null ? null : digests.get(component);
+
+            if (digest != null) {
+                cache.store(digest, getGenDefault(component));
+            }
+        }
+
+        cache.evict();
+    }
+
+    /**
+     * Returns the folder containing the build results of the given development component.
+     *
+     * @param component
+     *            development component.
+     * @return the <code>gen/default</code> folder of the given development component.
+     */
+    private File getGenDefault(final DevelopmentComponent component) {
+        return new File(antHelper.getBaseLocation(component), "gen/default");
+    }
+}
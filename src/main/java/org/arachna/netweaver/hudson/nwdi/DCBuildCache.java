@@ -0,0 +1,279 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Local content addressed store of development component build results (the content of their <code>gen/default</code> folders) keyed by
+ * the input digests of the builds (see {@link DCInputDigester}).
+ *
+ * Each entry is a ZIP archive named after its digest (in a sub folder named after the first two characters of the digest). Entries are
+ * written to a temporary file first and renamed afterwards, so a partially written entry is never restored.
+ *
+ * Restoring an entry marks it as used by updating its modification time. When the entries exceed the configured budget the least recently
+ * used ones are evicted.
+ *
+ * @author Dirk Weigenand
+ */
+final class DCBuildCache {
+    /**
+     * extension of cache entries.
+     */
+    private static final String EXTENSION = ".zip";
+
+    /**
+     * folder containing the cache entries.
+     */
+    private final File folder;
+
+    /**
+     * maximum size of all entries in bytes (not limited when not positive).
+     */
+    private final long budget;
+
+    /**
+     * Create a cache of build results in the given folder.
+     *
+     * @param folder
+     *            folder containing the cache entries.
+     * @param budget
+     *            maximum size of all entries in bytes (not limited when not positive).
+     */
+    DCBuildCache(final File folder, final long budget) {
+        this.folder = folder;
+        this.budget = budget;
+    }
+
+    /**
+     * Restore the build results cached for the given digest into the given folder. The content of the folder is replaced.
+     *
+     * @param digest
+     *            input digest of a development component build.
+     * @param genDefault
+     *            the <code>gen/default</code> folder of the development component.
+     * @return <code>true</code> when the build results were restored, <code>false</code> when none were cached for the given digest.
+     * @throws IOException
+     *             when restoring the build results fails.
+     */
+    boolean restore(final String digest, final File genDefault) throws IOException {
+        final File entry = getEntry(digest);
+
+        if (!entry.isFile()) {
+            return false;
+        }
+
+        FileUtils.deleteDirectory(genDefault);
+        FileUtils.forceMkdir(genDefault);
+
+        final ZipInputStream zip = new ZipInputStream(new BufferedInputStream(new FileInputStream(entry)));
+
+        try {
+            ZipEntry zipEntry = zip.getNextEntry();
+
+            while (zipEntry != null) {
+                final File file = new File(genDefault, zipEntry.getName());
+
+                if (!file.getCanonicalPath().startsWith(genDefault.getCanonicalPath() + File.separator)) {
+                    throw new IOException(String.format("Cache entry %s contains invalid path %s!", entry, zipEntry.getName()));
+                }
+
+                if (zipEntry.isDirectory()) {
+                    FileUtils.forceMkdir(file);
+                }
+                else {
+                    FileUtils.forceMkdir(file.getParentFile());
+                    copy(zip, file);
+                    file.setLastModified(zipEntry.getTime());
+                }
+
+                zipEntry = zip.getNextEntry();
+            }
+        }
+        finally {
+            IOUtils.closeQuietly(zip);
+        }
+
+        entry.setLastModified(System.currentTimeMillis());
+
+        return true;
+    }
+
+    /**
+     * Store the build results in the given folder for the given digest. Build results already cached for the digest are kept.
+     *
+     * @param digest
+     *            input digest of a development component build.
+     * @param genDefault
+     *            the <code>gen/default</code> folder of the development component.
+     * @throws IOException
+     *             when storing the build results fails.
+     */
+    void store(final String digest, final File genDefault) throws IOException {
+        final File entry = getEntry(digest);
+
+        if (entry.isFile() || !genDefault.isDirectory()) {
+            return;
+        }
+
+        FileUtils.forceMkdir(entry.getParentFile());
+
+        final File temp = File.createTempFile(digest, ".tmp", entry.getParentFile());
+        final ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+
+        try {
+            final String prefix = genDefault.getAbsolutePath();
+
+            for (final File file : listFiles(genDefault)) {
+                final ZipEntry zipEntry =
+                    new ZipEntry(file.getAbsolutePath().substring(prefix.length() + 1).replace(File.separatorChar, '/'));
+                zipEntry.setTime(file.lastModified());
+                zip.putNextEntry(zipEntry);
+
+                final InputStream content = new FileInputStream(file);
+
+                try {
+                    IOUtils.copy(content, zip);
+                }
+                finally {
+                    IOUtils.closeQuietly(content);
+                }
+
+                zip.closeEntry();
+            }
+
+            zip.close();
+        }
+        catch (final IOException e) {
+            IOUtils.closeQuietly(zip);
+            FileUtils.deleteQuietly(temp);
+            throw e;
+        }
+
+        if (!temp.renameTo(entry)) {
+            FileUtils.deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * Evict the least recently used entries (by their modification time) until the size of the remaining ones is within the budget.
+     */
+    void evict() {
+        if (budget <= 0) {
+            return;
+        }
+
+        final List<File> entries = new ArrayList<File>();
+        final Map<File, Long> lastUsed = new HashMap<File, Long>();
+        long size = 0;
+
+        for (final File file : listFiles(folder)) {
+            if (file.getName().endsWith(EXTENSION)) {
+                entries.add(file);
+                lastUsed.put(file, file.lastModified());
+                size += file.length();
+            }
+        }
+
+        Collections.sort(entries, new Comparator<File>() {
+            public int compare(final File entry, final File other) {
+                return lastUsed.get(entry).compareTo(lastUsed.get(other));
+            }
+        });
+
+        for (final File entry : entries) {
+            if (size <= budget) {
+                break;
+            }
+
+            final long length = entry.length();
+
+            if (entry.delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    /**
+     * Returns the cache entry for the given digest.
+     *
+     * @param digest
+     *            input digest of a development component build.
+     * @return the cache entry for the given digest.
+     */
+    private File getEntry(final String digest) {
+        return new File(new File(folder, digest.substring(0, 2)), digest + EXTENSION);
+    }
+
+    /**
+     * Copy the current entry of the given ZIP archive to the given file.
+     *
+     * @param zip
+     *            the ZIP archive.
+     * @param file
+     *            the file to write.
+     * @throws IOException
+     *             when copying fails.
+     */
+    private void copy(final ZipInputStream zip, final File file) throws IOException {
+        final OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+
+        try {
+            IOUtils.copy(zip, out);
+        }
+        finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    /**
+     * List the files in the given folder and its sub folders.
+     *
+     * @param folder
+     *            the folder.
+     * @return the files in the given folder and its sub folders.
+     */
+    private List<File> listFiles(final File folder) {
+        final List<File> files = new ArrayList<File>();
+        final List<File> pending = new ArrayList<File>(Arrays.asList(folder));
+
+        while (!pending.isEmpty()) {
+            final File current = pending.remove(pending.size() - 1);
+            final File[] children = current.listFiles();
+
+            if (children != null) {
+                for (final File child : children) {
+                    if (child.isDirectory()) {
+                        pending.add(child);
+                    }
+                    else {
+                        files.add(child);
+                    }
+                }
+            }
+        }
+
+        return files;
+    }
+}
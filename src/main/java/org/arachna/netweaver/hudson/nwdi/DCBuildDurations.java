@@ -0,0 +1,376 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+
+/**
+ * History of the build durations of the development components of a project as reported by the dctool (<code>timing on</code>).
+ *
+ * The history is kept in a compact binary file in the project folder: a header, the names of the development components and for each of
+ * the last {@value #MAX_BUILDS} builds its number followed by pairs of development component index and duration in milliseconds. The file
+ * is replaced as a whole when a build is added.
+ *
+ * @author Dirk Weigenand
+ */
+final class DCBuildDurations {
+    /**
+     * Logger to use.
+     */
+    private static final Logger LOGGER = Logger.getLogger(DCBuildDurations.class.getName());
+
+    /**
+     * header identifying the format of the history.
+     */
+    private static final int HEADER = 0x4e574431;
+
+    /**
+     * maximum number of builds kept in history.
+     */
+    static final int MAX_BUILDS = 30;
+
+    /**
+     * estimated duration of a development component when there is no history at all.
+     */
+    private static final long DEFAULT_ESTIMATE = 1;
+
+    /**
+     * file containing the history.
+     */
+    private final File file;
+
+    /**
+     * durations of the development components per build (ordered by build number). <code>null</code> until the file was read.
+     */
+    private TreeMap<Integer, Map<String, Long>> builds;
+
+    /**
+     * Create a history of build durations using the given file.
+     *
+     * @param file
+     *            file to read the history from and write it to.
+     */
+    DCBuildDurations(final File file) {
+        if (file == null) {
+            throw new IllegalArgumentException("file must not be null!");
+        }
+
+        this.file = file;
+    }
+
+    /**
+     * Returns the key of a development component in the history.
+     *
+     * @param vendor
+     *            vendor of the development component.
+     * @param name
+     *            name of the development component.
+     * @return key of the development component.
+     */
+    static String getKey(final String vendor, final String name) {
+        return vendor + ':' + name;
+    }
+
+    /**
+     * Add the durations of the development components built by the given build. The oldest builds are dropped when more than
+     * {@value #MAX_BUILDS} builds are kept.
+     *
+     * @param build
+     *            number of build.
+     * @param durations
+     *            build durations in milliseconds mapped by the keys of the development components (see {@link #getKey(String, String)}).
+     */
+    synchronized void add(final int build, final Map<String, Long> durations) {
+        if (durations.isEmpty()) {
+            return;
+        }
+
+        final TreeMap<Integer, Map<String, Long>> history = getBuilds();
+        history.put(build, new HashMap<String, Long>(durations));
+
+        while (history.size() > MAX_BUILDS) {
+            history.remove(history.firstKey());
+        }
+
+        try {
+            write();
+        }
+        catch (final IOException e) {
+            LOGGER.log(Level.WARNING, String.format("Could not write build durations to %s.", file), e);
+        }
+    }
+
+    /**
+     * Estimate the build durations of the given development components from the history. A development component is estimated by the
+     * average of its recorded durations, components without history by the average of all estimated components.
+     *
+     * @param components
+     *            development components to estimate.
+     * @return the estimated build durations in milliseconds.
+     */
+    synchronized Map<DevelopmentComponent, Long> getEstimates(final Collection<DevelopmentComponent> components) {
+        final Map<DevelopmentComponent, Long> estimates = new HashMap<DevelopmentComponent, Long>();
+        final List<DevelopmentComponent> unknown = new ArrayList<DevelopmentComponent>();
+        long total = 0;
+
+        for (final DevelopmentComponent component : components) {
+            final long estimate = getAverage(getKey(component.getVendor(), component.getName()));
+
+            if (estimate < 0) {
+                unknown.add(component);
+            }
+            else {
+                estimates.put(component, estimate);
+                total += estimate;
+            }
+        }
+
+        final long fallback = estimates.isEmpty() ? DEFAULT_ESTIMATE : Math.max(DEFAULT_ESTIMATE, total / estimates.size());
+
+        for (final DevelopmentComponent component : unknown) {
+            estimates.put(component, fallback);
+        }
+
+        return estimates;
+    }
+
+    /**
+     * Returns the numbers of the builds kept in history in ascending order.
+     *
+     * @return the numbers of the builds kept in history.
+     */
+    synchronized List<Integer> getBuildNumbers() {
+        return new ArrayList<Integer>(getBuilds().keySet());
+    }
+
+    /**
+     * Returns the recorded durations of the given development component.
+     *
+     * @param key
+     *            key of the development component (see {@link #getKey(String, String)}).
+     * @return the durations in milliseconds mapped by build number (in ascending order).
+     */
+    synchronized Map<Integer, Long> getDurations(final String key) {
+        final Map<Integer, Long> durations = new LinkedHashMap<Integer, Long>();
+
+        for (final Map.Entry<Integer, Map<String, Long>> build : getBuilds().entrySet()) {
+            final Long duration = build.getValue().get(key);
+
+            if (duration != null) {
+                durations.put(build.getKey(), duration);
+            }
+        }
+
+        return durations;
+    }
+
+    /**
+     * Returns the keys of the development components that took longest to build on average.
+     *
+     * @param count
+     *            maximum number of development components to return.
+     * @return the keys of the slowest development components (slowest first).
+     */
+    synchronized List<String> getSlowestComponents(final int count) {
+        final Map<String, Long> averages = new HashMap<String, Long>();
+
+        for (final Map<String, Long> build : getBuilds().values()) {
+            for (final String key : build.keySet()) {
+                if (!averages.containsKey(key)) {
+                    averages.put(key, getAverage(key));
+                }
+            }
+        }
+
+        final List<String> keys = new ArrayList<String>(averages.keySet());
+        Collections.sort(keys, new Comparator<String>() {
+            public int compare(final String key1, final String key2) {
+                final int result = averages.get(key2).compareTo(averages.get(key1));
+
+                return result == 0 ? key1.compareTo(key2) : result;
+            }
+        });
+
+        return keys.subList(0, Math.min(count, keys.size()));
+    }
+
+    /**
+     * Returns whether no builds are kept in history.
+     *
+     * @return <code>true</code> when no builds are kept in history, <code>false</code> otherwise.
+     */
+    synchronized boolean isEmpty() {
+        return getBuilds().isEmpty();
+    }
+
+    /**
+     * Returns the time the history was last changed.
+     *
+     * @return the time the history file was last modified.
+     */
+    long getLastModified() {
+        return file.lastModified();
+    }
+
+    /**
+     * Calculate the average of the recorded durations of the given development component.
+     *
+     * @param key
+     *            key of the development component.
+     * @return the average duration in milliseconds or <code>-1</code> when there is no history for the development component.
+     */
+    private long getAverage(final String key) {
+        long total = 0;
+        int count = 0;
+
+        for (final Map<String, Long> build : getBuilds().values()) {
+            final Long duration = build.get(key);
+
+            if (duration != null) {
+                total += duration;
+                count++;
+            }
+        }
+
+        return count == 0 ? -1 : total / count;
+    }
+
+    /**
+     * Returns the history. Reads the file on first access.
+     *
+     * @return durations of the development components per build.
+     */
+    private TreeMap<Integer, Map<String, Long>> getBuilds() {
+        if (builds == null) {
+            builds = new TreeMap<Integer, Map<String, Long>>();
+
+            try {
+                read();
+            }
+            catch (final IOException e) {
+                LOGGER.log(Level.WARNING, String.format("Could not read build durations from %s.", file), e);
+                builds.clear();
+            }
+        }
+
+        return builds;
+    }
+
+    /**
+     * Read the history from the file. An incomplete file is ignored.
+     *
+     * @throws IOException
+     *             when reading the file fails.
+     */
+    private void read() throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+        try {
+            if (input.readInt() != HEADER) {
+                return;
+            }
+
+            final String[] keys = new String[input.readInt()];
+
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = input.readUTF();
+            }
+
+            final int buildCount = input.readInt();
+
+            for (int i = 0; i < buildCount; i++) {
+                final int build = input.readInt();
+                final int count = input.readInt();
+                final Map<String, Long> durations = new HashMap<String, Long>(count);
+
+                for (int j = 0; j < count; j++) {
+                    durations.put(keys[input.readInt()], Long.valueOf(input.readInt()));
+                }
+
+                builds.put(build, durations);
+            }
+        }
+        catch (final EOFException e) {
+            LOGGER.log(Level.WARNING, String.format("Ignoring incomplete build durations in %s.", file));
+            builds.clear();
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Write the history to the file.
+     *
+     * @throws IOException
+     *             when writing the file fails.
+     */
+    private void write() throws IOException {
+        final Map<String, Integer> keys = new LinkedHashMap<String, Integer>();
+
+        for (final Map<String, Long> build : builds.values()) {
+            for (final String key : build.keySet()) {
+                if (!keys.containsKey(key)) {
+                    keys.put(key, keys.size());
+                }
+            }
+        }
+
+        final File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+
+        try {
+            output.writeInt(HEADER);
+            output.writeInt(keys.size());
+
+            for (final String key : keys.keySet()) {
+                output.writeUTF(key);
+            }
+
+            output.writeInt(builds.size());
+
+            for (final Map.Entry<Integer, Map<String, Long>> build : builds.entrySet()) {
+                output.writeInt(build.getKey());
+                output.writeInt(build.getValue().size());
+
+                for (final Map.Entry<String, Long> duration : build.getValue().entrySet()) {
+                    output.writeInt(keys.get(duration.getKey()));
+                    output.writeInt((int)Math.min(Integer.MAX_VALUE, duration.getValue()));
+                }
+            }
+        }
+        finally {
+            output.close();
+        }
+
+        if ((file.exists() && !file.delete()) || !temp.renameTo(file)) {
+            throw new IOException(String.format("Could not replace %s.", file));
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import hudson.model.Action;
+import hudson.util.DataSetBuilder;
+import hudson.util.Graph;
+import hudson.util.ShiftedCategoryAxis;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.CategoryAxis;
+import org.jfree.chart.axis.CategoryLabelPositions;
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.PlotOrientation;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * Shows the trend of the build durations of the development components across the builds of a project (see {@link DCBuildDurations}).
+ * The project page shows the slowest development components, the page of this action lists all of them with a trend of their own.
+ *
+ * @author Dirk Weigenand
+ */
+public final class DCBuildDurationsProjectAction implements Action {
+    /**
+     * URL of this action relative to the project.
+     */
+    static final String URL_NAME = "dcBuildDurations";
+
+    /**
+     * number of development components shown in the trend on the project page.
+     */
+    private static final int SLOWEST_COMPONENTS = 10;
+
+    /**
+     * width of trend graph.
+     */
+    private static final int WIDTH = 500;
+
+    /**
+     * height of trend graph.
+     */
+    private static final int HEIGHT = 200;
+
+    /**
+     * milliseconds per second.
+     */
+    private static final double A_THOUSAND_MSECS = 1000d;
+
+    /**
+     * the project whose build durations should be shown.
+     */
+    private final NWDIProject project;
+
+    /**
+     * Create a trend action for the given project.
+     *
+     * @param project
+     *            the project whose build durations should be shown.
+     */
+    DCBuildDurationsProjectAction(final NWDIProject project) {
+        this.project = project;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getIconFileName() {
+        return hasTrend() ? "graph.gif" : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getDisplayName() {
+        return Messages.DCBuildDurationsProjectAction_displayName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getUrlName() {
+        return URL_NAME;
+    }
+
+    /**
+     * Returns whether there are build durations to show.
+     *
+     * @return <code>true</code> when build durations were recorded, <code>false</code> otherwise.
+     */
+    public boolean hasTrend() {
+        return !project.getDCBuildDurations().isEmpty();
+    }
+
+    /**
+     * Returns the keys of the development components with recorded build durations (slowest first).
+     *
+     * @return the keys of the development components with recorded build durations.
+     */
+    public List<String> getComponents() {
+        return project.getDCBuildDurations().getSlowestComponents(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Render the trend of the build durations as PNG. Shows the development component given by the request parameter
+     * <code>component</code> or the slowest development components when it is missing.
+     *
+     * @param request
+     *            the request.
+     * @param response
+     *            the response.
+     * @throws IOException
+     *             when writing the image fails.
+     */
+    public void doTrend(final StaplerRequest request, final StaplerResponse response) throws IOException {
+        final DCBuildDurations durations = project.getDCBuildDurations();
+
+        if (durations.isEmpty()) {
+            response.setStatus(StaplerResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        final String component = request.getParameter("component");
+        final List<String> components =
+            component == null ? durations.getSlowestComponents(SLOWEST_COMPONENTS) : Collections.singletonList(component);
+        final Calendar timestamp = Calendar.getInstance();
+        timestamp.setTimeInMillis(durations.getLastModified());
+
+        new Graph(timestamp, WIDTH, HEIGHT) {
+            @Override
+            protected JFreeChart createGraph() {
+                return createChart(durations, components);
+            }
+        }.doPng(request, response);
+    }
+
+    /**
+     * Create the chart showing the build durations of the given development components.
+     *
+     * @param durations
+     *            history of build durations.
+     * @param components
+     *            keys of the development components to show.
+     * @return the chart showing the build durations of the given development components.
+     */
+    private JFreeChart createChart(final DCBuildDurations durations, final List<String> components) {
+        final DataSetBuilder<String, Integer> dataSet = new DataSetBuilder<String, Integer>();
+
+        for (final String component : components) {
+            for (final Map.Entry<Integer, Long> duration : durations.getDurations(component).entrySet()) {
+                dataSet.add(duration.getValue() / A_THOUSAND_MSECS, component, duration.getKey());
+            }
+        }
+
+        final JFreeChart chart =
+            ChartFactory.createLineChart(null, null, Messages.DCBuildDurationsProjectAction_duration_axis(), dataSet.build(),
+                PlotOrientation.VERTICAL, true, true, false);
+        chart.setBackgroundPaint(Color.WHITE);
+
+        final CategoryPlot plot = chart.getCategoryPlot();
+        plot.setBackgroundPaint(Color.WHITE);
+        plot.setOutlinePaint(null);
+        plot.setRangeGridlinesVisible(true);
+        plot.setRangeGridlinePaint(Color.BLACK);
+
+        final CategoryAxis domainAxis = new ShiftedCategoryAxis(null);
+        plot.setDomainAxis(domainAxis);
+        domainAxis.setCategoryLabelPositions(CategoryLabelPositions.UP_90);
+        domainAxis.setLowerMargin(0.0);
+        domainAxis.setUpperMargin(0.0);
+        domainAxis.setCategoryMargin(0.0);
+
+        return chart;
+    }
+}
@@ -0,0 +1,515 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import hudson.model.Action;
+import hudson.model.Api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.arachna.netweaver.dc.types.Compartment;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Progress of building the development components of a build. The status of each development component is updated from the dctool output
+ * while the build is running (see {@link DCBuildProgressListener}), so the build page and the remote API show which development
+ * components are queued, being built, were built successfully or failed and how long each took.
+ *
+ * The summary counters and {@link #getRevision()} are exported at the top level, so clients can poll the progress cheaply using e.g.
+ * <code>api/json?tree=revision,finished,queued,building,succeeded,failed</code> and fetch the components only when the revision changed.
+ * Only the status and duration of each development component are kept with the build afterwards.
+ *
+ * @author Dirk Weigenand
+ */
+@ExportedBean(defaultVisibility = 2)
+public final class DCBuildProgressAction implements Action {
+    /**
+     * URL of this action relative to the build.
+     */
+    static final String URL_NAME = "dcBuildProgress";
+
+    /**
+     * status of the development components in build order.
+     */
+    private final List<DCBuildStatus> components = new ArrayList<DCBuildStatus>();
+
+    /**
+     * number of changes of the progress.
+     */
+    private int revision;
+
+    /**
+     * whether building has finished.
+     */
+    private boolean finished;
+
+    /**
+     * Create the progress of building the given development components (all of them queued).
+     *
+     * @param components
+     *            development components to build.
+     */
+    public DCBuildProgressAction(final Collection<DevelopmentComponent> components) {
+        for (final DevelopmentComponent component : components) {
+            final Compartment compartment = component.getCompartment();
+            this.components.add(new DCBuildStatus(component.getVendor(), component.getName(), compartment == null ? null : compartment
+                .getName()));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getIconFileName() {
+        return "clipboard.gif";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getDisplayName() {
+        return Messages.DCBuildProgressAction_displayName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getUrlName() {
+        return URL_NAME;
+    }
+
+    /**
+     * Returns the status of the development components in build order.
+     *
+     * @return the status of the development components.
+     */
+    @Exported
+    public synchronized List<DCBuildStatus> getComponents() {
+        final List<DCBuildStatus> snapshot = new ArrayList<DCBuildStatus>(components.size());
+
+        for (final DCBuildStatus component : components) {
+            snapshot.add(component.copy());
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Returns the number of changes of the progress. Clients polling the progress need to fetch the components only when it changed.
+     *
+     * @return the number of changes of the progress.
+     */
+    @Exported
+    public synchronized int getRevision() {
+        return revision;
+    }
+
+    /**
+     * Returns whether building has finished.
+     *
+     * @return <code>true</code> when building has finished, <code>false</code> while it is running.
+     */
+    @Exported
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Returns the number of development components waiting to be built.
+     *
+     * @return the number of development components waiting to be built.
+     */
+    @Exported
+    public int getQueued() {
+        return count(DCBuildStatus.State.Queued);
+    }
+
+    /**
+     * Returns the number of development components currently being built.
+     *
+     * @return the number of development components currently being built.
+     */
+    @Exported
+    public int getBuilding() {
+        return count(DCBuildStatus.State.Building);
+    }
+
+    /**
+     * Returns the number of development components built successfully.
+     *
+     * @return the number of development components built successfully.
+     */
+    @Exported
+    public int getSucceeded() {
+        return count(DCBuildStatus.State.Succeeded);
+    }
+
+    /**
+     * Returns the number of development components whose build failed.
+     *
+     * @return the number of development components whose build failed.
+     */
+    @Exported
+    public int getFailed() {
+        return count(DCBuildStatus.State.Failed);
+    }
+
+    /**
+     * Returns the number of development components that were not built (because a component they use failed or they were up to date).
+     *
+     * @return the number of development components that were not built.
+     */
+    @Exported
+    public int getNotBuilt() {
+        return count(DCBuildStatus.State.NotBuilt);
+    }
+
+    /**
+     * Remote API access.
+     *
+     * @return the remote API for this action.
+     */
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    /**
+     * Record that the build of the given development component started.
+     *
+     * @param name
+     *            name of the development component.
+     * @param compartment
+     *            name of the compartment containing the development component.
+     * @param time
+     *            the time the build started.
+     */
+    synchronized void started(final String name, final String compartment, final long time) {
+        final DCBuildStatus component = find(name, compartment);
+
+        if (component != null) {
+            component.start(time);
+            revision++;
+        }
+    }
+
+    /**
+     * Record that the build of the given development component ended.
+     *
+     * @param name
+     *            name of the development component.
+     * @param compartment
+     *            name of the compartment containing the development component.
+     * @param succeeded
+     *            whether the development component was built successfully.
+     * @param time
+     *            the time the build ended.
+     */
+    synchronized void ended(final String name, final String compartment, final boolean succeeded, final long time) {
+        final DCBuildStatus component = find(name, compartment);
+
+        if (component != null) {
+            component.end(succeeded ? DCBuildStatus.State.Succeeded : DCBuildStatus.State.Failed, time);
+            revision++;
+        }
+    }
+
+    /**
+     * Record the build duration of the given development component reported by the dctool.
+     *
+     * @param name
+     *            name of the development component.
+     * @param compartment
+     *            name of the compartment containing the development component.
+     * @param duration
+     *            the build duration in milliseconds.
+     */
+    synchronized void measured(final String name, final String compartment, final long duration) {
+        final DCBuildStatus component = find(name, compartment);
+
+        if (component != null) {
+            component.measured(duration);
+            revision++;
+        }
+    }
+
+    /**
+     * Returns the build durations reported by the dctool for the development components built successfully.
+     *
+     * @return the build durations in milliseconds mapped by the keys of the development components (see
+     *         {@link DCBuildDurations#getKey(String, String)}).
+     */
+    synchronized Map<String, Long> getMeasuredDurations() {
+        final Map<String, Long> durations = new HashMap<String, Long>();
+
+        for (final DCBuildStatus component : components) {
+            if (component.measured && DCBuildStatus.State.Succeeded.equals(component.getState())) {
+                durations.put(DCBuildDurations.getKey(component.getVendor(), component.getName()), component.duration);
+            }
+        }
+
+        return durations;
+    }
+
+    /**
+     * Record that building has finished. Development components still being built are considered failed (their dctool session ended
+     * without reporting a result), those still queued were not built.
+     *
+     * @param time
+     *            the time building finished.
+     */
+    synchronized void finish(final long time) {
+        for (final DCBuildStatus component : components) {
+            if (DCBuildStatus.State.Building.equals(component.getState())) {
+                component.end(DCBuildStatus.State.Failed, time);
+            }
+            else if (DCBuildStatus.State.Queued.equals(component.getState())) {
+                component.end(DCBuildStatus.State.NotBuilt, time);
+            }
+        }
+
+        finished = true;
+        revision++;
+    }
+
+    /**
+     * Find the status of the given development component.
+     *
+     * @param name
+     *            name of the development component.
+     * @param compartment
+     *            name of the compartment containing the development component.
+     * @return the status of the given development component or <code>null</code> when it is not part of this build.
+     */
+    private DCBuildStatus find(final String name, final String compartment) {
+        for (final DCBuildStatus component : components) {
+            if (component.getName().equals(name) && (component.getCompartment() == null || component.getCompartment().equals(compartment))) {
+                return component;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Count the development components in the given state.
+     *
+     * @param state
+     *            the state to count.
+     * @return number of development components in the given state.
+     */
+    private synchronized int count(final DCBuildStatus.State state) {
+        int count = 0;
+
+        for (final DCBuildStatus component : components) {
+            if (state.equals(component.getState())) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Build status of a development component.
+     *
+     * @author Dirk Weigenand
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static final class DCBuildStatus {
+        /**
+         * States of building a development component.
+         *
+         * @author Dirk Weigenand
+         */
+        public enum State {
+            /**
+             * waiting to be built.
+             */
+            Queued,
+
+            /**
+             * being built.
+             */
+            Building,
+
+            /**
+             * built successfully.
+             */
+            Succeeded,
+
+            /**
+             * build failed.
+             */
+            Failed,
+
+            /**
+             * not built when building finished.
+             */
+            NotBuilt;
+        }
+
+        /**
+         * vendor of the development component.
+         */
+        private final String vendor;
+
+        /**
+         * name of the development component.
+         */
+        private final String name;
+
+        /**
+         * name of the compartment containing the development component (not kept with the build).
+         */
+        private final transient String compartment;
+
+        /**
+         * the state of the build of the development component.
+         */
+        private State state = State.Queued;
+
+        /**
+         * the time the build started (not kept with the build).
+         */
+        private transient long start;
+
+        /**
+         * duration of the build in milliseconds (when it ended).
+         */
+        private long duration;
+
+        /**
+         * whether the duration was reported by the dctool (not kept with the build).
+         */
+        private transient boolean measured;
+
+        /**
+         * Create the status of a queued development component.
+         *
+         * @param vendor
+         *            vendor of the development component.
+         * @param name
+         *            name of the development component.
+         * @param compartment
+         *            name of the compartment containing the development component.
+         */
+        DCBuildStatus(final String vendor, final String name, final String compartment) {
+            this.vendor = vendor;
+            this.name = name;
+            this.compartment = compartment;
+        }
+
+        /**
+         * Returns the vendor of the development component.
+         *
+         * @return the vendor of the development component.
+         */
+        @Exported
+        public String getVendor() {
+            return vendor;
+        }
+
+        /**
+         * Returns the name of the development component.
+         *
+         * @return the name of the development component.
+         */
+        @Exported
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the name of the compartment containing the development component.
+         *
+         * @return the name of the compartment containing the development component (<code>null</code> for builds recorded before).
+         */
+        String getCompartment() {
+            return compartment;
+        }
+
+        /**
+         * Returns the state of the build of the development component.
+         *
+         * @return the state of the build of the development component.
+         */
+        @Exported
+        public State getState() {
+            return state;
+        }
+
+        /**
+         * Returns the time spent building the development component so far.
+         *
+         * @return the elapsed time in milliseconds.
+         */
+        @Exported
+        public long getElapsed() {
+            if (State.Building.equals(state)) {
+                return System.currentTimeMillis() - start;
+            }
+
+            return duration;
+        }
+
+        /**
+         * Record that building the development component started.
+         *
+         * @param time
+         *            the time the build started.
+         */
+        void start(final long time) {
+            state = State.Building;
+            start = time;
+        }
+
+        /**
+         * Record that building the development component ended.
+         *
+         * @param endState
+         *            the state the build ended in.
+         * @param time
+         *            the time the build ended.
+         */
+        void end(final State endState, final long time) {
+            if (State.Building.equals(state)) {
+                duration = time - start;
+            }
+
+            state = endState;
+        }
+
+        /**
+         * Record the build duration reported by the dctool.
+         *
+         * @param reported
+         *            the build duration in milliseconds.
+         */
+        void measured(final long reported) {
+            duration = reported;
+            measured = true;
+        }
+
+        /**
+         * Create a copy of this status.
+         *
+         * @return a copy of this status.
+         */
+        DCBuildStatus copy() {
+            final DCBuildStatus copy = new DCBuildStatus(vendor, name, compartment);
+            copy.state = state;
+            copy.start = start;
+            copy.duration = duration;
+            copy.measured = measured;
+
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import java.util.regex.Matcher;
+
+import org.arachna.netweaver.tools.DIToolOutputListener;
+
+/**
+ * Listener updating the {@link DCBuildProgressAction} of a build from the output of a dctool session while it is running. It recognizes
+ * the same markers as the {@link DCBuildResultParser}. The execution time the dctool reports after building a development component is
+ * recorded as its build duration. Each dctool session needs a listener of its own since it tracks the development component currently
+ * built in that session.
+ *
+ * @author Dirk Weigenand
+ */
+final class DCBuildProgressListener implements DIToolOutputListener {
+    /**
+     * progress to update.
+     */
+    private final DCBuildProgressAction progress;
+
+    /**
+     * name of the development component currently built (<code>null</code> when none is being built).
+     */
+    private String dcName;
+
+    /**
+     * name of the compartment of the development component currently built.
+     */
+    private String compartmentName;
+
+    /**
+     * name of the development component built last, waiting for its execution time (<code>null</code> when none is waiting).
+     */
+    private String endedDcName;
+
+    /**
+     * name of the compartment of the development component built last.
+     */
+    private String endedCompartmentName;
+
+    /**
+     * Create a listener updating the given progress.
+     *
+     * @param progress
+     *            progress to update.
+     */
+    DCBuildProgressListener(final DCBuildProgressAction progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void processLine(final String line) {
+        final Matcher started = DCBuildResultParser.DC_NAME_AND_COMPARTMENT.matcher(line);
+
+        if (started.matches()) {
+            dcName = started.group(1);
+            compartmentName = started.group(2);
+            endedDcName = null;
+            progress.started(dcName, compartmentName, System.currentTimeMillis());
+
+            return;
+        }
+
+        if (endedDcName != null) {
+            final Matcher executionTime = DCBuildResultParser.EXECUTION_TIME.matcher(line);
+
+            if (executionTime.matches()) {
+                progress.measured(endedDcName, endedCompartmentName, Long.parseLong(executionTime.group(1)));
+                endedDcName = null;
+                endedCompartmentName = null;
+
+                return;
+            }
+        }
+
+        if (dcName != null) {
+            final Matcher ended = DCBuildResultParser.BUILD_RESULT.matcher(line);
+
+            if (ended.matches()) {
+                progress.ended(dcName, compartmentName, "0".equals(ended.group(2)), System.currentTimeMillis());
+                endedDcName = dcName;
+                endedCompartmentName = compartmentName;
+                dcName = null;
+                compartmentName = null;
+            }
+        }
+    }
+}
@@ -14,31 +14,53 @@ import java.util.regex.Pattern;
 import org.arachna.netweaver.dc.types.Compartment;
 import org.arachna.netweaver.dc.types.DevelopmentComponent;
 import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
+import org.arachna.netweaver.tools.DIToolOutputListener;
 
 /**
- * Parser for output of the DC tool 'builddc' command.
+ * Parser for output of the DC tool 'builddc' command. The parser can either read a complete build log or be registered as
+ * {@link DIToolOutputListener} to process the output while the DC tool is running.
  * 
  * @author Dirk Weigenand
  */
-public class DCBuildResultParser {
+public class DCBuildResultParser implements DIToolOutputListener {
     /**
-     * Regex matching failed builds.
+     * regex matching the result of building a DC (number of succeeded and failed builds).
      */
-    private final Pattern failedBuildResultRegex = Pattern
-        .compile("0 build\\(s\\) succeeded \\(or yield warnings\\), 1 build\\(s\\) failed\\.$");
+    static final Pattern BUILD_RESULT = Pattern
+        .compile("(\\d+) build\\(s\\) succeeded \\(or yield warnings\\), (\\d+) build\\(s\\) failed\\.$");
 
     /**
      * regex matching DC name to be built and its containing compartment.
      */
-    private final Pattern dcNameAndCompartmentPattern = Pattern
+    static final Pattern DC_NAME_AND_COMPARTMENT = Pattern
         .compile("\"Build of DC \"(.*?)\" from  compartment \"(.*?)\" based on sync mode \"SYNCHED_AS_INACTIVE_SOURCE\"\\s+$");
 
+    /**
+     * regex matching the execution time of a dctool command reported with 'timing on'.
+     */
+    static final Pattern EXECUTION_TIME = Pattern.compile("Execution time: (\\d+) \\[ms\\]\\s*$");
+
     /**
      * development configuration to determine development components by their
      * name and containing compartment.
      */
     private final DevelopmentConfiguration developmentConfiguration;
 
+    /**
+     * build results collected so far.
+     */
+    private final BuildResults results = new BuildResults();
+
+    /**
+     * name of compartment of the development component currently built.
+     */
+    private String compartmentName;
+
+    /**
+     * name of the development component currently built.
+     */
+    private String dcName;
+
     /**
      * Create a parser for output of a sequence of DC tools 'builddc' commands.
      * 
@@ -60,36 +82,12 @@ public class DCBuildResultParser {
      * @return a container of build results.
      */
     public BuildResults parse(final Reader buildLog) {
-        final BuildResults results = new BuildResults();
-
         final BufferedReader reader = new BufferedReader(buildLog);
         String line;
-        String compartmentName = null;
-        String dcName = null;
 
         try {
             while (null != (line = reader.readLine())) {
-                final Matcher m = dcNameAndCompartmentPattern.matcher(line);
-
-                if (m.matches()) {
-                    dcName = m.group(1);
-                    compartmentName = m.group(2);
-                }
-
-                if (dcName != null && compartmentName != null && failedBuildResultRegex.matcher(line).matches()) {
-                    final Compartment compartment = developmentConfiguration.getCompartment(compartmentName);
-                    final DevelopmentComponent component = compartment.getDevelopmentComponent(dcName);
-
-                    if (component == null) {
-                        throw new IllegalStateException(String.format("Compartment %s does not contain development component '%s'!",
-                            compartmentName, dcName));
-                    }
-
-                    results.addFailedBuildFor(component);
-                    // reset
-                    compartmentName = null;
-                    dcName = null;
-                }
+                processLine(line);
             }
         }
         catch (final IOException e) {
@@ -107,6 +105,53 @@ public class DCBuildResultParser {
         return results;
     }
 
+    /**
+     * Process a line of the build log while the DC tool is still running.
+     * 
+     * @param line
+     *            line of the build log.
+     */
+    public void processLine(final String line) {
+        final Matcher m = DC_NAME_AND_COMPARTMENT.matcher(line);
+
+        if (m.matches()) {
+            dcName = m.group(1);
+            compartmentName = m.group(2);
+        }
+
+        final Matcher result = BUILD_RESULT.matcher(line);
+
+        if (dcName != null && compartmentName != null && result.matches()) {
+            final Compartment compartment = developmentConfiguration.getCompartment(compartmentName);
+            final DevelopmentComponent component = compartment.getDevelopmentComponent(dcName);
+
+            if (component == null) {
+                throw new IllegalStateException(String.format("Compartment %s does not contain development component '%s'!",
+                    compartmentName, dcName));
+            }
+
+            if (Integer.parseInt(result.group(2)) > 0) {
+                results.addFailedBuildFor(component);
+            }
+            else if (Integer.parseInt(result.group(1)) > 0) {
+                results.addSuccessfulBuildFor(component);
+            }
+
+            // reset
+            compartmentName = null;
+            dcName = null;
+        }
+    }
+
+    /**
+     * Returns the build results of the lines processed so far.
+     * 
+     * @return a container of build results.
+     */
+    public BuildResults getBuildResults() {
+        return results;
+    }
+
     /**
      * Collection of build results.
      * 
@@ -118,6 +163,11 @@ public class DCBuildResultParser {
          */
         private final List<DevelopmentComponent> dcsWithBuildErrors = new ArrayList<DevelopmentComponent>();
 
+        /**
+         * collection of DCs whose build was reported as successful.
+         */
+        private final List<DevelopmentComponent> dcsBuiltSuccessfully = new ArrayList<DevelopmentComponent>();
+
         /**
          * returns whether there were build errors or not.
          * 
@@ -146,5 +196,26 @@ public class DCBuildResultParser {
         public List<DevelopmentComponent> getDcsWithBuildErrors() {
             return dcsWithBuildErrors;
         }
+
+        /**
+         * Add a development component to the list of DCs built successfully.
+         * 
+         * @param component
+         *            development component whose build succeeded.
+         */
+        void addSuccessfulBuildFor(final DevelopmentComponent component) {
+            dcsBuiltSuccessfully.add(component);
+        }
+
+        /**
+         * Get list of DCs whose build was reported as successful. DCs the DC
+         * tool did not get to (e.g. when it terminated abnormally) are neither
+         * contained in this list nor in the list of DCs with build errors.
+         * 
+         * @return the DCs built successfully
+         */
+        public List<DevelopmentComponent> getDcsBuiltSuccessfully() {
+            return dcsBuiltSuccessfully;
+        }
     }
 }
@@ -0,0 +1,100 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+
+import org.apache.commons.io.FileUtils;
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+
+/**
+ * Markers recording that the last build of a development component succeeded (an empty file in its <code>gen/default</code> folder).
+ *
+ * The markers of the development components to build are removed before building and written again only for the components dctool
+ * reported as built successfully. So build results left behind by a failed or interrupted build are never mistaken for up to date ones.
+ *
+ * @author Dirk Weigenand
+ */
+final class DCBuildSuccessMarkers {
+    /**
+     * path of the marker relative to the base location of a development component.
+     */
+    private static final String MARKER = "gen/default/.build-succeeded";
+
+    /**
+     * helper to determine the location of development components in the workspace.
+     */
+    private final AntHelper antHelper;
+
+    /**
+     * Create markers for successful builds of development components.
+     *
+     * @param antHelper
+     *            helper to determine the location of development components in the workspace.
+     */
+    DCBuildSuccessMarkers(final AntHelper antHelper) {
+        this.antHelper = antHelper;
+    }
+
+    /**
+     * Determine whether the last build of the given development component succeeded.
+     *
+     * @param component
+     *            the development component.
+     * @return <code>true</code> when the last build of the given development component succeeded, <code>false</code> otherwise.
+     */
+    boolean isMarked(final DevelopmentComponent component) {
+        return getMarker(component).isFile();
+    }
+
+    /**
+     * Record that the builds of the given development components succeeded.
+     *
+     * @param components
+     *            the development components built successfully.
+     * @throws IOException
+     *             when writing a marker fails.
+     */
+    void mark(final Collection<DevelopmentComponent> components) throws IOException {
+        for (final DevelopmentComponent component : components) {
+            final File marker = getMarker(component);
+
+            if (marker.getParentFile().isDirectory()) {
+                FileUtils.touch(marker);
+            }
+        }
+    }
+
+    /**
+     * Remove the markers of the given development components before building them.
+     *
+     * @param components
+     *            the development components to build.
+     * @throws IOException
+     *             when a marker could not be removed.
+     */
+    void remove(final Collection<DevelopmentComponent> components) throws IOException {
+        for (final DevelopmentComponent component : components) {
+            final File marker = getMarker(component);
+
+            if (marker.exists() && !marker.delete()) {
+                throw new IOException(String.format("Could not remove %s!", marker.getAbsolutePath()));
+            }
+        }
+    }
+
+    /**
+     * Returns the marker of the given development component.
+     *
+     * @param component
+     *            the development component.
+     * @return the marker of the given development component.
+     */
+    private File getMarker(final DevelopmentComponent component) {
+        return new File(antHelper.getBaseLocation(component), MARKER);
+    }
+}
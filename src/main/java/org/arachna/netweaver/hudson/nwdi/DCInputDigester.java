@@ -0,0 +1,348 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.BuildVariant;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.JdkHomeAlias;
+import org.arachna.netweaver.dc.types.JdkHomePaths;
+import org.arachna.netweaver.dc.types.PublicPartReference;
+
+/**
+ * Computes digests of the inputs of development component builds.
+ *
+ * The input digest of a development component covers the files of the component in the workspace (its sources, the <code>.dcdef</code>
+ * and the public part definitions under <code>def</code>; the build results under <code>gen</code> are left out) and the public parts it
+ * uses as well as the toolchain handed to dctool (the build variant of the development configuration and the configured JDK homes).
+ * For a used development component built in the same run the input digest of that component is taken (its build results are
+ * determined by its inputs), for other used components the files of the referenced public part under <code>gen/default/public</code>.
+ *
+ * Two builds of a development component with equal input digests yield the same build results.
+ *
+ * @author Dirk Weigenand
+ */
+final class DCInputDigester {
+    /**
+     * algorithm used for digests.
+     */
+    private static final String ALGORITHM = "SHA-1";
+
+    /**
+     * folder containing build results.
+     */
+    private static final String GEN_FOLDER = "gen";
+
+    /**
+     * helper to determine the location of development components in the workspace.
+     */
+    private final AntHelper antHelper;
+
+    /**
+     * registry for development components.
+     */
+    private final DevelopmentComponentFactory dcFactory;
+
+    /**
+     * description of the toolchain used for building (see {@link #describeToolchain(BuildVariant, JdkHomePaths)}).
+     */
+    private final String toolchain;
+
+    /**
+     * input digests of the development components built in this run.
+     */
+    private final Map<DevelopmentComponent, String> digests = new HashMap<DevelopmentComponent, String>();
+
+    /**
+     * Create a digester for the inputs of development component builds.
+     *
+     * @param antHelper
+     *            helper to determine the location of development components in the workspace.
+     * @param dcFactory
+     *            registry for development components.
+     * @param toolchain
+     *            description of the toolchain used for building (see {@link #describeToolchain(BuildVariant, JdkHomePaths)}).
+     */
+    DCInputDigester(final AntHelper antHelper, final DevelopmentComponentFactory dcFactory, final String toolchain) {
+        this.antHelper = antHelper;
+        this.dcFactory = dcFactory;
+        this.toolchain = toolchain;
+    }
+
+    /**
+     * Describe the toolchain used for building development components: the name and build options of the given build variant and the
+     * paths of the JDK homes dctool uses for each alias.
+     *
+     * @param variant
+     *            build variant of the development configuration (may be <code>null</code>).
+     * @param paths
+     *            the configured JDK homes.
+     * @return description of the toolchain used for building.
+     */
+    static String describeToolchain(final BuildVariant variant, final JdkHomePaths paths) {
+        final StringBuilder description = new StringBuilder();
+
+        if (variant != null) {
+            description.append("variant:").append(variant.getName()).append('\n');
+            final Map<String, String> options = new TreeMap<String, String>();
+
+            for (final String name : variant.getBuildOptionNames()) {
+                options.put(name, variant.getBuildOption(name));
+            }
+
+            for (final Map.Entry<String, String> option : options.entrySet()) {
+                description.append("option:").append(option.getKey()).append('=').append(option.getValue()).append('\n');
+            }
+        }
+
+        for (final JdkHomeAlias alias : JdkHomeAlias.values()) {
+            description.append("jdk:").append(alias).append('=').append(paths.get(alias)).append('\n');
+        }
+
+        return description.toString();
+    }
+
+    /**
+     * Compute the input digests of the given development components (in build order, i.e. used components before using ones).
+     *
+     * @param components
+     *            development components to build in build order.
+     * @return input digests of the given development components.
+     * @throws IOException
+     *             when reading the inputs fails.
+     */
+    Map<DevelopmentComponent, String> digest(final Collection<DevelopmentComponent> components) throws IOException {
+        for (final DevelopmentComponent component : components) {
+            digests.put(component, digest(component));
+        }
+
+        return digests;
+    }
+
+    /**
+     * Compute the input digest of the given development component.
+     *
+     * @param component
+     *            development component.
+     * @return the input digest of the given development component.
+     * @throws IOException
+     *             when reading the inputs fails.
+     */
+    private String digest(final DevelopmentComponent component) throws IOException {
+        final MessageDigest digest = createDigest();
+        final File baseLocation = new File(antHelper.getBaseLocation(component));
+
+        update(digest, "dc:" + component.getVendor() + ':' + component.getName());
+        update(digest, "toolchain:" + toolchain);
+
+        for (final File file : listInputFiles(baseLocation)) {
+            update(digest, "file:" + getRelativePath(baseLocation, file));
+            update(digest, digest(file));
+        }
+
+        for (final PublicPartReference reference : component.getUsedDevelopmentComponents()) {
+            update(digest, "uses:" + reference.getVendor() + ':' + reference.getComponentName() + ':' + reference.getName());
+            update(digest, digest(reference));
+        }
+
+        return new String(Hex.encodeHex(digest.digest()));
+    }
+
+    /**
+     * Compute the digest of the given public part reference.
+     *
+     * @param reference
+     *            public part reference.
+     * @return the input digest of the referenced development component if it is built in this run or the digest of the files of the
+     *         referenced public part.
+     * @throws IOException
+     *             when reading the public part fails.
+     */
+    private String digest(final PublicPartReference reference) throws IOException {
+        final DevelopmentComponent usedComponent = dcFactory.get(reference);
+
+        if (usedComponent == null) {
+            return "unknown";
+        }
+
+        final String usedDigest = digests.get(usedComponent);
+
+        if (usedDigest != null) {
+            return usedDigest;
+        }
+
+        final File publicParts = new File(antHelper.getBaseLocation(usedComponent), "gen/default/public");
+        final File publicPart = reference.getName() == null ? publicParts : new File(publicParts, reference.getName());
+        final MessageDigest digest = createDigest();
+
+        for (final File file : listFiles(publicPart)) {
+            update(digest, getRelativePath(publicPart, file));
+            update(digest, digest(file));
+        }
+
+        return new String(Hex.encodeHex(digest.digest()));
+    }
+
+    /**
+     * Compute the digest of the content of the given file.
+     *
+     * @param file
+     *            the file.
+     * @return the digest of the content of the given file.
+     * @throws IOException
+     *             when reading the file fails.
+     */
+    private String digest(final File file) throws IOException {
+        final MessageDigest digest = createDigest();
+        final InputStream content = new FileInputStream(file);
+        final byte[] buffer = new byte[8192];
+
+        try {
+            int count = content.read(buffer);
+
+            while (count > -1) {
+                digest.update(buffer, 0, count);
+                count = content.read(buffer);
+            }
+        }
+        finally {
+            IOUtils.closeQuietly(content);
+        }
+
+        return new String(Hex.encodeHex(digest.digest()));
+    }
+
+    /**
+     * List the input files of the development component at the given location (all files but the build results in <code>gen</code>).
+     *
+     * @param baseLocation
+     *            location of development component.
+     * @return the input files sorted by their paths.
+     */
+    private List<File> listInputFiles(final File baseLocation) {
+        final List<File> files = new ArrayList<File>();
+        final File[] children = baseLocation.listFiles();
+
+        if (children != null) {
+            Arrays.sort(children);
+
+            for (final File child : children) {
+                if (!(child.isDirectory() && GEN_FOLDER.equals(child.getName()))) {
+                    addFiles(files, child);
+                }
+            }
+        }
+
+        return files;
+    }
+
+    /**
+     * List the files in the given folder and its sub folders.
+     *
+     * @param folder
+     *            the folder.
+     * @return the files sorted by their paths.
+     */
+    private List<File> listFiles(final File folder) {
+        final List<File> files = new ArrayList<File>();
+        addFiles(files, folder);
+
+        return files;
+    }
+
+    /**
+     * Add the given file or the files in the given folder and its sub folders to the given list (sorted by their paths).
+     *
+     * @param files
+     *            list of files to add to.
+     * @param file
+     *            the file or folder.
+     */
+    private void addFiles(final List<File> files, final File file) {
+        final List<File> pending = new ArrayList<File>();
+        pending.add(file);
+
+        while (!pending.isEmpty()) {
+            final File current = pending.remove(pending.size() - 1);
+
+            if (current.isDirectory()) {
+                final File[] children = current.listFiles();
+
+                if (children != null) {
+                    Arrays.sort(children);
+
+                    for (int i = children.length - 1; i >= 0; i--) {
+                        pending.add(children[i]);
+                    }
+                }
+            }
+            else if (current.isFile()) {
+                files.add(current);
+            }
+        }
+    }
+
+    /**
+     * Returns the path of the given file relative to the given folder (using '/' as separator).
+     *
+     * @param folder
+     *            the folder.
+     * @param file
+     *            a file in the folder.
+     * @return the path of the given file relative to the given folder.
+     */
+    private String getRelativePath(final File folder, final File file) {
+        return file.getAbsolutePath().substring(folder.getAbsolutePath().length() + 1).replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Update the given digest with the given text.
+     *
+     * @param digest
+     *            the digest to update.
+     * @param text
+     *            the text.
+     */
+    private void update(final MessageDigest digest, final String text) {
+        try {
+            digest.update(text.getBytes("UTF-8"));
+            digest.update((byte)0);
+        }
+        catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Create a message digest.
+     *
+     * @return a new message digest.
+     */
+    private MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        }
+        catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
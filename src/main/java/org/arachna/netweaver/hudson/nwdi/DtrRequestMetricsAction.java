@@ -0,0 +1,294 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import hudson.model.Action;
+import hudson.model.Api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.arachna.netweaver.hudson.dtr.browser.DtrRequestMetrics;
+import org.arachna.netweaver.hudson.dtr.browser.EndpointMetrics;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Metrics of the requests sent to the DTR during the checkout of a build, kept per kind of DTR report (endpoint). Shown on the build
+ * page and exported via the remote API.
+ * 
+ * @author Dirk Weigenand
+ */
+@ExportedBean(defaultVisibility = 2)
+public final class DtrRequestMetricsAction implements Action {
+    /**
+     * URL of this action relative to the build.
+     */
+    static final String URL_NAME = "dtrRequests";
+
+    /**
+     * statistics of the endpoints requested.
+     */
+    private final List<EndpointStatistics> endpoints = new ArrayList<EndpointStatistics>();
+
+    /**
+     * Create an action from the given request metrics.
+     * 
+     * @param metrics
+     *            metrics of the requests sent to the DTR.
+     */
+    public DtrRequestMetricsAction(final DtrRequestMetrics metrics) {
+        for (final EndpointMetrics endpointMetrics : metrics.getRequestedEndpoints()) {
+            endpoints.add(new EndpointStatistics(endpointMetrics));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getIconFileName() {
+        return "graph.gif";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getDisplayName() {
+        return Messages.DtrRequestMetricsAction_displayName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getUrlName() {
+        return URL_NAME;
+    }
+
+    /**
+     * Returns the statistics of the endpoints requested.
+     * 
+     * @return the statistics of the endpoints requested.
+     */
+    @Exported
+    public List<EndpointStatistics> getEndpoints() {
+        return Collections.unmodifiableList(endpoints);
+    }
+
+    /**
+     * Returns the statistics of the given endpoint.
+     * 
+     * @param name
+     *            name of endpoint (see {@link DtrRequestMetrics.Endpoint}).
+     * @return the statistics of the given endpoint or <code>null</code> if it was not requested.
+     */
+    public EndpointStatistics getEndpoint(final String name) {
+        for (final EndpointStatistics endpoint : endpoints) {
+            if (endpoint.getName().equals(name)) {
+                return endpoint;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the total number of requests sent to the DTR.
+     * 
+     * @return the total number of requests sent to the DTR.
+     */
+    @Exported
+    public long getRequests() {
+        long requests = 0;
+
+        for (final EndpointStatistics endpoint : endpoints) {
+            requests += endpoint.getRequests();
+        }
+
+        return requests;
+    }
+
+    /**
+     * Returns the upper bounds of the buckets of the latency histograms.
+     * 
+     * @return the upper bounds (in milliseconds) of the buckets of the latency histograms.
+     */
+    @Exported
+    public long[] getLatencyBounds() {
+        return EndpointMetrics.getLatencyBounds();
+    }
+
+    /**
+     * Remote API access.
+     * 
+     * @return the remote API for this action.
+     */
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    /**
+     * Statistics of the requests sent to one kind of DTR report.
+     * 
+     * @author Dirk Weigenand
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static final class EndpointStatistics {
+        /**
+         * name of endpoint.
+         */
+        private final String name;
+
+        /**
+         * description of endpoint.
+         */
+        private final String description;
+
+        /**
+         * number of requests.
+         */
+        private final long requests;
+
+        /**
+         * number of requests that failed or were answered with an error status.
+         */
+        private final long errors;
+
+        /**
+         * number of bytes read.
+         */
+        private final long bytes;
+
+        /**
+         * accumulated latency in milliseconds.
+         */
+        private final long latency;
+
+        /**
+         * accumulated read time in milliseconds.
+         */
+        private final long readTime;
+
+        /**
+         * number of requests per latency bucket.
+         */
+        private final long[] latencyHistogram;
+
+        /**
+         * Create the statistics from the given endpoint metrics.
+         * 
+         * @param metrics
+         *            metrics of endpoint.
+         */
+        EndpointStatistics(final EndpointMetrics metrics) {
+            name = metrics.getEndpoint().name();
+            description = metrics.getEndpoint().toString();
+            requests = metrics.getRequests();
+            errors = metrics.getErrors();
+            bytes = metrics.getBytes();
+            latency = metrics.getLatency();
+            readTime = metrics.getReadTime();
+            latencyHistogram = metrics.getLatencyHistogram();
+        }
+
+        /**
+         * Returns the name of the endpoint.
+         * 
+         * @return the name of the endpoint.
+         */
+        @Exported
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the description of the endpoint.
+         * 
+         * @return the description of the endpoint.
+         */
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * Returns the number of requests.
+         * 
+         * @return the number of requests.
+         */
+        @Exported
+        public long getRequests() {
+            return requests;
+        }
+
+        /**
+         * Returns the number of requests that failed or were answered with an error status.
+         * 
+         * @return the number of failed requests.
+         */
+        @Exported
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * Returns the number of bytes read.
+         * 
+         * @return the number of bytes read.
+         */
+        @Exported
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Returns the accumulated latency (time until the DTR answered) of all requests.
+         * 
+         * @return the accumulated latency in milliseconds.
+         */
+        @Exported
+        public long getLatency() {
+            return latency;
+        }
+
+        /**
+         * Returns the accumulated time spent reading (transferring and parsing) pages.
+         * 
+         * @return the accumulated read time in milliseconds.
+         */
+        @Exported
+        public long getReadTime() {
+            return readTime;
+        }
+
+        /**
+         * Returns the average latency of a request.
+         * 
+         * @return the average latency of a request in milliseconds.
+         */
+        @Exported
+        public long getAverageLatency() {
+            return requests == 0 ? 0 : latency / requests;
+        }
+
+        /**
+         * Returns the average time spent reading a page.
+         * 
+         * @return the average read time of a page in milliseconds.
+         */
+        @Exported
+        public long getAverageReadTime() {
+            return requests == 0 ? 0 : readTime / requests;
+        }
+
+        /**
+         * Returns the number of requests per latency bucket (see {@link DtrRequestMetricsAction#getLatencyBounds()}).
+         * 
+         * @return the number of requests per latency bucket.
+         */
+        @Exported
+        public long[] getLatencyHistogram() {
+            return latencyHistogram.clone();
+        }
+    }
+}
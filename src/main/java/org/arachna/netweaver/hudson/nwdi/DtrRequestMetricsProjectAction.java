@@ -0,0 +1,177 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import hudson.model.Action;
+import hudson.util.ChartUtil.NumberOnlyBuildLabel;
+import hudson.util.DataSetBuilder;
+import hudson.util.Graph;
+import hudson.util.ShiftedCategoryAxis;
+
+import java.awt.Color;
+import java.io.IOException;
+
+import org.arachna.netweaver.hudson.nwdi.DtrRequestMetricsAction.EndpointStatistics;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.CategoryAxis;
+import org.jfree.chart.axis.CategoryLabelPositions;
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.PlotOrientation;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * Shows the trend of the average latency of the requests sent to the DTR across the builds of a project.
+ * 
+ * @author Dirk Weigenand
+ */
+public final class DtrRequestMetricsProjectAction implements Action {
+    /**
+     * maximum number of builds shown in trend.
+     */
+    private static final int MAX_BUILDS = 30;
+
+    /**
+     * width of trend graph.
+     */
+    private static final int WIDTH = 500;
+
+    /**
+     * height of trend graph.
+     */
+    private static final int HEIGHT = 200;
+
+    /**
+     * the project whose builds should be shown.
+     */
+    private final NWDIProject project;
+
+    /**
+     * Create a trend action for the given project.
+     * 
+     * @param project
+     *            the project whose builds should be shown.
+     */
+    DtrRequestMetricsProjectAction(final NWDIProject project) {
+        this.project = project;
+    }
+
+    /**
+     * No icon, the trend is shown on the project page only.
+     * 
+     * {@inheritDoc}
+     */
+    public String getIconFileName() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getDisplayName() {
+        return Messages.DtrRequestMetricsAction_displayName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getUrlName() {
+        return DtrRequestMetricsAction.URL_NAME;
+    }
+
+    /**
+     * Returns whether there are builds with DTR request metrics to show.
+     * 
+     * @return <code>true</code> when there are builds with DTR request metrics, <code>false</code> otherwise.
+     */
+    public boolean hasTrend() {
+        return getLastBuildWithMetrics() != null;
+    }
+
+    /**
+     * Render the trend of the average latency of the requests per endpoint as PNG.
+     * 
+     * @param request
+     *            the request.
+     * @param response
+     *            the response.
+     * @throws IOException
+     *             when writing the image fails.
+     */
+    public void doTrend(final StaplerRequest request, final StaplerResponse response) throws IOException {
+        final NWDIBuild lastBuild = getLastBuildWithMetrics();
+
+        if (lastBuild == null) {
+            response.setStatus(StaplerResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        new Graph(lastBuild.getTimestamp(), WIDTH, HEIGHT) {
+            @Override
+            protected JFreeChart createGraph() {
+                return createChart(lastBuild);
+            }
+        }.doPng(request, response);
+    }
+
+    /**
+     * Returns the last build having DTR request metrics.
+     * 
+     * @return the last build having DTR request metrics or <code>null</code> if there is none.
+     */
+    private NWDIBuild getLastBuildWithMetrics() {
+        NWDIBuild build = project.getLastBuild();
+
+        while (build != null && build.getAction(DtrRequestMetricsAction.class) == null) {
+            build = build.getPreviousBuild();
+        }
+
+        return build;
+    }
+
+    /**
+     * Create the chart showing the average latency per endpoint of the builds up to the given one.
+     * 
+     * @param lastBuild
+     *            the last build to show.
+     * @return the chart showing the average latency per endpoint.
+     */
+    private JFreeChart createChart(final NWDIBuild lastBuild) {
+        final DataSetBuilder<String, NumberOnlyBuildLabel> dataSet = new DataSetBuilder<String, NumberOnlyBuildLabel>();
+        int count = 0;
+
+        for (NWDIBuild build = lastBuild; build != null && count < MAX_BUILDS; build = build.getPreviousBuild()) {
+            final DtrRequestMetricsAction action = build.getAction(DtrRequestMetricsAction.class);
+
+            if (action != null) {
+                for (final EndpointStatistics endpoint : action.getEndpoints()) {
+                    dataSet.add(endpoint.getAverageLatency(), endpoint.getDescription(), new NumberOnlyBuildLabel(build));
+                }
+
+                count++;
+            }
+        }
+
+        final JFreeChart chart =
+            ChartFactory.createLineChart(null, null, Messages.DtrRequestMetricsProjectAction_latency_axis(), dataSet.build(),
+                PlotOrientation.VERTICAL, true, true, false);
+        chart.setBackgroundPaint(Color.WHITE);
+
+        final CategoryPlot plot = chart.getCategoryPlot();
+        plot.setBackgroundPaint(Color.WHITE);
+        plot.setOutlinePaint(null);
+        plot.setRangeGridlinesVisible(true);
+        plot.setRangeGridlinePaint(Color.BLACK);
+
+        final CategoryAxis domainAxis = new ShiftedCategoryAxis(null);
+        plot.setDomainAxis(domainAxis);
+        domainAxis.setCategoryLabelPositions(CategoryLabelPositions.UP_90);
+        domainAxis.setLowerMargin(0.0);
+        domainAxis.setUpperMargin(0.0);
+        domainAxis.setCategoryMargin(0.0);
+
+        return chart;
+    }
+}
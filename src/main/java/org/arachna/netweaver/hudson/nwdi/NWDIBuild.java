@@ -17,13 +17,17 @@ import hudson.tasks.Builder;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 
 import javax.annotation.Nonnull;
@@ -36,13 +40,15 @@ import org.arachna.netweaver.dc.types.Compartment;
 import org.arachna.netweaver.dc.types.CompartmentState;
 import org.arachna.netweaver.dc.types.DevelopmentComponent;
 import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.DevelopmentComponentGraph;
 import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
 import org.arachna.netweaver.dc.types.IDevelopmentComponentFilter;
+import org.arachna.netweaver.dc.types.RebuildImpactIndex;
 import org.arachna.netweaver.hudson.nwdi.DCBuildResultParser.BuildResults;
-import org.arachna.netweaver.hudson.nwdi.TopoSortResult.CircularDependency;
 import org.arachna.netweaver.hudson.nwdi.changelog.DtrChangeLogParser;
 import org.arachna.netweaver.hudson.util.FilePathHelper;
 import org.arachna.netweaver.tools.DIToolCommandExecutionResult;
+import org.arachna.netweaver.tools.DIToolOutputListener;
 import org.arachna.netweaver.tools.cbs.CBSToolCommandExecutor;
 import org.arachna.netweaver.tools.dc.DCToolCommandExecutor;
 
@@ -52,6 +58,16 @@ import org.arachna.netweaver.tools.dc.DCToolCommandExecutor;
  * @author Dirk Weigenand
  */
 public final class NWDIBuild extends AbstractBuild<NWDIProject, NWDIBuild> {
+    /**
+     * folder in workspace containing the build results of development components keyed by the digests of their inputs.
+     */
+    private static final String BUILD_CACHE_FOLDER = ".dcbuildcache";
+
+    /**
+     * number of bytes in a megabyte.
+     */
+    private static final long MEGA_BYTE = 1024L * 1024L;
+
     /**
      * the development configuration this build will process.
      */
@@ -62,11 +78,42 @@ public final class NWDIBuild extends AbstractBuild<NWDIProject, NWDIBuild> {
      */
     private final transient DevelopmentComponentFactory dcFactory = new DevelopmentComponentFactory();
 
+    /**
+     * record of the dependency graph used to determine the development components to rebuild (persisted with this build).
+     */
+    private RebuildImpactRecord rebuildImpactRecord;
+
     /**
      * development components affected by activities leading to this build.
      */
     private transient Collection<DevelopmentComponent> affectedComponents;
 
+    /**
+     * development components affected by activities leading to this build grouped into waves that can be built concurrently.
+     */
+    private transient List<List<DevelopmentComponent>> affectedComponentWaves;
+
+    /**
+     * dependency graph of the development components of the development configuration.
+     */
+    private transient DevelopmentComponentGraph dependencyGraph;
+
+    /**
+     * development components changed by activities leading to this build (the affected components without those using them).
+     */
+    private transient Set<DevelopmentComponent> changedComponents;
+
+    /**
+     * executor keeping a dctool process alive throughout checkout and build (<code>null</code> when each execution launches a dctool
+     * process of its own).
+     */
+    private transient DCToolCommandExecutor dcToolExecutor;
+
+    /**
+     * store of development components in archive state whose entries this build leases (<code>null</code> when no store is used).
+     */
+    private transient ArchiveDCStore archiveStore;
+
     /**
      * Factory for generating ant excludes based on development component type.
      */
@@ -147,17 +194,28 @@ public final class NWDIBuild extends AbstractBuild<NWDIProject, NWDIBuild> {
             // update usage relations from public part references.
             dcFactory.updateUsingDCs();
 
-            final TopoSort topoSort = new TopoSort(dcFactory, logger);
+            changedComponents = new HashSet<DevelopmentComponent>(components);
+
+            final TopoSort topoSort = new TopoSort(dcFactory, getDevelopmentConfiguration().getVersion(), logger);
             final TopoSortResult topoSortResult = topoSort.sort(components);
             affectedComponents = topoSortResult.getDevelopmentComponents();
+            affectedComponentWaves = topoSortResult.getWaves();
+            final RebuildImpactIndex index = dcFactory.getRebuildImpactIndex(getDevelopmentConfiguration().getVersion());
+            dependencyGraph = index.getGraph();
+            rebuildImpactRecord = RebuildImpactRecord.create(index);
 
             // Log circular dependencies to build logger.
-            if (logger != null && !topoSortResult.getCircularDependencies().isEmpty()) {
-                final StringBuilder dependencies = new StringBuilder("There are circular dependencies in this track:");
+            if (logger != null && !topoSortResult.getCycles().isEmpty()) {
+                final StringBuilder dependencies = new StringBuilder("There are circular dependencies in this track:\n");
 
-                for (final CircularDependency dependency : topoSortResult.getCircularDependencies()) {
-                    dependencies.append(String.format("  %s:%s has circular dependency to %s:%s.\n", dependency.getComponent().getVendor(),
-                        dependency.getComponent().getName(), dependency.getDependency().getVendor(), dependency.getDependency().getName()));
+                for (final List<DevelopmentComponent> cycle : topoSortResult.getCycles()) {
+                    dependencies.append(" ");
+
+                    for (final DevelopmentComponent component : cycle) {
+                        dependencies.append(String.format(" %s:%s", component.getVendor(), component.getName()));
+                    }
+
+                    dependencies.append('\n');
                 }
 
                 logger.println(dependencies.toString());
@@ -234,6 +292,45 @@ public final class NWDIBuild extends AbstractBuild<NWDIProject, NWDIBuild> {
         return dcFactory;
     }
 
+    /**
+     * Returns the reachability index answering which development components must be rebuilt when others change. The index is created from
+     * the dependency graph recorded when this build determined the development components to rebuild (also after this build was loaded
+     * from disk).
+     *
+     * @return the reachability index over the development components of this build or <code>null</code> when this build did not record
+     *         a dependency graph.
+     */
+    public RebuildImpactIndex getRebuildImpactIndex() {
+        return rebuildImpactRecord == null ? null : rebuildImpactRecord.getRebuildImpactIndex();
+    }
+
+    /**
+     * Determine the development components that must be rebuilt when the given development components change.
+     *
+     * @param components
+     *            the changed development components.
+     * @return the development components that must be rebuilt (empty when this build did not record a dependency graph).
+     */
+    public Collection<DevelopmentComponent> getImpactedDevelopmentComponents(final Collection<DevelopmentComponent> components) {
+        final RebuildImpactIndex index = getRebuildImpactIndex();
+
+        return index == null ? Collections.<DevelopmentComponent> emptyList() : index.getImpactedComponents(components);
+    }
+
+    /**
+     * Determine the development components that must be rebuilt when the named development components change. Exposed via the remote API
+     * as <code>rebuildImpact/&lt;names&gt;/api</code>.
+     *
+     * @param names
+     *            names of the changed development components ('vendor~name', separated by ',').
+     * @return the development components that must be rebuilt when the named ones change or <code>null</code> when this build did not
+     *         record a dependency graph.
+     */
+    public RebuildImpact getRebuildImpact(final String names) {
+        return rebuildImpactRecord == null ? null : RebuildImpact.create(rebuildImpactRecord.getRebuildImpactIndex(),
+            rebuildImpactRecord.getDevelopmentComponentFactory(), names);
+    }
+
     /**
      * Returns a factory for generating ant excludes based on development component type.
      *
@@ -253,7 +350,63 @@ public final class NWDIBuild extends AbstractBuild<NWDIProject, NWDIBuild> {
     DCToolCommandExecutor getDCToolExecutor(final Launcher launcher) {
         final DevelopmentConfiguration configuration = getDevelopmentConfiguration();
         final NWDIProject.DescriptorImpl descriptor = NWDIProject.DescriptorImpl.DESCRIPTOR;
-        return new DCToolCommandExecutor(launcher, getWorkspace(), descriptor.getDIToolDescriptor(), configuration);
+
+        if (!descriptor.isPersistentDcToolSession()) {
+            return new DCToolCommandExecutor(launcher, getWorkspace(), descriptor.getDIToolDescriptor(), configuration);
+        }
+
+        if (dcToolExecutor == null) {
+            dcToolExecutor = new DCToolCommandExecutor(launcher, getWorkspace(), descriptor.getDIToolDescriptor(), configuration);
+            dcToolExecutor.setPersistentSession(true);
+        }
+
+        return dcToolExecutor;
+    }
+
+    /**
+     * Exit the dctool process kept alive throughout checkout and build (if any).
+     *
+     * @throws IOException
+     *             re-thrown from dctool execution
+     * @throws InterruptedException
+     *             re-thrown from dctool execution
+     */
+    void closeDCToolSession() throws IOException, InterruptedException {
+        if (dcToolExecutor != null) {
+            try {
+                dcToolExecutor.closeSession();
+            }
+            finally {
+                dcToolExecutor = null;
+            }
+        }
+    }
+
+    /**
+     * Set the store of development components in archive state whose entries this build leases until it has finished.
+     *
+     * @param archiveStore
+     *            store of development components in archive state linked into the workspace.
+     */
+    void setArchiveDCStore(final ArchiveDCStore archiveStore) {
+        this.archiveStore = archiveStore;
+    }
+
+    /**
+     * Release the leases on the entries of the store of development components in archive state (if any).
+     *
+     * @throws IOException
+     *             when releasing a lease fails.
+     */
+    void releaseArchiveDCStore() throws IOException {
+        if (archiveStore != null) {
+            try {
+                archiveStore.releaseLeases();
+            }
+            finally {
+                archiveStore = null;
+            }
+        }
     }
 
     /**
@@ -305,9 +458,14 @@ public final class NWDIBuild extends AbstractBuild<NWDIProject, NWDIBuild> {
                 result = Result.FAILURE;
             }
 
-            if (Result.SUCCESS.equals(result)) {
-                result = buildDevelopmentComponents(listener.getLogger()).isExitCodeOk() ? Result.SUCCESS : Result.UNSTABLE;
-                updateSourceCodeLocations(antHelper);
+            try {
+                if (Result.SUCCESS.equals(result)) {
+                    result = buildDevelopmentComponents(listener.getLogger()).isExitCodeOk() ? Result.SUCCESS : Result.UNSTABLE;
+                    updateSourceCodeLocations(antHelper);
+                }
+            }
+            finally {
+                closeDCToolSession();
             }
 
             if ((Result.SUCCESS.equals(result) || Result.UNSTABLE.equals(result)) && !build(project.getBuilders(), antHelper)) {
@@ -345,6 +503,145 @@ public final class NWDIBuild extends AbstractBuild<NWDIProject, NWDIBuild> {
             return true;
         }
 
+        /**
+         * Order the given development components the way they are built (wave by wave).
+         *
+         * @param componentsToBuild
+         *            the development components to build.
+         * @return the given development components in build order.
+         */
+        private Collection<DevelopmentComponent> getComponentsInBuildOrder(final Collection<DevelopmentComponent> componentsToBuild) {
+            final Set<DevelopmentComponent> remaining = new HashSet<DevelopmentComponent>(componentsToBuild);
+            final List<DevelopmentComponent> components = new ArrayList<DevelopmentComponent>(componentsToBuild.size());
+
+            for (final List<DevelopmentComponent> wave : affectedComponentWaves) {
+                for (final DevelopmentComponent component : wave) {
+                    if (remaining.remove(component)) {
+                        components.add(component);
+                    }
+                }
+            }
+
+            components.addAll(remaining);
+
+            return components;
+        }
+
+        /**
+         * Build the waves of the given development components in the given number of concurrent dctool sessions. With early cutoff
+         * components whose inputs did not change are not built.
+         *
+         * @param logger
+         *            logger to log build messages
+         * @param sessions
+         *            maximum number of dctool sessions to run concurrently.
+         * @param componentsInBuild
+         *            the affected development components to build.
+         * @param failedComponents
+         *            collects the development components whose build failed or was skipped.
+         * @param builtComponents
+         *            collects the development components dctool reported as built successfully.
+         * @param fingerprints
+         *            fingerprints of the public parts recorded before building for early cutoff (<code>null</code> when disabled).
+         * @param restoredComponents
+         *            affected development components whose build results were restored from the build cache.
+         * @param markers
+         *            markers recording which development components were built successfully (restored for components kept up to date).
+         * @param progress
+         *            progress of building the development components to update from the output of the dctool sessions.
+         * @return merged result of the dctool sessions
+         * @throws IOException
+         *             re-thrown from executing the DC build
+         * @throws InterruptedException
+         *             re-thrown from executing the DC build
+         */
+        private DIToolCommandExecutionResult buildDevelopmentComponentsInParallel(final PrintStream logger, final int sessions,
+            final Collection<DevelopmentComponent> componentsInBuild, final Collection<DevelopmentComponent> failedComponents,
+            final Collection<DevelopmentComponent> builtComponents, final PublicPartFingerprints fingerprints, final Collection<DevelopmentComponent> restoredComponents,
+            final DCBuildSuccessMarkers markers, final DCBuildProgressAction progress) throws IOException, InterruptedException {
+            final DCToolCommandExecutor executor = getDCToolExecutor(launcher);
+            final ParallelDCBuilder builder =
+                new ParallelDCBuilder(getDevelopmentConfiguration(), dependencyGraph, sessions, new File(
+                    FilePathHelper.makeAbsolute(getWorkspace())), logger);
+            final Set<DevelopmentComponent> componentsToBuild = new HashSet<DevelopmentComponent>(componentsInBuild);
+
+            if (fingerprints != null) {
+                builder.setEarlyCutoff(fingerprints, changedComponents, restoredComponents);
+            }
+
+            final DCBuildDurations durations = ((NWDIProject)getProject()).getDCBuildDurations();
+
+            if (!durations.isEmpty()) {
+                builder.setEstimatedDurations(durations.getEstimates(componentsInBuild));
+            }
+            final List<List<DevelopmentComponent>> waves = new ArrayList<List<DevelopmentComponent>>();
+
+            for (final List<DevelopmentComponent> wave : affectedComponentWaves) {
+                final List<DevelopmentComponent> remaining = new ArrayList<DevelopmentComponent>(wave);
+                remaining.retainAll(componentsToBuild);
+
+                if (!remaining.isEmpty()) {
+                    waves.add(remaining);
+                }
+            }
+
+            final DIToolCommandExecutionResult result = builder.build(waves, new ParallelDCBuilder.DCToolSession() {
+                @Override
+                public DIToolCommandExecutionResult build(final String name, final Collection<DevelopmentComponent> components,
+                    final OutputStream output, final DIToolOutputListener listener) throws IOException, InterruptedException {
+                    return executor.buildDevelopmentComponents(components, name, output, listener, new DCBuildProgressListener(progress));
+                }
+            });
+
+            failedComponents.addAll(builder.getFailedComponents());
+            failedComponents.addAll(builder.getSkippedComponents());
+            builtComponents.addAll(builder.getBuiltComponents());
+            markers.mark(builder.getUpToDateComponents());
+
+            return result;
+        }
+
+        /**
+         * Build the given development components in a single dctool session.
+         *
+         * @param componentsToBuild
+         *            the development components to build.
+         * @param failedComponents
+         *            collects the development components whose build failed.
+         * @param builtComponents
+         *            collects the development components dctool reported as built successfully.
+         * @param progress
+         *            progress of building the development components to update from the output of the dctool session.
+         * @return result of the dctool session (exit code <code>1</code> when builds of development components failed).
+         * @throws IOException
+         *             re-thrown from executing the DC build
+         * @throws InterruptedException
+         *             re-thrown from executing the DC build
+         */
+        private DIToolCommandExecutionResult buildDevelopmentComponentsInOneSession(
+            final Collection<DevelopmentComponent> componentsToBuild, final Collection<DevelopmentComponent> failedComponents,
+            final Collection<DevelopmentComponent> builtComponents, final DCBuildProgressAction progress) throws IOException,
+            InterruptedException {
+            final DCBuildResultParser buildResultParser = new DCBuildResultParser(getDevelopmentConfiguration());
+            DIToolCommandExecutionResult result =
+                getDCToolExecutor(launcher).buildDevelopmentComponents(componentsToBuild, buildResultParser,
+                    new DCBuildProgressListener(progress));
+            final BuildResults buildResults = buildResultParser.getBuildResults();
+            failedComponents.addAll(buildResults.getDcsWithBuildErrors());
+            builtComponents.addAll(buildResults.getDcsBuiltSuccessfully());
+
+            if (buildResults.hasBuildErrors()) {
+                // any value other than 0 signifies an error
+                result = new DIToolCommandExecutionResult(result.getOutput(), 1);
+
+                // for (final DevelopmentComponent dcWithFailedBuild : buildResults.getDcsWithBuildErrors()) {
+                // nwdiBuild.addAction(new FailedBuildsAction(dcWithFailedBuild));
+                // }
+            }
+
+            return result;
+        }
+
         /**
          * build affected development components.
          *
@@ -367,23 +664,76 @@ public final class NWDIBuild extends AbstractBuild<NWDIProject, NWDIBuild> {
             final boolean dryRun = Boolean.getBoolean("nwdibuild.dry.run");
 
             if (!dryRun && !affectedComponents.isEmpty()) {
-                logger.println(Messages.NWDIBuild_building_development_components(affectedComponents.size()));
+                final NWDIProject.DescriptorImpl descriptor = NWDIProject.DescriptorImpl.DESCRIPTOR;
+                final AntHelper antHelper = new AntHelper(FilePathHelper.makeAbsolute(getWorkspace()), dcFactory);
+                Collection<DevelopmentComponent> componentsToBuild = affectedComponents;
+                DCBuildAvoidance buildAvoidance = null;
+                PublicPartFingerprints fingerprints = null;
+                final DCBuildSuccessMarkers markers = new DCBuildSuccessMarkers(antHelper);
+
+                if (descriptor.isEarlyCutoff()) {
+                    fingerprints = new PublicPartFingerprints(antHelper, dcFactory, markers);
+                    fingerprints.record(affectedComponents);
+                }
 
-                for (final DevelopmentComponent component : affectedComponents) {
-                    logger.println(component.getName());
+                if (descriptor.isBuildAvoidance()) {
+                    buildAvoidance =
+                        new DCBuildAvoidance(antHelper, dcFactory, DCInputDigester.describeToolchain(getDevelopmentConfiguration()
+                            .getBuildVariant(), descriptor.getConfiguredJdkHomePaths()), new DCBuildCache(new File(
+                            FilePathHelper.makeAbsolute(getWorkspace()), BUILD_CACHE_FOLDER), descriptor.getBuildCacheBudget()
+                            * MEGA_BYTE), logger);
+                    componentsToBuild = buildAvoidance.restore(affectedComponents);
                 }
 
-                result = getDCToolExecutor(launcher).buildDevelopmentComponents(affectedComponents);
-                final DCBuildResultParser buildResultParser = new DCBuildResultParser(nwdiBuild.getDevelopmentConfiguration());
-                final BuildResults buildResults = buildResultParser.parse(new StringReader(result.getOutput()));
+                final Collection<DevelopmentComponent> restoredComponents = new HashSet<DevelopmentComponent>(affectedComponents);
+                restoredComponents.removeAll(componentsToBuild);
+                markers.mark(restoredComponents);
+
+                if (!componentsToBuild.isEmpty()) {
+                    logger.println(Messages.NWDIBuild_building_development_components(componentsToBuild.size()));
+
+                    for (final DevelopmentComponent component : componentsToBuild) {
+                        logger.println(component.getName());
+                    }
+
+                    final Collection<DevelopmentComponent> failedComponents = new LinkedHashSet<DevelopmentComponent>();
+                    final Collection<DevelopmentComponent> builtComponents = new HashSet<DevelopmentComponent>();
+                    final DCBuildProgressAction progress = new DCBuildProgressAction(getComponentsInBuildOrder(componentsToBuild));
+                    nwdiBuild.addAction(progress);
+                    final int sessions = descriptor.getDcToolSessions();
+                    // build results left behind by a failed or interrupted build must not be taken for up to date ones
+                    markers.remove(componentsToBuild);
+
+                    try {
+                        if (sessions > 1 || fingerprints != null) {
+                            // the sessions parse their own output, the exit code already reports failed and skipped builds
+                            result =
+                                buildDevelopmentComponentsInParallel(logger, sessions, componentsToBuild, failedComponents,
+                                    builtComponents, fingerprints, restoredComponents, markers, progress);
+                        }
+                        else {
+                            result = buildDevelopmentComponentsInOneSession(componentsToBuild, failedComponents, builtComponents, progress);
+                        }
+                    }
+                    finally {
+                        progress.finish(System.currentTimeMillis());
+                        ((NWDIProject)getProject()).getDCBuildDurations().add(nwdiBuild.getNumber(), progress.getMeasuredDurations());
+                    }
 
-                if (buildResults.hasBuildErrors()) {
-                    // any value other than 0 signifies an error
-                    result = new DIToolCommandExecutionResult(result.getOutput(), 1);
+                    markers.mark(builtComponents);
 
-                    // for (final DevelopmentComponent dcWithFailedBuild : buildResults.getDcsWithBuildErrors()) {
-                    // nwdiBuild.addAction(new FailedBuildsAction(dcWithFailedBuild));
-                    // }
+                    if (buildAvoidance != null) {
+                        // only DCs reported as built have build results matching their input digests
+                        buildAvoidance.store(builtComponents);
+                    }
+
+                    if (!failedComponents.isEmpty()) {
+                        logger.println(Messages.NWDIBuild_failed_development_components(failedComponents.size()));
+
+                        for (final DevelopmentComponent component : failedComponents) {
+                            logger.println(String.format("%s:%s", component.getVendor(), component.getName()));
+                        }
+                    }
                 }
             }
 
@@ -454,9 +804,16 @@ public final class NWDIBuild extends AbstractBuild<NWDIProject, NWDIBuild> {
 
         @Override
         public void cleanUp(@Nonnull final BuildListener listener) throws Exception {
-            // at this point it's too late to mark the build as a failure, so ignore return value.
-            performAllBuildSteps(listener, project.getPublishersList(), false);
-            performAllBuildSteps(listener, project.getProperties(), false);
+            try {
+                // at this point it's too late to mark the build as a failure, so ignore return value.
+                performAllBuildSteps(listener, project.getPublishersList(), false);
+                performAllBuildSteps(listener, project.getProperties(), false);
+            }
+            finally {
+                // publishers may still read development components in archive state
+                releaseArchiveDCStore();
+            }
+
             super.cleanUp(listener);
         }
     }
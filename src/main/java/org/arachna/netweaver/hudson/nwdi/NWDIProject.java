@@ -10,6 +10,7 @@ import hudson.Util;
 import hudson.model.Action;
 import hudson.model.BuildListener;
 import hudson.model.BuildableItemWithBuildWrappers;
+import hudson.model.Computer;
 import hudson.model.DependencyGraph;
 import hudson.model.Item;
 import hudson.model.ItemGroup;
@@ -36,11 +37,12 @@ import hudson.util.ListBoxModel;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.StringReader;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -52,9 +54,15 @@ import net.sf.json.JSONObject;
 import org.apache.commons.lang.StringUtils;
 import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
 import org.arachna.netweaver.dc.types.JdkHomePaths;
+import org.arachna.netweaver.hudson.dtr.browser.ActivityStore;
+import org.arachna.netweaver.hudson.dtr.browser.DtrBrowser;
+import org.arachna.netweaver.hudson.dtr.browser.DtrConnectionSettings;
+import org.arachna.netweaver.hudson.dtr.browser.DtrHttpTransports;
 import org.arachna.netweaver.tools.DIToolCommandExecutionResult;
 import org.arachna.netweaver.tools.DIToolDescriptor;
 import org.arachna.netweaver.tools.cbs.CBSToolCommandExecutor;
+import org.arachna.netweaver.tools.cbs.DCListSnapshot;
+import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
@@ -76,6 +84,37 @@ public class NWDIProject extends AbstractProject<NWDIProject, NWDIBuild> impleme
      */
     private static final String PARAMETER_CLEAN_COPY = "cleanCopy";
 
+    /**
+     * name of file in project folder containing the activities already read from the DTR.
+     */
+    private static final String ACTIVITY_STORE = "dtr-activities.dat";
+
+    /**
+     * name of file in project folder containing the history of the build durations of the development components.
+     */
+    private static final String DC_BUILD_DURATIONS = "dc-build-durations.dat";
+
+    /**
+     * name of file in project folder containing the development components listed by the cbstool for the current configuration version.
+     */
+    private static final String DC_LIST_SNAPSHOT = "dc-list.txt";
+
+    /**
+     * name of file in project folder containing the development configuration used by the last build.
+     */
+    private static final String DEVELOPMENT_CONFIGURATION_CACHE = "confdef.xml";
+
+    /**
+     * name of folder in project folder the development configuration is downloaded to when polling.
+     */
+    private static final String POLLING_FOLDER = "polling";
+
+    /**
+     * workspace folders of the software components listed in the DTR when this project was polled last (<code>null</code> when it was
+     * not polled yet).
+     */
+    private transient Set<String> listedWorkspaces;
+
     /**
      * Name of build space in NWDI.
      */
@@ -103,6 +142,21 @@ public class NWDIProject extends AbstractProject<NWDIProject, NWDIBuild> impleme
     private final DescribableList<BuildWrapper, Descriptor<BuildWrapper>> buildWrappers =
         new DescribableList<BuildWrapper, Descriptor<BuildWrapper>>(this);
 
+    /**
+     * store for activities already read from the DTR.
+     */
+    private transient ActivityStore activityStore;
+
+    /**
+     * history of the build durations of the development components.
+     */
+    private transient DCBuildDurations dcBuildDurations;
+
+    /**
+     * snapshot of the development components listed by the cbstool.
+     */
+    private transient DCListSnapshot dcListSnapshot;
+
     /**
      * Create an instance of a NWDI project.
      * 
@@ -186,6 +240,7 @@ public class NWDIProject extends AbstractProject<NWDIProject, NWDIBuild> impleme
         }
 
         updateDevelopmentConfiguration(logger, dtcFolder);
+        cacheDevelopmentConfiguration(dtcFolder);
 
         final DevelopmentConfiguration developmentConfiguration = nwdiBuild.getDevelopmentConfiguration();
         logger.println(Messages.NWDIProject_new_development_configuration_version(developmentConfiguration.getVersion()));
@@ -209,14 +264,132 @@ public class NWDIProject extends AbstractProject<NWDIProject, NWDIBuild> impleme
      */
     void updateDevelopmentConfiguration(final PrintStream logger, final FilePath dtcFolder) throws IOException, InterruptedException {
         logger.println(Messages.NWDIProject_updating_development_configuration());
+        final DescriptorImpl descriptor = getDescriptor();
         final DIToolCommandExecutionResult result =
-            getDescriptor().createCBSToolExecutor(dtcFolder).updateDevelopmentConfiguration(buildSpaceName, ".confdef");
+            descriptor.createCBSToolExecutor(dtcFolder, descriptor.getCbsUrl()).updateDevelopmentConfiguration(buildSpaceName, ".confdef");
 
         if (!result.isExitCodeOk()) {
             logger.println(result.getOutput());
         }
     }
 
+    /**
+     * Keep a copy of the development configuration in the given '.dtc' folder in the project folder. Polling uses this copy instead of
+     * downloading the development configuration again.
+     * 
+     * @param dtcFolder
+     *            the {@link FilePath} to the '.dtc' folder containing the development configuration.
+     * @throws IOException
+     *             when copying the development configuration failed
+     * @throws InterruptedException
+     *             when the operation was interrupted
+     */
+    void cacheDevelopmentConfiguration(final FilePath dtcFolder) throws IOException, InterruptedException {
+        final FilePath confDef = dtcFolder.child(".confdef");
+
+        if (confDef.exists()) {
+            confDef.copyTo(new FilePath(new File(getRootDir(), DEVELOPMENT_CONFIGURATION_CACHE)));
+        }
+    }
+
+    /**
+     * Returns the development configuration kept in the project folder by the last build (or poll).
+     * 
+     * @return the cached development configuration or <code>null</code> when none was kept yet.
+     * @throws IOException
+     *             when reading the development configuration failed
+     */
+    DevelopmentConfiguration getCachedDevelopmentConfiguration() throws IOException {
+        final File cache = new File(getRootDir(), DEVELOPMENT_CONFIGURATION_CACHE);
+
+        if (!cache.exists()) {
+            return null;
+        }
+
+        return new ConfDefReader().execute(new StringReader(new FilePath(cache).readToString()));
+    }
+
+    /**
+     * Download the development configuration from the CBS into the project folder and keep it for polling. No workspace is required.
+     * 
+     * @param logger
+     *            logger for logging the update message.
+     * @return the downloaded development configuration or <code>null</code> when it could not be downloaded.
+     * @throws IOException
+     *             when the update failed
+     * @throws InterruptedException
+     *             when the operation was interrupted
+     */
+    DevelopmentConfiguration updateCachedDevelopmentConfiguration(final PrintStream logger) throws IOException, InterruptedException {
+        final FilePath pollingFolder = new FilePath(new File(getRootDir(), POLLING_FOLDER));
+        pollingFolder.mkdirs();
+        pollingFolder.child(".confdef").delete();
+
+        updateDevelopmentConfiguration(logger, pollingFolder);
+        cacheDevelopmentConfiguration(pollingFolder);
+
+        return getCachedDevelopmentConfiguration();
+    }
+
+    /**
+     * Returns the workspace folders of the software components listed in the DTR when this project was polled last.
+     * 
+     * @return the workspace folders of the software components listed in the DTR when this project was polled last (<code>null</code>
+     *         when it was not polled yet).
+     */
+    Set<String> getListedWorkspaces() {
+        return listedWorkspaces;
+    }
+
+    /**
+     * Set the workspace folders of the software components listed in the DTR when this project was polled.
+     * 
+     * @param listedWorkspaces
+     *            the workspace folders of the software components listed in the DTR.
+     */
+    void setListedWorkspaces(final Set<String> listedWorkspaces) {
+        this.listedWorkspaces = listedWorkspaces;
+    }
+
+    /**
+     * Returns the store for activities already read from the DTR. The store is kept in the project folder.
+     * 
+     * @return store for activities already read from the DTR.
+     */
+    synchronized ActivityStore getActivityStore() {
+        if (activityStore == null) {
+            activityStore = new ActivityStore(new File(getRootDir(), ACTIVITY_STORE));
+        }
+
+        return activityStore;
+    }
+
+    /**
+     * Returns the history of the build durations of the development components. The history is kept in the project folder.
+     * 
+     * @return history of the build durations of the development components.
+     */
+    synchronized DCBuildDurations getDCBuildDurations() {
+        if (dcBuildDurations == null) {
+            dcBuildDurations = new DCBuildDurations(new File(getRootDir(), DC_BUILD_DURATIONS));
+        }
+
+        return dcBuildDurations;
+    }
+
+    /**
+     * Returns the snapshot of the development components listed by the cbstool. The snapshot is kept in the project folder.
+     * 
+     * @return snapshot of the development components listed by the cbstool.
+     */
+    synchronized DCListSnapshot getDCListSnapshot() {
+        if (dcListSnapshot == null) {
+            dcListSnapshot = new DCListSnapshot(new File(getRootDir(), DC_LIST_SNAPSHOT));
+        }
+
+        return dcListSnapshot;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -309,6 +482,9 @@ public class NWDIProject extends AbstractProject<NWDIProject, NWDIBuild> impleme
             r.addAll(trigger.getProjectActions());
         }
 
+        r.add(new DtrRequestMetricsProjectAction(this));
+        r.add(new DCBuildDurationsProjectAction(this));
+
         return r;
     }
 
@@ -354,6 +530,21 @@ public class NWDIProject extends AbstractProject<NWDIProject, NWDIBuild> impleme
          */
         private static final String DC_SUB_FOLDER = "dc";
 
+        /**
+         * default number of dctool sessions to build development components with.
+         */
+        private static final int DEFAULT_DC_TOOL_SESSIONS = 1;
+
+        /**
+         * default maximum size of the archive store in megabytes.
+         */
+        private static final int DEFAULT_ARCHIVE_STORE_BUDGET = 10240;
+
+        /**
+         * default maximum size of the build cache in megabytes.
+         */
+        private static final int DEFAULT_BUILD_CACHE_BUDGET = 2048;
+
         /**
          * UME user to use when connecting to NWDI.
          */
@@ -384,11 +575,82 @@ public class NWDIProject extends AbstractProject<NWDIProject, NWDIBuild> impleme
          */
         private String cbsUrl;
 
+        /**
+         * maximum number of concurrent requests to the DTR.
+         */
+        private int dtrRequestParallelism = DtrBrowser.DEFAULT_PARALLELISM;
+
+        /**
+         * maximum number of connections kept open per DTR server.
+         */
+        private int dtrMaxConnectionsPerRoute = DtrConnectionSettings.DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+
+        /**
+         * number of seconds an unused connection to a DTR server is kept open.
+         */
+        private int dtrConnectionIdleTimeout = DtrConnectionSettings.DEFAULT_IDLE_TIMEOUT;
+
+        /**
+         * whether compressed responses should be requested from the DTR.
+         */
+        private boolean dtrCompression = true;
+
+        /**
+         * whether DTR pages already read should be requested conditionally.
+         */
+        private boolean dtrConditionalRequests = true;
+
+        /**
+         * maximum number of dctool sessions to build development components with concurrently.
+         */
+        private int dcToolSessions = DEFAULT_DC_TOOL_SESSIONS;
+
+        /**
+         * whether build results of development components with unchanged inputs should be restored from the build cache.
+         */
+        private boolean buildAvoidance;
+
+        /**
+         * maximum size of the build cache in a workspace in megabytes.
+         */
+        private int buildCacheBudget = DEFAULT_BUILD_CACHE_BUDGET;
+
+        /**
+         * whether development components should be rebuilt only when public parts they use changed by rebuilding.
+         */
+        private boolean earlyCutoff;
+
+        /**
+         * folder on the nodes where development components in archive state are stored for all workspaces (none when empty).
+         */
+        private String archiveStoreFolder;
+
+        /**
+         * maximum size of the archive store in megabytes.
+         */
+        private int archiveStoreBudget = DEFAULT_ARCHIVE_STORE_BUDGET;
+
+        /**
+         * whether one dctool process should be kept alive throughout checkout and build.
+         */
+        private boolean persistentDcToolSession;
+
+        /**
+         * number of minutes the names of build spaces listed using the cbstool are kept.
+         */
+        private int buildSpaceNamesTimeToLive = BuildSpaceNamesCache.DEFAULT_TIME_TO_LIVE;
+
+        /**
+         * names of build spaces listed using the cbstool in the background.
+         */
+        private transient BuildSpaceNamesCache buildSpaceNamesCache;
+
         /**
          * Create descriptor for NWDI-Projects and load global configuration data.
          */
         public DescriptorImpl() {
             load();
+            DtrHttpTransports.configure(getDtrConnectionSettings());
         }
 
         /**
@@ -493,8 +755,24 @@ public class NWDIProject extends AbstractProject<NWDIProject, NWDIBuild> impleme
             user = Util.fixNull(json.getString("user"));
             password = Util.fixNull(json.getString("password"));
             cbsUrl = Util.fixNull(json.getString("cbsUrl"));
+            dtrRequestParallelism = json.optInt("dtrRequestParallelism", DtrBrowser.DEFAULT_PARALLELISM);
+            dtrMaxConnectionsPerRoute =
+                json.optInt("dtrMaxConnectionsPerRoute", DtrConnectionSettings.DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+            dtrConnectionIdleTimeout = json.optInt("dtrConnectionIdleTimeout", DtrConnectionSettings.DEFAULT_IDLE_TIMEOUT);
+            dtrCompression = json.optBoolean("dtrCompression", true);
+            dtrConditionalRequests = json.optBoolean("dtrConditionalRequests", true);
+            dcToolSessions = json.optInt("dcToolSessions", DEFAULT_DC_TOOL_SESSIONS);
+            buildAvoidance = json.optBoolean("buildAvoidance", false);
+            buildCacheBudget = json.optInt("buildCacheBudget", DEFAULT_BUILD_CACHE_BUDGET);
+            earlyCutoff = json.optBoolean("earlyCutoff", false);
+            archiveStoreFolder = Util.fixNull(json.optString("archiveStoreFolder"));
+            archiveStoreBudget = json.optInt("archiveStoreBudget", DEFAULT_ARCHIVE_STORE_BUDGET);
+            persistentDcToolSession = json.optBoolean("persistentDcToolSession", false);
+            buildSpaceNamesTimeToLive = json.optInt("buildSpaceNamesTimeToLive", BuildSpaceNamesCache.DEFAULT_TIME_TO_LIVE);
+            getBuildSpaceNamesCache().setTimeToLive(getBuildSpaceNamesTimeToLive());
 
             save();
+            DtrHttpTransports.configure(getDtrConnectionSettings());
 
             return super.configure(req, json);
         }
@@ -614,6 +892,90 @@ public class NWDIProject extends AbstractProject<NWDIProject, NWDIBuild> impleme
             return result;
         }
 
+        /**
+         * Validate the 'dtrRequestParallelism' parameter.
+         * 
+         * @param value
+         *            the form value for the 'dtrRequestParallelism' field.
+         * @return the form validation value.
+         */
+        public FormValidation doDtrRequestParallelismCheck(@QueryParameter final String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+
+        /**
+         * Validate the 'dtrMaxConnectionsPerRoute' parameter.
+         * 
+         * @param value
+         *            the form value for the 'dtrMaxConnectionsPerRoute' field.
+         * @return the form validation value.
+         */
+        public FormValidation doDtrMaxConnectionsPerRouteCheck(@QueryParameter final String value) {
+            FormValidation result = FormValidation.validatePositiveInteger(value);
+
+            if (result.kind == FormValidation.Kind.OK && Integer.parseInt(value.trim()) < getDtrRequestParallelism()) {
+                result =
+                    FormValidation.warning(Messages.NWDIProject_dtr_connections_raised_to_parallelism(getDtrRequestParallelism()));
+            }
+
+            return result;
+        }
+
+        /**
+         * Validate the 'dtrConnectionIdleTimeout' parameter.
+         * 
+         * @param value
+         *            the form value for the 'dtrConnectionIdleTimeout' field.
+         * @return the form validation value.
+         */
+        public FormValidation doDtrConnectionIdleTimeoutCheck(@QueryParameter final String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+
+        /**
+         * Validate the 'dcToolSessions' parameter.
+         * 
+         * @param value
+         *            the form value for the 'dcToolSessions' field.
+         * @return the form validation value.
+         */
+        public FormValidation doDcToolSessionsCheck(@QueryParameter final String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+
+        /**
+         * Validate the 'buildCacheBudget' parameter.
+         * 
+         * @param value
+         *            the form value for the 'buildCacheBudget' field.
+         * @return the form validation value.
+         */
+        public FormValidation doBuildCacheBudgetCheck(@QueryParameter final String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+
+        /**
+         * Validate the 'archiveStoreBudget' parameter.
+         * 
+         * @param value
+         *            the form value for the 'archiveStoreBudget' field.
+         * @return the form validation value.
+         */
+        public FormValidation doArchiveStoreBudgetCheck(@QueryParameter final String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+
+        /**
+         * Validate the 'buildSpaceNamesTimeToLive' parameter.
+         * 
+         * @param value
+         *            the form value for the 'buildSpaceNamesTimeToLive' field.
+         * @return the form validation value.
+         */
+        public FormValidation doBuildSpaceNamesTimeToLiveCheck(@QueryParameter final String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+
         /**
          * Validate the 'user' parameter.
          * 
@@ -649,19 +1011,62 @@ public class NWDIProject extends AbstractProject<NWDIProject, NWDIBuild> impleme
         /**
          * Return a {@link ListBoxModel} containing names of build spaces to choose from.
          * 
+         * The names are taken from the cache of build space names and are listed in the background when they were not listed yet or are
+         * outdated. The build space configured for the project is always contained so it is kept while the names are being listed.
+         * 
+         * @param project
+         *            the project being configured (<code>null</code> when a new project is created).
          * @return list of (development) build spaces in NWDI.
          */
-        public ListBoxModel doFillBuildSpaceNameItems() {
+        public ListBoxModel doFillBuildSpaceNameItems(@AncestorInPath final NWDIProject project) {
             final ListBoxModel items = new ListBoxModel();
-            for (final String buildSpaceName : getBuildSpaceNames()) {
+            final List<String> buildSpaceNames = new LinkedList<String>(getBuildSpaceNamesCache().get(Util.fixNull(cbsUrl)));
+            final String configuredBuildSpaceName = project == null ? null : Util.fixEmpty(project.getBuildSpaceName());
+
+            if (configuredBuildSpaceName != null && !buildSpaceNames.contains(configuredBuildSpaceName)) {
+                buildSpaceNames.add(0, configuredBuildSpaceName);
+            }
+
+            for (final String buildSpaceName : buildSpaceNames) {
                 // build space names are of the form:
                 // [A-Z0-9]{3}_[A-Z-a-z0-9]+_D
-                items.add(buildSpaceName.split("_")[1], buildSpaceName);
+                final String[] parts = buildSpaceName.split("_");
+                items.add(parts.length > 1 ? parts[1] : buildSpaceName, buildSpaceName);
             }
 
             return items;
         }
 
+        /**
+         * Start listing the names of build spaces in the background regardless of whether the cached ones are outdated.
+         * 
+         * @return the form validation value telling the user to reload the page.
+         */
+        public FormValidation doRefreshBuildSpaceNames() {
+            Jenkins.getInstance().checkPermission(Item.CONFIGURE);
+            getBuildSpaceNamesCache().refresh(Util.fixNull(cbsUrl));
+
+            return FormValidation.ok(Messages.NWDIProject_build_space_names_refreshing());
+        }
+
+        /**
+         * Returns the cache of build space names listed using the cbstool.
+         * 
+         * @return the cache of build space names listed using the cbstool.
+         */
+        private synchronized BuildSpaceNamesCache getBuildSpaceNamesCache() {
+            if (buildSpaceNamesCache == null) {
+                buildSpaceNamesCache = new BuildSpaceNamesCache(new BuildSpaceNamesCache.Loader() {
+                    public Collection<String> load(final String cbsUrl) throws IOException, InterruptedException {
+                        return getBuildSpaceNames(cbsUrl);
+                    }
+                }, Computer.threadPoolForRemoting);
+                buildSpaceNamesCache.setTimeToLive(getBuildSpaceNamesTimeToLive());
+            }
+
+            return buildSpaceNamesCache;
+        }
+
         /**
          * determine the NWDI tool library folder to use (the 71+ one will be preferred).
          * 
@@ -689,29 +1094,18 @@ public class NWDIProject extends AbstractProject<NWDIProject, NWDIBuild> impleme
         /**
          * List names of build spaces using the CBS tool.
          * 
+         * @param cbsUrl
+         *            URL of the CBS to list the build spaces of.
          * @return a list of build spaces names retrieved from the CBS.
+         * @throws IOException
+         *             when executing the cbstool fails.
+         * @throws InterruptedException
+         *             when listing the build spaces was interrupted.
          */
-        private Collection<String> getBuildSpaceNames() {
+        private Collection<String> getBuildSpaceNames(final String cbsUrl) throws IOException, InterruptedException {
             final FilePath pwd = Jenkins.getInstance().createPath(System.getProperty("java.io.tmpdir"));
-            final CBSToolCommandExecutor executor = createCBSToolExecutor(pwd);
-            final List<String> buildSpaceNames = new LinkedList<String>();
 
-            try {
-                buildSpaceNames.addAll(executor.getBuildSpaceNames());
-            }
-            catch (final IOException e) {
-                Logger.getLogger(getClass().getName()).log(Level.SEVERE, e.getLocalizedMessage(), e);
-            }
-            catch (final InterruptedException e) {
-                // ignore
-            }
-            catch (final IllegalStateException e) {
-                Logger.getLogger(getClass().getName()).log(Level.SEVERE, e.getLocalizedMessage(), e);
-            }
-
-            Collections.sort(buildSpaceNames);
-
-            return buildSpaceNames;
+            return createCBSToolExecutor(pwd, cbsUrl).getBuildSpaceNames();
         }
 
         /**
@@ -722,10 +1116,12 @@ public class NWDIProject extends AbstractProject<NWDIProject, NWDIBuild> impleme
          * 
          * @param folder
          *            the folder the cbstool shall be executed in
+         * @param cbsUrl
+         *            URL of the CBS the cbstool shall connect to.
          * @return a <code>CBSToolCommandExecutor</code> that can be used to execute commands not related to a certain development
          *         configuration.
          */
-        private CBSToolCommandExecutor createCBSToolExecutor(final FilePath folder) {
+        private CBSToolCommandExecutor createCBSToolExecutor(final FilePath folder, final String cbsUrl) {
             final DevelopmentConfiguration configuration = new DevelopmentConfiguration("xxx");
             configuration.setCmsUrl(cbsUrl);
 
@@ -765,6 +1161,271 @@ public class NWDIProject extends AbstractProject<NWDIProject, NWDIBuild> impleme
         public void setCbsUrl(final String cbsUrl) {
             this.cbsUrl = cbsUrl;
         }
+
+        /**
+         * Returns the maximum number of requests executed concurrently against the DTR.
+         * 
+         * @return the maximum number of requests executed concurrently against the DTR.
+         */
+        public int getDtrRequestParallelism() {
+            return dtrRequestParallelism < 1 ? DtrBrowser.DEFAULT_PARALLELISM : dtrRequestParallelism;
+        }
+
+        /**
+         * Set the maximum number of requests executed concurrently against the DTR.
+         * 
+         * @param dtrRequestParallelism
+         *            the maximum number of requests executed concurrently against the DTR.
+         */
+        public void setDtrRequestParallelism(final int dtrRequestParallelism) {
+            this.dtrRequestParallelism = dtrRequestParallelism;
+        }
+
+        /**
+         * Returns the maximum number of connections kept open per DTR server.
+         * 
+         * @return the maximum number of connections kept open per DTR server.
+         */
+        public int getDtrMaxConnectionsPerRoute() {
+            return dtrMaxConnectionsPerRoute < 1 ? DtrConnectionSettings.DEFAULT_MAX_CONNECTIONS_PER_ROUTE : dtrMaxConnectionsPerRoute;
+        }
+
+        /**
+         * Set the maximum number of connections kept open per DTR server.
+         * 
+         * @param dtrMaxConnectionsPerRoute
+         *            the maximum number of connections kept open per DTR server.
+         */
+        public void setDtrMaxConnectionsPerRoute(final int dtrMaxConnectionsPerRoute) {
+            this.dtrMaxConnectionsPerRoute = dtrMaxConnectionsPerRoute;
+        }
+
+        /**
+         * Returns the number of seconds an unused connection to a DTR server is kept open.
+         * 
+         * @return the number of seconds an unused connection to a DTR server is kept open.
+         */
+        public int getDtrConnectionIdleTimeout() {
+            return dtrConnectionIdleTimeout < 1 ? DtrConnectionSettings.DEFAULT_IDLE_TIMEOUT : dtrConnectionIdleTimeout;
+        }
+
+        /**
+         * Set the number of seconds an unused connection to a DTR server is kept open.
+         * 
+         * @param dtrConnectionIdleTimeout
+         *            the number of seconds an unused connection to a DTR server is kept open.
+         */
+        public void setDtrConnectionIdleTimeout(final int dtrConnectionIdleTimeout) {
+            this.dtrConnectionIdleTimeout = dtrConnectionIdleTimeout;
+        }
+
+        /**
+         * Returns whether compressed responses should be requested from the DTR.
+         * 
+         * @return <code>true</code> when compressed responses should be requested from the DTR, <code>false</code> otherwise.
+         */
+        public boolean isDtrCompression() {
+            return dtrCompression;
+        }
+
+        /**
+         * Set whether compressed responses should be requested from the DTR.
+         * 
+         * @param dtrCompression
+         *            <code>true</code> when compressed responses should be requested from the DTR, <code>false</code> otherwise.
+         */
+        public void setDtrCompression(final boolean dtrCompression) {
+            this.dtrCompression = dtrCompression;
+        }
+
+        /**
+         * Returns whether DTR pages already read should be requested conditionally (using their ETag or modification date).
+         * 
+         * @return <code>true</code> when DTR pages already read should be requested conditionally, <code>false</code> otherwise.
+         */
+        public boolean isDtrConditionalRequests() {
+            return dtrConditionalRequests;
+        }
+
+        /**
+         * Set whether DTR pages already read should be requested conditionally (using their ETag or modification date).
+         * 
+         * @param dtrConditionalRequests
+         *            <code>true</code> when DTR pages already read should be requested conditionally, <code>false</code> otherwise.
+         */
+        public void setDtrConditionalRequests(final boolean dtrConditionalRequests) {
+            this.dtrConditionalRequests = dtrConditionalRequests;
+        }
+
+        /**
+         * Returns the maximum number of dctool sessions to build development components with concurrently.
+         * 
+         * @return the maximum number of dctool sessions to build development components with concurrently.
+         */
+        public int getDcToolSessions() {
+            return dcToolSessions < 1 ? DEFAULT_DC_TOOL_SESSIONS : dcToolSessions;
+        }
+
+        /**
+         * Set the maximum number of dctool sessions to build development components with concurrently.
+         * 
+         * @param dcToolSessions
+         *            the maximum number of dctool sessions to build development components with concurrently.
+         */
+        public void setDcToolSessions(final int dcToolSessions) {
+            this.dcToolSessions = dcToolSessions;
+        }
+
+        /**
+         * Returns whether build results of development components with unchanged inputs should be restored from the build cache.
+         * 
+         * @return <code>true</code> when build results of development components with unchanged inputs should be restored from the build
+         *         cache instead of building them, <code>false</code> otherwise.
+         */
+        public boolean isBuildAvoidance() {
+            return buildAvoidance;
+        }
+
+        /**
+         * Set whether build results of development components with unchanged inputs should be restored from the build cache.
+         * 
+         * @param buildAvoidance
+         *            <code>true</code> when build results of development components with unchanged inputs should be restored from the
+         *            build cache instead of building them, <code>false</code> otherwise.
+         */
+        public void setBuildAvoidance(final boolean buildAvoidance) {
+            this.buildAvoidance = buildAvoidance;
+        }
+
+        /**
+         * Returns the maximum size of the build cache in a workspace in megabytes.
+         * 
+         * @return the maximum size of the build cache in a workspace in megabytes.
+         */
+        public int getBuildCacheBudget() {
+            return buildCacheBudget;
+        }
+
+        /**
+         * Set the maximum size of the build cache in a workspace in megabytes.
+         * 
+         * @param buildCacheBudget
+         *            the maximum size of the build cache in a workspace in megabytes.
+         */
+        public void setBuildCacheBudget(final int buildCacheBudget) {
+            this.buildCacheBudget = buildCacheBudget;
+        }
+
+        /**
+         * Returns whether development components should be rebuilt only when public parts they use changed by rebuilding.
+         * 
+         * @return <code>true</code> when development components that did not change themselves should be rebuilt only when public parts
+         *         they use changed by rebuilding, <code>false</code> when all development components using a changed one are rebuilt.
+         */
+        public boolean isEarlyCutoff() {
+            return earlyCutoff;
+        }
+
+        /**
+         * Set whether development components should be rebuilt only when public parts they use changed by rebuilding.
+         * 
+         * @param earlyCutoff
+         *            <code>true</code> when development components that did not change themselves should be rebuilt only when public
+         *            parts they use changed by rebuilding, <code>false</code> when all development components using a changed one are
+         *            rebuilt.
+         */
+        public void setEarlyCutoff(final boolean earlyCutoff) {
+            this.earlyCutoff = earlyCutoff;
+        }
+
+        /**
+         * Returns the folder on the nodes where development components in archive state are stored for all workspaces.
+         * 
+         * @return the folder of the archive store (none when empty).
+         */
+        public String getArchiveStoreFolder() {
+            return archiveStoreFolder;
+        }
+
+        /**
+         * Set the folder on the nodes where development components in archive state are stored for all workspaces.
+         * 
+         * @param archiveStoreFolder
+         *            the folder of the archive store (none when empty).
+         */
+        public void setArchiveStoreFolder(final String archiveStoreFolder) {
+            this.archiveStoreFolder = archiveStoreFolder;
+        }
+
+        /**
+         * Returns the maximum size of the archive store in megabytes.
+         * 
+         * @return the maximum size of the archive store in megabytes.
+         */
+        public int getArchiveStoreBudget() {
+            return archiveStoreBudget;
+        }
+
+        /**
+         * Set the maximum size of the archive store in megabytes.
+         * 
+         * @param archiveStoreBudget
+         *            the maximum size of the archive store in megabytes.
+         */
+        public void setArchiveStoreBudget(final int archiveStoreBudget) {
+            this.archiveStoreBudget = archiveStoreBudget;
+        }
+
+        /**
+         * Returns whether one dctool process should be kept alive throughout checkout and build.
+         * 
+         * @return <code>true</code> when one dctool process should be kept alive throughout checkout and build, <code>false</code> when
+         *         each synchronization and build launches a dctool process of its own.
+         */
+        public boolean isPersistentDcToolSession() {
+            return persistentDcToolSession;
+        }
+
+        /**
+         * Set whether one dctool process should be kept alive throughout checkout and build.
+         * 
+         * @param persistentDcToolSession
+         *            <code>true</code> when one dctool process should be kept alive throughout checkout and build, <code>false</code>
+         *            when each synchronization and build launches a dctool process of its own.
+         */
+        public void setPersistentDcToolSession(final boolean persistentDcToolSession) {
+            this.persistentDcToolSession = persistentDcToolSession;
+        }
+
+        /**
+         * Returns the number of minutes the names of build spaces listed using the cbstool are kept.
+         * 
+         * @return the number of minutes the names of build spaces listed using the cbstool are kept.
+         */
+        public int getBuildSpaceNamesTimeToLive() {
+            return buildSpaceNamesTimeToLive < 1 ? BuildSpaceNamesCache.DEFAULT_TIME_TO_LIVE : buildSpaceNamesTimeToLive;
+        }
+
+        /**
+         * Set the number of minutes the names of build spaces listed using the cbstool are kept.
+         * 
+         * @param buildSpaceNamesTimeToLive
+         *            the number of minutes the names of build spaces listed using the cbstool are kept.
+         */
+        public void setBuildSpaceNamesTimeToLive(final int buildSpaceNamesTimeToLive) {
+            this.buildSpaceNamesTimeToLive = buildSpaceNamesTimeToLive;
+        }
+
+        /**
+         * Returns the settings for the connections to DTR servers. At least as many connections as requests executed concurrently are
+         * kept per DTR server, so requests do not have to wait for each other's connections.
+         * 
+         * @return the settings for the connections to DTR servers.
+         */
+        public DtrConnectionSettings getDtrConnectionSettings() {
+            return new DtrConnectionSettings(Math.max(getDtrMaxConnectionsPerRoute(), getDtrRequestParallelism()),
+                getDtrConnectionIdleTimeout(), dtrCompression, dtrConditionalRequests);
+        }
     }
 
     @Override
@@ -8,13 +8,20 @@ import hudson.scm.SCMRevisionState;
 import java.io.Serializable;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.arachna.netweaver.hudson.dtr.browser.Activity;
 
 /**
  * A {@link SCMRevisionState} for {@link NWDIScm}.
  * 
+ * Besides its creation date the state records the highest integration sequence
+ * numbers of the compartments' inactive workspaces seen so far. Those are used
+ * to query only activities integrated afterwards.
+ * 
  * @author Dirk Weigenand
  */
 public final class NWDIRevisionState extends SCMRevisionState implements Serializable {
@@ -42,6 +49,13 @@ public final class NWDIRevisionState extends SCMRevisionState implements Seriali
      */
     private final Date creationDate;
 
+    /**
+     * highest integration sequence numbers of the inactive workspaces of the
+     * compartments mapped by compartment name (<code>null</code> for states
+     * persisted by earlier versions).
+     */
+    private final Map<String, Integer> integrationSequenceNumbers;
+
     /**
      * Create an instance of <code>NWDIRevisionState</code> with the given
      * collection of activities.
@@ -61,6 +75,18 @@ public final class NWDIRevisionState extends SCMRevisionState implements Seriali
         this(Calendar.getInstance().getTime());
     }
 
+    /**
+     * Create an instance of <code>NWDIRevisionState</code> with the current
+     * date and time and the given integration sequence numbers.
+     * 
+     * @param integrationSequenceNumbers
+     *            highest integration sequence numbers of the inactive
+     *            workspaces of the compartments mapped by compartment name.
+     */
+    public NWDIRevisionState(final Map<String, Integer> integrationSequenceNumbers) {
+        this(Calendar.getInstance().getTime(), integrationSequenceNumbers);
+    }
+
     /**
      * Create state with the given date.
      * 
@@ -68,7 +94,21 @@ public final class NWDIRevisionState extends SCMRevisionState implements Seriali
      *            the date this state was created.
      */
     private NWDIRevisionState(final Date creationDate) {
+        this(creationDate, Collections.<String, Integer> emptyMap());
+    }
+
+    /**
+     * Create state with the given date and integration sequence numbers.
+     * 
+     * @param creationDate
+     *            the date this state was created.
+     * @param integrationSequenceNumbers
+     *            highest integration sequence numbers of the inactive
+     *            workspaces of the compartments mapped by compartment name.
+     */
+    private NWDIRevisionState(final Date creationDate, final Map<String, Integer> integrationSequenceNumbers) {
         this.creationDate = creationDate;
+        this.integrationSequenceNumbers = new HashMap<String, Integer>(integrationSequenceNumbers);
     }
 
     /**
@@ -81,4 +121,19 @@ public final class NWDIRevisionState extends SCMRevisionState implements Seriali
     public Date getCreationDate() {
         return new Date(creationDate.getTime());
     }
+
+    /**
+     * Returns the highest integration sequence numbers of the inactive
+     * workspaces of the compartments seen when this state was created.
+     * 
+     * @return highest integration sequence numbers mapped by compartment name
+     *         (empty for states persisted by earlier versions).
+     */
+    public Map<String, Integer> getIntegrationSequenceNumbers() {
+        if (integrationSequenceNumbers == null) {
+            return Collections.emptyMap();
+        }
+
+        return Collections.unmodifiableMap(integrationSequenceNumbers);
+    }
 }
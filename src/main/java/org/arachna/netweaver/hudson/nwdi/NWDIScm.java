@@ -6,6 +6,7 @@ package org.arachna.netweaver.hudson.nwdi;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
+import hudson.Util;
 import hudson.model.BuildListener;
 import hudson.model.TaskListener;
 import hudson.model.AbstractBuild;
@@ -20,12 +21,19 @@ import hudson.scm.SCM;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import net.sf.json.JSONObject;
 
+import org.apache.commons.lang.StringUtils;
+
 import org.arachna.ant.AntHelper;
 import org.arachna.netweaver.dc.types.Compartment;
 import org.arachna.netweaver.dc.types.CompartmentState;
@@ -33,11 +41,18 @@ import org.arachna.netweaver.dc.types.DevelopmentComponent;
 import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
 import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
 import org.arachna.netweaver.hudson.dtr.browser.Activity;
+import org.arachna.netweaver.hudson.dtr.browser.ActivityResource;
+import org.arachna.netweaver.hudson.dtr.browser.ActivityStore;
 import org.arachna.netweaver.hudson.dtr.browser.DtrBrowser;
+import org.arachna.netweaver.hudson.dtr.browser.DtrTrafficRecorder;
+import org.arachna.netweaver.hudson.dtr.browser.ResolutionStageTimings;
+import org.arachna.netweaver.hudson.dtr.browser.ResolutionStageTimings.Stage;
 import org.arachna.netweaver.hudson.nwdi.changelog.ChangeLogService;
 import org.arachna.netweaver.hudson.nwdi.dcupdater.DevelopmentComponentUpdater;
 import org.arachna.netweaver.hudson.util.FilePathHelper;
 import org.arachna.netweaver.tools.DIToolCommandExecutionResult;
+import org.arachna.netweaver.tools.cbs.CBSToolCommandExecutor;
+import org.arachna.netweaver.tools.cbs.DCListSnapshot;
 import org.arachna.netweaver.tools.dc.DCToolCommandExecutor;
 import org.kohsuke.stapler.StaplerRequest;
 
@@ -52,6 +67,16 @@ public class NWDIScm extends SCM {
      */
     private static final float A_THOUSAND_MSECS = 1000f;
 
+    /**
+     * system property naming the folder to record the DTR traffic of polls and checkouts into (not recorded when unset).
+     */
+    private static final String DTR_TRAFFIC_FOLDER = "nwdibuild.dtr.traffic.folder";
+
+    /**
+     * number of bytes in a megabyte.
+     */
+    private static final long MEGA_BYTE = 1024L * 1024L;
+
     /**
      * Get a clean copy of all development components from NWDI.
      */
@@ -101,11 +126,13 @@ public class NWDIScm extends SCM {
     }
 
     /**
+     * Polling talks to the DTR only. It uses the development configuration cached by the last build and needs no workspace.
+     * 
      * {@inheritDoc}
      */
     @Override
     public boolean requiresWorkspaceForPolling() {
-        return true;
+        return false;
     }
 
     /**
@@ -113,6 +140,42 @@ public class NWDIScm extends SCM {
      */
     @Override
     public boolean checkout(final AbstractBuild<?, ?> build, final Launcher launcher, final FilePath workspace,
+        final BuildListener listener, final File changelogFile) throws IOException, InterruptedException {
+        boolean checkedOut = false;
+
+        try {
+            checkedOut = synchronize(build, launcher, workspace, listener, changelogFile);
+        }
+        finally {
+            if (!checkedOut) {
+                // the build will not be run, so the dctool process kept alive for it is not needed anymore
+                ((NWDIBuild)build).closeDCToolSession();
+            }
+        }
+
+        return checkedOut;
+    }
+
+    /**
+     * Synchronize the development components of the given build into the given workspace and write the change log.
+     *
+     * @param build
+     *            the build to check out.
+     * @param launcher
+     *            launcher for executing the NWDI tools.
+     * @param workspace
+     *            the workspace to check out to.
+     * @param listener
+     *            listener for logging.
+     * @param changelogFile
+     *            file to write the change log to.
+     * @return <code>true</code> when the check out succeeded, <code>false</code> otherwise.
+     * @throws IOException
+     *             re-thrown from executing the NWDI tools
+     * @throws InterruptedException
+     *             re-thrown from executing the NWDI tools
+     */
+    private boolean synchronize(final AbstractBuild<?, ?> build, final Launcher launcher, final FilePath workspace,
         final BuildListener listener, final File changelogFile) throws IOException, InterruptedException {
         final NWDIBuild currentBuild = (NWDIBuild)build;
         final NWDIProject project = currentBuild.getParent();
@@ -124,8 +187,11 @@ public class NWDIScm extends SCM {
         final DCToolCommandExecutor executor = currentBuild.getDCToolExecutor(launcher);
 
         final DevelopmentComponentFactory dcFactory = currentBuild.getDevelopmentComponentFactory();
+        NWDIRevisionState revisionState = new NWDIRevisionState();
 
-        DIToolCommandExecutionResult result = currentBuild.getCBSToolExecutor(launcher).listDevelopmentComponents(dcFactory);
+        final CBSToolCommandExecutor cbsToolExecutor = currentBuild.getCBSToolExecutor(launcher);
+        final DCListSnapshot snapshot = project.getDCListSnapshot();
+        DIToolCommandExecutionResult result = cbsToolExecutor.listDevelopmentComponents(dcFactory, snapshot);
         final AntHelper antHelper = new AntHelper(FilePathHelper.makeAbsolute(workspace), dcFactory);
         final DevelopmentComponentUpdater updater = new DevelopmentComponentUpdater(antHelper);
 
@@ -142,33 +208,111 @@ public class NWDIScm extends SCM {
             final NWDIRevisionState state =
                 lastSuccessfulBuild == null ? NWDIRevisionState.START_STATE : lastSuccessfulBuild.getAction(NWDIRevisionState.class);
             final DevelopmentConfiguration config = currentBuild.getDevelopmentConfiguration();
-            activities.addAll(getActivities(logger, getDtrBrowser(config), dcFactory, state));
-
-            final boolean cleanCopy = currentBuild.getPreviousBuild() == null || this.cleanCopy;
+            final DtrBrowser browser = getDtrBrowser(config);
+            final DtrTrafficRecorder recorder =
+                startRecording(logger, browser, String.format("%s-%d", project.getName(), currentBuild.getNumber()));
 
-            setNeedsRebuildPropertyOnAllDevelopmentComponentsInSourceState(config, cleanCopy);
+            try {
+                activities.addAll(getActivities(logger, browser, dcFactory, state, project.getActivityStore()));
 
-            if (cleanCopy || !activities.isEmpty()) {
-                result = executor.synchronizeDevelopmentComponentsInSourceState(cleanCopy);
-                // update DCs with on disk information
-                updater.execute(dcFactory.getAll());
+                // development components created by activities are missing from a snapshot taken before (without a config-version change)
+                if (cbsToolExecutor.isRestoredFromSnapshot() && snapshot.discardIfIncomplete(getDevelopmentComponents(activities))) {
+                    logger.println(Messages.NWDIScm_listing_development_components_created_by_activities());
+                    result = cbsToolExecutor.listDevelopmentComponents(dcFactory, snapshot);
+                }
 
-                if (result.isExitCodeOk()) {
-                    result =
-                        executor.synchronizeDevelopmentComponentsInArchiveState(dcFactory, antHelper,
-                            currentBuild.getAffectedDevelopmentComponents(logger));
+                // keep integration sequence numbers of compartments not queried (e.g. in a dry run)
+                final Map<String, Integer> integrationSequenceNumbers =
+                    new HashMap<String, Integer>(state.getIntegrationSequenceNumbers());
+                integrationSequenceNumbers.putAll(browser.getIntegrationSequenceNumbers());
+                revisionState = new NWDIRevisionState(integrationSequenceNumbers);
+
+                final boolean cleanCopy = currentBuild.getPreviousBuild() == null || this.cleanCopy;
+
+                setNeedsRebuildPropertyOnAllDevelopmentComponentsInSourceState(config, cleanCopy);
+
+                if (result.isExitCodeOk() && (cleanCopy || !activities.isEmpty())) {
+                    result = executor.synchronizeDevelopmentComponentsInSourceState(cleanCopy);
+                    // update DCs with on disk information
+                    updater.execute(dcFactory.getAll());
+
+                    if (result.isExitCodeOk()) {
+                        final ArchiveDCStore archiveStore = createArchiveDCStore(config, antHelper, listener);
+                        // the build releases the leases on linked entries when it has finished
+                        currentBuild.setArchiveDCStore(archiveStore);
+                        final Collection<DevelopmentComponent> storedComponents =
+                            archiveStore == null ? Collections.<DevelopmentComponent> emptyList() : archiveStore.link();
+                        result =
+                            executor.synchronizeDevelopmentComponentsInArchiveState(dcFactory, antHelper,
+                                currentBuild.getAffectedDevelopmentComponents(logger), storedComponents);
+
+                        if (archiveStore != null && result.isExitCodeOk()) {
+                            archiveStore.adopt();
+                        }
+                    }
                 }
             }
+            finally {
+                // resource details are needed for the change log only and were read while synchronizing
+                browser.resolveResourceDetails();
+                logResolutionStageTimings(logger, browser.getTimings());
+                build.addAction(new DtrRequestMetricsAction(browser.getRequestMetrics()));
+                stopRecording(logger, browser, recorder);
+            }
         }
 
         updater.execute(dcFactory.getAll());
 
-        build.addAction(new NWDIRevisionState());
+        build.addAction(revisionState);
         writeChangeLog(build, changelogFile, activities);
 
         return result.isExitCodeOk();
     }
 
+    /**
+     * Returns the development components changed by the given activities.
+     *
+     * @param activities
+     *            activities read from the DTR.
+     * @return the development components changed by the given activities.
+     */
+    private Collection<DevelopmentComponent> getDevelopmentComponents(final Collection<Activity> activities) {
+        final Collection<DevelopmentComponent> components = new ArrayList<DevelopmentComponent>();
+
+        for (final Activity activity : activities) {
+            for (final ActivityResource resource : activity.getResources()) {
+                if (resource.getDevelopmentComponent() != null) {
+                    components.add(resource.getDevelopmentComponent());
+                }
+            }
+        }
+
+        return components;
+    }
+
+    /**
+     * Create the store of development components in archive state shared by the workspaces on this node when one is configured.
+     *
+     * @param config
+     *            development configuration whose development components in archive state are to be stored.
+     * @param antHelper
+     *            helper to determine the location of development components in the workspace.
+     * @param listener
+     *            listener for logging and creating links.
+     * @return the archive store or <code>null</code> when no archive store folder is configured.
+     */
+    private ArchiveDCStore createArchiveDCStore(final DevelopmentConfiguration config, final AntHelper antHelper,
+        final TaskListener listener) {
+        final NWDIProject.DescriptorImpl descriptor = NWDIProject.DescriptorImpl.DESCRIPTOR;
+        final String folder = Util.fixEmpty(descriptor.getArchiveStoreFolder());
+
+        if (folder == null) {
+            return null;
+        }
+
+        return new ArchiveDCStore(new File(folder), descriptor.getArchiveStoreBudget() * MEGA_BYTE, config, antHelper, listener);
+    }
+
     /**
      * Set the needsRebuild property on all development components in source state if a clean build was requested.
      *
@@ -209,16 +353,86 @@ public class NWDIScm extends SCM {
         }
 
         final PrintStream logger = listener.getLogger();
-        nwdiProject.updateDevelopmentConfiguration(logger, path.child(".dtc"));
+        DevelopmentConfiguration config = nwdiProject.getCachedDevelopmentConfiguration();
+        Change changeState = Change.NONE;
+
+        if (config == null) {
+            logger.println(Messages.NWDIScm_no_cached_development_configuration());
+            config = nwdiProject.updateCachedDevelopmentConfiguration(logger);
+
+            if (config == null) {
+                return PollingResult.NO_CHANGES;
+            }
+        }
+        else {
+            final DevelopmentConfiguration updatedConfig = updateDevelopmentConfigurationIfChanged(logger, nwdiProject, config);
+
+            if (updatedConfig != config) {
+                changeState = Change.SIGNIFICANT;
+                config = updatedConfig;
+            }
+        }
 
         logger.println(Messages.NWDIScm_comparing_base_line_activities_with_activities_accumulated_since_last_build(lastBuild.getNumber()));
-        final List<Activity> activities =
-            getActivities(logger, getDtrBrowser(lastBuild.getDevelopmentConfiguration()), null, (NWDIRevisionState)revisionState);
 
-        final Change changeState = activities.isEmpty() ? Change.NONE : Change.SIGNIFICANT;
+        if (Change.NONE.equals(changeState)) {
+            final DtrBrowser browser = getDtrBrowser(config);
+            final DtrTrafficRecorder recorder =
+                startRecording(logger, browser, String.format("%s-poll-%d", project.getName(), System.currentTimeMillis()));
+
+            try {
+                final List<Activity> activities = getActivities(logger, browser, null, (NWDIRevisionState)revisionState, null);
+                changeState = activities.isEmpty() ? Change.NONE : Change.SIGNIFICANT;
+            }
+            finally {
+                stopRecording(logger, browser, recorder);
+            }
+        }
+
         logger.println(Messages.NWDIScm_found_changes(changeState.toString()));
 
-        return new PollingResult(revisionState, new NWDIRevisionState(), changeState);
+        return new PollingResult(revisionState,
+            new NWDIRevisionState(((NWDIRevisionState)revisionState).getIntegrationSequenceNumbers()), changeState);
+    }
+
+    /**
+     * Compare the software component workspaces listed in the DTR with those of the cached development configuration. Download the
+     * development configuration again only when they differ and return it when its version changed.
+     * 
+     * @param logger
+     *            the logger to use.
+     * @param project
+     *            the project being polled.
+     * @param config
+     *            the cached development configuration.
+     * @return the downloaded development configuration when its version changed, the given configuration otherwise.
+     * @throws IOException
+     *             when downloading the development configuration failed
+     * @throws InterruptedException
+     *             when the operation was interrupted
+     */
+    private DevelopmentConfiguration updateDevelopmentConfigurationIfChanged(final PrintStream logger, final NWDIProject project,
+        final DevelopmentConfiguration config) throws IOException, InterruptedException {
+        final DtrBrowser browser = getDtrBrowser(config);
+        final Set<String> listedWorkspaces = browser.getListedWorkspaces();
+        final Set<String> knownWorkspaces =
+            project.getListedWorkspaces() == null ? browser.getConfiguredWorkspaces() : project.getListedWorkspaces();
+        DevelopmentConfiguration result = config;
+
+        if (!listedWorkspaces.equals(knownWorkspaces)) {
+            logger.println(Messages.NWDIScm_software_components_changed());
+            final DevelopmentConfiguration updatedConfig = project.updateCachedDevelopmentConfiguration(logger);
+
+            if (updatedConfig != null && !StringUtils.equals(updatedConfig.getVersion(), config.getVersion())) {
+                logger.println(Messages.NWDIScm_development_configuration_version_changed(config.getVersion(),
+                    updatedConfig.getVersion()));
+                result = updatedConfig;
+            }
+        }
+
+        project.setListedWorkspaces(listedWorkspaces);
+
+        return result;
     }
 
     /**
@@ -282,20 +496,27 @@ public class NWDIScm extends SCM {
      *            only activities should be determined.
      * @param state
      *            the NWDI revision state to use to determine activities.
+     * @param activityStore
+     *            store for activities already read from the DTR. Only used when determining activities with resources.
      * @return a list of {@link Activity} objects that were checked in since the last run or all activities.
      */
     private List<Activity> getActivities(final PrintStream logger, final DtrBrowser browser, final DevelopmentComponentFactory dcFactory,
-        final NWDIRevisionState state) {
+        final NWDIRevisionState state, final ActivityStore activityStore) {
         final List<Activity> activities = new LinkedList<Activity>();
         final long start = System.currentTimeMillis();
         final boolean dryRun = Boolean.getBoolean("nwdibuild.dry.run");
 
         if (!dryRun) {
             if (dcFactory == null) {
-                activities.addAll(browser.getActivities(state.getCreationDate()));
+                activities.addAll(browser.getActivities(state.getCreationDate(), state.getIntegrationSequenceNumbers()));
             }
             else {
-                activities.addAll(browser.getActivitiesWithResourcesAndDevelopmentComponents(dcFactory, state.getCreationDate()));
+                activities.addAll(browser.getActivitiesWithResourcesAndDevelopmentComponents(dcFactory, state.getCreationDate(),
+                    state.getIntegrationSequenceNumbers(), activityStore));
+            }
+
+            for (final Map.Entry<String, Throwable> failure : browser.getCompartmentFailures().entrySet()) {
+                logger.println(Messages.NWDIScm_compartment_query_failed(failure.getKey(), failure.getValue().getMessage()));
             }
         }
 
@@ -319,7 +540,77 @@ public class NWDIScm extends SCM {
      * @return the {@link DtrBrowser} for browsing the DTR for activities.
      */
     private DtrBrowser getDtrBrowser(final DevelopmentConfiguration config) {
-        return new DtrBrowser(config, dtrUser, password);
+        return new DtrBrowser(config, dtrUser, password, NWDIProject.DescriptorImpl.DESCRIPTOR.getDtrRequestParallelism());
+    }
+
+    /**
+     * Start recording the pages read by the given browser when a folder for recording DTR traffic is configured (system property
+     * <code>nwdibuild.dtr.traffic.folder</code>).
+     *
+     * @param logger
+     *            the logger to use.
+     * @param browser
+     *            the browser whose traffic should be recorded.
+     * @param name
+     *            name of the archive to record into (without extension).
+     * @return the recorder used or <code>null</code> when no traffic is recorded.
+     * @throws IOException
+     *             when the archive could not be created.
+     */
+    private DtrTrafficRecorder startRecording(final PrintStream logger, final DtrBrowser browser, final String name)
+        throws IOException {
+        final String folder = System.getProperty(DTR_TRAFFIC_FOLDER);
+        DtrTrafficRecorder recorder = null;
+
+        if (folder != null) {
+            final File archive = new File(folder, name + ".zip");
+            logger.println(Messages.NWDIScm_recording_dtr_traffic(archive.getAbsolutePath()));
+            recorder = new DtrTrafficRecorder(archive);
+            browser.setTrafficRecorder(recorder);
+        }
+
+        return recorder;
+    }
+
+    /**
+     * Stop recording the pages read by the given browser and close the archive.
+     *
+     * @param logger
+     *            the logger to use.
+     * @param browser
+     *            the browser whose traffic was recorded.
+     * @param recorder
+     *            the recorder used (may be <code>null</code>).
+     * @throws IOException
+     *             when the archive could not be written.
+     */
+    private void stopRecording(final PrintStream logger, final DtrBrowser browser, final DtrTrafficRecorder recorder)
+        throws IOException {
+        if (recorder != null) {
+            browser.setTrafficRecorder(null);
+            recorder.close();
+            logger.println(Messages.NWDIScm_recorded_dtr_pages(recorder.getPages()));
+        }
+    }
+
+    /**
+     * Log the number of requests and accumulated duration of each stage executed resolving activities into development components.
+     *
+     * @param logger
+     *            the logger to use.
+     * @param timings
+     *            timings of the stages executed resolving activities.
+     */
+    private void logResolutionStageTimings(final PrintStream logger, final ResolutionStageTimings timings) {
+        logger.println(Messages.NWDIScm_restored_activities(timings.getRestoredActivities()));
+
+        for (final Stage stage : Stage.values()) {
+            logger.println(Messages.NWDIScm_resolution_stage_timing(stage.toString(), timings.getCount(stage),
+                String.format("%f", timings.getDuration(stage) / A_THOUSAND_MSECS)));
+        }
+
+        logger.println(Messages.NWDIProject_duration_template(Messages.NWDIScm_determine_affected_dcs_for_activities(),
+            String.format("%f", timings.getElapsedTime() / A_THOUSAND_MSECS)));
     }
 
     /**
@@ -0,0 +1,698 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.TeeOutputStream;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentGraph;
+import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
+import org.arachna.netweaver.tools.DIToolCommandExecutionResult;
+import org.arachna.netweaver.tools.DIToolOutputListener;
+
+/**
+ * Builds development components grouped into dependency waves using several dctool sessions concurrently.
+ *
+ * The waves are built one after another. The development components of a wave are split into up to the configured number of batches, each
+ * one built in a dctool session of its own. A development component is built only after every development component it uses (and that is
+ * built in this run) was built successfully. Development components using a component whose build failed are skipped.
+ *
+ * With estimated build durations (see {@link DCBuildDurations}) the components of a wave are ordered critical path first: the components
+ * with the longest chain of estimated build durations up to the last wave are started first and each is assigned to the session with the
+ * least estimated work (longest processing time first). Otherwise they are distributed round robin.
+ *
+ * With early cutoff enabled a development component that did not change itself is built only when a public part it references was
+ * changed by rebuilding the component providing it (see {@link PublicPartFingerprints}).
+ *
+ * The output of each session is spooled to a file in the workspace (next to the spool file dctool writes for the session) and parsed for
+ * failed builds while the session runs. It is copied to the console when the session has finished, so the output of concurrent sessions
+ * is not interleaved. The output of all sessions is merged (in the order it was copied to the console) into the result of the build, as
+ * a build in a single dctool session returns its output too.
+ *
+ * @author Dirk Weigenand
+ */
+final class ParallelDCBuilder {
+    /**
+     * development configuration to determine development components from the build output.
+     */
+    private final DevelopmentConfiguration developmentConfiguration;
+
+    /**
+     * dependency graph of the development components.
+     */
+    private final DevelopmentComponentGraph graph;
+
+    /**
+     * maximum number of dctool sessions to run concurrently.
+     */
+    private final int sessions;
+
+    /**
+     * folder the output of the sessions is spooled to (the workspace).
+     */
+    private final File spoolFolder;
+
+    /**
+     * Logger to console.
+     */
+    private final PrintStream logger;
+
+    /**
+     * development components whose build failed.
+     */
+    private final Set<DevelopmentComponent> failedComponents = new LinkedHashSet<DevelopmentComponent>();
+
+    /**
+     * development components not built because a component they use could not be built.
+     */
+    private final Set<DevelopmentComponent> skippedComponents = new LinkedHashSet<DevelopmentComponent>();
+
+    /**
+     * development components dctool reported as built successfully.
+     */
+    private final Set<DevelopmentComponent> builtComponents = new LinkedHashSet<DevelopmentComponent>();
+
+    /**
+     * development components rebuilt successfully (or whose build results were replaced otherwise).
+     */
+    private final Set<DevelopmentComponent> rebuiltComponents = new HashSet<DevelopmentComponent>();
+
+    /**
+     * development components not built since neither they nor the public parts they use changed.
+     */
+    private final Set<DevelopmentComponent> upToDateComponents = new LinkedHashSet<DevelopmentComponent>();
+
+    /**
+     * development components changed themselves (<code>null</code> when early cutoff is disabled).
+     */
+    private Set<DevelopmentComponent> changedComponents;
+
+    /**
+     * fingerprints of the public parts recorded before building (<code>null</code> when early cutoff is disabled).
+     */
+    private PublicPartFingerprints fingerprints;
+
+    /**
+     * estimated build durations of the development components (<code>null</code> when unknown).
+     */
+    private Map<DevelopmentComponent, Long> estimatedDurations;
+
+    /**
+     * length of the critical path (sum of estimated build durations) starting at each development component.
+     */
+    private final Map<DevelopmentComponent, Long> criticalPaths = new HashMap<DevelopmentComponent, Long>();
+
+    /**
+     * Create a builder for development components running up to the given number of dctool sessions concurrently.
+     *
+     * @param developmentConfiguration
+     *            development configuration to determine development components from the build output.
+     * @param graph
+     *            dependency graph of the development components.
+     * @param sessions
+     *            maximum number of dctool sessions to run concurrently.
+     * @param spoolFolder
+     *            folder the output of the sessions is spooled to (the workspace).
+     * @param logger
+     *            Logger to console.
+     */
+    ParallelDCBuilder(final DevelopmentConfiguration developmentConfiguration, final DevelopmentComponentGraph graph, final int sessions,
+        final File spoolFolder, final PrintStream logger) {
+        if (sessions < 1) {
+            throw new IllegalArgumentException("At least one dctool session is needed!");
+        }
+
+        this.developmentConfiguration = developmentConfiguration;
+        this.graph = graph;
+        this.sessions = sessions;
+        this.spoolFolder = spoolFolder;
+        this.logger = logger;
+    }
+
+    /**
+     * Enable early cutoff: a development component that did not change itself is built only when a public part it references was changed
+     * by rebuilding the development component providing it. Otherwise its build results are kept.
+     *
+     * @param fingerprints
+     *            fingerprints of the public parts recorded before building.
+     * @param changed
+     *            development components changed themselves.
+     * @param rebuilt
+     *            development components whose build results were replaced before building (e.g. restored from a cache).
+     */
+    void setEarlyCutoff(final PublicPartFingerprints fingerprints, final Collection<DevelopmentComponent> changed,
+        final Collection<DevelopmentComponent> rebuilt) {
+        this.fingerprints = fingerprints;
+        changedComponents = new HashSet<DevelopmentComponent>(changed);
+        rebuiltComponents.addAll(rebuilt);
+    }
+
+    /**
+     * Order the development components of each wave critical path first using the given estimated build durations.
+     *
+     * @param estimatedDurations
+     *            estimated build durations of the development components in milliseconds.
+     */
+    void setEstimatedDurations(final Map<DevelopmentComponent, Long> estimatedDurations) {
+        this.estimatedDurations = new HashMap<DevelopmentComponent, Long>(estimatedDurations);
+    }
+
+    /**
+     * Build the given waves of development components.
+     *
+     * @param waves
+     *            development components grouped into waves (components of a wave use only components of earlier waves).
+     * @param session
+     *            the dctool sessions to build with.
+     * @return the result of all dctool sessions: the merged output of the sessions (written to the console already) and the exit code of
+     *         the first session that failed (<code>1</code> when builds of development components failed or were skipped otherwise).
+     * @throws IOException
+     *             re-thrown from dctool execution
+     * @throws InterruptedException
+     *             when the build was interrupted
+     */
+    DIToolCommandExecutionResult build(final List<List<DevelopmentComponent>> waves, final DCToolSession session) throws IOException,
+        InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(sessions);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int exitCode = 0;
+
+        if (estimatedDurations != null) {
+            computeCriticalPaths(waves);
+        }
+
+        try {
+            for (int wave = 0; wave < waves.size(); wave++) {
+                final List<List<DevelopmentComponent>> batches = createBatches(getBuildableComponents(waves.get(wave)));
+
+                if (batches.isEmpty()) {
+                    continue;
+                }
+
+                logger.println(Messages.ParallelDCBuilder_building_wave(wave + 1, waves.size(), countComponents(batches), batches.size()));
+
+                final List<Session> tasks = new ArrayList<Session>(batches.size());
+                final List<Future<DIToolCommandExecutionResult>> results = new ArrayList<Future<DIToolCommandExecutionResult>>();
+
+                try {
+                    for (int batch = 0; batch < batches.size(); batch++) {
+                        final Session task =
+                            new Session(session, String.format("%d-%d", wave + 1, batch + 1), batches.get(batch), new DCBuildResultParser(
+                                developmentConfiguration), spoolFolder);
+                        tasks.add(task);
+                        results.add(executor.submit(task));
+                    }
+
+                    for (int batch = 0; batch < batches.size(); batch++) {
+                        final DIToolCommandExecutionResult result = getResult(results.get(batch));
+                        final Session task = tasks.get(batch);
+                        logger.println(Messages.ParallelDCBuilder_output_of_session(task.name));
+                        task.copyOutput(logger, output);
+
+                        if (!result.isExitCodeOk() && exitCode == 0) {
+                            exitCode = result.getExitCode();
+                        }
+
+                        recordFailedComponents(batches.get(batch), result, task.parser);
+                        recordRebuiltComponents(batches.get(batch));
+                    }
+                }
+                finally {
+                    for (final Session task : tasks) {
+                        task.deleteOutput();
+                    }
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        if (exitCode == 0 && !(failedComponents.isEmpty() && skippedComponents.isEmpty())) {
+            exitCode = 1;
+        }
+
+        return new DIToolCommandExecutionResult(output.toString(), exitCode);
+    }
+
+    /**
+     * Returns the development components whose build failed.
+     *
+     * @return the development components whose build failed.
+     */
+    Collection<DevelopmentComponent> getFailedComponents() {
+        return Collections.unmodifiableCollection(failedComponents);
+    }
+
+    /**
+     * Returns the development components not built because a component they use could not be built.
+     *
+     * @return the development components not built because a component they use could not be built.
+     */
+    Collection<DevelopmentComponent> getSkippedComponents() {
+        return Collections.unmodifiableCollection(skippedComponents);
+    }
+
+    /**
+     * Returns the development components dctool reported as built successfully.
+     *
+     * @return the development components dctool reported as built successfully.
+     */
+    Collection<DevelopmentComponent> getBuiltComponents() {
+        return Collections.unmodifiableCollection(builtComponents);
+    }
+
+    /**
+     * Returns the development components not built since neither they nor the public parts they use changed.
+     *
+     * @return the development components not built since neither they nor the public parts they use changed.
+     */
+    Collection<DevelopmentComponent> getUpToDateComponents() {
+        return Collections.unmodifiableCollection(upToDateComponents);
+    }
+
+    /**
+     * Determine the development components of the given wave whose used components were all built successfully and that need to be
+     * built. The components using components that could not be built are skipped, those that are up to date are left out.
+     *
+     * @param wave
+     *            development components of a wave.
+     * @return the development components of the given wave that can be built.
+     * @throws IOException
+     *             when fingerprinting public parts fails.
+     */
+    private List<DevelopmentComponent> getBuildableComponents(final List<DevelopmentComponent> wave) throws IOException {
+        final List<DevelopmentComponent> components = new ArrayList<DevelopmentComponent>(wave.size());
+
+        for (final DevelopmentComponent component : wave) {
+            if (usesUnbuiltComponent(component)) {
+                skippedComponents.add(component);
+                logger.println(Messages.ParallelDCBuilder_skipping_development_component(component.getVendor(), component.getName()));
+            }
+            else if (isUpToDate(component)) {
+                upToDateComponents.add(component);
+                logger.println(Messages.ParallelDCBuilder_up_to_date_development_component(component.getVendor(), component.getName()));
+            }
+            else {
+                components.add(component);
+            }
+        }
+
+        return components;
+    }
+
+    /**
+     * Determine whether the given development component is up to date: it did not change itself, its last build succeeded and none of the
+     * public parts it references was changed by rebuilding.
+     *
+     * @param component
+     *            the development component.
+     * @return <code>true</code> when the given development component is up to date and need not be built, <code>false</code> otherwise
+     *         (or when early cutoff is disabled).
+     * @throws IOException
+     *             when fingerprinting public parts fails.
+     */
+    private boolean isUpToDate(final DevelopmentComponent component) throws IOException {
+        return fingerprints != null && !changedComponents.contains(component) && fingerprints.hasBuildResults(component)
+            && !fingerprints.usesChangedPublicPart(component, rebuiltComponents);
+    }
+
+    /**
+     * Record the development components of the given batch that were built successfully.
+     *
+     * @param batch
+     *            the development components built in a session.
+     */
+    private void recordRebuiltComponents(final List<DevelopmentComponent> batch) {
+        for (final DevelopmentComponent component : batch) {
+            if (!failedComponents.contains(component)) {
+                rebuiltComponents.add(component);
+            }
+        }
+    }
+
+    /**
+     * Determine whether the given development component uses a component whose build failed or was skipped.
+     *
+     * @param component
+     *            the development component.
+     * @return <code>true</code> when the given development component uses a component whose build failed or was skipped,
+     *         <code>false</code> otherwise.
+     */
+    private boolean usesUnbuiltComponent(final DevelopmentComponent component) {
+        for (final DevelopmentComponent usedComponent : graph.getUsedComponents(component)) {
+            if (failedComponents.contains(usedComponent) || skippedComponents.contains(usedComponent)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Split the given development components into batches (one per dctool session). Without estimated build durations the components are
+     * distributed round robin. Otherwise the components with the longest critical path come first and each one is added to the batch with
+     * the least estimated build duration so far.
+     *
+     * @param components
+     *            the development components to build.
+     * @return batches of development components.
+     */
+    private List<List<DevelopmentComponent>> createBatches(final List<DevelopmentComponent> components) {
+        final int batchCount = Math.min(sessions, components.size());
+        final List<List<DevelopmentComponent>> batches = new ArrayList<List<DevelopmentComponent>>(batchCount);
+
+        for (int batch = 0; batch < batchCount; batch++) {
+            batches.add(new ArrayList<DevelopmentComponent>());
+        }
+
+        if (estimatedDurations == null) {
+            for (int i = 0; i < components.size(); i++) {
+                batches.get(i % batchCount).add(components.get(i));
+            }
+
+            return batches;
+        }
+
+        final List<DevelopmentComponent> ordered = new ArrayList<DevelopmentComponent>(components);
+        Collections.sort(ordered, new Comparator<DevelopmentComponent>() {
+            public int compare(final DevelopmentComponent component1, final DevelopmentComponent component2) {
+                final int result = getCriticalPath(component2).compareTo(getCriticalPath(component1));
+
+                return result == 0 ? component1.getName().compareTo(component2.getName()) : result;
+            }
+        });
+
+        final long[] loads = new long[batchCount];
+
+        for (final DevelopmentComponent component : ordered) {
+            int leastLoaded = 0;
+
+            for (int batch = 1; batch < batchCount; batch++) {
+                if (loads[batch] < loads[leastLoaded]) {
+                    leastLoaded = batch;
+                }
+            }
+
+            batches.get(leastLoaded).add(component);
+            loads[leastLoaded] += getEstimatedDuration(component);
+        }
+
+        return batches;
+    }
+
+    /**
+     * Compute the length of the critical path starting at each development component of the given waves: its estimated build duration
+     * plus the longest critical path of the components (in later waves) using it.
+     *
+     * @param waves
+     *            development components grouped into waves.
+     */
+    private void computeCriticalPaths(final List<List<DevelopmentComponent>> waves) {
+        criticalPaths.clear();
+
+        for (int wave = waves.size() - 1; wave >= 0; wave--) {
+            for (final DevelopmentComponent component : waves.get(wave)) {
+                long longestUsing = 0;
+
+                for (final DevelopmentComponent usingComponent : graph.getUsingComponents(component)) {
+                    final Long path = criticalPaths.get(usingComponent);
+
+                    if (path != null && path > longestUsing) {
+                        longestUsing = path;
+                    }
+                }
+
+                criticalPaths.put(component, getEstimatedDuration(component) + longestUsing);
+            }
+        }
+    }
+
+    /**
+     * Returns the length of the critical path starting at the given development component.
+     *
+     * @param component
+     *            the development component.
+     * @return the length of the critical path in milliseconds.
+     */
+    private Long getCriticalPath(final DevelopmentComponent component) {
+        final Long path = criticalPaths.get(component);
+
+        return path == null ? Long.valueOf(getEstimatedDuration(component)) : path;
+    }
+
+    /**
+     * Returns the estimated build duration of the given development component.
+     *
+     * @param component
+     *            the development component.
+     * @return the estimated build duration in milliseconds (<code>0</code> when unknown).
+     */
+    private long getEstimatedDuration(final DevelopmentComponent component) {
+        final Long duration = estimatedDurations.get(component);
+
+        return duration == null ? 0 : duration;
+    }
+
+    /**
+     * Count the development components in the given batches.
+     *
+     * @param batches
+     *            batches of development components.
+     * @return number of development components in the given batches.
+     */
+    private int countComponents(final List<List<DevelopmentComponent>> batches) {
+        int count = 0;
+
+        for (final List<DevelopmentComponent> batch : batches) {
+            count += batch.size();
+        }
+
+        return count;
+    }
+
+    /**
+     * Record the development components of the given batch whose build failed or succeeded. When the session failed without reporting
+     * failed builds, all development components of the batch are considered failed.
+     *
+     * @param batch
+     *            the development components built in the session.
+     * @param result
+     *            result of the session.
+     * @param parser
+     *            parser that processed the output of the session.
+     */
+    private void recordFailedComponents(final List<DevelopmentComponent> batch, final DIToolCommandExecutionResult result,
+        final DCBuildResultParser parser) {
+        final List<DevelopmentComponent> failed = parser.getBuildResults().getDcsWithBuildErrors();
+
+        if (failed.isEmpty() && !result.isExitCodeOk()) {
+            failedComponents.addAll(batch);
+        }
+        else {
+            failedComponents.addAll(failed);
+        }
+
+        for (final DevelopmentComponent component : parser.getBuildResults().getDcsBuiltSuccessfully()) {
+            if (!failedComponents.contains(component)) {
+                builtComponents.add(component);
+            }
+        }
+    }
+
+    /**
+     * Wait for the result of a dctool session.
+     *
+     * @param result
+     *            the future result of the dctool session.
+     * @return the result of the dctool session.
+     * @throws IOException
+     *             re-thrown from dctool execution
+     * @throws InterruptedException
+     *             when the build was interrupted
+     */
+    private DIToolCommandExecutionResult getResult(final Future<DIToolCommandExecutionResult> result) throws IOException,
+        InterruptedException {
+        try {
+            return result.get();
+        }
+        catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException)cause;
+            }
+
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * A dctool session building development components.
+     *
+     * @author Dirk Weigenand
+     */
+    interface DCToolSession {
+        /**
+         * Build the given development components in a dctool session of its own.
+         *
+         * @param name
+         *            name of the session.
+         * @param components
+         *            development components to build.
+         * @param output
+         *            stream to write the output of the session to.
+         * @param listener
+         *            listener processing the output of the session while it runs.
+         * @return the result of the session.
+         * @throws IOException
+         *             re-thrown from dctool execution
+         * @throws InterruptedException
+         *             when the build was interrupted
+         */
+        DIToolCommandExecutionResult build(String name, Collection<DevelopmentComponent> components, OutputStream output,
+            DIToolOutputListener listener) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Task building a batch of development components in a dctool session. The output of the session is spooled to a file in the given
+     * folder.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class Session implements Callable<DIToolCommandExecutionResult> {
+        /**
+         * the dctool sessions to build with.
+         */
+        private final DCToolSession session;
+
+        /**
+         * name of the session.
+         */
+        private final String name;
+
+        /**
+         * development components to build.
+         */
+        private final List<DevelopmentComponent> components;
+
+        /**
+         * parser processing the output of the session.
+         */
+        private final DCBuildResultParser parser;
+
+        /**
+         * file the output of the session is spooled to.
+         */
+        private final File spool;
+
+        /**
+         * whether the session was started.
+         */
+        private volatile boolean started;
+
+        /**
+         * Create a task building the given development components.
+         *
+         * @param session
+         *            the dctool sessions to build with.
+         * @param name
+         *            name of the session.
+         * @param components
+         *            development components to build.
+         * @param parser
+         *            parser processing the output of the session.
+         * @param spoolFolder
+         *            folder the output of the session is spooled to.
+         */
+        Session(final DCToolSession session, final String name, final List<DevelopmentComponent> components,
+            final DCBuildResultParser parser, final File spoolFolder) {
+            this.session = session;
+            this.name = name;
+            this.components = components;
+            this.parser = parser;
+            spool = new File(spoolFolder, String.format("dctool-%s.log", name));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public DIToolCommandExecutionResult call() throws IOException, InterruptedException {
+            final OutputStream output = new BufferedOutputStream(new FileOutputStream(spool));
+            started = true;
+
+            try {
+                return session.build(name, components, output, parser);
+            }
+            finally {
+                output.close();
+            }
+        }
+
+        /**
+         * Copy the spooled output of the session to the given streams.
+         *
+         * @param logger
+         *            stream to copy the output of the session to.
+         * @param output
+         *            stream collecting the output of all sessions.
+         * @throws IOException
+         *             when reading the spooled output fails.
+         */
+        void copyOutput(final PrintStream logger, final OutputStream output) throws IOException {
+            if (!started) {
+                return;
+            }
+
+            final InputStream input = new FileInputStream(spool);
+
+            try {
+                IOUtils.copy(input, new TeeOutputStream(logger, output));
+                logger.println();
+            }
+            finally {
+                input.close();
+            }
+        }
+
+        /**
+         * Delete the spooled output of the session.
+         */
+        void deleteOutput() {
+            if (spool.exists() && !spool.delete()) {
+                spool.deleteOnExit();
+            }
+        }
+    }
+}
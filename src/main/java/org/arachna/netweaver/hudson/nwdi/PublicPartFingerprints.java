@@ -0,0 +1,393 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.PublicPartReference;
+
+/**
+ * Fingerprints of the public parts development components produce (the content of <code>gen/default/public/&lt;public part&gt;</code>).
+ *
+ * The fingerprints are recorded before building. After a development component was built its public parts are fingerprinted again, so
+ * components using it need to be rebuilt only when a public part they reference changed (early cutoff). Archives (JAR/ZIP files) are
+ * fingerprinted by the names and contents of their entries, leaving out time stamps and manifests, so repackaging identical classes does
+ * not count as a change.
+ *
+ * Only development components whose last build succeeded (see {@link DCBuildSuccessMarkers}) are regarded as having build results that can
+ * be kept.
+ *
+ * @author Dirk Weigenand
+ */
+final class PublicPartFingerprints {
+    /**
+     * algorithm used for fingerprints.
+     */
+    private static final String ALGORITHM = "SHA-1";
+
+    /**
+     * fingerprint of a public part that does not exist.
+     */
+    private static final String MISSING = "missing";
+
+    /**
+     * helper to determine the location of development components in the workspace.
+     */
+    private final AntHelper antHelper;
+
+    /**
+     * registry for development components.
+     */
+    private final DevelopmentComponentFactory dcFactory;
+
+    /**
+     * markers recording which development components were built successfully last.
+     */
+    private final DCBuildSuccessMarkers markers;
+
+    /**
+     * development components whose last build succeeded when the fingerprints were recorded.
+     */
+    private final Set<DevelopmentComponent> builtSuccessfully = new HashSet<DevelopmentComponent>();
+
+    /**
+     * fingerprints of the public parts recorded before building mapped by development component and public part name.
+     */
+    private final Map<DevelopmentComponent, Map<String, String>> recorded = new HashMap<DevelopmentComponent, Map<String, String>>();
+
+    /**
+     * fingerprints of the public parts after building mapped by development component and public part name.
+     */
+    private final Map<DevelopmentComponent, Map<String, String>> current = new HashMap<DevelopmentComponent, Map<String, String>>();
+
+    /**
+     * Create fingerprints of the public parts of development components.
+     *
+     * @param antHelper
+     *            helper to determine the location of development components in the workspace.
+     * @param dcFactory
+     *            registry for development components.
+     * @param markers
+     *            markers recording which development components were built successfully last.
+     */
+    PublicPartFingerprints(final AntHelper antHelper, final DevelopmentComponentFactory dcFactory, final DCBuildSuccessMarkers markers) {
+        this.antHelper = antHelper;
+        this.dcFactory = dcFactory;
+        this.markers = markers;
+    }
+
+    /**
+     * Record the fingerprints of the public parts of the given development components and whether their last build succeeded before
+     * building them.
+     *
+     * @param components
+     *            the development components to build.
+     * @throws IOException
+     *             when reading the public parts fails.
+     */
+    void record(final Collection<DevelopmentComponent> components) throws IOException {
+        for (final DevelopmentComponent component : components) {
+            recorded.put(component, fingerprint(component));
+
+            if (markers.isMarked(component)) {
+                builtSuccessfully.add(component);
+            }
+            else {
+                builtSuccessfully.remove(component);
+            }
+        }
+    }
+
+    /**
+     * Determine whether the given development component has build results that can be kept when none of its inputs changed.
+     *
+     * @param component
+     *            the development component.
+     * @return <code>true</code> when the public parts of the development component were recorded and its last build succeeded (so its
+     *         build results are complete), <code>false</code> otherwise.
+     */
+    boolean hasBuildResults(final DevelopmentComponent component) {
+        return recorded.containsKey(component) && builtSuccessfully.contains(component);
+    }
+
+    /**
+     * Determine whether the given development component references a public part of one of the given rebuilt components that changed by
+     * rebuilding.
+     *
+     * @param component
+     *            the development component.
+     * @param rebuiltComponents
+     *            the development components rebuilt so far.
+     * @return <code>true</code> when a referenced public part changed, <code>false</code> otherwise.
+     * @throws IOException
+     *             when reading the public parts fails.
+     */
+    boolean usesChangedPublicPart(final DevelopmentComponent component, final Collection<DevelopmentComponent> rebuiltComponents)
+        throws IOException {
+        for (final PublicPartReference reference : component.getUsedDevelopmentComponents()) {
+            final DevelopmentComponent usedComponent = dcFactory.get(reference);
+
+            if (usedComponent != null && rebuiltComponents.contains(usedComponent) && hasChanged(usedComponent, reference.getName())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Determine whether the given public part of the given (rebuilt) development component changed.
+     *
+     * @param component
+     *            the development component.
+     * @param publicPart
+     *            name of the public part (all public parts when empty).
+     * @return <code>true</code> when the public part changed or was not recorded, <code>false</code> otherwise.
+     * @throws IOException
+     *             when reading the public parts fails.
+     */
+    private boolean hasChanged(final DevelopmentComponent component, final String publicPart) throws IOException {
+        final Map<String, String> before = recorded.get(component);
+
+        if (before == null) {
+            return true;
+        }
+
+        Map<String, String> after = current.get(component);
+
+        if (after == null) {
+            after = fingerprint(component);
+            current.put(component, after);
+        }
+
+        if (publicPart == null || publicPart.length() == 0) {
+            return !before.equals(after);
+        }
+
+        final String fingerprint = before.get(publicPart);
+
+        return fingerprint == null || !fingerprint.equals(after.get(publicPart));
+    }
+
+    /**
+     * Fingerprint the public parts of the given development component.
+     *
+     * @param component
+     *            the development component.
+     * @return the fingerprints of the public parts of the given development component mapped by public part name.
+     * @throws IOException
+     *             when reading the public parts fails.
+     */
+    private Map<String, String> fingerprint(final DevelopmentComponent component) throws IOException {
+        final SortedMap<String, String> fingerprints = new TreeMap<String, String>();
+        final File[] publicParts = new File(antHelper.getBaseLocation(component), "gen/default/public").listFiles();
+
+        if (publicParts != null) {
+            for (final File publicPart : publicParts) {
+                if (publicPart.isDirectory()) {
+                    fingerprints.put(publicPart.getName(), fingerprintFolder(publicPart));
+                }
+            }
+        }
+
+        return fingerprints;
+    }
+
+    /**
+     * Fingerprint the files in the given folder and its sub folders.
+     *
+     * @param folder
+     *            the folder.
+     * @return the fingerprint of the given folder.
+     * @throws IOException
+     *             when reading the files fails.
+     */
+    private String fingerprintFolder(final File folder) throws IOException {
+        if (!folder.isDirectory()) {
+            return MISSING;
+        }
+
+        final MessageDigest digest = createDigest();
+        final List<File> pending = new ArrayList<File>(Arrays.asList(folder));
+        final SortedMap<String, File> files = new TreeMap<String, File>();
+
+        while (!pending.isEmpty()) {
+            final File next = pending.remove(pending.size() - 1);
+            final File[] children = next.listFiles();
+
+            if (children != null) {
+                for (final File child : children) {
+                    if (child.isDirectory()) {
+                        pending.add(child);
+                    }
+                    else {
+                        files.put(child.getAbsolutePath().substring(folder.getAbsolutePath().length() + 1)
+                            .replace(File.separatorChar, '/'), child);
+                    }
+                }
+            }
+        }
+
+        for (final Map.Entry<String, File> file : files.entrySet()) {
+            update(digest, file.getKey());
+
+            if (isArchive(file.getKey())) {
+                fingerprintArchive(digest, file.getValue());
+            }
+            else {
+                fingerprintFile(digest, file.getValue());
+            }
+        }
+
+        return new String(Hex.encodeHex(digest.digest()));
+    }
+
+    /**
+     * Update the given digest with the names and contents of the entries of the given archive (sorted by name). Directories, time stamps
+     * and manifests are left out.
+     *
+     * @param digest
+     *            the digest to update.
+     * @param archive
+     *            the archive.
+     * @throws IOException
+     *             when reading the archive fails.
+     */
+    private void fingerprintArchive(final MessageDigest digest, final File archive) throws IOException {
+        final SortedMap<String, String> entries = new TreeMap<String, String>();
+        final ZipInputStream zip = new ZipInputStream(new BufferedInputStream(new FileInputStream(archive)));
+
+        try {
+            ZipEntry entry = zip.getNextEntry();
+
+            while (entry != null) {
+                if (!entry.isDirectory() && !entry.getName().endsWith("MANIFEST.MF")) {
+                    final MessageDigest entryDigest = createDigest();
+                    update(entryDigest, zip);
+                    entries.put(entry.getName(), new String(Hex.encodeHex(entryDigest.digest())));
+                }
+
+                entry = zip.getNextEntry();
+            }
+        }
+        finally {
+            IOUtils.closeQuietly(zip);
+        }
+
+        for (final Map.Entry<String, String> entry : entries.entrySet()) {
+            update(digest, entry.getKey());
+            update(digest, entry.getValue());
+        }
+    }
+
+    /**
+     * Update the given digest with the content of the given file.
+     *
+     * @param digest
+     *            the digest to update.
+     * @param file
+     *            the file.
+     * @throws IOException
+     *             when reading the file fails.
+     */
+    private void fingerprintFile(final MessageDigest digest, final File file) throws IOException {
+        final InputStream content = new FileInputStream(file);
+
+        try {
+            update(digest, content);
+        }
+        finally {
+            IOUtils.closeQuietly(content);
+        }
+    }
+
+    /**
+     * Determine whether the file with the given name is an archive.
+     *
+     * @param name
+     *            name of file.
+     * @return <code>true</code> when the file is a JAR or ZIP archive, <code>false</code> otherwise.
+     */
+    private boolean isArchive(final String name) {
+        final String lowerCaseName = name.toLowerCase();
+
+        return lowerCaseName.endsWith(".jar") || lowerCaseName.endsWith(".zip");
+    }
+
+    /**
+     * Update the given digest with the content of the given stream.
+     *
+     * @param digest
+     *            the digest to update.
+     * @param content
+     *            the content (not closed).
+     * @throws IOException
+     *             when reading the content fails.
+     */
+    private void update(final MessageDigest digest, final InputStream content) throws IOException {
+        final byte[] buffer = new byte[8192];
+        int count = content.read(buffer);
+
+        while (count > -1) {
+            digest.update(buffer, 0, count);
+            count = content.read(buffer);
+        }
+    }
+
+    /**
+     * Update the given digest with the given text.
+     *
+     * @param digest
+     *            the digest to update.
+     * @param text
+     *            the text.
+     */
+    private void update(final MessageDigest digest, final String text) {
+        try {
+            digest.update(text.getBytes("UTF-8"));
+            digest.update((byte)0);
+        }
+        catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Create a message digest.
+     *
+     * @return a new message digest.
+     */
+    private MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        }
+        catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import hudson.model.Api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.RebuildImpactIndex;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Answer to the question which development components must be rebuilt when a given set of development components changes. Exported via
+ * the remote API of a build (e.g. <code>.../rebuildImpact/example.com~lib~jdbc,example.com~app/api/json</code>).
+ *
+ * Development components are named using their vendor and name separated by '~' (the '/' characters of the name replaced by '~' too),
+ * multiple development components are separated by ','.
+ *
+ * @author Dirk Weigenand
+ */
+@ExportedBean(defaultVisibility = 2)
+public final class RebuildImpact {
+    /**
+     * reachability index to query.
+     */
+    private final RebuildImpactIndex index;
+
+    /**
+     * the changed development components.
+     */
+    private final Collection<DevelopmentComponent> changedComponents;
+
+    /**
+     * Create the answer to which development components must be rebuilt when the given ones change.
+     *
+     * @param index
+     *            reachability index to query.
+     * @param changedComponents
+     *            the changed development components.
+     */
+    RebuildImpact(final RebuildImpactIndex index, final Collection<DevelopmentComponent> changedComponents) {
+        this.index = index;
+        this.changedComponents = changedComponents;
+    }
+
+    /**
+     * Create the answer to which development components must be rebuilt when the given ones change.
+     *
+     * @param index
+     *            reachability index to query.
+     * @param dcFactory
+     *            registry for development components to look up the named components.
+     * @param names
+     *            names of the changed development components ('vendor~name', separated by ',').
+     * @return the answer to which development components must be rebuilt when the named ones change. Unknown development components are
+     *         ignored.
+     */
+    static RebuildImpact create(final RebuildImpactIndex index, final DevelopmentComponentFactory dcFactory, final String names) {
+        final Collection<DevelopmentComponent> components = new ArrayList<DevelopmentComponent>();
+
+        for (final String name : names.split(",")) {
+            final int separator = name.indexOf('~');
+
+            if (separator > 0) {
+                final DevelopmentComponent component =
+                    dcFactory.get(name.substring(0, separator).trim(), name.substring(separator + 1).trim().replace('~', '/'));
+
+                if (component != null) {
+                    components.add(component);
+                }
+            }
+        }
+
+        return new RebuildImpact(index, components);
+    }
+
+    /**
+     * Returns the version of the development configuration the answer is based on.
+     *
+     * @return the version of the development configuration the answer is based on.
+     */
+    @Exported
+    public String getVersion() {
+        return index.getVersion();
+    }
+
+    /**
+     * Returns the names of the changed development components.
+     *
+     * @return the names ('vendor~name') of the changed development components.
+     */
+    @Exported
+    public List<String> getChangedComponents() {
+        return getNames(changedComponents);
+    }
+
+    /**
+     * Returns the names of the development components that must be rebuilt.
+     *
+     * @return the names ('vendor~name') of the development components that must be rebuilt.
+     */
+    @Exported
+    public List<String> getImpactedComponents() {
+        return getNames(index.getImpactedComponents(changedComponents));
+    }
+
+    /**
+     * Remote API access.
+     *
+     * @return the remote API for this answer.
+     */
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    /**
+     * Returns the names of the given development components.
+     *
+     * @param components
+     *            the development components.
+     * @return the names ('vendor~name') of the given development components.
+     */
+    private List<String> getNames(final Collection<DevelopmentComponent> components) {
+        final List<String> names = new ArrayList<String>(components.size());
+
+        for (final DevelopmentComponent component : components) {
+            names.add(String.format("%s~%s", component.getVendor(), component.getName().replace('/', '~')));
+        }
+
+        return names;
+    }
+}
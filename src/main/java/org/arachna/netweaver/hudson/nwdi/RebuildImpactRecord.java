@@ -0,0 +1,188 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.arachna.netweaver.dc.types.Compartment;
+import org.arachna.netweaver.dc.types.CompartmentState;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.DevelopmentComponentGraph;
+import org.arachna.netweaver.dc.types.PublicPartReference;
+import org.arachna.netweaver.dc.types.RebuildImpactIndex;
+
+/**
+ * Record of the dependency graph a build used to determine the development components to rebuild. Persisted with the build so rebuild
+ * impact queries are answered from the graph of the build even after it was loaded from disk.
+ *
+ * Only development components contained in a compartment are recorded (others are neither part of an impact nor do they propagate it).
+ * The record keeps vendor, name and compartment of each development component and the ids of the components it uses. The registry of
+ * development components and the reachability index are created from it when first asked for.
+ *
+ * @author Dirk Weigenand
+ */
+final class RebuildImpactRecord implements Serializable {
+    /**
+     * serialization id.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * version of the development configuration the graph belongs to.
+     */
+    private final String version;
+
+    /**
+     * vendors of the recorded development components indexed by id.
+     */
+    private final String[] vendors;
+
+    /**
+     * names of the recorded development components indexed by id.
+     */
+    private final String[] names;
+
+    /**
+     * names of the compartments of the recorded development components indexed by id.
+     */
+    private final String[] compartments;
+
+    /**
+     * ids of the development components used by each recorded development component (separated by ',').
+     */
+    private final String[] used;
+
+    /**
+     * registry of the development components created from this record (<code>null</code> until first asked for).
+     */
+    private transient DevelopmentComponentFactory dcFactory;
+
+    /**
+     * reachability index created from this record (<code>null</code> until first asked for).
+     */
+    private transient RebuildImpactIndex index;
+
+    /**
+     * Create a record of the given dependency graph.
+     *
+     * @param version
+     *            version of the development configuration the graph belongs to.
+     * @param vendors
+     *            vendors of the recorded development components indexed by id.
+     * @param names
+     *            names of the recorded development components indexed by id.
+     * @param compartments
+     *            names of the compartments of the recorded development components indexed by id.
+     * @param used
+     *            ids of the development components used by each recorded development component (separated by ',').
+     */
+    private RebuildImpactRecord(final String version, final String[] vendors, final String[] names, final String[] compartments,
+        final String[] used) {
+        this.version = version;
+        this.vendors = vendors;
+        this.names = names;
+        this.compartments = compartments;
+        this.used = used;
+    }
+
+    /**
+     * Record the dependency graph of the given reachability index.
+     *
+     * @param index
+     *            reachability index to record the dependency graph of.
+     * @return record of the dependency graph of the given reachability index.
+     */
+    static RebuildImpactRecord create(final RebuildImpactIndex index) {
+        final DevelopmentComponentGraph graph = index.getGraph();
+        final int[] ids = new int[graph.size()];
+        int count = 0;
+
+        for (int id = 0; id < graph.size(); id++) {
+            ids[id] = graph.getComponent(id).getCompartment() == null ? -1 : count++;
+        }
+
+        final String[] vendors = new String[count];
+        final String[] names = new String[count];
+        final String[] compartments = new String[count];
+        final String[] used = new String[count];
+
+        for (int id = 0; id < graph.size(); id++) {
+            if (ids[id] > -1) {
+                final DevelopmentComponent component = graph.getComponent(id);
+                final StringBuilder usedIds = new StringBuilder();
+
+                for (int i = 0; i < graph.getUsedCount(id); i++) {
+                    final int usedId = ids[graph.getUsed(id, i)];
+
+                    if (usedId > -1) {
+                        usedIds.append(usedIds.length() > 0 ? "," : "").append(usedId);
+                    }
+                }
+
+                vendors[ids[id]] = component.getVendor();
+                names[ids[id]] = component.getName();
+                compartments[ids[id]] = component.getCompartment().getName();
+                used[ids[id]] = usedIds.toString();
+            }
+        }
+
+        return new RebuildImpactRecord(index.getVersion(), vendors, names, compartments, used);
+    }
+
+    /**
+     * Returns the registry of the recorded development components.
+     *
+     * @return the registry of the recorded development components.
+     */
+    synchronized DevelopmentComponentFactory getDevelopmentComponentFactory() {
+        if (dcFactory == null) {
+            final DevelopmentComponentFactory factory = new DevelopmentComponentFactory();
+            final Map<String, Compartment> compartmentsByName = new HashMap<String, Compartment>();
+            final DevelopmentComponent[] components = new DevelopmentComponent[names.length];
+
+            for (int id = 0; id < names.length; id++) {
+                components[id] = factory.create(vendors[id], names[id]);
+                Compartment compartment = compartmentsByName.get(compartments[id]);
+
+                if (compartment == null) {
+                    // the compartment only marks membership, its other properties are not needed for impact queries
+                    compartment = new Compartment(compartments[id], CompartmentState.Source, vendors[id], "", compartments[id]);
+                    compartmentsByName.put(compartments[id], compartment);
+                }
+
+                compartment.add(components[id]);
+            }
+
+            for (int id = 0; id < names.length; id++) {
+                if (used[id].length() > 0) {
+                    for (final String usedId : used[id].split(",")) {
+                        final DevelopmentComponent usedComponent = components[Integer.parseInt(usedId)];
+                        components[id].add(new PublicPartReference(usedComponent.getVendor(), usedComponent.getName()));
+                    }
+                }
+            }
+
+            factory.updateUsingDCs();
+            dcFactory = factory;
+        }
+
+        return dcFactory;
+    }
+
+    /**
+     * Returns the reachability index over the recorded dependency graph.
+     *
+     * @return the reachability index over the recorded dependency graph.
+     */
+    synchronized RebuildImpactIndex getRebuildImpactIndex() {
+        if (index == null) {
+            index = getDevelopmentComponentFactory().getRebuildImpactIndex(version);
+        }
+
+        return index;
+    }
+}
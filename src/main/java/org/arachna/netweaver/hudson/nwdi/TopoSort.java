@@ -5,20 +5,28 @@ package org.arachna.netweaver.hudson.nwdi;
 
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.Map;
 
 import org.arachna.netweaver.dc.types.DevelopmentComponent;
 import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
-import org.arachna.netweaver.dc.types.PublicPartReference;
+import org.arachna.netweaver.dc.types.DevelopmentComponentGraph;
+import org.arachna.netweaver.dc.types.RebuildImpactIndex;
 
 /**
  * Sort a collection of development components topologically wrt. their dependency relations.
  *
+ * The development components to rebuild are the given components and (transitively) the components using them. They are ordered using
+ * Kahn's algorithm and grouped into waves: the first wave contains the components not depending on other components to rebuild, each
+ * following wave the components depending only on components of earlier waves. Components that can't be ordered because they are part of
+ * (or depend on) circular dependencies are left out. The circular dependencies are determined as strongly connected components (using
+ * Tarjan's algorithm) and each one is reported once.
+ *
+ * The components to rebuild are taken from the {@link RebuildImpactIndex} of the registry. All traversals are iterative and work on the
+ * indexed {@link DevelopmentComponentGraph}, so sorting takes time linear in the number of components and dependencies.
+ *
  * @author Dirk Weigenand
  */
 public class TopoSort {
@@ -27,6 +35,11 @@ public class TopoSort {
      */
     private final DevelopmentComponentFactory dcFactory;
 
+    /**
+     * version of the development configuration the development components belong to.
+     */
+    private final String version;
+
     /**
      * Logger to console.
      */
@@ -37,332 +50,535 @@ public class TopoSort {
      *
      * @param dcFactory
      *            registry/factory for development components.
+     * @param logger
+     *            Logger to console.
      */
     public TopoSort(final DevelopmentComponentFactory dcFactory, final PrintStream logger) {
+        this(dcFactory, "", logger);
+    }
+
+    /**
+     * Create an instance of the TopoSort class using the given registry/factory for development components. The reachability index of the
+     * registry memoized for the given version of the development configuration is used to determine the components to rebuild.
+     *
+     * @param dcFactory
+     *            registry/factory for development components.
+     * @param version
+     *            version of the development configuration the development components belong to.
+     * @param logger
+     *            Logger to console.
+     */
+    public TopoSort(final DevelopmentComponentFactory dcFactory, final String version, final PrintStream logger) {
         this.dcFactory = dcFactory;
+        this.version = version;
         this.logger = logger;
     }
 
     /**
      * Sort the development components to be built topologically (determine build their order).
      *
-     * @return the result of the topological sort containing the development components in build order. The result object will also contain
-     *         circular dependencies between the components.
+     * @param components
+     *            development components that need to be rebuilt.
+     * @return the result of the topological sort containing the development components in build order (and grouped into waves). The result
+     *         object will also contain circular dependencies between the components.
      */
     public TopoSortResult sort(final Collection<DevelopmentComponent> components) {
         final TopoSortResult topoSortResult = new TopoSortResult();
-        final Map<String, ComponentWrapper> itemMap = getComponentsToRebuild(components);
+        final RebuildImpactIndex index = dcFactory.getRebuildImpactIndex(version);
+        final Subgraph subgraph = new Subgraph(index.getGraph(), getComponentsToRebuild(index, components));
+        final boolean[] sorted = new boolean[subgraph.size()];
 
-        topoSort(topoSortResult, itemMap, new ArrayList<ComponentWrapper>(itemMap.values()));
+        sortIntoWaves(topoSortResult, subgraph, sorted);
+        findCircularDependencies(topoSortResult, subgraph, sorted);
 
         return topoSortResult;
     }
 
     /**
-     * Do a topological sort wrt. to dependencies on the given list of items (wrapper around {@link DevelopmentComponent} to facilitate the
-     * removal of dependencies for the purpose of sorting). Store the result of the sort in the {@link TopoSortResult}. If there are still
-     * items in the list when no progress can be made on the sort, extract circular dependencies and report those in the given
-     * {@link TopoSortResult} parameter.
+     * Determine the development components that need to be rebuilt: the given components and (transitively) the components using them.
+     * Components not contained in a compartment are left out. The components to rebuild are marked as needing a rebuild.
      *
-     * @param topoSortResult
-     *            Collector object for results of the topological sort and circular dependencies.
-     * @param itemMap
-     *            a map of all items for reference.
-     * @param items
-     *            list of items to be sorted topologically.
+     * @param index
+     *            reachability index over the dependency graph of all development components.
+     * @param componentsToRebuild
+     *            components that should be rebuilt.
+     * @return ids of the components to rebuild (in ascending order).
      */
-    private void topoSort(final TopoSortResult topoSortResult, final Map<String, ComponentWrapper> itemMap,
-        final List<ComponentWrapper> items) {
-        final ListIterator<ComponentWrapper> iterator = items.listIterator();
-        final int oldSize = topoSortResult.getDevelopmentComponents().size();
-
-        while (iterator.hasNext()) {
-            final ComponentWrapper item = iterator.next();
-
-            // remove usedDCs that don't need rebuilding from dependencies.
-            Collection<DevelopmentComponent> usedDCs = new ArrayList<DevelopmentComponent>(item.getUsedDCs());
-
-            for (DevelopmentComponent usedDC : usedDCs) {
-                if (!usedDC.isNeedsRebuild()) {
-                    item.removeUsedDC(usedDC);
-                }
-            }
-
-            if (!item.hasUsedDCs()) {
-                final DevelopmentComponent component = item.getComponent();
-                topoSortResult.add(component);
-                iterator.remove();
-
-                for (final DevelopmentComponent usingDC : item.getUsingDCs()) {
-                	ComponentWrapper componentItem=itemMap.get(getComponentName(usingDC));
-                    
-                	if (componentItem!=null) {
-                		componentItem.removeUsedDC(component);
-                	}
-                	
-                }
-            }
+    private int[] getComponentsToRebuild(final RebuildImpactIndex index, final Collection<DevelopmentComponent> componentsToRebuild) {
+        final BitSet impact = index.getImpact(componentsToRebuild);
+        final int[] found = new int[impact.cardinality()];
+        int foundCount = 0;
+
+        for (int id = impact.nextSetBit(0); id > -1; id = impact.nextSetBit(id + 1)) {
+            index.getGraph().getComponent(id).setNeedsRebuild(true);
+            found[foundCount++] = id;
         }
 
-        if (oldSize == topoSortResult.getDevelopmentComponents().size()) {
-            findCircularDependencies(topoSortResult, itemMap, items);
-        }
-        else {
-            if (!items.isEmpty()) {
-                topoSort(topoSortResult, itemMap, items);
-            }
-        }
+        return found;
     }
 
     /**
-     * Create key for item map from vendor and component name.
-     *
-     * @param usingDC
-     *            development component to create key from.
-     * @return vendor + ":" + name of development component.
-     */
-    private String getComponentName(final DevelopmentComponent usingDC) {
-        return usingDC.getVendor() + ":" + usingDC.getName();
-    }
-
-    /**
-     * Find circular dependencies in the given list of items.
+     * Sort the components of the given subgraph into waves using Kahn's algorithm. Add the waves to the given result and mark the sorted
+     * components.
      *
      * @param topoSortResult
-     *            collector object to report the found circular dependencies to.
-     * @param itemMap
-     *            map of names to item for looking up items by name.
-     * @param items
-     *            list of items to inspect for circular dependencies.
+     *            collector for the results of the topological sort.
+     * @param subgraph
+     *            the components to rebuild and their dependencies.
+     * @param sorted
+     *            marks of the components that were sorted.
      */
-    private void findCircularDependencies(final TopoSortResult topoSortResult, final Map<String, ComponentWrapper> itemMap,
-        final List<ComponentWrapper> items) {
-        for (final ComponentWrapper item : items) {
-            findRecursivelyInUsedDCs(0, item.getComponent(), item, itemMap, topoSortResult, new HashSet<DevelopmentComponent>());
-        }
-    }
+    private void sortIntoWaves(final TopoSortResult topoSortResult, final Subgraph subgraph, final boolean[] sorted) {
+        final int[] pendingDependencies = new int[subgraph.size()];
+        int[] wave = new int[subgraph.size()];
+        int waveSize = 0;
 
-    /**
-     * Inspect the given item whether the given component is contained in the used DCs of the item. Skip the visit if the given item has
-     * been visited or the component is marked as having a circular dependency already .
-     *
-     * @param component
-     *            development component that is to be checked for having circular dependencies.
-     * @param parent
-     *            development component (wrapper) that is to be searched for usage relations with the given component.
-     * @param itemMap
-     *            name -> item map for lookup of items by name.
-     * @param topoSortResult
-     *            result collector to report circular dependencies to.
-     * @param visitedParents
-     *            collector object to avoid multiple visits on items (and infinite recursion aka StackOverflowError).
-     */
-    private void findRecursivelyInUsedDCs(final int depth, final DevelopmentComponent component, final ComponentWrapper parent,
-        final Map<String, ComponentWrapper> itemMap, final TopoSortResult topoSortResult,
-        final Collection<DevelopmentComponent> visitedParents) {
-        if (topoSortResult.hasCircularDependency(component) || (parent != null && visitedParents.contains(parent.getComponent()))) {
-            return;
+        for (int node = 0; node < subgraph.size(); node++) {
+            pendingDependencies[node] = subgraph.getUsedCount(node);
+
+            if (pendingDependencies[node] == 0) {
+                wave[waveSize++] = node;
+            }
         }
 
-        visitedParents.add(parent.getComponent());
+        int[] nextWave = new int[subgraph.size()];
 
-        if (parent.getUsedDCs().contains(component)) {
-            topoSortResult.add(component, parent.getComponent());
-        }
+        while (waveSize > 0) {
+            final List<DevelopmentComponent> components = new ArrayList<DevelopmentComponent>(waveSize);
+            int nextWaveSize = 0;
 
-        for (final DevelopmentComponent usedDC : parent.getUsedDCs()) {
-            final String componentName = getComponentName(usedDC);
-            final ComponentWrapper dependency = itemMap.get(componentName);
+            for (int i = 0; i < waveSize; i++) {
+                final int node = wave[i];
+                sorted[node] = true;
+                components.add(subgraph.getComponent(node));
 
-            findRecursivelyInUsedDCs(depth + 1, component, dependency, itemMap, topoSortResult, visitedParents);
-        }
-    }
+                for (int j = 0; j < subgraph.getUsingCount(node); j++) {
+                    final int usingNode = subgraph.getUsing(node, j);
 
-    /**
-     * Calculate development components that will need to be rebuilt and build a mapping of name to item wrapper.
-     *
-     * @param componentsToRebuild
-     *            list of components that should be rebuilt.
-     * @return mapping of name to item wrapper of components (and components depending on them) need to be rebuilt.
-     */
-    private Map<String, ComponentWrapper> getComponentsToRebuild(final Collection<DevelopmentComponent> componentsToRebuild) {
-        final Map<String, ComponentWrapper> components = new HashMap<String, ComponentWrapper>();
+                    if (--pendingDependencies[usingNode] == 0) {
+                        nextWave[nextWaveSize++] = usingNode;
+                    }
+                }
+            }
 
-        for (final DevelopmentComponent dc : componentsToRebuild) {
-            calculateDevelopmentComponentsThatNeedRebuilding(components, dc);
-        }
+            topoSortResult.addWave(components);
 
-        return components;
+            final int[] swap = wave;
+            wave = nextWave;
+            nextWave = swap;
+            waveSize = nextWaveSize;
+        }
     }
 
     /**
-     * Update the <code>needsRebuild</code> property recursively for the given components using DCs.
+     * Find circular dependencies among the components that could not be sorted. Each strongly connected component (containing more than one
+     * component or a component depending on itself) is reported as one cycle. The dependencies within the cycle are reported as circular
+     * dependencies.
      *
-     * @param components
-     *            map of components processed so far.
-     * @param component
-     *            the development component whose using DCs have to be set up as needing a rebuild.
+     * @param topoSortResult
+     *            collector object to report the found circular dependencies to.
+     * @param subgraph
+     *            the components to rebuild and their dependencies.
+     * @param sorted
+     *            marks of the components that were sorted.
      */
-    private void calculateDevelopmentComponentsThatNeedRebuilding(final Map<String, ComponentWrapper> components,
-        final DevelopmentComponent component) {
-        if (component.getCompartment() != null && !components.containsKey(getComponentName(component))) {
-            component.setNeedsRebuild(true);
-            final ComponentWrapper i = new ComponentWrapper(component, createListOfUsedDCs(component));
-            components.put(i.getName(), i);
-
-            for (final DevelopmentComponent usingDC : i.getUsingDCs()) {
-                calculateDevelopmentComponentsThatNeedRebuilding(components, usingDC);
+    private void findCircularDependencies(final TopoSortResult topoSortResult, final Subgraph subgraph, final boolean[] sorted) {
+        final StronglyConnectedComponents sccs = new StronglyConnectedComponents(subgraph, sorted);
+
+        for (int node = 0; node < subgraph.size(); node++) {
+            if (!sorted[node] && !sccs.isVisited(node)) {
+                for (final int[] scc : sccs.find(node)) {
+                    if (scc.length > 1 || subgraph.uses(scc[0], scc[0])) {
+                        reportCycle(topoSortResult, subgraph, scc);
+                    }
+                }
             }
         }
     }
 
     /**
-     * Create a collection of used DCs from the public part references of the given component.
+     * Report the given strongly connected component as cycle.
      *
-     * @param component
-     *            the component whose referenced development components are requested.
-     * @return collection of used DCs.
+     * @param topoSortResult
+     *            collector object to report the cycle to.
+     * @param subgraph
+     *            the components to rebuild and their dependencies.
+     * @param scc
+     *            the nodes of the strongly connected component (in ascending order).
      */
-    private Collection<DevelopmentComponent> createListOfUsedDCs(final DevelopmentComponent component) {
-        final Collection<DevelopmentComponent> usedDCs = new HashSet<DevelopmentComponent>(component.getUsedDevelopmentComponents().size());
+    private void reportCycle(final TopoSortResult topoSortResult, final Subgraph subgraph, final int[] scc) {
+        final List<DevelopmentComponent> cycle = new ArrayList<DevelopmentComponent>(scc.length);
+
+        for (final int node : scc) {
+            cycle.add(subgraph.getComponent(node));
+        }
+
+        topoSortResult.addCycle(cycle);
 
-        for (final PublicPartReference reference : component.getUsedDevelopmentComponents()) {
-            final DevelopmentComponent e = dcFactory.get(reference);
+        for (final int node : scc) {
+            for (int i = 0; i < subgraph.getUsedCount(node); i++) {
+                final int usedNode = subgraph.getUsed(node, i);
 
-            // only look at DCs that are in source state and need rebuilding themselves.
-            if (e != null && e.getCompartment().isSourceState()) {
-                usedDCs.add(e);
+                if (Arrays.binarySearch(scc, usedNode) >= 0) {
+                    topoSortResult.add(subgraph.getComponent(usedNode), subgraph.getComponent(node));
+                }
             }
         }
-
-        return usedDCs;
     }
 
     /**
-     * Wrapper around a development component (used for performance reasons).
+     * The development components to rebuild and the dependencies among them. Only dependencies to components in source state are
+     * considered. The nodes are numbered densely in the order the components to rebuild were found.
      *
      * @author Dirk Weigenand
      */
-    private static final class ComponentWrapper implements Comparable<ComponentWrapper> {
+    private static final class Subgraph {
+        /**
+         * the development components (indexed by node).
+         */
+        private final DevelopmentComponent[] components;
+
         /**
-         * Combination of vendor and component name.
+         * start of the used nodes of each node in {@link #used}.
          */
-        private final String name;
+        private final int[] usedOffsets;
 
         /**
-         * the component itself.
+         * used nodes of all nodes.
          */
-        private final DevelopmentComponent component;
+        private final int[] used;
 
         /**
-         * components using this component.
+         * start of the using nodes of each node in {@link #using}.
          */
-        private final Collection<DevelopmentComponent> usingDCs = new HashSet<DevelopmentComponent>();
+        private final int[] usingOffsets;
 
         /**
-         * components used by this component.
+         * using nodes of all nodes.
          */
-        private final Collection<DevelopmentComponent> usedDCs = new HashSet<DevelopmentComponent>();
+        private final int[] using;
 
         /**
-         * Create a new wrapper instance around the given component.
+         * Create the subgraph of the given dependency graph containing the given development components.
          *
-         * @param component
-         *            the component to wrap.
-         * @param usedDCs
-         *            components used by this DC so that they don't need to be recomputed from the public part reference.
+         * @param graph
+         *            dependency graph of all development components.
+         * @param ids
+         *            ids of the development components to include.
          */
-        ComponentWrapper(final DevelopmentComponent component, final Collection<DevelopmentComponent> usedDCs) {
-            this.component = component;
-            name = component.getVendor() + ":" + component.getName();
+        Subgraph(final DevelopmentComponentGraph graph, final int[] ids) {
+            final int[] nodes = new int[graph.size()];
+            Arrays.fill(nodes, -1);
+            components = new DevelopmentComponent[ids.length];
+
+            for (int node = 0; node < ids.length; node++) {
+                nodes[ids[node]] = node;
+                components[node] = graph.getComponent(ids[node]);
+            }
+
+            usedOffsets = new int[ids.length + 1];
+            usingOffsets = new int[ids.length + 1];
+            int edgeCount = 0;
+
+            for (int node = 0; node < ids.length; node++) {
+                for (int i = 0; i < graph.getUsedCount(ids[node]); i++) {
+                    final int usedNode = nodes[graph.getUsed(ids[node], i)];
 
-            usingDCs.addAll(component.getUsingDevelopmentComponents());
-            this.usedDCs.addAll(usedDCs);
+                    if (usedNode >= 0 && components[usedNode].getCompartment().isSourceState()) {
+                        edgeCount++;
+                        usingOffsets[usedNode + 1]++;
+                    }
+                }
+            }
+
+            used = new int[edgeCount];
+            using = new int[edgeCount];
+
+            for (int node = 0; node < ids.length; node++) {
+                usingOffsets[node + 1] += usingOffsets[node];
+            }
+
+            final int[] nextUsing = Arrays.copyOf(usingOffsets, ids.length);
+            int nextUsed = 0;
+
+            for (int node = 0; node < ids.length; node++) {
+                usedOffsets[node] = nextUsed;
+
+                for (int i = 0; i < graph.getUsedCount(ids[node]); i++) {
+                    final int usedNode = nodes[graph.getUsed(ids[node], i)];
+
+                    if (usedNode >= 0 && components[usedNode].getCompartment().isSourceState()) {
+                        used[nextUsed++] = usedNode;
+                        using[nextUsing[usedNode]++] = node;
+                    }
+                }
+            }
+
+            usedOffsets[ids.length] = nextUsed;
         }
 
         /**
-         * @return the usedDCs
+         * Returns the number of nodes.
+         *
+         * @return the number of nodes.
          */
-        public boolean hasUsedDCs() {
-            return !usedDCs.isEmpty();
+        int size() {
+            return components.length;
         }
 
         /**
+         * Returns the development component of the given node.
          *
-         * @param usedDC
+         * @param node
+         *            the node.
+         * @return the development component of the given node.
          */
-        public void removeUsedDC(final DevelopmentComponent usedDC) {
-            usedDCs.remove(usedDC);
+        DevelopmentComponent getComponent(final int node) {
+            return components[node];
         }
 
         /**
-         * @return the usedDCs
+         * Returns the number of nodes used by the given node.
+         *
+         * @param node
+         *            the node.
+         * @return the number of nodes used by the given node.
          */
-        public Collection<DevelopmentComponent> getUsingDCs() {
-            return component.getUsingDevelopmentComponents();
+        int getUsedCount(final int node) {
+            return usedOffsets[node + 1] - usedOffsets[node];
         }
 
         /**
-         * @return the component
+         * Returns a node used by the given node.
+         *
+         * @param node
+         *            the node.
+         * @param index
+         *            index of used node.
+         * @return the used node.
          */
-        public DevelopmentComponent getComponent() {
-            return component;
+        int getUsed(final int node, final int index) {
+            return used[usedOffsets[node] + index];
         }
 
         /**
-         * @return the name
+         * Returns the number of nodes using the given node.
+         *
+         * @param node
+         *            the node.
+         * @return the number of nodes using the given node.
          */
-        public String getName() {
-            return name;
+        int getUsingCount(final int node) {
+            return usingOffsets[node + 1] - usingOffsets[node];
         }
 
-        @Override
-        public int hashCode() {
-            return component == null ? 0 : component.hashCode();
+        /**
+         * Returns a node using the given node.
+         *
+         * @param node
+         *            the node.
+         * @param index
+         *            index of using node.
+         * @return the using node.
+         */
+        int getUsing(final int node, final int index) {
+            return using[usingOffsets[node] + index];
         }
 
-        @Override
-        public boolean equals(final Object obj) {
-            if (this == obj) {
-                return true;
-            }
-            if (obj == null) {
-                return false;
-            }
-            if (getClass() != obj.getClass()) {
-                return false;
-            }
-            final ComponentWrapper other = (ComponentWrapper)obj;
-            if (component == null) {
-                if (other.component != null) {
-                    return false;
+        /**
+         * Returns whether the first node uses the second one.
+         *
+         * @param node
+         *            the using node.
+         * @param usedNode
+         *            the used node.
+         * @return <code>true</code> when the first node uses the second one, <code>false</code> otherwise.
+         */
+        boolean uses(final int node, final int usedNode) {
+            for (int i = usedOffsets[node]; i < usedOffsets[node + 1]; i++) {
+                if (used[i] == usedNode) {
+                    return true;
                 }
             }
 
-            return !component.equals(other.component);
+            return false;
         }
+    }
 
+    /**
+     * Iterative implementation of Tarjan's algorithm finding the strongly connected components among the nodes of a subgraph that were not
+     * sorted.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class StronglyConnectedComponents {
         /**
-         * {@inheritDoc}
+         * the subgraph.
          */
-        @Override
-        public String toString() {
-            return "Item [name=" + name + "]\n";
+        private final Subgraph subgraph;
+
+        /**
+         * marks of the nodes that were sorted (and are ignored).
+         */
+        private final boolean[] sorted;
+
+        /**
+         * order in which the nodes were visited (<code>-1</code> for nodes not yet visited).
+         */
+        private final int[] index;
+
+        /**
+         * lowest index reachable from each node.
+         */
+        private final int[] lowLink;
+
+        /**
+         * marks of the nodes on the stack.
+         */
+        private final boolean[] onStack;
+
+        /**
+         * stack of nodes whose strongly connected component was not yet determined.
+         */
+        private final int[] stack;
+
+        /**
+         * nodes on the path currently explored.
+         */
+        private final int[] path;
+
+        /**
+         * index of the next edge to explore for each node on the path currently explored.
+         */
+        private final int[] nextEdge;
+
+        /**
+         * number of nodes on the stack.
+         */
+        private int stackSize;
+
+        /**
+         * number of nodes visited.
+         */
+        private int visited;
+
+        /**
+         * Create an instance for the given subgraph.
+         *
+         * @param subgraph
+         *            the subgraph.
+         * @param sorted
+         *            marks of the nodes that were sorted (and are ignored).
+         */
+        StronglyConnectedComponents(final Subgraph subgraph, final boolean[] sorted) {
+            this.subgraph = subgraph;
+            this.sorted = sorted;
+            index = new int[subgraph.size()];
+            Arrays.fill(index, -1);
+            lowLink = new int[subgraph.size()];
+            onStack = new boolean[subgraph.size()];
+            stack = new int[subgraph.size()];
+            path = new int[subgraph.size()];
+            nextEdge = new int[subgraph.size()];
+        }
+
+        /**
+         * Returns whether the given node was visited already.
+         *
+         * @param node
+         *            the node.
+         * @return <code>true</code> when the given node was visited already, <code>false</code> otherwise.
+         */
+        boolean isVisited(final int node) {
+            return index[node] >= 0;
+        }
+
+        /**
+         * Find the strongly connected components reachable from the given node (following the dependencies to used nodes).
+         *
+         * @param start
+         *            node to start at.
+         * @return the strongly connected components found (their nodes in ascending order).
+         */
+        List<int[]> find(final int start) {
+            final List<int[]> components = new ArrayList<int[]>();
+            int depth = 0;
+            visit(start);
+            path[depth] = start;
+            nextEdge[depth++] = 0;
+
+            while (depth > 0) {
+                final int node = path[depth - 1];
+
+                if (nextEdge[depth - 1] < subgraph.getUsedCount(node)) {
+                    final int usedNode = subgraph.getUsed(node, nextEdge[depth - 1]++);
+
+                    if (sorted[usedNode]) {
+                        continue;
+                    }
+
+                    if (index[usedNode] < 0) {
+                        visit(usedNode);
+                        path[depth] = usedNode;
+                        nextEdge[depth++] = 0;
+                    }
+                    else if (onStack[usedNode]) {
+                        lowLink[node] = Math.min(lowLink[node], index[usedNode]);
+                    }
+                }
+                else {
+                    depth--;
+
+                    if (depth > 0) {
+                        lowLink[path[depth - 1]] = Math.min(lowLink[path[depth - 1]], lowLink[node]);
+                    }
+
+                    if (lowLink[node] == index[node]) {
+                        components.add(popComponent(node));
+                    }
+                }
+            }
+
+            return components;
         }
 
         /**
-         * {@inheritDoc}
+         * Visit the given node.
+         *
+         * @param node
+         *            the node.
          */
-        @Override
-        public int compareTo(final ComponentWrapper o) {
-            return getName().compareTo(o.getName());
+        private void visit(final int node) {
+            index[node] = visited;
+            lowLink[node] = visited++;
+            stack[stackSize++] = node;
+            onStack[node] = true;
         }
 
         /**
-         * @return the usedDCs
+         * Remove the strongly connected component with the given root from the stack.
+         *
+         * @param root
+         *            root of the strongly connected component.
+         * @return nodes of the strongly connected component (in ascending order).
          */
-        public Collection<DevelopmentComponent> getUsedDCs() {
-            return usedDCs;
+        private int[] popComponent(final int root) {
+            int start = stackSize - 1;
+
+            while (stack[start] != root) {
+                start--;
+            }
+
+            final int[] component = Arrays.copyOfRange(stack, start, stackSize);
+
+            for (final int node : component) {
+                onStack[node] = false;
+            }
+
+            stackSize = start;
+            Arrays.sort(component);
+
+            return component;
         }
     }
 }
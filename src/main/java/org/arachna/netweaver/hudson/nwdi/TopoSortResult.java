@@ -3,9 +3,11 @@
  */
 package org.arachna.netweaver.hudson.nwdi;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
 
 import org.arachna.netweaver.dc.types.DevelopmentComponent;
 
@@ -20,11 +22,21 @@ public class TopoSortResult {
      */
     private final Collection<DevelopmentComponent> components = new LinkedList<DevelopmentComponent>();
 
+    /**
+     * development components grouped into waves (components of a wave depend only on components of earlier waves).
+     */
+    private final List<List<DevelopmentComponent>> waves = new ArrayList<List<DevelopmentComponent>>();
+
     /**
      * list of components with circular dependencies.
      */
     private final Collection<CircularDependency> circularDependencies = new LinkedList<CircularDependency>();
 
+    /**
+     * cycles (strongly connected components) among the development components.
+     */
+    private final List<List<DevelopmentComponent>> cycles = new ArrayList<List<DevelopmentComponent>>();
+
     /**
      * Add the given development component to list of development components in build order.
      *
@@ -35,6 +47,27 @@ public class TopoSortResult {
         components.add(component);
     }
 
+    /**
+     * Add the given development components as the next wave. They are also added to the list of development components in build order.
+     *
+     * @param wave
+     *            development components depending only on components of earlier waves.
+     */
+    public void addWave(final List<DevelopmentComponent> wave) {
+        waves.add(Collections.unmodifiableList(wave));
+        components.addAll(wave);
+    }
+
+    /**
+     * Get the development components grouped into waves. The components of a wave depend only on components of earlier waves and can be
+     * built independently of each other.
+     *
+     * @return development components grouped into waves.
+     */
+    public List<List<DevelopmentComponent>> getWaves() {
+        return Collections.unmodifiableList(waves);
+    }
+
     /**
      * Get the collection of development components in build order.
      *
@@ -65,6 +98,25 @@ public class TopoSortResult {
         return Collections.unmodifiableCollection(circularDependencies);
     }
 
+    /**
+     * Add the given development components as a cycle (strongly connected component).
+     *
+     * @param cycle
+     *            development components depending on each other (directly or indirectly).
+     */
+    public void addCycle(final List<DevelopmentComponent> cycle) {
+        cycles.add(Collections.unmodifiableList(cycle));
+    }
+
+    /**
+     * Get the cycles among the development components. Each cycle is a strongly connected component and reported once.
+     *
+     * @return the cycles among the development components.
+     */
+    public List<List<DevelopmentComponent>> getCycles() {
+        return Collections.unmodifiableList(cycles);
+    }
+
     /**
      * A circular dependency.
      *
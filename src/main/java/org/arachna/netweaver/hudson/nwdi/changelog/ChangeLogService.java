@@ -22,7 +22,7 @@ import org.arachna.netweaver.hudson.dtr.browser.Activity;
  */
 public final class ChangeLogService {
     /**
-     * Write the given activities as change log into the given file.
+     * Write the given activities as change log into the given file. The offset table of the change log is written next to it.
      * 
      * @param build
      *            build to use for creating the {@link ChangeLogSet}.
@@ -39,6 +39,7 @@ public final class ChangeLogService {
             new DtrChangeLogWriter(new DtrChangeLogSet(build, activities), new OutputStreamWriter(new FileOutputStream(
                 changelogFile), "UTF-8"));
         dtrChangeLogWriter.write();
+        DtrChangeLogIndex.create(changelogFile);
     }
 
     /**
@@ -192,6 +192,15 @@ public final class DtrChangeLogEntry extends Entry {
         return Util.xmlEscape(msg);
     }
 
+    /**
+     * Returns the message associated with this entry as entered by the user.
+     * 
+     * @return the commit message of this entry (not escaped).
+     */
+    String getUnescapedMsg() {
+        return msg;
+    }
+
     /**
      * Returns the time this activity was checked in.
      * 
@@ -225,6 +234,16 @@ public final class DtrChangeLogEntry extends Entry {
         }
     }
 
+    /**
+     * Set the time the activity was checked in.
+     * 
+     * @param checkInTime
+     *            the time the activity was checked in.
+     */
+    void setCheckInTime(final Date checkInTime) {
+        this.checkInTime = new Date(checkInTime.getTime());
+    }
+
     public void setUser(final String user) {
         this.user = user;
     }
@@ -262,6 +281,15 @@ public final class DtrChangeLogEntry extends Entry {
         return Util.xmlEscape(description);
     }
 
+    /**
+     * Returns the long description of this DtrChangeLogEntry as entered by the user.
+     * 
+     * @return the long description of this DtrChangeLogEntry (not escaped).
+     */
+    String getUnescapedDescription() {
+        return description;
+    }
+
     /**
      * Sets the long description of this DtrChangeLogEntry ({@link Activity}.
      * 
@@ -0,0 +1,317 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi.changelog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Table of the offsets of the change sets in a change log written by the {@link DtrChangeLogWriter}.
+ *
+ * The table is kept next to the change log (<code>changelog.xml.idx</code>) and allows reading a range of change sets without parsing the
+ * change sets before it. It contains the byte offset of each <code>changeset</code> element and the offset where the last one ends. The
+ * table is created by scanning the change log for the start tags of the change sets. Change logs written before tables were kept are
+ * scanned when they are read for the first time.
+ *
+ * @author Dirk Weigenand
+ */
+final class DtrChangeLogIndex {
+    /**
+     * Logger to use.
+     */
+    private static final Logger LOGGER = Logger.getLogger(DtrChangeLogIndex.class.getName());
+
+    /**
+     * header identifying an offset table (and its version).
+     */
+    private static final int HEADER = 0x4e57434c;
+
+    /**
+     * extension of the file containing the offset table.
+     */
+    private static final String EXTENSION = ".idx";
+
+    /**
+     * start tag of a change set (without closing bracket since attributes follow).
+     */
+    private static final byte[] CHANGE_SET = "<changeset".getBytes();
+
+    /**
+     * end tag of the change log.
+     */
+    private static final byte[] END_OF_CHANGE_LOG = "</changelog>".getBytes();
+
+    /**
+     * initial number of offsets when scanning a change log.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * size of the buffer used when scanning a change log.
+     */
+    private static final int BUFFER_SIZE = 65536;
+
+    /**
+     * offsets of the change sets followed by the offset where the last change set ends.
+     */
+    private final long[] offsets;
+
+    /**
+     * Create an offset table using the given offsets.
+     *
+     * @param offsets
+     *            offsets of the change sets followed by the offset where the last change set ends.
+     */
+    private DtrChangeLogIndex(final long[] offsets) {
+        this.offsets = offsets;
+    }
+
+    /**
+     * Load the offset table of the given change log. The change log is scanned when there is no table or it does not match the change log.
+     *
+     * @param changeLog
+     *            the change log.
+     * @return the offset table of the change log.
+     * @throws IOException
+     *             when the change log could not be scanned.
+     */
+    static DtrChangeLogIndex load(final File changeLog) throws IOException {
+        final File file = getFile(changeLog);
+
+        if (file.exists()) {
+            try {
+                final DtrChangeLogIndex index = read(file, changeLog.length());
+
+                if (index != null) {
+                    return index;
+                }
+            }
+            catch (final IOException e) {
+                LOGGER.log(Level.WARNING, String.format("Could not read change log index %s.", file), e);
+            }
+        }
+
+        return create(changeLog);
+    }
+
+    /**
+     * Create the offset table of the given change log by scanning it and keep it next to the change log.
+     *
+     * @param changeLog
+     *            the change log.
+     * @return the offset table of the change log.
+     * @throws IOException
+     *             when the change log could not be scanned.
+     */
+    static DtrChangeLogIndex create(final File changeLog) throws IOException {
+        final DtrChangeLogIndex index = scan(changeLog);
+
+        try {
+            index.write(getFile(changeLog), changeLog.length());
+        }
+        catch (final IOException e) {
+            LOGGER.log(Level.WARNING, String.format("Could not write change log index for %s.", changeLog), e);
+        }
+
+        return index;
+    }
+
+    /**
+     * Returns the number of change sets in the change log.
+     *
+     * @return the number of change sets in the change log.
+     */
+    int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Read the change sets in the given range from the change log.
+     *
+     * @param changeLog
+     *            the change log.
+     * @param from
+     *            index of the first change set to read.
+     * @param to
+     *            index of the change set following the last one to read.
+     * @return the change sets as XML (encoded as UTF-8, without enclosing <code>changelog</code> element).
+     * @throws IOException
+     *             when reading the change log fails.
+     */
+    byte[] read(final File changeLog, final int from, final int to) throws IOException {
+        if (from < 0 || to > size() || from > to) {
+            throw new IndexOutOfBoundsException(String.format("Invalid range [%d, %d) of %d change sets.", from, to, size()));
+        }
+
+        final byte[] changeSets = new byte[(int)(offsets[to] - offsets[from])];
+        final RandomAccessFile file = new RandomAccessFile(changeLog, "r");
+
+        try {
+            file.seek(offsets[from]);
+            file.readFully(changeSets);
+        }
+        finally {
+            file.close();
+        }
+
+        return changeSets;
+    }
+
+    /**
+     * Returns the file containing the offset table of the given change log.
+     *
+     * @param changeLog
+     *            the change log.
+     * @return the file containing the offset table of the given change log.
+     */
+    static File getFile(final File changeLog) {
+        return new File(changeLog.getParentFile(), changeLog.getName() + EXTENSION);
+    }
+
+    /**
+     * Scan the given change log for the start tags of the change sets and the end tag of the change log. Since <code>&lt;</code> occurs
+     * only at the start of both tags a mismatch can only restart a match at the current byte.
+     *
+     * @param changeLog
+     *            the change log.
+     * @return the offset table of the change log.
+     * @throws IOException
+     *             when reading the change log fails.
+     */
+    private static DtrChangeLogIndex scan(final File changeLog) throws IOException {
+        final InputStream input = new FileInputStream(changeLog);
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long[] offsets = new long[INITIAL_CAPACITY];
+        int count = 0;
+        long end = -1;
+
+        try {
+            long position = 0;
+            int changeSetMatched = 0;
+            int endMatched = 0;
+            int length = input.read(buffer);
+
+            while (length != -1) {
+                for (int i = 0; i < length; i++, position++) {
+                    final byte b = buffer[i];
+                    changeSetMatched = b == CHANGE_SET[changeSetMatched] ? changeSetMatched + 1 : b == CHANGE_SET[0] ? 1 : 0;
+                    endMatched = b == END_OF_CHANGE_LOG[endMatched] ? endMatched + 1 : b == END_OF_CHANGE_LOG[0] ? 1 : 0;
+
+                    if (changeSetMatched == CHANGE_SET.length) {
+                        if (count == offsets.length) {
+                            final long[] grown = new long[offsets.length * 2];
+                            System.arraycopy(offsets, 0, grown, 0, count);
+                            offsets = grown;
+                        }
+
+                        offsets[count++] = position - CHANGE_SET.length + 1;
+                        changeSetMatched = 0;
+                    }
+
+                    if (endMatched == END_OF_CHANGE_LOG.length) {
+                        end = position - END_OF_CHANGE_LOG.length + 1;
+                        endMatched = 0;
+                    }
+                }
+
+                length = input.read(buffer);
+            }
+        }
+        finally {
+            input.close();
+        }
+
+        if (end < 0) {
+            throw new IOException(String.format("%s is not a complete change log.", changeLog));
+        }
+
+        final long[] table = new long[count + 1];
+        System.arraycopy(offsets, 0, table, 0, count);
+        table[count] = end;
+
+        return new DtrChangeLogIndex(table);
+    }
+
+    /**
+     * Read the offset table from the given file.
+     *
+     * @param file
+     *            file containing the offset table.
+     * @param length
+     *            length of the change log the table should be read for.
+     * @return the offset table or <code>null</code> when the file contains no offset table or the table was created for a change log of
+     *         another length.
+     * @throws IOException
+     *             when reading the file fails.
+     */
+    private static DtrChangeLogIndex read(final File file, final long length) throws IOException {
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+        try {
+            if (input.readInt() != HEADER || input.readLong() != length) {
+                return null;
+            }
+
+            final long[] offsets = new long[input.readInt()];
+
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = input.readLong();
+            }
+
+            return offsets.length > 0 ? new DtrChangeLogIndex(offsets) : null;
+        }
+        catch (final EOFException e) {
+            LOGGER.log(Level.WARNING, String.format("Ignoring incomplete change log index %s.", file));
+
+            return null;
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Write the offset table to the given file.
+     *
+     * @param file
+     *            file to write the offset table to.
+     * @param length
+     *            length of the change log the table was created for.
+     * @throws IOException
+     *             when writing the file fails.
+     */
+    private void write(final File file, final long length) throws IOException {
+        final File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+
+        try {
+            output.writeInt(HEADER);
+            output.writeLong(length);
+            output.writeInt(offsets.length);
+
+            for (final long offset : offsets) {
+                output.writeLong(offset);
+            }
+        }
+        finally {
+            output.close();
+        }
+
+        if ((file.exists() && !file.delete()) || !temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException(String.format("Could not replace %s.", file));
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi.changelog;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of pages of change sets read from change logs, shared by the change logs of all builds.
+ *
+ * The size of the cache is bounded by the number of bytes of XML the cached pages were read from. When the budget is exceeded the least
+ * recently used pages are dropped. The budget defaults to 16 MB and can be set in megabytes using the system property
+ * <code>nwdibuild.changelog.cache.size</code>.
+ *
+ * @author Dirk Weigenand
+ */
+final class DtrChangeLogPageCache {
+    /**
+     * cache shared by the change logs of all builds.
+     */
+    static final DtrChangeLogPageCache INSTANCE = new DtrChangeLogPageCache(getDefaultBudget());
+
+    /**
+     * system property containing the budget of the shared cache in megabytes.
+     */
+    private static final String CACHE_SIZE = "nwdibuild.changelog.cache.size";
+
+    /**
+     * default budget of the shared cache in megabytes.
+     */
+    private static final int DEFAULT_CACHE_SIZE = 16;
+
+    /**
+     * bytes per mega byte.
+     */
+    private static final long MEGA_BYTE = 1024 * 1024;
+
+    /**
+     * encoding of change logs.
+     */
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * cached pages in order of their last use.
+     */
+    private final Map<String, Page> pages = new LinkedHashMap<String, Page>(16, 0.75f, true);
+
+    /**
+     * maximum number of bytes of XML the cached pages may have been read from.
+     */
+    private final long budget;
+
+    /**
+     * number of bytes of XML the cached pages were read from.
+     */
+    private long size;
+
+    /**
+     * A page of change sets with the number of bytes of XML it was read from.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class Page {
+        /**
+         * change sets of the page.
+         */
+        private final List<DtrChangeLogEntry> entries;
+
+        /**
+         * number of bytes of XML the change sets were read from.
+         */
+        private final int weight;
+
+        /**
+         * Create a page with the given change sets.
+         *
+         * @param entries
+         *            change sets of the page.
+         * @param weight
+         *            number of bytes of XML the change sets were read from.
+         */
+        Page(final List<DtrChangeLogEntry> entries, final int weight) {
+            this.entries = entries;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Create a cache using the given budget.
+     *
+     * @param budget
+     *            maximum number of bytes of XML the cached pages may have been read from.
+     */
+    DtrChangeLogPageCache(final long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Returns the change sets in the given range of the change log. They are read from the change log unless they are cached.
+     *
+     * @param changeLog
+     *            the change log.
+     * @param index
+     *            offset table of the change log.
+     * @param from
+     *            index of the first change set.
+     * @param to
+     *            index of the change set following the last one.
+     * @return the change sets in the given range (unmodifiable).
+     * @throws IOException
+     *             when reading the change log fails.
+     */
+    List<DtrChangeLogEntry> get(final File changeLog, final DtrChangeLogIndex index, final int from, final int to) throws IOException {
+        final String key = String.format("%s:%d:%d:%d", changeLog.getAbsolutePath(), changeLog.length(), from, to);
+
+        synchronized (pages) {
+            final Page page = pages.get(key);
+
+            if (page != null) {
+                return page.entries;
+            }
+        }
+
+        final byte[] changeSets = index.read(changeLog, from, to);
+        final Page page = new Page(parse(changeSets, to - from), changeSets.length);
+
+        synchronized (pages) {
+            final Page previous = pages.put(key, page);
+
+            if (previous != null) {
+                size -= previous.weight;
+            }
+
+            size += page.weight;
+            evict();
+        }
+
+        return page.entries;
+    }
+
+    /**
+     * Returns the number of bytes of XML the cached pages were read from.
+     *
+     * @return the number of bytes of XML the cached pages were read from.
+     */
+    long getSize() {
+        synchronized (pages) {
+            return size;
+        }
+    }
+
+    /**
+     * Drop the least recently used pages until the budget is met. Has to be called while holding the lock on {@link #pages}.
+     */
+    private void evict() {
+        final Iterator<Page> iterator = pages.values().iterator();
+
+        while (size > budget && iterator.hasNext()) {
+            size -= iterator.next().weight;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Parse the given change sets.
+     *
+     * @param changeSets
+     *            change sets as XML (without enclosing <code>changelog</code> element).
+     * @param count
+     *            number of change sets.
+     * @return the parsed change sets (unmodifiable).
+     * @throws IOException
+     *             when the change sets are not well formed.
+     */
+    private List<DtrChangeLogEntry> parse(final byte[] changeSets, final int count) throws IOException {
+        final List<DtrChangeLogEntry> entries = new ArrayList<DtrChangeLogEntry>(count);
+        final InputStream changeLog =
+            new SequenceInputStream(new ByteArrayInputStream("<changelog>".getBytes(ENCODING)), new SequenceInputStream(
+                new ByteArrayInputStream(changeSets), new ByteArrayInputStream("</changelog>".getBytes(ENCODING))));
+
+        new DtrChangeLogReader(new InputStreamReader(changeLog, ENCODING)).read(new DtrChangeLogReader.Handler() {
+            public boolean accept(final DtrChangeLogEntry entry) {
+                entries.add(entry);
+
+                return true;
+            }
+        });
+
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Returns the budget of the shared cache given by the system property <code>nwdibuild.changelog.cache.size</code>.
+     *
+     * @return the budget of the shared cache in bytes.
+     */
+    private static long getDefaultBudget() {
+        final Integer megaBytes = Integer.getInteger(CACHE_SIZE, DEFAULT_CACHE_SIZE);
+
+        return Math.max(0, megaBytes) * MEGA_BYTE;
+    }
+}
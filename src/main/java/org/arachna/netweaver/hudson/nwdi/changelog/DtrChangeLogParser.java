@@ -14,19 +14,33 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.Charset;
+import java.util.Date;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
-import org.arachna.xml.DigesterHelper;
 import org.xml.sax.SAXException;
 
 /**
  * A parser for a DTR change log persisted to XML.
  * 
+ * The change sets of a change log file are read on demand page by page using the offset table of the change log (see
+ * {@link DtrChangeLogIndex}). Only when the table can not be created all change sets are read using a {@link DtrChangeLogReader}. They are
+ * sorted by check in time only when they were not written in that order.
+ * 
  * @author Dirk Weigenand
  */
 public final class DtrChangeLogParser extends ChangeLogParser {
     @Override
     public ChangeLogSet<? extends Entry> parse(final AbstractBuild build, final File changelogFile) throws IOException,
         SAXException {
+        try {
+            return new DtrChangeLogSet(build, changelogFile, DtrChangeLogIndex.load(changelogFile), DtrChangeLogPageCache.INSTANCE);
+        }
+        catch (final IOException e) {
+            Logger.getLogger(getClass().getName()).log(Level.WARNING,
+                String.format("Could not index %s, reading all change sets.", changelogFile), e);
+        }
+
         final DtrChangeLogSet changeSet = new DtrChangeLogSet(build);
 
         parse(changeSet, new InputStreamReader(new FileInputStream(changelogFile), Charset.forName("UTF-8")));
@@ -44,7 +58,74 @@ public final class DtrChangeLogParser extends ChangeLogParser {
      *            reader to parse change set entries from.
      */
     protected void parse(final DtrChangeLogSet changeSet, final Reader reader) {
-        new DigesterHelper<DtrChangeLogSet>(new DtrChangeLogRulesModuleProducer()).update(reader, changeSet);
-        changeSet.sort();
+        final ChangeSetCollector collector = new ChangeSetCollector(changeSet);
+
+        try {
+            new DtrChangeLogReader(reader).read(collector);
+        }
+        catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        if (!collector.isSorted()) {
+            changeSet.sort();
+        }
+    }
+
+    /**
+     * Adds the change sets read to a {@link DtrChangeLogSet} and tracks whether they were read in order of their check in time.
+     * 
+     * @author Dirk Weigenand
+     */
+    private static final class ChangeSetCollector implements DtrChangeLogReader.Handler {
+        /**
+         * change set to add the change sets read to.
+         */
+        private final DtrChangeLogSet changeSet;
+
+        /**
+         * check in time of the change set read last.
+         */
+        private Date previous;
+
+        /**
+         * whether the change sets were read in order of their check in time.
+         */
+        private boolean sorted = true;
+
+        /**
+         * Create a collector adding the change sets read to the given change set.
+         * 
+         * @param changeSet
+         *            change set to add the change sets read to.
+         */
+        ChangeSetCollector(final DtrChangeLogSet changeSet) {
+            this.changeSet = changeSet;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean accept(final DtrChangeLogEntry entry) {
+            final Date checkInTime = entry.getCheckInTime();
+
+            if (previous != null && checkInTime.before(previous)) {
+                sorted = false;
+            }
+
+            previous = checkInTime;
+            changeSet.add(entry);
+
+            return true;
+        }
+
+        /**
+         * Returns whether the change sets were read in order of their check in time.
+         * 
+         * @return <code>true</code> when the change sets were read in order of their check in time, <code>false</code> otherwise.
+         */
+        boolean isSorted() {
+            return sorted;
+        }
     }
 }
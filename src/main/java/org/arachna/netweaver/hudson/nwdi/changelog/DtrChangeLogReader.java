@@ -0,0 +1,192 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi.changelog;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.arachna.netweaver.hudson.nwdi.changelog.DtrChangeLogEntry.Action;
+import org.arachna.netweaver.hudson.nwdi.changelog.DtrChangeLogEntry.Item;
+
+/**
+ * Reader for a DTR change log persisted to XML by the {@link DtrChangeLogWriter}.
+ *
+ * The change log is streamed using an {@link XMLStreamReader}. Each change set is handed to a {@link Handler} as soon as it was read, so
+ * reading can stop once enough change sets were read without parsing the remainder of the file.
+ *
+ * @author Dirk Weigenand
+ */
+final class DtrChangeLogReader {
+    /**
+     * factory for XML stream readers.
+     */
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    /**
+     * Receives the change sets read from a change log.
+     *
+     * @author Dirk Weigenand
+     */
+    interface Handler {
+        /**
+         * Process the given change set.
+         *
+         * @param entry
+         *            change set read from the change log.
+         * @return <code>true</code> when reading should continue, <code>false</code> to stop reading.
+         */
+        boolean accept(DtrChangeLogEntry entry);
+    }
+
+    /**
+     * reader to read the change log from.
+     */
+    private final Reader changeLog;
+
+    /**
+     * format of check in times.
+     */
+    private final SimpleDateFormat format = new SimpleDateFormat(DtrChangeLogEntry.DATE_FORMAT_SPEC);
+
+    /**
+     * Create a reader for the change log read from the given reader.
+     *
+     * @param changeLog
+     *            reader to read the change log from.
+     */
+    DtrChangeLogReader(final Reader changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    /**
+     * Read the change sets and pass them to the given handler until the end of the change log is reached or the handler asks to stop.
+     * Closes the reader given when this reader was created.
+     *
+     * @param handler
+     *            handler to pass the change sets read to.
+     * @return number of change sets passed to the handler.
+     * @throws IOException
+     *             when reading the change log fails or it is not well formed.
+     */
+    int read(final Handler handler) throws IOException {
+        try {
+            final XMLStreamReader input = FACTORY.createXMLStreamReader(changeLog);
+
+            try {
+                return read(input, handler);
+            }
+            finally {
+                input.close();
+            }
+        }
+        catch (final XMLStreamException e) {
+            throw new IOException(e);
+        }
+        finally {
+            changeLog.close();
+        }
+    }
+
+    /**
+     * Read the change sets from the given XML stream and pass them to the given handler.
+     *
+     * @param input
+     *            XML stream to read the change sets from.
+     * @param handler
+     *            handler to pass the change sets read to.
+     * @return number of change sets passed to the handler.
+     * @throws XMLStreamException
+     *             when the change log is not well formed.
+     */
+    private int read(final XMLStreamReader input, final Handler handler) throws XMLStreamException {
+        int count = 0;
+        DtrChangeLogEntry entry = null;
+
+        while (input.hasNext()) {
+            final int event = input.next();
+
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                final String name = input.getLocalName();
+
+                if ("changeset".equals(name)) {
+                    entry = new DtrChangeLogEntry();
+                    entry.setActivityUrl(input.getAttributeValue(null, "activityUrl"));
+                }
+                else if (entry != null) {
+                    readProperty(input, name, entry);
+                }
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT && entry != null && "changeset".equals(input.getLocalName())) {
+                count++;
+
+                if (!handler.accept(entry)) {
+                    break;
+                }
+
+                entry = null;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Read the element of a change set the given XML stream is positioned at into the given change set.
+     *
+     * @param input
+     *            XML stream positioned at the start of an element of a change set.
+     * @param name
+     *            name of the element.
+     * @param entry
+     *            change set to update.
+     * @throws XMLStreamException
+     *             when the change log is not well formed.
+     */
+    private void readProperty(final XMLStreamReader input, final String name, final DtrChangeLogEntry entry) throws XMLStreamException {
+        if ("date".equals(name)) {
+            final String checkInTime = input.getElementText().trim();
+
+            try {
+                entry.setCheckInTime(format.parse(checkInTime));
+            }
+            catch (final ParseException e) {
+                throw new XMLStreamException(String.format("Invalid check in time '%s'.", checkInTime), input.getLocation(), e);
+            }
+        }
+        else if ("user".equals(name)) {
+            entry.setUser(input.getElementText().trim());
+        }
+        else if ("comment".equals(name)) {
+            entry.setMsg(input.getElementText().trim());
+        }
+        else if ("description".equals(name)) {
+            entry.setDescription(input.getElementText().trim());
+        }
+        else if ("item".equals(name)) {
+            final Action action = Action.valueOf(input.getAttributeValue(null, "action").toUpperCase());
+            entry.add(new Item(input.getElementText(), action));
+        }
+    }
+
+    /**
+     * Create the factory for XML stream readers. Resolving DTDs and external entities is disabled.
+     *
+     * @return factory for XML stream readers.
+     */
+    private static XMLInputFactory createFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+
+        return factory;
+    }
+}
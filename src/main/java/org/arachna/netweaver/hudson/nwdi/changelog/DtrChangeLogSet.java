@@ -6,12 +6,15 @@ package org.arachna.netweaver.hudson.nwdi.changelog;
 import hudson.model.AbstractBuild;
 import hudson.scm.ChangeLogSet;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import org.arachna.netweaver.hudson.dtr.browser.Activity;
 import org.kohsuke.stapler.export.Exported;
@@ -19,72 +22,240 @@ import org.kohsuke.stapler.export.ExportedBean;
 
 /**
  * A log of a set of changes in the DTR.
- * 
+ *
+ * A change log set read from a change log file does not keep its entries. They are read page by page on demand using the offset table of
+ * the change log (see {@link DtrChangeLogIndex}) and are kept in the {@link DtrChangeLogPageCache} shared by all builds.
+ *
  * @author Dirk Weigenand
  */
 @ExportedBean(defaultVisibility = 999)
 public final class DtrChangeLogSet extends ChangeLogSet<DtrChangeLogEntry> {
     /**
-     * Entries in the change log.
+     * number of entries shown per page.
+     */
+    static final int PAGE_SIZE = 100;
+
+    /**
+     * number of entries shown in the digest of the change log.
+     */
+    static final int DIGEST_SIZE = 10;
+
+    /**
+     * Entries in the change log (when not read from a change log file).
      */
     private final List<DtrChangeLogEntry> entries = new ArrayList<DtrChangeLogEntry>();
 
+    /**
+     * change log file to read the entries from (<code>null</code> when the entries are kept in {@link #entries}).
+     */
+    private final File changeLog;
+
+    /**
+     * offset table of the change log file.
+     */
+    private final DtrChangeLogIndex index;
+
+    /**
+     * cache for pages of entries read from the change log file.
+     */
+    private final DtrChangeLogPageCache cache;
+
     /**
      * Create an instance of a <code>DtrChangeLogSet</code>.
-     * 
+     *
      * @param build
      *            the build for which to create the change log.
      * @param activities
      *            activities to create the entries from.
      */
     public DtrChangeLogSet(final AbstractBuild<?, ?> build, final Collection<Activity> activities) {
-        super(build);
+        this(build);
 
         for (final Activity activity : activities) {
             add(new DtrChangeLogEntry(activity));
         }
-        
+
         sort();
     }
 
     /**
      * Convenience constructor using only the build.
-     * 
+     *
      * @param build
      *            the build for which to create the change log.
      */
     public DtrChangeLogSet(final AbstractBuild<?, ?> build) {
+        this(build, null, null, null);
+    }
+
+    /**
+     * Create a change log set reading its entries on demand from the given change log file.
+     *
+     * @param build
+     *            the build for which to create the change log.
+     * @param changeLog
+     *            change log file to read the entries from.
+     * @param index
+     *            offset table of the change log file.
+     * @param cache
+     *            cache for pages of entries read from the change log file.
+     */
+    DtrChangeLogSet(final AbstractBuild<?, ?> build, final File changeLog, final DtrChangeLogIndex index,
+        final DtrChangeLogPageCache cache) {
         super(build);
+        this.changeLog = changeLog;
+        this.index = index;
+        this.cache = cache;
     }
 
     @Exported
     @Override
     public boolean isEmptySet() {
-        return entries.isEmpty();
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of entries in this change log set.
+     *
+     * @return the number of entries in this change log set.
+     */
+    public int size() {
+        return changeLog == null ? entries.size() : index.size();
     }
 
     /**
-     * Return an {@link Iterator} for the change log entries contained in this change log set.
-     * 
+     * Return an {@link Iterator} for the change log entries contained in this change log set. Entries read from a change log file are
+     * read page by page while iterating.
+     *
      * {@inheritDoc}
      */
     public Iterator<DtrChangeLogEntry> iterator() {
-        return entries.iterator();
+        if (changeLog == null) {
+            return entries.iterator();
+        }
+
+        return new Iterator<DtrChangeLogEntry>() {
+            /**
+             * index of the next entry.
+             */
+            private int next;
+
+            /**
+             * page containing the next entry.
+             */
+            private List<DtrChangeLogEntry> page = Collections.emptyList();
+
+            /**
+             * index of the first entry of {@link #page}.
+             */
+            private int pageStart;
+
+            public boolean hasNext() {
+                return next < size();
+            }
+
+            public DtrChangeLogEntry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                if (next - pageStart >= page.size()) {
+                    pageStart = next;
+                    page = getEntries(next, PAGE_SIZE);
+                }
+
+                return page.get(next++ - pageStart);
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Returns the given number of entries starting with the entry at the given position.
+     *
+     * @param from
+     *            position of the first entry.
+     * @param count
+     *            maximum number of entries.
+     * @return the entries (fewer than requested at the end of the change log).
+     */
+    public List<DtrChangeLogEntry> getEntries(final int from, final int count) {
+        final int start = Math.max(0, Math.min(from, size()));
+        final int end = Math.min(size(), start + Math.max(0, count));
+
+        if (changeLog == null) {
+            return Collections.unmodifiableList(entries.subList(start, end));
+        }
+
+        try {
+            final List<DtrChangeLogEntry> page = cache.get(changeLog, index, start, end);
+
+            for (final DtrChangeLogEntry entry : page) {
+                entry.addTo(this);
+            }
+
+            return page;
+        }
+        catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the page of entries with the given number.
+     *
+     * @param number
+     *            number of the page (starting at 0, the first page is returned when it is missing or invalid).
+     * @return the page of entries with the given number.
+     */
+    public Page getPage(final String number) {
+        int page = 0;
+
+        try {
+            page = number == null ? 0 : Integer.parseInt(number);
+        }
+        catch (final NumberFormatException e) {
+            // show first page
+        }
+
+        final int pageCount = Math.max(1, (size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        page = Math.max(0, Math.min(page, pageCount - 1));
+
+        return new Page(page, pageCount, page * PAGE_SIZE, getEntries(page * PAGE_SIZE, PAGE_SIZE));
+    }
+
+    /**
+     * Returns the first entries of the change log shown in the digest of a build.
+     *
+     * @return the first entries of the change log.
+     */
+    public List<DtrChangeLogEntry> getDigest() {
+        // taken from the first page, so it is cached along with it
+        final List<DtrChangeLogEntry> firstPage = getEntries(0, PAGE_SIZE);
+
+        return firstPage.subList(0, Math.min(DIGEST_SIZE, firstPage.size()));
     }
 
     /**
      * Add the given change log entry to this change log set.
-     * 
+     *
      * @param entry
      *            change log entry to add to this change log set.
      */
     public void add(final DtrChangeLogEntry entry) {
+        if (changeLog != null) {
+            throw new IllegalStateException("Entries can not be added to a change log read from a file.");
+        }
+
         entry.addTo(this);
         entries.add(entry);
     }
 
     /**
-     * Sort the change log entries by check in time.
+     * Sort the change log entries by check in time. Change log files are written sorted, so only entries kept in memory are sorted.
      */
     void sort() {
         Collections.sort(entries, new Comparator<DtrChangeLogEntry>() {
@@ -94,4 +265,104 @@ public final class DtrChangeLogSet extends ChangeLogSet<DtrChangeLogEntry> {
             }
         });
     }
+
+    /**
+     * A page of change log entries.
+     *
+     * @author Dirk Weigenand
+     */
+    public static final class Page {
+        /**
+         * number of this page (starting at 0).
+         */
+        private final int number;
+
+        /**
+         * number of pages.
+         */
+        private final int pageCount;
+
+        /**
+         * position of the first entry of this page in the change log.
+         */
+        private final int offset;
+
+        /**
+         * entries of this page.
+         */
+        private final List<DtrChangeLogEntry> entries;
+
+        /**
+         * Create a page of change log entries.
+         *
+         * @param number
+         *            number of this page (starting at 0).
+         * @param pageCount
+         *            number of pages.
+         * @param offset
+         *            position of the first entry of this page in the change log.
+         * @param entries
+         *            entries of this page.
+         */
+        Page(final int number, final int pageCount, final int offset, final List<DtrChangeLogEntry> entries) {
+            this.number = number;
+            this.pageCount = pageCount;
+            this.offset = offset;
+            this.entries = entries;
+        }
+
+        /**
+         * Returns the number of this page (starting at 0).
+         *
+         * @return the number of this page.
+         */
+        public int getNumber() {
+            return number;
+        }
+
+        /**
+         * Returns the number of pages.
+         *
+         * @return the number of pages.
+         */
+        public int getPageCount() {
+            return pageCount;
+        }
+
+        /**
+         * Returns the position of the first entry of this page in the change log.
+         *
+         * @return the position of the first entry of this page in the change log.
+         */
+        public int getOffset() {
+            return offset;
+        }
+
+        /**
+         * Returns the entries of this page.
+         *
+         * @return the entries of this page.
+         */
+        public List<DtrChangeLogEntry> getEntries() {
+            return entries;
+        }
+
+        /**
+         * Returns whether there is a page before this one.
+         *
+         * @return <code>true</code> when there is a page before this one, <code>false</code> otherwise.
+         */
+        public boolean hasPrevious() {
+            return number > 0;
+        }
+
+        /**
+         * Returns whether there is a page after this one.
+         *
+         * @return <code>true</code> when there is a page after this one, <code>false</code> otherwise.
+         */
+        public boolean hasNext() {
+            return number < pageCount - 1;
+        }
+    }
 }
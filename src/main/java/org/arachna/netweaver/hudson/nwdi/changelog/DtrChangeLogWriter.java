@@ -3,21 +3,35 @@
  */
 package org.arachna.netweaver.hudson.nwdi.changelog;
 
-import hudson.Util;
-
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Writer;
 import java.text.SimpleDateFormat;
 
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.arachna.netweaver.hudson.nwdi.changelog.DtrChangeLogEntry.Item;
 
 /**
  * Persist a {@link DtrChangeLogSet} to a file as XML.
- * 
+ *
+ * The change log is streamed using an {@link XMLStreamWriter}, so all attribute values and element texts are escaped properly.
+ *
  * @author Dirk Weigenand
  */
 class DtrChangeLogWriter {
+    /**
+     * factory for XML stream writers.
+     */
+    private static final XMLOutputFactory FACTORY = XMLOutputFactory.newInstance();
+
+    /**
+     * line separator used between elements.
+     */
+    private static final String NEW_LINE = "\n";
+
     /**
      * the writer to write the XML into.
      */
@@ -28,10 +42,15 @@ class DtrChangeLogWriter {
      */
     private final DtrChangeLogSet changeSet;
 
+    /**
+     * {@link XMLStreamWriter} to generate XML with.
+     */
+    private XMLStreamWriter output;
+
     /**
      * Create an instance of a <code></code> using the given
      * {@link DtrChangeLogSet} and writer.
-     * 
+     *
      * @param changeSet
      *            change set to persist to XML.
      * @param changeLog
@@ -45,47 +64,105 @@ class DtrChangeLogWriter {
     /**
      * Write the change set as XML into the writer given when this writer was
      * created.
-     * 
+     *
      * Closes the writer at the end, so calling it more than once will result in
      * an exception.
-     * 
+     *
      * @throws IOException
      *             when an error occurs writing the XML.
      */
     void write() throws IOException {
+        try {
+            output = FACTORY.createXMLStreamWriter(changeLog);
+            emitDocument();
+            output.close();
+        }
+        catch (final XMLStreamException e) {
+            throw new IOException(e);
+        }
+        finally {
+            changeLog.close();
+        }
+    }
+
+    /**
+     * Write the change log element containing the change sets.
+     *
+     * @throws XMLStreamException
+     *             when writing the attributes/elements fails.
+     */
+    private void emitDocument() throws XMLStreamException {
         final SimpleDateFormat format = new SimpleDateFormat(DtrChangeLogEntry.DATE_FORMAT_SPEC);
-        changeLog.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
-        changeLog.newLine();
-        changeLog.write("<changelog>");
-        changeLog.newLine();
+
+        output.writeStartDocument("UTF-8", "1.0");
+        output.writeCharacters(NEW_LINE);
+        output.writeStartElement("changelog");
 
         for (final DtrChangeLogEntry entry : changeSet) {
-            changeLog.write(String.format("  <changeset activityUrl=\"%s\">", Util.xmlEscape(entry.getActivityUrl())));
-            changeLog.newLine();
-            changeLog.write(String.format("    <date>%s</date>", format.format(entry.getCheckInTime())));
-            changeLog.newLine();
-            changeLog.write(String.format("    <user>%s</user>", entry.getAuthor()));
-            changeLog.newLine();
-            changeLog.write(String.format("    <comment>%s</comment>", entry.getMsg()));
-            changeLog.newLine();
-            changeLog.write(String.format("    <description>%s</description>", entry.getDescription()));
-            changeLog.newLine();
-            changeLog.write("    <items>");
-            changeLog.newLine();
+            indent(1);
+            output.writeStartElement("changeset");
+            output.writeAttribute("activityUrl", entry.getActivityUrl());
+            emitElement("date", format.format(entry.getCheckInTime()));
+            emitElement("user", entry.getUser());
+            emitElement("comment", entry.getUnescapedMsg());
+            emitElement("description", entry.getUnescapedDescription());
+            indent(2);
+            output.writeStartElement("items");
 
             for (final Item item : entry.getItems()) {
-                changeLog.write(String.format("      <item action=\"%s\">%s</item>", item.getAction(), item.getPath()));
-                changeLog.newLine();
+                indent(3);
+                output.writeStartElement("item");
+                output.writeAttribute("action", item.getAction().toString());
+                output.writeCharacters(item.getPath());
+                output.writeEndElement();
             }
 
-            changeLog.write("    </items>");
-            changeLog.newLine();
-            changeLog.write("  </changeset>");
-            changeLog.newLine();
+            indent(2);
+            output.writeEndElement();
+            indent(1);
+            output.writeEndElement();
         }
 
-        changeLog.write("</changelog>");
-        changeLog.newLine();
-        changeLog.close();
+        output.writeCharacters(NEW_LINE);
+        output.writeEndElement();
+        output.writeCharacters(NEW_LINE);
+        output.writeEndDocument();
+    }
+
+    /**
+     * Write an element of a change set containing the given text.
+     *
+     * @param name
+     *            name of element.
+     * @param text
+     *            text of element (none when <code>null</code>).
+     * @throws XMLStreamException
+     *             when writing the element fails.
+     */
+    private void emitElement(final String name, final String text) throws XMLStreamException {
+        indent(2);
+        output.writeStartElement(name);
+
+        if (text != null) {
+            output.writeCharacters(text);
+        }
+
+        output.writeEndElement();
+    }
+
+    /**
+     * Start a new line indented to the given level.
+     *
+     * @param level
+     *            level of indentation.
+     * @throws XMLStreamException
+     *             when writing the indentation fails.
+     */
+    private void indent(final int level) throws XMLStreamException {
+        output.writeCharacters(NEW_LINE);
+
+        for (int i = 0; i < level; i++) {
+            output.writeCharacters("  ");
+        }
     }
 }
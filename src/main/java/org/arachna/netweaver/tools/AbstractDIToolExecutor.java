@@ -6,19 +6,21 @@ package org.arachna.netweaver.tools;
 import hudson.FilePath;
 import hudson.Launcher;
 import hudson.Launcher.ProcStarter;
+import hudson.Proc;
 import hudson.util.ArgumentListBuilder;
 import hudson.util.ForkOutputStream;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
 import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
@@ -65,6 +67,21 @@ public abstract class AbstractDIToolExecutor {
      */
     private final PrintStream logger;
 
+    /**
+     * tool process kept alive across executions (<code>null</code> when no session is open).
+     */
+    private Proc process;
+
+    /**
+     * session with {@link #process}.
+     */
+    private DIToolSession session;
+
+    /**
+     * pattern matching the lines of output {@link #process} prints with its error messages.
+     */
+    private Pattern errorMarker;
+
     /**
      * create DC tool executor with the given command line generator and given command build.
      *
@@ -91,13 +108,38 @@ public abstract class AbstractDIToolExecutor {
      *
      * @param commandBuilder
      *            builder for dc tool commands
+     * @param listeners
+     *            listeners processing the output of the tool while it runs. Without listeners the whole output is returned in the result,
+     *            otherwise only its end.
+     * @return content of log file created by the executed dc tool.
+     * @throws IOException
+     *             might be thrown be the {@link ProcStarter} used to execute the DC tool commands.
+     */
+    public DIToolCommandExecutionResult execute(final DIToolCommandBuilder commandBuilder, final DIToolOutputListener... listeners)
+        throws IOException {
+        return execute(commandBuilder, launcher.getListener().getLogger(), listeners);
+    }
+
+    /**
+     * Execute dc tool with the given {@link DIToolCommandBuilder}. The output of the tool is copied to the given console and handed to the
+     * given listeners line by line while it runs.
+     *
+     * @param commandBuilder
+     *            builder for dc tool commands
+     * @param console
+     *            stream to copy the output of the tool to (<code>null</code> to only collect the output, e.g. when several tools run
+     *            concurrently).
+     * @param listeners
+     *            listeners processing the output of the tool while it runs. Without listeners the whole output is returned in the result,
+     *            otherwise only its end.
      * @return content of log file created by the executed dc tool.
      * @throws IOException
      *             might be thrown be the {@link ProcStarter} used to execute the DC tool commands.
      */
-    public DIToolCommandExecutionResult execute(final DIToolCommandBuilder commandBuilder) throws IOException {
+    protected final DIToolCommandExecutionResult execute(final DIToolCommandBuilder commandBuilder, final OutputStream console,
+        final DIToolOutputListener... listeners) throws IOException {
         final List<String> commands = commandBuilder.execute();
-        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final DIToolOutput result = new DIToolOutput(listeners);
         int exitCode = 0;
 
         if (!commands.isEmpty()) {
@@ -108,8 +150,7 @@ public abstract class AbstractDIToolExecutor {
             starter.cmds(toolCommand);
             starter.stdin(createCommandInputStream(commands));
 
-            final ForkOutputStream tee = new ForkOutputStream(launcher.getListener().getLogger(), result);
-            starter.stdout(tee);
+            starter.stdout(console == null ? result : new ForkOutputStream(console, result));
 
             exitCode = -1;
 
@@ -121,7 +162,110 @@ public abstract class AbstractDIToolExecutor {
             }
         }
 
-        return new DIToolCommandExecutionResult(result.toString(Charset.defaultCharset().name()), exitCode);
+        result.close();
+
+        return new DIToolCommandExecutionResult(result.toString(), exitCode);
+    }
+
+    /**
+     * Launch a tool process that is kept alive for executing several batches of commands (see {@link #executeInSession(List, DIToolOutputListener...)}).
+     *
+     * @param prompt
+     *            prompt printed by the tool when it is waiting for a command.
+     * @param errorMarker
+     *            pattern matching the lines of output the tool prints with its error messages (the exit code of the process is not
+     *            available until it ends).
+     * @throws IOException
+     *             when launching the tool fails.
+     */
+    protected final void openSession(final String prompt, final Pattern errorMarker) throws IOException {
+        final ProcStarter starter = launcher.launch();
+        starter.pwd(workspace);
+        starter.envs(createEnvironment());
+        starter.cmds(createToolCommand());
+        starter.writeStdin();
+        starter.readStdout();
+
+        process = starter.start();
+        session = new DIToolSession(process.getStdin(), process.getStdout(), prompt, getLineSeparator());
+        this.errorMarker = errorMarker;
+    }
+
+    /**
+     * Determine whether a tool process launched by {@link #openSession(String, Pattern)} is still running.
+     *
+     * @return <code>true</code> when a session is open, <code>false</code> otherwise.
+     */
+    protected final boolean isSessionOpen() {
+        return session != null && session.isAlive();
+    }
+
+    /**
+     * Execute the given commands in the open session. The output of the tool is copied to the console and handed to the given listeners
+     * line by line while it runs.
+     *
+     * @param commands
+     *            the commands to execute.
+     * @param listeners
+     *            listeners processing the output of the tool while it runs. Without listeners the whole output is returned in the result,
+     *            otherwise only its end.
+     * @return output of the tool while executing the given commands. The exit code is <code>-1</code> when the tool process ended before
+     *         executing all commands (the session is closed then), <code>1</code> when the tool printed an error message and <code>0</code>
+     *         otherwise.
+     * @throws IOException
+     *             when communicating with the tool fails.
+     * @throws InterruptedException
+     *             when waiting for the ended tool process was interrupted.
+     */
+    protected final DIToolCommandExecutionResult executeInSession(final List<String> commands, final DIToolOutputListener... listeners)
+        throws IOException, InterruptedException {
+        if (session == null) {
+            throw new IllegalStateException("No session has been opened!");
+        }
+
+        final DIToolOutput result = new DIToolOutput(listeners);
+        final DIToolErrorListener errorListener = new DIToolErrorListener(errorMarker);
+        final DIToolOutput errors = new DIToolOutput(errorListener);
+        final boolean executed = session.execute(commands, new ForkOutputStream(logger, new ForkOutputStream(result, errors)));
+        result.close();
+        errors.close();
+
+        if (!executed) {
+            process.join();
+            session = null;
+            process = null;
+
+            return new DIToolCommandExecutionResult(result.toString(), -1);
+        }
+
+        return new DIToolCommandExecutionResult(result.toString(), errorListener.hasError() ? 1 : 0);
+    }
+
+    /**
+     * Close the open session (if any) by sending the given exit command and wait for the tool process to end.
+     *
+     * @param exitCommand
+     *            command that makes the tool exit.
+     * @throws IOException
+     *             when communicating with the tool fails.
+     * @throws InterruptedException
+     *             when waiting for the tool process was interrupted.
+     */
+    protected final void closeSession(final String exitCommand) throws IOException, InterruptedException {
+        if (session != null) {
+            try {
+                session.close(exitCommand, logger);
+                process.join();
+            }
+            finally {
+                if (process.isAlive()) {
+                    process.kill();
+                }
+
+                session = null;
+                process = null;
+            }
+        }
     }
 
     /**
@@ -132,9 +276,16 @@ public abstract class AbstractDIToolExecutor {
      * @return <code>InputStream</code> containing the given NWDI tool commands.
      */
     private InputStream createCommandInputStream(final List<String> commands) {
-        final String separator = isUnix() ? "\n" : "\r\n";
+        return new ByteArrayInputStream(StringUtils.join(commands, getLineSeparator()).getBytes(Charset.defaultCharset()));
+    }
 
-        return new ByteArrayInputStream(StringUtils.join(commands, separator).getBytes(Charset.defaultCharset()));
+    /**
+     * Returns the line separator of the platform this executor runs on.
+     *
+     * @return the line separator to terminate commands with.
+     */
+    private String getLineSeparator() {
+        return isUnix() ? "\n" : "\r\n";
     }
 
     /**
@@ -0,0 +1,64 @@
+/**
+ *
+ */
+package org.arachna.netweaver.tools;
+
+import java.util.regex.Pattern;
+
+/**
+ * Listener detecting error messages in the output of a NWDI tool.
+ *
+ * A tool kept alive across several executions does not report failed commands through its exit code, so the output of each execution is
+ * searched for the markers the tool prints with its error messages instead.
+ *
+ * @author Dirk Weigenand
+ */
+public final class DIToolErrorListener implements DIToolOutputListener {
+    /**
+     * pattern matching lines containing an error message.
+     */
+    private final Pattern errorMarker;
+
+    /**
+     * the first line containing an error message (<code>null</code> when none was found).
+     */
+    private String error;
+
+    /**
+     * Create a listener detecting lines matching the given pattern.
+     *
+     * @param errorMarker
+     *            pattern matching lines containing an error message.
+     */
+    public DIToolErrorListener(final Pattern errorMarker) {
+        this.errorMarker = errorMarker;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void processLine(final String line) {
+        if (error == null && errorMarker.matcher(line).matches()) {
+            error = line;
+        }
+    }
+
+    /**
+     * Determine whether an error message was found.
+     *
+     * @return <code>true</code> when an error message was found, <code>false</code> otherwise.
+     */
+    public boolean hasError() {
+        return error != null;
+    }
+
+    /**
+     * Returns the first line containing an error message.
+     *
+     * @return the first line containing an error message (<code>null</code> when none was found).
+     */
+    public String getError() {
+        return error;
+    }
+}
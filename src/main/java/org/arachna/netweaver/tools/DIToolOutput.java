@@ -0,0 +1,176 @@
+/**
+ *
+ */
+package org.arachna.netweaver.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sink for the output of a NWDI tool splitting it into lines and handing each line to the registered {@link DIToolOutputListener}s while
+ * the tool is still running.
+ *
+ * Without listeners the whole output is kept (for tools with short output that is evaluated as a whole). With listeners only the last
+ * {@value #RETAINED_CHARACTERS} characters are kept, so memory use does not grow with the size of the output.
+ *
+ * @author Dirk Weigenand
+ */
+public final class DIToolOutput extends OutputStream {
+    /**
+     * number of characters at the end of the output kept when listeners process the output.
+     */
+    static final int RETAINED_CHARACTERS = 64 * 1024;
+
+    /**
+     * initial size of line buffer.
+     */
+    private static final int LINE_BUFFER_SIZE = 256;
+
+    /**
+     * listeners to hand lines of output to.
+     */
+    private final List<DIToolOutputListener> listeners;
+
+    /**
+     * whether the whole output is to be kept.
+     */
+    private final boolean retainAll;
+
+    /**
+     * the bytes of the line currently written.
+     */
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(LINE_BUFFER_SIZE);
+
+    /**
+     * the output kept.
+     */
+    private final StringBuilder retained = new StringBuilder();
+
+    /**
+     * charset the tool writes its output in.
+     */
+    private final String charset = Charset.defaultCharset().name();
+
+    /**
+     * Create a sink handing lines of output to the given listeners.
+     *
+     * @param listeners
+     *            listeners to hand lines of output to (the whole output is kept when there are none).
+     */
+    public DIToolOutput(final DIToolOutputListener... listeners) {
+        this.listeners = Arrays.asList(listeners);
+        retainAll = listeners.length == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final int b) throws IOException {
+        line.write(b);
+
+        if (b == '\n') {
+            endLine();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        int start = offset;
+
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] == '\n') {
+                line.write(bytes, start, i + 1 - start);
+                endLine();
+                start = i + 1;
+            }
+        }
+
+        line.write(bytes, start, offset + length - start);
+    }
+
+    /**
+     * Hand the last line to the listeners even when it was not terminated.
+     */
+    @Override
+    public void close() {
+        if (line.size() > 0) {
+            endLine();
+        }
+    }
+
+    /**
+     * Returns the output kept (the whole output without listeners, the end of it otherwise).
+     *
+     * @return the output kept.
+     */
+    @Override
+    public String toString() {
+        if (!retainAll && retained.length() > RETAINED_CHARACTERS) {
+            return retained.substring(retained.length() - RETAINED_CHARACTERS);
+        }
+
+        return retained.toString();
+    }
+
+    /**
+     * Hand the current line to the listeners and keep it as configured.
+     */
+    private void endLine() {
+        final String text = decode();
+        line.reset();
+        retain(text);
+
+        int end = text.length();
+
+        if (end > 0 && text.charAt(end - 1) == '\n') {
+            end--;
+        }
+
+        if (end > 0 && text.charAt(end - 1) == '\r') {
+            end--;
+        }
+
+        final String content = text.substring(0, end);
+
+        for (final DIToolOutputListener listener : listeners) {
+            listener.processLine(content);
+        }
+    }
+
+    /**
+     * Keep the given text (with listeners only the end of the output is kept).
+     *
+     * @param text
+     *            the text to keep.
+     */
+    private void retain(final String text) {
+        retained.append(text);
+
+        if (!retainAll && retained.length() > 2 * RETAINED_CHARACTERS) {
+            retained.delete(0, retained.length() - RETAINED_CHARACTERS);
+        }
+    }
+
+    /**
+     * Decode the current line.
+     *
+     * @return the current line.
+     */
+    private String decode() {
+        try {
+            return line.toString(charset);
+        }
+        catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
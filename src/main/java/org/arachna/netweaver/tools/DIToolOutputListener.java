@@ -0,0 +1,19 @@
+/**
+ *
+ */
+package org.arachna.netweaver.tools;
+
+/**
+ * Listener processing the output of a NWDI tool line by line while the tool is still running.
+ *
+ * @author Dirk Weigenand
+ */
+public interface DIToolOutputListener {
+    /**
+     * Process a line of output of a NWDI tool.
+     *
+     * @param line
+     *            line of output (without line terminator).
+     */
+    void processLine(String line);
+}
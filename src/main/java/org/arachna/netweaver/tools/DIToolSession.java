@@ -0,0 +1,227 @@
+/**
+ *
+ */
+package org.arachna.netweaver.tools;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Session with a NWDI tool process that is kept alive across several executions.
+ *
+ * Commands are sent in batches to the standard input of the tool. The tool prints its prompt once at startup and after each line it
+ * read, so a batch is finished when the prompt was read once per line of the batch (once more for the first batch). Commands are
+ * terminated by a line separator and should not contain line breaks themselves (each would make the tool print another prompt). The
+ * output read up to that point is written to the sink given for the batch.
+ *
+ * @author Dirk Weigenand
+ */
+final class DIToolSession {
+    /**
+     * size of buffer for reading the output of the tool.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * standard input of the tool process.
+     */
+    private final Writer commands;
+
+    /**
+     * standard output of the tool process.
+     */
+    private final InputStream output;
+
+    /**
+     * prompt printed by the tool when it is waiting for a command.
+     */
+    private final byte[] prompt;
+
+    /**
+     * line separator to terminate commands with.
+     */
+    private final String separator;
+
+    /**
+     * whether the prompt printed at startup was read already.
+     */
+    private boolean started;
+
+    /**
+     * whether the tool process is still running.
+     */
+    private boolean alive = true;
+
+    /**
+     * Create a session with a tool process using the given standard input and output.
+     *
+     * @param stdin
+     *            standard input of the tool process.
+     * @param stdout
+     *            standard output of the tool process.
+     * @param prompt
+     *            prompt printed by the tool when it is waiting for a command.
+     * @param separator
+     *            line separator to terminate commands with.
+     */
+    DIToolSession(final OutputStream stdin, final InputStream stdout, final String prompt, final String separator) {
+        final Charset charset = Charset.defaultCharset();
+        commands = new OutputStreamWriter(stdin, charset);
+        output = new BufferedInputStream(stdout, BUFFER_SIZE);
+        this.prompt = prompt.getBytes(charset);
+        this.separator = separator;
+    }
+
+    /**
+     * Execute the given batch of commands and wait until the tool finished them.
+     *
+     * @param batch
+     *            the commands to execute.
+     * @param sink
+     *            stream to write the output of the tool to while executing the given commands.
+     * @return <code>true</code> when all commands were executed, <code>false</code> when the tool process ended before.
+     * @throws IOException
+     *             when reading the output fails.
+     */
+    boolean execute(final List<String> batch, final OutputStream sink) throws IOException {
+        if (batch.isEmpty()) {
+            return true;
+        }
+
+        try {
+            for (final String command : batch) {
+                commands.write(command);
+                commands.write(separator);
+            }
+
+            commands.flush();
+        }
+        catch (final IOException e) {
+            alive = false;
+            return false;
+        }
+
+        int prompts = started ? countLines(batch) : countLines(batch) + 1;
+        int matched = 0;
+        started = true;
+
+        final byte[] buffer = new byte[BUFFER_SIZE];
+
+        while (prompts > 0) {
+            final int count = output.read(buffer);
+
+            if (count == -1) {
+                alive = false;
+                sink.flush();
+
+                return false;
+            }
+
+            for (int i = 0; i < count; i++) {
+                if (buffer[i] == prompt[matched]) {
+                    matched++;
+
+                    if (matched == prompt.length) {
+                        prompts--;
+                        matched = 0;
+                    }
+                }
+                else {
+                    matched = buffer[i] == prompt[0] ? 1 : 0;
+                }
+            }
+
+            sink.write(buffer, 0, count);
+        }
+
+        sink.flush();
+
+        return true;
+    }
+
+    /**
+     * Count the lines the given commands are sent as (the tool prints its prompt after each one).
+     *
+     * @param batch
+     *            the commands to execute.
+     * @return number of lines the given commands are sent as.
+     */
+    private int countLines(final List<String> batch) {
+        int lines = 0;
+
+        for (final String command : batch) {
+            lines++;
+
+            for (int i = 0; i < command.length(); i++) {
+                if (command.charAt(i) == '\n') {
+                    lines++;
+                }
+            }
+        }
+
+        return lines;
+    }
+
+    /**
+     * Send the given exit command to the tool and write its remaining output to the given sink.
+     *
+     * @param exitCommand
+     *            command that makes the tool exit.
+     * @param sink
+     *            stream to write the remaining output of the tool to.
+     * @throws IOException
+     *             when reading the remaining output fails.
+     */
+    void close(final String exitCommand, final OutputStream sink) throws IOException {
+        try {
+            if (alive) {
+                commands.write(exitCommand);
+                commands.write(separator);
+                commands.flush();
+            }
+        }
+        catch (final IOException e) {
+            // the tool process ended already
+            alive = false;
+        }
+        finally {
+            try {
+                commands.close();
+            }
+            catch (final IOException e) {
+                // the tool process ended already
+                alive = false;
+            }
+        }
+
+        try {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int count = output.read(buffer);
+
+            while (count != -1) {
+                sink.write(buffer, 0, count);
+                count = output.read(buffer);
+            }
+        }
+        finally {
+            alive = false;
+            sink.flush();
+            output.close();
+        }
+    }
+
+    /**
+     * Determine whether the tool process is still running.
+     *
+     * @return <code>true</code> when the tool process did not end yet, <code>false</code> otherwise.
+     */
+    boolean isAlive() {
+        return alive;
+    }
+}
@@ -11,13 +11,14 @@ import org.arachna.netweaver.dc.types.Compartment;
 import org.arachna.netweaver.dc.types.DevelopmentComponent;
 import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
 import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
+import org.arachna.netweaver.tools.DIToolOutputListener;
 
 /**
  * Abstract base class for parsers of output of a cbstool's 'listdcs' command.
  * 
  * @author Dirk Weigenand
  */
-abstract class AbstractDCListReader {
+abstract class AbstractDCListReader implements DIToolOutputListener {
     /**
      * development configuration to add read compartments to.
      */
@@ -56,7 +57,7 @@ abstract class AbstractDCListReader {
 
         try {
             while ((line = buffer.readLine()) != null) {
-                process(line);
+                processLine(line);
             }
         }
         catch (final IOException e) {
@@ -64,6 +65,13 @@ abstract class AbstractDCListReader {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public final void processLine(final String line) {
+        process(line);
+    }
+
     /**
      * Process a line of output from the CBS tool 'listdcs' command.
      * 
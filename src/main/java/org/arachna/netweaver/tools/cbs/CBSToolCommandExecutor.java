@@ -10,7 +10,6 @@ import hudson.Util;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.Collection;
 
@@ -26,6 +25,11 @@ import org.arachna.netweaver.tools.DIToolDescriptor;
  * @author Dirk Weigenand
  */
 public final class CBSToolCommandExecutor extends AbstractDIToolExecutor {
+    /**
+     * whether the development components were restored from a snapshot when they were listed last.
+     */
+    private boolean restoredFromSnapshot;
+
     /**
      * create DC tool executor with the given command line generator and given command build.
      * 
@@ -56,8 +60,36 @@ public final class CBSToolCommandExecutor extends AbstractDIToolExecutor {
      */
     public DIToolCommandExecutionResult listDevelopmentComponents(final DevelopmentComponentFactory dcFactory) throws IOException,
         InterruptedException {
+        return listDevelopmentComponents(dcFactory, null);
+    }
+
+    /**
+     * List development components in the development configuration. When the given snapshot was taken for the current version of the
+     * development configuration the development components are restored from it and the cbstool is not started. Otherwise the snapshot
+     * is replaced with the development components listed by the cbstool.
+     * 
+     * @param dcFactory
+     *            registry for development components to update with DCs listed from CBS.
+     * @param snapshot
+     *            snapshot of the development components listed before (may be <code>null</code>).
+     * @return the result of the listdc-command operation.
+     * @throws IOException
+     *             might be thrown be the {@link hudson.Launcher.ProcStarter} used to execute the DC tool commands.
+     * @throws InterruptedException
+     *             when the user canceled the action.
+     */
+    public DIToolCommandExecutionResult listDevelopmentComponents(final DevelopmentComponentFactory dcFactory,
+        final DCListSnapshot snapshot) throws IOException, InterruptedException {
         final long startListDcs = System.currentTimeMillis();
         final DevelopmentConfiguration config = getDevelopmentConfiguration();
+        restoredFromSnapshot = snapshot != null && snapshot.restore(config, dcFactory);
+
+        if (restoredFromSnapshot) {
+            log(Messages.CBSToolCommandExecutor_restored_development_components(dcFactory.getAll().size(), config.getName(),
+                config.getVersion()));
+
+            return new DIToolCommandExecutionResult("", 0);
+        }
 
         log(Messages.CBSToolCommandExecutor_listing_development_components(config.getName()));
 
@@ -66,23 +98,35 @@ public final class CBSToolCommandExecutor extends AbstractDIToolExecutor {
         DIToolCommandExecutionResult result = null;
 
         if (CbsToolVersion.CE.equals(cbsToolVersion)) {
-            result = execute(new DCLister(config, getDiToolDescriptor()));
-            new DCListReader(config, dcFactory).execute(new StringReader(result.getOutput()));
+            result = execute(new DCLister(config, getDiToolDescriptor()), new DCListReader(config, dcFactory));
         }
         else if (CbsToolVersion.PRE_CE.equals(cbsToolVersion)) {
             result = execute(new ListCompartments(config.getCmsUrl(), config.getName(), getDiToolDescriptor()));
 
             if (result.isExitCodeOk()) {
-                result = execute(new PreCeDCLister(config, getDiToolDescriptor()));
-                new PreCeDCListReader(config, dcFactory).execute(new StringReader(result.getOutput()));
+                result = execute(new PreCeDCLister(config, getDiToolDescriptor()), new PreCeDCListReader(config, dcFactory));
             }
         }
 
         duration(startListDcs, Messages.CBSToolCommandExecutor_report_count_of_dcs_read(dcFactory.getAll().size()));
 
+        if (snapshot != null && result != null && result.isExitCodeOk()) {
+            snapshot.store(config);
+        }
+
         return result;
     }
 
+    /**
+     * Determine whether the development components were restored from a snapshot instead of being listed by the cbstool when
+     * {@link #listDevelopmentComponents(DevelopmentComponentFactory, DCListSnapshot)} was called last.
+     * 
+     * @return <code>true</code> when the development components were restored from a snapshot, <code>false</code> otherwise.
+     */
+    public boolean isRestoredFromSnapshot() {
+        return restoredFromSnapshot;
+    }
+
     /**
      * Determine the version of the CBS tool to use.
      * 
@@ -0,0 +1,244 @@
+/**
+ *
+ */
+package org.arachna.netweaver.tools.cbs;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.arachna.netweaver.dc.types.Compartment;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
+
+/**
+ * Snapshot of the development components listed by the cbstool 'listdcs' command for a build space.
+ *
+ * The snapshot is keyed by the name of the build space and the version of its development configuration (<code>config-version</code>
+ * in the <code>.confdef</code> file). As long as the version does not change the development components can be restored from the
+ * snapshot instead of starting the cbstool. The snapshot is a text file: a line containing build space and version followed by one line
+ * per development component containing compartment, vendor and name (separated by tabs).
+ *
+ * @author Dirk Weigenand
+ */
+public final class DCListSnapshot {
+    /**
+     * Logger to use.
+     */
+    private static final Logger LOGGER = Logger.getLogger(DCListSnapshot.class.getName());
+
+    /**
+     * separator of the fields of a line.
+     */
+    private static final String SEPARATOR = "\t";
+
+    /**
+     * encoding of the snapshot file.
+     */
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * number of fields describing a development component.
+     */
+    private static final int DC_FIELDS = 3;
+
+    /**
+     * index of vendor field.
+     */
+    private static final int VENDOR_INDEX = 1;
+
+    /**
+     * index of name field.
+     */
+    private static final int NAME_INDEX = 2;
+
+    /**
+     * file containing the snapshot.
+     */
+    private final File file;
+
+    /**
+     * Create a snapshot using the given file.
+     *
+     * @param file
+     *            file to read the snapshot from and to write it to.
+     */
+    public DCListSnapshot(final File file) {
+        if (file == null) {
+            throw new IllegalArgumentException("file must not be null!");
+        }
+
+        this.file = file;
+    }
+
+    /**
+     * Restore the development components of the given development configuration from the snapshot. Nothing is restored when the snapshot
+     * was taken for another build space or version or a compartment of the snapshot is not part of the development configuration.
+     *
+     * @param config
+     *            development configuration to add the development components to.
+     * @param dcFactory
+     *            registry for the restored development components.
+     * @return <code>true</code> when the development components were restored, <code>false</code> otherwise.
+     */
+    public synchronized boolean restore(final DevelopmentConfiguration config, final DevelopmentComponentFactory dcFactory) {
+        if (config.getVersion() == null || !file.exists()) {
+            return false;
+        }
+
+        try {
+            final List<String[]> components = read(config);
+
+            if (components == null) {
+                return false;
+            }
+
+            for (final String[] component : components) {
+                config.getCompartment(component[0]).add(dcFactory.create(component[VENDOR_INDEX], component[NAME_INDEX]));
+            }
+
+            return true;
+        }
+        catch (final IOException e) {
+            LOGGER.log(Level.WARNING, String.format("Could not read development components from %s.", file), e);
+        }
+
+        return false;
+    }
+
+    /**
+     * Discard the snapshot when one of the given development components is not contained in a compartment, i.e. it was not listed (e.g.
+     * it was created by an activity after the snapshot was taken without changing the version of the development configuration).
+     *
+     * @param components
+     *            development components known to exist in the development configuration (e.g. changed by activities).
+     * @return <code>true</code> when the snapshot was discarded, <code>false</code> when it lists all given development components.
+     */
+    public synchronized boolean discardIfIncomplete(final Collection<DevelopmentComponent> components) {
+        for (final DevelopmentComponent component : components) {
+            if (component.getCompartment() == null) {
+                if (file.exists() && !file.delete()) {
+                    LOGGER.log(Level.WARNING, String.format("Could not delete %s.", file));
+                }
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Take a snapshot of the development components of the given development configuration. Development configurations without version
+     * are not kept.
+     *
+     * @param config
+     *            development configuration whose development components were listed by the cbstool.
+     */
+    public synchronized void store(final DevelopmentConfiguration config) {
+        if (config.getVersion() == null) {
+            return;
+        }
+
+        final File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        try {
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), ENCODING));
+
+            try {
+                writeLine(writer, config.getName(), config.getVersion());
+
+                for (final Compartment compartment : config.getCompartments()) {
+                    for (final DevelopmentComponent component : compartment.getDevelopmentComponents()) {
+                        writeLine(writer, compartment.getName(), component.getVendor(), component.getName());
+                    }
+                }
+            }
+            finally {
+                writer.close();
+            }
+
+            if ((file.exists() && !file.delete()) || !temp.renameTo(file)) {
+                throw new IOException(String.format("Could not replace %s.", file));
+            }
+        }
+        catch (final IOException e) {
+            LOGGER.log(Level.WARNING, String.format("Could not write development components to %s.", file), e);
+            temp.delete();
+        }
+    }
+
+    /**
+     * Read the development components from the snapshot when it was taken for the given development configuration.
+     *
+     * @param config
+     *            development configuration to restore the development components for.
+     * @return the compartment, vendor and name of each development component or <code>null</code> when the snapshot does not match the
+     *         given development configuration.
+     * @throws IOException
+     *             when reading the snapshot fails.
+     */
+    private List<String[]> read(final DevelopmentConfiguration config) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+
+        try {
+            final String header = reader.readLine();
+
+            if (header == null || !header.equals(config.getName() + SEPARATOR + config.getVersion())) {
+                return null;
+            }
+
+            final List<String[]> components = new ArrayList<String[]>();
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                final String[] component = line.split(SEPARATOR);
+
+                if (component.length != DC_FIELDS || config.getCompartment(component[0]) == null) {
+                    return null;
+                }
+
+                components.add(component);
+            }
+
+            return components;
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Write the given fields as a line.
+     *
+     * @param writer
+     *            writer to write to.
+     * @param fields
+     *            fields of the line.
+     * @throws IOException
+     *             when writing fails.
+     */
+    private void writeLine(final Writer writer, final String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(SEPARATOR);
+            }
+
+            writer.write(fields[i]);
+        }
+
+        writer.write('\n');
+    }
+}
@@ -42,11 +42,15 @@ public final class CommandFactory {
      * @param dcFactory
      * @param components
      *            development components to be used calculating the DCs to be synchronized
+     * @param storedComponents
+     *            development components provided by the archive store that need not be synchronized.
      * @return a command builder for creating 'syncdc' commands.
      */
     public DIToolCommandBuilder createSyncDevelopmentComponentsInArchiveStateCommandBuilder(final DevelopmentComponentFactory dcFactory,
-        final AntHelper antHelper, final Collection<DevelopmentComponent> components) {
-        return new SyncDevelopmentComponentsInArchiveStateCommandBuilder(developmentConfiguration, dcFactory, antHelper, components);
+        final AntHelper antHelper, final Collection<DevelopmentComponent> components,
+        final Collection<DevelopmentComponent> storedComponents) {
+        return new SyncDevelopmentComponentsInArchiveStateCommandBuilder(developmentConfiguration, dcFactory, antHelper, components,
+            storedComponents);
     }
 
     /**
@@ -8,9 +8,11 @@ import hudson.Launcher;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.regex.Pattern;
 
 import org.arachna.ant.AntHelper;
 import org.arachna.netweaver.dc.types.DevelopmentComponent;
@@ -20,6 +22,7 @@ import org.arachna.netweaver.tools.AbstractDIToolExecutor;
 import org.arachna.netweaver.tools.DIToolCommandBuilder;
 import org.arachna.netweaver.tools.DIToolCommandExecutionResult;
 import org.arachna.netweaver.tools.DIToolDescriptor;
+import org.arachna.netweaver.tools.DIToolOutputListener;
 
 /**
  * Execute a DC Tool.
@@ -27,6 +30,16 @@ import org.arachna.netweaver.tools.DIToolDescriptor;
  * @author Dirk Weigenand
  */
 public final class DCToolCommandExecutor extends AbstractDIToolExecutor {
+    /**
+     * prompt printed by dctool when it is waiting for a command.
+     */
+    private static final String PROMPT = "dc>";
+
+    /**
+     * pattern matching the lines dctool prints with its error messages (possibly preceded by prompts).
+     */
+    static final Pattern ERROR_MARKER = Pattern.compile("^(?:dc>)*\\s*(?:ERROR\\b|Error:|\\[Error\\]).*");
+
     /**
      * Factory for creating DC tool commands.
      */
@@ -37,6 +50,11 @@ public final class DCToolCommandExecutor extends AbstractDIToolExecutor {
      */
     private final LoadConfigCommandBuilder loadConfigCommandBuilder;
 
+    /**
+     * whether commands should be executed in one dctool process kept alive until {@link #closeSession()} is called.
+     */
+    private boolean persistentSession;
+
     /**
      * create DC tool executor with the given command line generator and given command build.
      *
@@ -57,6 +75,30 @@ public final class DCToolCommandExecutor extends AbstractDIToolExecutor {
             new LoadConfigCommandBuilder(diToolDescriptor, LoadConfigTemplate.fromJdkHomeAlias(developmentConfiguration.getJdkHomeAlias()));
     }
 
+    /**
+     * Set whether commands should be executed in one dctool process kept alive until {@link #closeSession()} is called. The development
+     * configuration is loaded only once then.
+     *
+     * @param persistentSession
+     *            <code>true</code> when commands should be executed in one dctool process, <code>false</code> when each execution launches
+     *            a dctool process of its own.
+     */
+    public void setPersistentSession(final boolean persistentSession) {
+        this.persistentSession = persistentSession;
+    }
+
+    /**
+     * Exit the dctool process kept alive for executing commands (if any).
+     *
+     * @throws IOException
+     *             re-thrown from dctool execution
+     * @throws InterruptedException
+     *             re-thrown from dctool execution
+     */
+    public void closeSession() throws IOException, InterruptedException {
+        closeSession(loadConfigCommandBuilder.getExitCommand());
+    }
+
     /**
      * Synchronize development components in archive mode in the development configuration.
      *
@@ -64,6 +106,10 @@ public final class DCToolCommandExecutor extends AbstractDIToolExecutor {
      *            registry for development components.
      * @param antHelper
      *            helper to determine location of development components in workspace.
+     * @param components
+     *            development components to be used calculating the DCs to be synchronized.
+     * @param storedComponents
+     *            development components provided by the archive store that need not be synchronized.
      * @return the result of the syncdc-command operation.
      * @throws IOException
      *             re-thrown from dctool execution
@@ -71,11 +117,13 @@ public final class DCToolCommandExecutor extends AbstractDIToolExecutor {
      *             re-thrown from dctool execution
      */
     public DIToolCommandExecutionResult synchronizeDevelopmentComponentsInArchiveState(final DevelopmentComponentFactory dcFactory,
-        final AntHelper antHelper, final Collection<DevelopmentComponent> components) throws IOException, InterruptedException {
+        final AntHelper antHelper, final Collection<DevelopmentComponent> components,
+        final Collection<DevelopmentComponent> storedComponents) throws IOException, InterruptedException {
         final long startSyncDCs = System.currentTimeMillis();
         log(Messages.DCToolCommandExecutor_synchronizing_development_components());
         final DIToolCommandExecutionResult result =
-            wrapAndExecute(commandFactory.createSyncDevelopmentComponentsInArchiveStateCommandBuilder(dcFactory, antHelper, components));
+            wrapAndExecute(commandFactory.createSyncDevelopmentComponentsInArchiveStateCommandBuilder(dcFactory, antHelper, components,
+                storedComponents));
         duration(startSyncDCs, Messages.DCToolCommandExecutor_done_synchronizing_development_components());
 
         return result;
@@ -108,36 +156,89 @@ public final class DCToolCommandExecutor extends AbstractDIToolExecutor {
      *
      * @param affectedComponents
      *            development components to build.
+     * @param listeners
+     *            listeners processing the output of the dctool while it runs.
      * @return the result of the builddc operation.
      * @throws IOException
      *             re-thrown from dctool execution
      * @throws InterruptedException
      *             re-thrown from dctool execution
      */
-    public DIToolCommandExecutionResult buildDevelopmentComponents(final Collection<DevelopmentComponent> affectedComponents)
-        throws IOException, InterruptedException {
+    public DIToolCommandExecutionResult buildDevelopmentComponents(final Collection<DevelopmentComponent> affectedComponents,
+        final DIToolOutputListener... listeners) throws IOException, InterruptedException {
         final long start = System.currentTimeMillis();
         final DIToolCommandExecutionResult result =
-            wrapAndExecute(commandFactory.createBuildDevelopmentComponentsCommandBuilder(affectedComponents));
+            wrapAndExecute(commandFactory.createBuildDevelopmentComponentsCommandBuilder(affectedComponents), listeners);
         duration(start, Messages.DCToolCommandExecutor_done_building_development_components());
 
         return result;
     }
 
+    /**
+     * Build the given development components in a dctool session of its own. The session loads the development configuration itself and
+     * writes into its own spool and trace files, so several sessions can run concurrently in the same workspace. The output of the
+     * session is written to the given stream instead of the console.
+     *
+     * @param components
+     *            development components to build.
+     * @param session
+     *            name of the dctool session (used in the names of its spool and trace files).
+     * @param output
+     *            stream to write the output of the session to.
+     * @param listeners
+     *            listeners processing the output of the session while it runs.
+     * @return the result of the builddc operation.
+     * @throws IOException
+     *             re-thrown from dctool execution
+     * @throws InterruptedException
+     *             re-thrown from dctool execution
+     */
+    public DIToolCommandExecutionResult buildDevelopmentComponents(final Collection<DevelopmentComponent> components,
+        final String session, final OutputStream output, final DIToolOutputListener... listeners) throws IOException,
+        InterruptedException {
+        final long start = System.currentTimeMillis();
+        final DIToolCommandExecutionResult result =
+            execute(new DCToolCommandBuilderWrapper(loadConfigCommandBuilder.forSession(session),
+                commandFactory.createBuildDevelopmentComponentsCommandBuilder(components)), output, listeners);
+        duration(start, Messages.DCToolCommandExecutor_done_building_development_components_in_session(session));
+
+        return result;
+    }
+
     /**
      * Wrap the given builder with a {@link DCToolCommandBuilderWrapper} to supply 'loadconfig' and 'exit' commands and execute the
-     * resulting command list with the dctool.
+     * resulting command list with the dctool. With a persistent session the commands are sent to the dctool process kept alive instead,
+     * the development configuration is loaded when the process is launched. The exit code reports whether dctool printed an error message
+     * then.
      *
      * @param builder
      *            builder for dctool commands.
+     * @param listeners
+     *            listeners processing the output of the dctool while it runs.
      * @return result object with return code and output of dctool commands.
      * @throws IOException
      *             re-thrown from dctool execution
      * @throws InterruptedException
      *             re-thrown from dctool execution
      */
-    private DIToolCommandExecutionResult wrapAndExecute(final DIToolCommandBuilder builder) throws IOException, InterruptedException {
-        return execute(new DCToolCommandBuilderWrapper(loadConfigCommandBuilder, builder));
+    private DIToolCommandExecutionResult wrapAndExecute(final DIToolCommandBuilder builder, final DIToolOutputListener... listeners)
+        throws IOException, InterruptedException {
+        if (!persistentSession) {
+            return execute(new DCToolCommandBuilderWrapper(loadConfigCommandBuilder, builder), listeners);
+        }
+
+        final List<String> commands = new LinkedList<String>(builder.execute());
+
+        if (commands.isEmpty()) {
+            return new DIToolCommandExecutionResult("", 0);
+        }
+
+        if (!isSessionOpen()) {
+            openSession(PROMPT, ERROR_MARKER);
+            commands.addAll(0, loadConfigCommandBuilder.execute());
+        }
+
+        return executeInSession(commands, listeners);
     }
 
     /**
@@ -26,14 +26,46 @@ class LoadConfigCommandBuilder implements DIToolCommandBuilder {
      */
     private final LoadConfigTemplate template;
 
+    /**
+     * name of the dctool session (<code>null</code> for the default session). Sessions running concurrently write into their own spool
+     * and trace files.
+     */
+    private final String session;
+
     /**
      *
      * @param dcToolDescriptor
      * @param template
      */
     LoadConfigCommandBuilder(final DIToolDescriptor dcToolDescriptor, final LoadConfigTemplate template) {
+        this(dcToolDescriptor, template, null);
+    }
+
+    /**
+     * Create a builder for the loadconfig commands of the given dctool session.
+     *
+     * @param dcToolDescriptor
+     *            descriptor for DC tool configuration.
+     * @param template
+     *            Template for the different versions of NetWeaver dctool.
+     * @param session
+     *            name of the dctool session (<code>null</code> for the default session).
+     */
+    LoadConfigCommandBuilder(final DIToolDescriptor dcToolDescriptor, final LoadConfigTemplate template, final String session) {
         this.dcToolDescriptor = dcToolDescriptor;
         this.template = template;
+        this.session = session;
+    }
+
+    /**
+     * Create a builder for the loadconfig commands of the given dctool session using the same configuration as this builder.
+     *
+     * @param sessionName
+     *            name of the dctool session.
+     * @return builder for the loadconfig commands of the given dctool session.
+     */
+    LoadConfigCommandBuilder forSession(final String sessionName) {
+        return new LoadConfigCommandBuilder(dcToolDescriptor, template, sessionName);
     }
 
     /**
@@ -42,14 +74,25 @@ class LoadConfigCommandBuilder implements DIToolCommandBuilder {
     @Override
     public final List<String> execute() {
         final List<String> commands = new ArrayList<String>();
-        commands.add(template.getSpoolCommand());
-        commands.add(template.getTracefileCommand());
+        commands.add(template.getSpoolCommand(getFileName("spool")));
+        commands.add(template.getTracefileCommand(getFileName("tracefile")));
         commands.add(template.getTimingCommand());
         commands.add(getLoadConfigCommand());
 
         return commands;
     }
 
+    /**
+     * Get the name of the spool or trace file of this session.
+     *
+     * @param prefix
+     *            prefix of file name.
+     * @return the name of the spool or trace file of this session (e.g. <code>spool.txt</code> or <code>spool-1.txt</code>).
+     */
+    private String getFileName(final String prefix) {
+        return session == null ? prefix + ".txt" : String.format("%s-%s.txt", prefix, session);
+    }
+
     /**
      * Get the command for loading a development configuration.
      *
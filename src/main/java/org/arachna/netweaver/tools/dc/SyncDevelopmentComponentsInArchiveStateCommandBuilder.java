@@ -83,6 +83,11 @@ final class SyncDevelopmentComponentsInArchiveStateCommandBuilder extends Abstra
      */
     private final AntHelper antHelper;
 
+    /**
+     * development components provided by the archive store (i.e. linked into the workspace) that need not be synchronized.
+     */
+    private final Collection<DevelopmentComponent> storedComponents;
+
     /**
      * create a builder for development component listing and syncing commands.
      *
@@ -95,10 +100,32 @@ final class SyncDevelopmentComponentsInArchiveStateCommandBuilder extends Abstra
      */
     SyncDevelopmentComponentsInArchiveStateCommandBuilder(final DevelopmentConfiguration developmentConfiguration,
         final DevelopmentComponentFactory dcFactory, final AntHelper antHelper, final Collection<DevelopmentComponent> components) {
+        this(developmentConfiguration, dcFactory, antHelper, components, Collections.<DevelopmentComponent> emptySet());
+    }
+
+    /**
+     * create a builder for development component listing and syncing commands leaving out the development components provided by the
+     * archive store.
+     *
+     * @param developmentConfiguration
+     *            development configuration to synchronize development components for.
+     * @param dcFactory
+     *            registry for development components.
+     * @param antHelper
+     *            helper to determine location of development components in workspace.
+     * @param components
+     *            collection of development components to generate DC tool synchronization statements for.
+     * @param storedComponents
+     *            development components provided by the archive store that need not be synchronized.
+     */
+    SyncDevelopmentComponentsInArchiveStateCommandBuilder(final DevelopmentConfiguration developmentConfiguration,
+        final DevelopmentComponentFactory dcFactory, final AntHelper antHelper, final Collection<DevelopmentComponent> components,
+        final Collection<DevelopmentComponent> storedComponents) {
         super(developmentConfiguration);
         this.dcFactory = dcFactory;
         this.antHelper = antHelper;
         this.components = components;
+        this.storedComponents = new HashSet<DevelopmentComponent>(storedComponents);
         template = SyncDcCommandTemplate.create(developmentConfiguration.getJdkHomeAlias());
     }
 
@@ -221,8 +248,8 @@ final class SyncDevelopmentComponentsInArchiveStateCommandBuilder extends Abstra
     /**
      * Determine the development components that should be synchronized as dependencies for the given collection of development components.
      *
-     * Development components that are provided by SAP and are already on disk are excluded from the synchronization as a speed
-     * optimization.
+     * Development components that are provided by SAP and are already on disk or that are provided by the archive store are excluded from
+     * the synchronization as a speed optimization.
      *
      * @param components
      *            development components to determine dependencies that shall be synchronized.
@@ -232,6 +259,11 @@ final class SyncDevelopmentComponentsInArchiveStateCommandBuilder extends Abstra
         final List<DevelopmentComponent> dcsToSynchronize = new ArrayList<DevelopmentComponent>();
 
         for (final DevelopmentComponent usedDC : getUsedDCs(getUniquePublicPartReferences(components))) {
+            // development components linked from the archive store
+            if (storedComponents.contains(usedDC)) {
+                continue;
+            }
+
             // development components provided by SAP
             if (isSAPComponent(usedDC)) {
                 // should only be synchronized when not already on disk.
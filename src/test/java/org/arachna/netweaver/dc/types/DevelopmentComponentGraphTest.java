@@ -0,0 +1,189 @@
+/**
+ *
+ */
+package org.arachna.netweaver.dc.types;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link DevelopmentComponentGraph}.
+ *
+ * @author Dirk Weigenand
+ */
+public class DevelopmentComponentGraphTest {
+    /**
+     * vendor of development components.
+     */
+    private static final String EXAMPLE_COM = "example.com";
+
+    /**
+     * public part name 'API'.
+     */
+    private static final String API = "API";
+
+    /**
+     * number of development components each generated component references.
+     */
+    private static final int REFERENCES_PER_COMPONENT = 8;
+
+    /**
+     * registry for development components.
+     */
+    private DevelopmentComponentFactory dcFactory;
+
+    /**
+     * Set up fixture.
+     */
+    @Before
+    public void setUp() {
+        dcFactory = new DevelopmentComponentFactory();
+    }
+
+    /**
+     * Test that the used and using development components are determined from the public part references.
+     */
+    @Test
+    public void testUsedAndUsingComponents() {
+        final DevelopmentComponent lib = create("lib");
+        final DevelopmentComponent helper = create("helper", "lib");
+        final DevelopmentComponent app = create("app", "lib", "helper", "lib", "sap.com:unknown");
+        final DevelopmentComponentGraph graph = dcFactory.createDependencyGraph();
+
+        assertThat(graph.size(), is(equalTo(3)));
+        assertThat(graph.getEdgeCount(), is(equalTo(3)));
+        assertThat(graph.getUsedComponents(app), contains(lib, helper));
+        assertThat(graph.getUsingComponents(lib), contains(helper, app));
+        assertThat(graph.getUsingComponents(app).isEmpty(), is(true));
+        assertThat(graph.getUsedCount(graph.getId(lib)), is(equalTo(0)));
+        assertThat(graph.getComponent(graph.getUsing(graph.getId(helper), 0)), is(equalTo(app)));
+    }
+
+    /**
+     * Test that development components not contained in the graph have no id and no neighbours.
+     */
+    @Test
+    public void testUnknownComponent() {
+        create("lib");
+        final DevelopmentComponentGraph graph = dcFactory.createDependencyGraph();
+        final DevelopmentComponent unknown = new DevelopmentComponent("unknown", EXAMPLE_COM);
+
+        assertThat(graph.getId(unknown), is(equalTo(-1)));
+        assertThat(graph.getUsingComponents(unknown).isEmpty(), is(true));
+    }
+
+    /**
+     * Test that {@link DevelopmentComponentFactory#updateUsingDCs()} sets the using DCs of every development component to the components
+     * referencing it.
+     */
+    @Test
+    public void testUpdateUsingDCs() {
+        final List<DevelopmentComponent> components = createComponents(200);
+        dcFactory.updateUsingDCs();
+
+        for (final DevelopmentComponent component : components) {
+            final List<DevelopmentComponent> expected = new ArrayList<DevelopmentComponent>();
+
+            for (final DevelopmentComponent candidate : dcFactory.getAll()) {
+                for (final PublicPartReference reference : candidate.getUsedDevelopmentComponents()) {
+                    if (reference.references(component) && !expected.contains(candidate)) {
+                        expected.add(candidate);
+                    }
+                }
+            }
+
+            assertThat(new ArrayList<DevelopmentComponent>(component.getUsingDevelopmentComponents()), is(equalTo(expected)));
+        }
+    }
+
+    /**
+     * Test that building the graph of 10.000 development components scales linearly.
+     */
+    @Test(timeout = 10000)
+    public void testScalingWith10000Components() {
+        assertScaling(10000);
+    }
+
+    /**
+     * Test that building the graph of 50.000 development components scales linearly.
+     */
+    @Test(timeout = 20000)
+    public void testScalingWith50000Components() {
+        assertScaling(50000);
+    }
+
+    /**
+     * Build the dependency graph of the given number of generated development components and update their using DCs.
+     *
+     * @param count
+     *            number of development components.
+     */
+    private void assertScaling(final int count) {
+        final List<DevelopmentComponent> components = createComponents(count);
+        final DevelopmentComponentGraph graph = dcFactory.createDependencyGraph();
+        dcFactory.updateUsingDCs();
+
+        int usingCount = 0;
+
+        for (final DevelopmentComponent component : components) {
+            usingCount += component.getUsingDevelopmentComponents().size();
+        }
+
+        assertThat(graph.size(), is(equalTo(count)));
+        assertThat(usingCount, is(equalTo(graph.getEdgeCount())));
+    }
+
+    /**
+     * Create the given number of development components. Each one references a random selection of the components created before it.
+     *
+     * @param count
+     *            number of development components.
+     * @return the created development components.
+     */
+    private List<DevelopmentComponent> createComponents(final int count) {
+        final Random random = new Random(count);
+        final List<DevelopmentComponent> components = new ArrayList<DevelopmentComponent>(count);
+
+        for (int i = 0; i < count; i++) {
+            final DevelopmentComponent component = dcFactory.create(EXAMPLE_COM, "dc" + i);
+
+            for (int j = 0; j < REFERENCES_PER_COMPONENT && i > 0; j++) {
+                component.add(new PublicPartReference(EXAMPLE_COM, "dc" + random.nextInt(i), API));
+            }
+
+            components.add(component);
+        }
+
+        return components;
+    }
+
+    /**
+     * Create a development component referencing the given components.
+     *
+     * @param name
+     *            name of development component.
+     * @param references
+     *            names of referenced development components (optionally prefixed with a vendor and ':').
+     * @return the created development component.
+     */
+    private DevelopmentComponent create(final String name, final String... references) {
+        final DevelopmentComponent component = dcFactory.create(EXAMPLE_COM, name);
+
+        for (final String reference : references) {
+            final int separator = reference.indexOf(':');
+            component.add(separator < 0 ? new PublicPartReference(EXAMPLE_COM, reference, API) : new PublicPartReference(
+                reference.substring(0, separator), reference.substring(separator + 1), API));
+        }
+
+        return component;
+    }
+}
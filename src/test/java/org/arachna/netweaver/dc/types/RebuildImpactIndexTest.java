@@ -0,0 +1,161 @@
+/**
+ *
+ */
+package org.arachna.netweaver.dc.types;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link RebuildImpactIndex}.
+ *
+ * @author Dirk Weigenand
+ */
+public class RebuildImpactIndexTest {
+    /**
+     * vendor of development components.
+     */
+    private static final String EXAMPLE_COM = "example.com";
+
+    /**
+     * public part name 'API'.
+     */
+    private static final String API = "API";
+
+    /**
+     * version of development configuration.
+     */
+    private static final String VERSION = "42";
+
+    /**
+     * registry for development components.
+     */
+    private DevelopmentComponentFactory dcFactory;
+
+    /**
+     * compartment containing the development components.
+     */
+    private Compartment compartment;
+
+    /**
+     * Set up fixture.
+     */
+    @Before
+    public void setUp() {
+        dcFactory = new DevelopmentComponentFactory();
+        compartment = Compartment.create("example.com_EXAMPLE_SC", CompartmentState.Source);
+    }
+
+    /**
+     * Test that the impact of a change contains the changed component and (transitively) the components using it.
+     */
+    @Test
+    public void testImpactContainsTransitiveUsingComponents() {
+        final DevelopmentComponent lib = create("lib");
+        final DevelopmentComponent helper = create("helper", "lib");
+        final DevelopmentComponent app = create("app", "helper");
+        final DevelopmentComponent other = create("other");
+        final RebuildImpactIndex index = dcFactory.getRebuildImpactIndex(VERSION);
+
+        assertThat(index.getImpactedComponents(Arrays.asList(lib)), containsInAnyOrder(lib, helper, app));
+        assertThat(index.getImpactedComponents(Arrays.asList(helper)), containsInAnyOrder(helper, app));
+        assertThat(index.getImpactedComponents(Arrays.asList(app, other)), containsInAnyOrder(app, other));
+    }
+
+    /**
+     * Test that circular dependencies are handled (every member of the cycle impacts all others).
+     */
+    @Test
+    public void testImpactWithCircularDependency() {
+        final DevelopmentComponent a = create("a", "c");
+        final DevelopmentComponent b = create("b", "a");
+        final DevelopmentComponent c = create("c", "b");
+        final DevelopmentComponent d = create("d", "b");
+        final RebuildImpactIndex index = dcFactory.getRebuildImpactIndex(VERSION);
+
+        assertThat(index.getImpactedComponents(Arrays.asList(b)), containsInAnyOrder(a, b, c, d));
+        assertThat(index.getImpactedComponents(Arrays.asList(d)), containsInAnyOrder(d));
+    }
+
+    /**
+     * Test that components not contained in a compartment neither are impacted nor propagate the impact.
+     */
+    @Test
+    public void testComponentsWithoutCompartmentAreLeftOut() {
+        final DevelopmentComponent lib = create("lib");
+        final DevelopmentComponent orphan = dcFactory.create(EXAMPLE_COM, "orphan");
+        orphan.add(new PublicPartReference(EXAMPLE_COM, "lib", API));
+        create("app", "orphan");
+
+        assertThat(dcFactory.getRebuildImpactIndex(VERSION).getImpactedComponents(Arrays.asList(lib)), containsInAnyOrder(lib));
+    }
+
+    /**
+     * Test that the index is memoized per version and recreated when the registry changes.
+     */
+    @Test
+    public void testIndexIsMemoizedPerVersion() {
+        create("lib");
+        final RebuildImpactIndex index = dcFactory.getRebuildImpactIndex(VERSION);
+
+        assertThat(dcFactory.getRebuildImpactIndex(VERSION), is(sameInstance(index)));
+        assertThat(dcFactory.getRebuildImpactIndex("43"), is(not(sameInstance(index))));
+
+        final RebuildImpactIndex index43 = dcFactory.getRebuildImpactIndex("43");
+        create("app", "lib");
+
+        assertThat(dcFactory.getRebuildImpactIndex("43"), is(not(sameInstance(index43))));
+    }
+
+    /**
+     * Test that queries on a large graph are answered quickly once the impacts are memoized.
+     */
+    @Test(timeout = 20000)
+    public void testQueriesOn20000Components() {
+        final List<DevelopmentComponent> components = new ArrayList<DevelopmentComponent>();
+
+        for (int i = 0; i < 20000; i++) {
+            components.add(i == 0 ? create("dc0") : create("dc" + i, "dc" + (i - 1), "dc" + i / 2));
+        }
+
+        final RebuildImpactIndex index = dcFactory.getRebuildImpactIndex(VERSION);
+
+        assertThat(index.getImpact(components.subList(0, 1)).cardinality(), is(equalTo(20000)));
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(index.getImpact(components.subList(i, i + 1)).cardinality(), is(equalTo(20000 - i)));
+        }
+    }
+
+    /**
+     * Create a development component in the compartment referencing the given components.
+     *
+     * @param name
+     *            name of development component.
+     * @param references
+     *            names of referenced development components.
+     * @return the created development component.
+     */
+    private DevelopmentComponent create(final String name, final String... references) {
+        final DevelopmentComponent component = dcFactory.create(EXAMPLE_COM, name);
+
+        for (final String reference : references) {
+            component.add(new PublicPartReference(EXAMPLE_COM, reference, API));
+        }
+
+        compartment.add(component);
+
+        return component;
+    }
+}
@@ -6,6 +6,7 @@ package org.arachna.netweaver.hudson.dtr.browser;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 
 import java.util.Calendar;
 
@@ -55,4 +56,15 @@ public class ActivityDetailParserTest {
     public final void testParseLongDescription() {
         assertThat(this.activity.getDescription(), is(equalTo("LongDescription")));
     }
+
+    /**
+     * Test method for {@link org.arachna.netweaver.hudson.dtr.browser.ActivityDetailParser#parse(java.io.InputStream)}
+     * .
+     */
+    @Test
+    public final void testParseIntegrationSequenceNumbers() {
+        assertThat(this.activity.getIntegrationSequenceNumber("/ws/Example/example.com_EXAMPLE_SC1/dev/inactive/"), is(equalTo(30)));
+        assertThat(this.activity.getIntegrationSequenceNumber("ws/Example/example.com_EXAMPLE_SC1/dev/active"), is(equalTo(29)));
+        assertThat(this.activity.getIntegrationSequenceNumber("ws/Example/example.com_EXAMPLE_SC2/dev/inactive/"), is(nullValue()));
+    }
 }
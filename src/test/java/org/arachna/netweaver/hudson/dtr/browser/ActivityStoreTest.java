@@ -0,0 +1,217 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Calendar;
+import java.util.Date;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link ActivityStore}.
+ *
+ * @author Dirk Weigenand
+ */
+public class ActivityStoreTest {
+    /**
+     * URL of first activity.
+     */
+    private static final String ACTIVITY_URL = "/dtr/system-tools/reports/ResourceDetails?technical=false&path=/act/1";
+
+    /**
+     * URL of second activity.
+     */
+    private static final String OTHER_ACTIVITY_URL = "/dtr/system-tools/reports/ResourceDetails?technical=false&path=/act/2";
+
+    /**
+     * file used by the store under test.
+     */
+    private File file;
+
+    /**
+     * registry for development components.
+     */
+    private DevelopmentComponentFactory dcFactory;
+
+    /**
+     * activity with one resource.
+     */
+    private Activity activity;
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("activities", ".dat");
+        file.delete();
+        dcFactory = new DevelopmentComponentFactory();
+
+        activity = new Activity(ACTIVITY_URL, null, "comment", Calendar.getInstance().getTime());
+        activity.setDescription("LongDescription");
+
+        final ActivityResource resource =
+            new ActivityResource(activity, dcFactory.create("example.com", "dc/name"), "src/packages/Example.java", "4711");
+        resource.setCreationDate(new Date(1000));
+        resource.setLastModified(new Date(2000));
+        resource.setSequenceNumber(Integer.valueOf(3));
+        resource.setDeleted(Boolean.TRUE);
+        activity.add(resource);
+        activity.addIntegration("/ws/Example/example.com_EXAMPLE_SC1/dev/inactive", 30);
+    }
+
+    /**
+     * @throws java.lang.Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        file.delete();
+    }
+
+    /**
+     * Test method for {@link ActivityStore#restore(Activity, DevelopmentComponentFactory)}.
+     */
+    @Test
+    public final void testRestoreUnknownActivity() {
+        final ActivityStore store = new ActivityStore(file);
+
+        assertThat(store.restore(createActivity(ACTIVITY_URL), dcFactory), is(equalTo(false)));
+    }
+
+    /**
+     * Test method for {@link ActivityStore#store(Activity)}.
+     */
+    @Test
+    public final void testStoredActivityIsRestoredFromFile() {
+        new ActivityStore(file).store(activity);
+
+        final Activity restored = createActivity(ACTIVITY_URL);
+        assertThat(new ActivityStore(file).restore(restored, dcFactory), is(equalTo(true)));
+        assertThat(restored.getDescription(), is(equalTo("LongDescription")));
+        assertThat(restored.getResources().size(), is(equalTo(1)));
+
+        final ActivityResource resource = restored.getResources().iterator().next();
+        assertThat(resource.getId(), is(equalTo("4711")));
+        assertThat(resource.getPath(), is(equalTo("src/packages/Example.java")));
+        assertThat(resource.getCreationDate(), is(equalTo(new Date(1000))));
+        assertThat(resource.getLastModified(), is(equalTo(new Date(2000))));
+        assertThat(resource.getSequenceNumber(), is(equalTo(Integer.valueOf(3))));
+        assertThat(resource.isDeleted(), is(equalTo(Boolean.TRUE)));
+        assertThat(resource.getActivity(), is(sameInstance(restored)));
+    }
+
+    /**
+     * Test method for {@link ActivityStore#restore(Activity, DevelopmentComponentFactory)}.
+     */
+    @Test
+    public final void testIntegrationSequenceNumbersAreRestored() {
+        new ActivityStore(file).store(activity);
+
+        final Activity restored = createActivity(ACTIVITY_URL);
+        new ActivityStore(file).restore(restored, dcFactory);
+
+        assertThat(restored.getIntegrationSequenceNumber("ws/Example/example.com_EXAMPLE_SC1/dev/inactive/"),
+            is(equalTo(Integer.valueOf(30))));
+    }
+
+    /**
+     * Test method for {@link ActivityStore#restore(Activity, DevelopmentComponentFactory)}.
+     */
+    @Test
+    public final void testRestoredResourceUsesRegisteredDevelopmentComponent() {
+        new ActivityStore(file).store(activity);
+
+        final Activity restored = createActivity(ACTIVITY_URL);
+        new ActivityStore(file).restore(restored, dcFactory);
+
+        final DevelopmentComponent component = restored.getResources().iterator().next().getDevelopmentComponent();
+        assertThat(component, is(sameInstance(dcFactory.get("example.com", "dc/name"))));
+    }
+
+    /**
+     * Test method for {@link ActivityStore#store(Activity)}.
+     */
+    @Test
+    public final void testActivityIsStoredOnlyOnce() {
+        final ActivityStore store = new ActivityStore(file);
+        store.store(activity);
+        final long length = file.length();
+        store.store(activity);
+
+        assertThat(file.length(), is(equalTo(length)));
+        assertThat(new ActivityStore(file).size(), is(equalTo(1)));
+    }
+
+    /**
+     * Test that an incompletely written record is discarded and the store may be appended to afterwards.
+     *
+     * @throws IOException
+     *             when truncating the file fails
+     */
+    @Test
+    public final void testIncompleteRecordIsDiscarded() throws IOException {
+        final ActivityStore store = new ActivityStore(file);
+        store.store(activity);
+        store.store(createActivity(OTHER_ACTIVITY_URL));
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(file.length() - 2);
+        raf.close();
+
+        final ActivityStore truncated = new ActivityStore(file);
+        assertThat(truncated.size(), is(equalTo(1)));
+        assertThat(truncated.contains(createActivity(OTHER_ACTIVITY_URL)), is(equalTo(false)));
+
+        truncated.store(createActivity(OTHER_ACTIVITY_URL));
+        assertThat(new ActivityStore(file).size(), is(equalTo(2)));
+    }
+
+    /**
+     * Test that a store written in the format without integrations is
+     * discarded and rebuilt.
+     *
+     * @throws IOException
+     *             when writing the old store fails
+     */
+    @Test
+    public final void testStoreInPreviousFormatIsRebuilt() throws IOException {
+        final DataOutputStream output = new DataOutputStream(new FileOutputStream(file));
+        output.writeInt(0x4e574432);
+        output.writeInt(4);
+        output.writeInt(0);
+        output.close();
+
+        final ActivityStore store = new ActivityStore(file);
+        assertThat(store.size(), is(equalTo(0)));
+        assertThat(file.length(), is(equalTo(0L)));
+
+        store.store(activity);
+        assertThat(new ActivityStore(file).restore(createActivity(ACTIVITY_URL), dcFactory), is(equalTo(true)));
+    }
+
+    /**
+     * Create an activity using the given URL.
+     *
+     * @param url
+     *            URL of activity.
+     * @return the created activity.
+     */
+    private Activity createActivity(final String url) {
+        return new Activity(url, null, "comment", Calendar.getInstance().getTime());
+    }
+}
@@ -0,0 +1,460 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * JUnit test for {@link DevelopmentComponentCollector}.
+ *
+ * @author Dirk Weigenand
+ */
+public class DevelopmentComponentCollectorTest {
+    /**
+     * path of activity used in test.
+     */
+    private static final String ACTIVITY_PATH = "/act/act_w_Example_example_2e_com_EXAMPLE_2d_SC1_dev_inactive_u_developer00";
+
+    /**
+     * number of activities used in tests of the order of development components.
+     */
+    private static final int ACTIVITY_COUNT = 6;
+
+    /**
+     * pattern extracting the number of an activity created by {@link #createActivity(int)} from a query.
+     */
+    private static final Pattern ACTIVITY_NUMBER = Pattern.compile(Pattern.quote(ACTIVITY_PATH) + "_(\\d+)(&|$)");
+
+    /**
+     * HTTP server simulating a DTR.
+     */
+    private HttpServer server;
+
+    /**
+     * number of resource detail pages requested.
+     */
+    private final AtomicInteger resourceDetailRequests = new AtomicInteger();
+
+    /**
+     * latch blocking the resource detail requests until released by a test.
+     */
+    private final CountDownLatch resourceDetailsReleased = new CountDownLatch(1);
+
+    /**
+     * registry for development components.
+     */
+    private final DevelopmentComponentFactory dcFactory = new DevelopmentComponentFactory();
+
+    /**
+     * page sent for resource detail requests (<code>null</code> to drop the connection without a response).
+     */
+    private volatile String resourceDetailsPage = "ResourceDetails1.html";
+
+    /**
+     * number of the activity whose requests fail (<code>null</code> when all requests succeed).
+     */
+    private volatile String failingActivity;
+
+    /**
+     * file of the activity store.
+     */
+    private File storeFile;
+
+    /**
+     * Start the HTTP server.
+     *
+     * @throws IOException
+     *             when the server could not be started.
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                final String query = exchange.getRequestURI().getQuery();
+                final Matcher activityNumber = ACTIVITY_NUMBER.matcher(query);
+                String page = "ResourceDetails.htm";
+
+                if (activityNumber.find()) {
+                    answerNumberedActivity(exchange, activityNumber.group(1));
+
+                    return;
+                }
+
+                if (exchange.getRequestURI().getPath().endsWith("ResourceSetDetails")) {
+                    page = "ResourceList.html";
+                }
+                else if (query.contains("path=/vh/")) {
+                    resourceDetailRequests.incrementAndGet();
+                    awaitRelease();
+                    page = resourceDetailsPage;
+
+                    if (page == null) {
+                        exchange.close();
+
+                        return;
+                    }
+                }
+
+                send(exchange, page);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        storeFile = File.createTempFile("activities", ".bin");
+        storeFile.delete();
+    }
+
+    /**
+     * Stop the HTTP server.
+     */
+    @After
+    public void tearDown() {
+        resourceDetailsReleased.countDown();
+        server.stop(0);
+        storeFile.delete();
+    }
+
+    /**
+     * Test that development components are determined from the version set alone and resource details are read only afterwards.
+     */
+    @Test
+    public void testDevelopmentComponentsAreDeterminedWithoutResourceDetails() {
+        final Activity activity = createActivity();
+        final DevelopmentComponentCollector collector = createCollector();
+
+        assertThat(collector.collect(Arrays.asList(activity)),
+            contains(dcFactory.get("example.com", "example/development/component")));
+
+        for (final ActivityResource resource : activity.getResources()) {
+            assertThat(resource.getSequenceNumber(), is(equalTo((Integer)null)));
+        }
+
+        resourceDetailsReleased.countDown();
+        collector.resolveResourceDetails();
+
+        assertThat(resourceDetailRequests.get(), is(equalTo(activity.getResources().size())));
+
+        for (final ActivityResource resource : activity.getResources()) {
+            assertThat(resource.getSequenceNumber(), is(equalTo(Integer.valueOf(1))));
+        }
+    }
+
+    /**
+     * Test that collecting no activities needs no resource detail requests.
+     */
+    @Test
+    public void testResolveResourceDetailsWithoutActivities() {
+        final DevelopmentComponentCollector collector = createCollector();
+
+        assertThat(collector.collect(Arrays.<Activity> asList()).isEmpty(), is(true));
+        collector.resolveResourceDetails();
+        assertThat(resourceDetailRequests.get(), is(equalTo(0)));
+    }
+
+    /**
+     * Test that an activity whose resources were deleted from the DTR (no resource details are found) is complete and put into the
+     * activity store.
+     */
+    @Test
+    public void testActivityWithDeletedResourcesIsStored() {
+        resourceDetailsPage = "DeletedResourceDetails.html";
+        resourceDetailsReleased.countDown();
+        final Activity activity = createActivity();
+        final DevelopmentComponentCollector collector = createCollector(new ActivityStore(storeFile));
+
+        collector.collect(Arrays.asList(activity));
+        collector.resolveResourceDetails();
+
+        for (final ActivityResource resource : activity.getResources()) {
+            assertThat(resource.isDeleted(), is(equalTo(Boolean.TRUE)));
+        }
+
+        final ActivityStore store = new ActivityStore(storeFile);
+        final Activity restored = createActivity();
+
+        assertThat(store.size(), is(equalTo(1)));
+        assertThat(store.restore(restored, new DevelopmentComponentFactory()), is(true));
+        assertThat(restored.getResources().iterator().next().isDeleted(), is(equalTo(Boolean.TRUE)));
+    }
+
+    /**
+     * Test that an activity whose resource details could not be read is not put into the activity store.
+     */
+    @Test
+    public void testActivityWithFailedResourceDetailRequestIsNotStored() {
+        resourceDetailsPage = null;
+        resourceDetailsReleased.countDown();
+        final DevelopmentComponentCollector collector = createCollector(new ActivityStore(storeFile));
+
+        collector.collect(Arrays.asList(createActivity()));
+        collector.resolveResourceDetails();
+
+        assertThat(new ActivityStore(storeFile).size(), is(equalTo(0)));
+    }
+
+    /**
+     * Test that the development components collected concurrently are ordered like the ones collected one activity after another
+     * (regardless of the order the requests complete in).
+     */
+    @Test
+    public void testConcurrentCollectionKeepsSerialOrder() {
+        resourceDetailsReleased.countDown();
+        final List<DevelopmentComponent> serial = collect(1, createActivities());
+        final List<DevelopmentComponent> concurrent = collect(4, createActivities());
+
+        assertThat(serial.size(), is(equalTo(ACTIVITY_COUNT)));
+        assertThat(concurrent, is(equalTo(serial)));
+
+        for (int i = 0; i < ACTIVITY_COUNT; i++) {
+            assertThat(concurrent.get(i), is(equalTo(dcFactory.get("example.com", "example/component" + i))));
+        }
+    }
+
+    /**
+     * Test that an activity that could not be read from the DTR does neither abort the collection of the other activities nor is put
+     * into the activity store.
+     */
+    @Test
+    public void testFailureIsIsolatedToItsActivity() {
+        resourceDetailsReleased.countDown();
+        failingActivity = "2";
+        final List<Activity> activities = createActivities();
+        final DevelopmentComponentCollector collector =
+            new DevelopmentComponentCollector(new DtrHttpClient("user", "password"), String.format("http://127.0.0.1:%d",
+                server.getAddress().getPort()), dcFactory, 4, new ActivityStore(storeFile));
+
+        final List<DevelopmentComponent> components = new ArrayList<DevelopmentComponent>(collector.collect(activities));
+        collector.resolveResourceDetails();
+
+        assertThat(components, contains(dcFactory.get("example.com", "example/component0"), dcFactory.get("example.com",
+            "example/component1"), dcFactory.get("example.com", "example/component3"), dcFactory.get("example.com",
+            "example/component4"), dcFactory.get("example.com", "example/component5")));
+        assertThat(activities.get(2).getResources().isEmpty(), is(true));
+
+        final ActivityStore store = new ActivityStore(storeFile);
+        assertThat(store.size(), is(equalTo(ACTIVITY_COUNT - 1)));
+        assertThat(store.restore(createActivity(2), new DevelopmentComponentFactory()), is(false));
+    }
+
+    /**
+     * Collect the development components of the given activities using the given parallelism.
+     *
+     * @param parallelism
+     *            maximum number of DTR requests to execute concurrently.
+     * @param activities
+     *            activities to collect development components for.
+     * @return the development components collected (in order).
+     */
+    private List<DevelopmentComponent> collect(final int parallelism, final List<Activity> activities) {
+        final DevelopmentComponentCollector collector =
+            new DevelopmentComponentCollector(new DtrHttpClient("user", "password"), String.format("http://127.0.0.1:%d",
+                server.getAddress().getPort()), dcFactory, parallelism);
+        final List<DevelopmentComponent> components = new ArrayList<DevelopmentComponent>(collector.collect(activities));
+        collector.resolveResourceDetails();
+
+        return components;
+    }
+
+    /**
+     * Answer a request for the activity with the given number. The version set of each activity contains another development
+     * component. Requests for earlier activities are answered later so concurrent requests complete in reverse order.
+     *
+     * @param exchange
+     *            the exchange to respond to.
+     * @param number
+     *            number of the activity.
+     * @throws IOException
+     *             when sending the page fails.
+     */
+    private void answerNumberedActivity(final HttpExchange exchange, final String number) throws IOException {
+        if (number.equals(failingActivity)) {
+            exchange.close();
+
+            return;
+        }
+
+        if (exchange.getRequestURI().getPath().endsWith("ResourceSetDetails")) {
+            try {
+                Thread.sleep((ACTIVITY_COUNT - Integer.parseInt(number)) * 20L);
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            send(exchange, read("ResourceList.html").replace("example/development/component", "example/component" + number)
+                .getBytes("UTF-8"));
+        }
+        else {
+            send(exchange, read("ResourceDetails.htm").getBytes("UTF-8"));
+        }
+    }
+
+    /**
+     * Create a collector talking to the simulated DTR using the given activity store.
+     *
+     * @param store
+     *            store for activities already read from the DTR.
+     * @return a collector talking to the simulated DTR.
+     */
+    private DevelopmentComponentCollector createCollector(final ActivityStore store) {
+        return new DevelopmentComponentCollector(new DtrHttpClient("user", "password"), String.format("http://127.0.0.1:%d",
+            server.getAddress().getPort()), dcFactory, 2, store);
+    }
+
+    /**
+     * Create a collector talking to the simulated DTR.
+     *
+     * @return a collector talking to the simulated DTR.
+     */
+    private DevelopmentComponentCollector createCollector() {
+        return new DevelopmentComponentCollector(new DtrHttpClient("user", "password"), String.format("http://127.0.0.1:%d",
+            server.getAddress().getPort()), dcFactory, 2);
+    }
+
+    /**
+     * Create the activity used in tests.
+     *
+     * @return the activity used in tests.
+     */
+    private Activity createActivity() {
+        return new Activity("/dtr/system-tools/reports/ResourceDetails?technical=false&path=" + ACTIVITY_PATH, new Principal(
+            "developer00"), "comment", new Date());
+    }
+
+    /**
+     * Create the activities used in tests of the order of development components.
+     *
+     * @return the activities used in tests of the order of development components.
+     */
+    private List<Activity> createActivities() {
+        final List<Activity> activities = new ArrayList<Activity>();
+
+        for (int i = 0; i < ACTIVITY_COUNT; i++) {
+            activities.add(createActivity(i));
+        }
+
+        return activities;
+    }
+
+    /**
+     * Create the activity with the given number.
+     *
+     * @param number
+     *            number of activity.
+     * @return the activity with the given number.
+     */
+    private Activity createActivity(final int number) {
+        return new Activity(String.format("/dtr/system-tools/reports/ResourceDetails?technical=false&path=%s_%d", ACTIVITY_PATH,
+            number), new Principal("developer00"), "comment", new Date());
+    }
+
+    /**
+     * Wait until the resource detail requests are released by the test.
+     */
+    private void awaitRelease() {
+        try {
+            resourceDetailsReleased.await(10, TimeUnit.SECONDS);
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Send the given test page as response.
+     *
+     * @param exchange
+     *            the exchange to respond to.
+     * @param page
+     *            name of test page.
+     * @throws IOException
+     *             when sending the page fails.
+     */
+    private void send(final HttpExchange exchange, final String page) throws IOException {
+        send(exchange, read(page).getBytes("UTF-8"));
+    }
+
+    /**
+     * Send the given content as response.
+     *
+     * @param exchange
+     *            the exchange to respond to.
+     * @param content
+     *            content to send.
+     * @throws IOException
+     *             when sending the content fails.
+     */
+    private void send(final HttpExchange exchange, final byte[] content) throws IOException {
+        exchange.sendResponseHeaders(200, content.length);
+        final OutputStream body = exchange.getResponseBody();
+
+        try {
+            body.write(content);
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Read the given test page.
+     *
+     * @param page
+     *            name of test page.
+     * @return content of test page.
+     * @throws IOException
+     *             when the page could not be read.
+     */
+    private String read(final String page) throws IOException {
+        final InputStream content = getClass().getResourceAsStream(page);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try {
+            final byte[] buffer = new byte[4096];
+            int count = content.read(buffer);
+
+            while (count > -1) {
+                bytes.write(buffer, 0, count);
+                count = content.read(buffer);
+            }
+        }
+        finally {
+            content.close();
+        }
+
+        return bytes.toString("UTF-8");
+    }
+}
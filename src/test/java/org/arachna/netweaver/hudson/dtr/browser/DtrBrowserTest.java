@@ -0,0 +1,515 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.arachna.netweaver.dc.types.Compartment;
+import org.arachna.netweaver.dc.types.CompartmentState;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * JUnit test for {@link DtrBrowser}.
+ *
+ * @author Dirk Weigenand
+ */
+public class DtrBrowserTest {
+    /**
+     * name of compartment used in tests.
+     */
+    private static final String EXAMPLE_SC1 = "example.com_EXAMPLE_SC1_1";
+
+    /**
+     * name of a second compartment (sorted before {@link #EXAMPLE_SC1}).
+     */
+    private static final String KM_SUPPORT = "arachna.org_KM_SUPPORT_1";
+
+    /**
+     * name of a compartment not contained in the development configuration.
+     */
+    private static final String OTHER_SC = "example.com_OTHER_SC_1";
+
+    /**
+     * marker of the newer activity of the activity query page.
+     */
+    private static final String NEWER_ACTIVITY = "2010_05_17";
+
+    /**
+     * marker of the older activity of the activity query page.
+     */
+    private static final String OLDER_ACTIVITY = "2010_05_07";
+
+    /**
+     * integration sequence number of the inactive workspace in the activity detail page.
+     */
+    private static final String DETAIL_PAGE_ISN = "<td>30</td>";
+
+    /**
+     * pattern extracting the integration sequence number the activity query starts at.
+     */
+    private static final Pattern ISN_FROM = Pattern.compile("isnFrom=([^&]*)");
+
+    /**
+     * HTTP server simulating a DTR.
+     */
+    private HttpServer server;
+
+    /**
+     * values of the <code>isnFrom</code> parameter of the activity queries received.
+     */
+    private final List<String> isnFromValues = Collections.synchronizedList(new ArrayList<String>());
+
+    /**
+     * integration sequence numbers to put into the activity detail pages mapped by activity marker (the empty string for an unknown
+     * integration sequence number).
+     */
+    private final Map<String, String> integrationSequenceNumbers = new ConcurrentHashMap<String, String>();
+
+    /**
+     * names of the workspaces whose activity queries fail (the connection is closed without a response).
+     */
+    private final Set<String> failingWorkspaces = Collections.synchronizedSet(new HashSet<String>());
+
+    /**
+     * latch delaying the activity query of {@link #KM_SUPPORT} until the one of {@link #EXAMPLE_SC1} was answered.
+     */
+    private final CountDownLatch exampleAnswered = new CountDownLatch(1);
+
+    /**
+     * development configuration to browse.
+     */
+    private DevelopmentConfiguration config;
+
+    /**
+     * Start the HTTP server and create a development configuration containing one compartment in source state.
+     *
+     * @throws IOException
+     *             when the server could not be started.
+     */
+    @Before
+    public void setUp() throws IOException {
+        integrationSequenceNumbers.put(NEWER_ACTIVITY, "31");
+        integrationSequenceNumbers.put(OLDER_ACTIVITY, "30");
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                final String path = exchange.getRequestURI().getPath();
+                final String query = exchange.getRequestURI().getQuery();
+
+                if (path.endsWith("ActivityQuery")) {
+                    final Matcher isnFrom = ISN_FROM.matcher(query);
+                    isnFromValues.add(isnFrom.find() ? isnFrom.group(1) : null);
+                    answerActivityQuery(exchange, query);
+                }
+                else if (path.endsWith("ResourceSetDetails")) {
+                    send(exchange, read("ResourceList.html"));
+                }
+                else if (query.contains("path=/vh/")) {
+                    send(exchange, read("ResourceDetails1.html"));
+                }
+                else {
+                    send(exchange, getActivityDetails(query));
+                }
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        config = new DevelopmentConfiguration("Example");
+        config.setCmsUrl(getServerUrl());
+        addCompartment(EXAMPLE_SC1, "ws/Example/example.com_EXAMPLE_SC1/dev/inactive/");
+    }
+
+    /**
+     * Stop the HTTP server.
+     */
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * Test that activities of a compartment with a known integration sequence number are queried starting after it and are not filtered
+     * by their check in date.
+     */
+    @Test
+    public void testActivityQueryStartsAfterKnownIntegrationSequenceNumber() {
+        final List<Activity> activities = createBrowser().getActivities(new Date(), createIntegrationSequenceNumbers(EXAMPLE_SC1, 41));
+
+        assertThat(isnFromValues, contains("42"));
+        assertThat(activities, hasSize(2));
+    }
+
+    /**
+     * Test that all activities of a compartment without a known integration sequence number are queried and filtered by their check in
+     * date.
+     *
+     * @throws ParseException
+     *             when the date used in the test could not be parsed
+     */
+    @Test
+    public void testActivityQueryFallsBackToCheckInDateFilter() throws ParseException {
+        final Date since = new SimpleDateFormat(ActivityListParser.ACTIVITY_DATE_FORMAT).parse("10.05.2010 00:00:00 GMT");
+        final List<Activity> activities = createBrowser().getActivities(since, createIntegrationSequenceNumbers(OTHER_SC, 7));
+
+        assertThat(isnFromValues, contains(""));
+        assertThat(activities, hasSize(1));
+        assertThat(activities.get(0).getActivityPath().contains(NEWER_ACTIVITY), is(true));
+    }
+
+    /**
+     * Test that the integration sequence number of a compartment is advanced to the highest one of its activities.
+     */
+    @Test
+    public void testIntegrationSequenceNumberAdvancesToHighestOfActivities() {
+        final DtrBrowser browser = createBrowser();
+        browser.getActivitiesWithResourcesAndDevelopmentComponents(new DevelopmentComponentFactory(), new Date(0),
+            createIntegrationSequenceNumbers(EXAMPLE_SC1, 12), null);
+
+        assertThat(browser.getIntegrationSequenceNumbers(), is(equalTo(createIntegrationSequenceNumbers(EXAMPLE_SC1, 31))));
+    }
+
+    /**
+     * Test that the integration sequence number of a compartment is not advanced when the integration sequence number of one of its
+     * activities is not known (the next query would miss activities otherwise).
+     */
+    @Test
+    public void testIntegrationSequenceNumberIsKeptWhenOneOfActivitiesIsUnknown() {
+        integrationSequenceNumbers.put(OLDER_ACTIVITY, "");
+        final DtrBrowser browser = createBrowser();
+        browser.getActivitiesWithResourcesAndDevelopmentComponents(new DevelopmentComponentFactory(), new Date(0),
+            createIntegrationSequenceNumbers(EXAMPLE_SC1, 12), null);
+
+        assertThat(browser.getIntegrationSequenceNumbers(), is(equalTo(createIntegrationSequenceNumbers(EXAMPLE_SC1, 12))));
+    }
+
+    /**
+     * Test that a compartment without a known integration sequence number gets none when the integration sequence number of one of its
+     * activities is not known.
+     */
+    @Test
+    public void testNoIntegrationSequenceNumberWhenOneOfActivitiesIsUnknown() {
+        integrationSequenceNumbers.put(NEWER_ACTIVITY, "");
+        final DtrBrowser browser = createBrowser();
+        browser.getActivitiesWithResourcesAndDevelopmentComponents(new DevelopmentComponentFactory(), new Date(0));
+
+        assertThat(browser.getIntegrationSequenceNumbers().isEmpty(), is(true));
+    }
+
+    /**
+     * Test that the integration sequence numbers of compartments that were not queried are kept.
+     */
+    @Test
+    public void testIntegrationSequenceNumbersOfCompartmentsNotQueriedAreKept() {
+        final Map<String, Integer> previous = createIntegrationSequenceNumbers(EXAMPLE_SC1, 12);
+        previous.put(OTHER_SC, Integer.valueOf(7));
+        final DtrBrowser browser = createBrowser();
+        browser.getActivitiesWithResourcesAndDevelopmentComponents(new DevelopmentComponentFactory(), new Date(0), previous, null);
+
+        final Map<String, Integer> expected = createIntegrationSequenceNumbers(EXAMPLE_SC1, 31);
+        expected.put(OTHER_SC, Integer.valueOf(7));
+        assertThat(browser.getIntegrationSequenceNumbers(), is(equalTo(expected)));
+    }
+
+    /**
+     * Test that a known integration sequence number is not lowered by activities integrated before it.
+     */
+    @Test
+    public void testIntegrationSequenceNumberIsNotLowered() {
+        final DtrBrowser browser = createBrowser();
+        browser.getActivitiesWithResourcesAndDevelopmentComponents(new DevelopmentComponentFactory(), new Date(0),
+            createIntegrationSequenceNumbers(EXAMPLE_SC1, 40), null);
+
+        assertThat(browser.getIntegrationSequenceNumbers(), is(equalTo(createIntegrationSequenceNumbers(EXAMPLE_SC1, 40))));
+    }
+
+    /**
+     * Test that the activities of the compartments are merged ordered by compartment name regardless of the order the queries complete
+     * in.
+     */
+    @Test
+    public void testActivitiesAreMergedOrderedByCompartmentName() {
+        addCompartment(KM_SUPPORT, "ws/XMPL/arachna.org_KM_SUPPORT/dev/inactive/");
+        final DtrBrowser browser = createBrowser();
+        final List<Activity> activities = browser.getActivities(new Date(0));
+
+        assertThat(activities, hasSize(5));
+        assertThat(getActivityPaths(activities), contains(getActivityPaths(getExpectedActivities()).toArray()));
+        assertThat(browser.getCompartmentFailures().isEmpty(), is(true));
+    }
+
+    /**
+     * Test that a failing query of one compartment does not abort the queries of the other compartments and is reported.
+     */
+    @Test
+    public void testFailingCompartmentDoesNotAbortOtherCompartments() {
+        addCompartment(KM_SUPPORT, "ws/XMPL/arachna.org_KM_SUPPORT/dev/inactive/");
+        failingWorkspaces.add("example.com_EXAMPLE_SC1");
+        final DtrBrowser browser = createBrowser();
+        final List<Activity> activities = browser.getActivities(new Date(0));
+
+        assertThat(activities, hasSize(3));
+        assertThat(browser.getCompartmentFailures().keySet(), contains(EXAMPLE_SC1));
+    }
+
+    /**
+     * Test that the query fails when the queries of all compartments fail.
+     */
+    @Test
+    public void testQueryFailsWhenAllCompartmentsFail() {
+        addCompartment(KM_SUPPORT, "ws/XMPL/arachna.org_KM_SUPPORT/dev/inactive/");
+        failingWorkspaces.add("example.com_EXAMPLE_SC1");
+        failingWorkspaces.add("arachna.org_KM_SUPPORT");
+        final DtrBrowser browser = createBrowser();
+
+        try {
+            browser.getActivities(new Date(0));
+            fail("IllegalStateException expected!");
+        }
+        catch (final IllegalStateException e) {
+            assertThat(browser.getCompartmentFailures().keySet(), contains(KM_SUPPORT, EXAMPLE_SC1));
+        }
+    }
+
+    /**
+     * Returns the activities of both compartments in the expected order as read one after another.
+     *
+     * @return the activities of both compartments in the expected order.
+     */
+    private List<Activity> getExpectedActivities() {
+        final List<Activity> activities = new ArrayList<Activity>();
+
+        for (final String page : new String[] { "ExampleTrackActivityQuery-en.html", "ExampleTrackActivityQuery.html" }) {
+            final ActivityListParser parser = new ActivityListParser();
+            parser.parse(getClass().getResourceAsStream(page));
+            activities.addAll(parser.getActivities());
+        }
+
+        return activities;
+    }
+
+    /**
+     * Returns the paths of the given activities.
+     *
+     * @param activities
+     *            the activities to return the paths of.
+     * @return the paths of the given activities.
+     */
+    private List<String> getActivityPaths(final List<Activity> activities) {
+        final List<String> paths = new ArrayList<String>();
+
+        for (final Activity activity : activities) {
+            paths.add(activity.getActivityPath());
+        }
+
+        return paths;
+    }
+
+    /**
+     * Answer the given activity query. The query of {@link #KM_SUPPORT} is answered only after the one of {@link #EXAMPLE_SC1}.
+     *
+     * @param exchange
+     *            the exchange to respond to.
+     * @param query
+     *            the activity query.
+     * @throws IOException
+     *             when sending the page fails.
+     */
+    private void answerActivityQuery(final HttpExchange exchange, final String query) throws IOException {
+        final boolean example = query.contains("example.com_EXAMPLE_SC1");
+
+        try {
+            if (!example) {
+                await(exampleAnswered);
+            }
+
+            if (failingWorkspaces.contains(example ? "example.com_EXAMPLE_SC1" : "arachna.org_KM_SUPPORT")) {
+                exchange.close();
+            }
+            else {
+                send(exchange, read(example ? "ExampleTrackActivityQuery.html" : "ExampleTrackActivityQuery-en.html"));
+            }
+        }
+        finally {
+            if (example) {
+                exampleAnswered.countDown();
+            }
+        }
+    }
+
+    /**
+     * Wait for the given latch to be released.
+     *
+     * @param latch
+     *            the latch to wait for.
+     */
+    private void await(final CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Add a compartment in source state located on the simulated DTR to the development configuration.
+     *
+     * @param name
+     *            name of compartment.
+     * @param inactiveLocation
+     *            inactive workspace of compartment.
+     */
+    private void addCompartment(final String name, final String inactiveLocation) {
+        final Compartment compartment = Compartment.create(name, CompartmentState.Source);
+        compartment.setDtrUrl(getServerUrl() + "/dtr");
+        compartment.setInactiveLocation(inactiveLocation);
+        config.add(compartment);
+    }
+
+    /**
+     * Returns the URL of the simulated DTR.
+     *
+     * @return the URL of the simulated DTR.
+     */
+    private String getServerUrl() {
+        return String.format("http://127.0.0.1:%d", server.getAddress().getPort());
+    }
+
+    /**
+     * Create a browser talking to the simulated DTR.
+     *
+     * @return a browser talking to the simulated DTR.
+     */
+    private DtrBrowser createBrowser() {
+        return new DtrBrowser(config, "user", "password", 2);
+    }
+
+    /**
+     * Create a map containing the given integration sequence number for the given compartment.
+     *
+     * @param compartment
+     *            name of compartment.
+     * @param integrationSequenceNumber
+     *            integration sequence number of compartment.
+     * @return a modifiable map containing the given integration sequence number.
+     */
+    private Map<String, Integer> createIntegrationSequenceNumbers(final String compartment, final int integrationSequenceNumber) {
+        final Map<String, Integer> isns = new HashMap<String, Integer>();
+        isns.put(compartment, Integer.valueOf(integrationSequenceNumber));
+
+        return isns;
+    }
+
+    /**
+     * Create the detail page of the activity requested with the given query. The integration sequence number of the inactive workspace is
+     * replaced with the one configured for the activity.
+     *
+     * @param query
+     *            query of request for activity details.
+     * @return the detail page of the requested activity.
+     * @throws IOException
+     *             when the page could not be read.
+     */
+    private String getActivityDetails(final String query) throws IOException {
+        String page = read("ResourceDetails.htm");
+
+        for (final Map.Entry<String, String> isn : integrationSequenceNumbers.entrySet()) {
+            if (query.contains(isn.getKey())) {
+                page = page.replace(DETAIL_PAGE_ISN, String.format("<td>%s</td>", isn.getValue()));
+            }
+        }
+
+        return page;
+    }
+
+    /**
+     * Read the given test page.
+     *
+     * @param page
+     *            name of test page.
+     * @return content of test page.
+     * @throws IOException
+     *             when the page could not be read.
+     */
+    private String read(final String page) throws IOException {
+        final InputStream content = getClass().getResourceAsStream(page);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try {
+            final byte[] buffer = new byte[4096];
+            int count = content.read(buffer);
+
+            while (count > -1) {
+                bytes.write(buffer, 0, count);
+                count = content.read(buffer);
+            }
+        }
+        finally {
+            content.close();
+        }
+
+        return bytes.toString("UTF-8");
+    }
+
+    /**
+     * Send the given page as response.
+     *
+     * @param exchange
+     *            the exchange to respond to.
+     * @param page
+     *            content of page.
+     * @throws IOException
+     *             when sending the page fails.
+     */
+    private void send(final HttpExchange exchange, final String page) throws IOException {
+        final byte[] content = page.getBytes("UTF-8");
+        exchange.sendResponseHeaders(200, content.length);
+        final OutputStream body = exchange.getResponseBody();
+
+        try {
+            body.write(content);
+        }
+        finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * JUnit test for {@link DtrHttpTransport} and {@link DtrHttpTransports}.
+ *
+ * @author Dirk Weigenand
+ */
+public class DtrHttpTransportTest {
+    /**
+     * content of page served.
+     */
+    private static final String PAGE = "<html><body>page</body></html>";
+
+    /**
+     * ETag of page served.
+     */
+    private static final String ETAG = "\"4711\"";
+
+    /**
+     * HTTP server simulating a DTR.
+     */
+    private HttpServer server;
+
+    /**
+     * number of times the page was sent.
+     */
+    private final AtomicInteger pagesSent = new AtomicInteger();
+
+    /**
+     * number of times the page was not sent because it was not modified.
+     */
+    private final AtomicInteger pagesNotModified = new AtomicInteger();
+
+    /**
+     * ports of the connections accepted by the server.
+     */
+    private final Set<Integer> connections = Collections.synchronizedSet(new HashSet<Integer>());
+
+    /**
+     * Start the HTTP server.
+     *
+     * @throws IOException
+     *             when the server could not be started.
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                connections.add(exchange.getRemoteAddress().getPort());
+
+                if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    pagesNotModified.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                }
+                else {
+                    final byte[] page = PAGE.getBytes(AbstractResourceParser.ENCODING);
+                    pagesSent.incrementAndGet();
+
+                    if (exchange.getRequestURI().getPath().endsWith("etag")) {
+                        exchange.getResponseHeaders().add("ETag", ETAG);
+                    }
+
+                    exchange.sendResponseHeaders(200, page.length);
+                    exchange.getResponseBody().write(page);
+                }
+
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Stop the HTTP server and shut down the transports.
+     */
+    @After
+    public void tearDown() {
+        DtrHttpTransports.shutdown();
+        DtrHttpTransports.configure(DtrConnectionSettings.DEFAULT);
+        server.stop(0);
+    }
+
+    /**
+     * Test that a page carrying an ETag is requested conditionally afterwards and its content is taken from the kept page.
+     *
+     * @throws IOException
+     *             when reading the page fails
+     */
+    @Test
+    public void testPageIsRequestedConditionally() throws IOException {
+        DtrHttpTransports.configure(new DtrConnectionSettings(2, 60, false, true));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(read("/dtr/etag"), is(equalTo(PAGE)));
+        }
+
+        assertThat(pagesSent.get(), is(equalTo(1)));
+        assertThat(pagesNotModified.get(), is(equalTo(2)));
+    }
+
+    /**
+     * Test that a page without validators is requested unconditionally.
+     *
+     * @throws IOException
+     *             when reading the page fails
+     */
+    @Test
+    public void testPageWithoutETagIsNotRequestedConditionally() throws IOException {
+        DtrHttpTransports.configure(new DtrConnectionSettings(2, 60, false, true));
+
+        for (int i = 0; i < 2; i++) {
+            assertThat(read("/dtr/page"), is(equalTo(PAGE)));
+        }
+
+        assertThat(pagesSent.get(), is(equalTo(2)));
+    }
+
+    /**
+     * Test that clients talking to the same DTR server reuse the connections kept open by the shared transport.
+     *
+     * @throws IOException
+     *             when reading the page fails
+     */
+    @Test
+    public void testConnectionsAreSharedBetweenClients() throws IOException {
+        DtrHttpTransports.configure(new DtrConnectionSettings(2, 60, false, false));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(read("/dtr/page"), is(equalTo(PAGE)));
+        }
+
+        assertThat(connections.size(), is(equalTo(1)));
+    }
+
+    /**
+     * Test that a request waiting for a connection while all are in use fails after the connection request timeout.
+     *
+     * @throws IOException
+     *             when reading the page fails
+     */
+    @Test(expected = ConnectionPoolTimeoutException.class)
+    public void testWaitingForConnectionTimesOut() throws IOException {
+        DtrHttpTransports.configure(new DtrConnectionSettings(1, 60, false, false, 1));
+
+        final DtrHttpClient client = new DtrHttpClient("user", "password");
+        final InputStream leased = client.getContent(String.format("http://127.0.0.1:%d/dtr/page", server.getAddress().getPort()));
+
+        try {
+            read("/dtr/page");
+        }
+        finally {
+            leased.close();
+            client.close();
+        }
+    }
+
+    /**
+     * Read the given page using a new client.
+     *
+     * @param path
+     *            path of page.
+     * @return content of page.
+     * @throws IOException
+     *             when reading the page fails
+     */
+    private String read(final String path) throws IOException {
+        final DtrHttpClient client = new DtrHttpClient("user", "password");
+        final InputStream content = client.getContent(String.format("http://127.0.0.1:%d%s", server.getAddress().getPort(), path));
+        final ByteArrayOutputStream page = new ByteArrayOutputStream();
+
+        try {
+            int c = content.read();
+
+            while (c > -1) {
+                page.write(c);
+                c = content.read();
+            }
+        }
+        finally {
+            content.close();
+            client.close();
+        }
+
+        return page.toString(AbstractResourceParser.ENCODING);
+    }
+}
@@ -0,0 +1,305 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+
+import org.arachna.netweaver.dc.types.Compartment;
+import org.arachna.netweaver.dc.types.CompartmentState;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Benchmark for the activity resolution (activity queries, version sets and resource details) run against a {@link DtrReplayServer}
+ * replaying recorded DTR traffic. Reports activities resolved per second and DTR requests sent per activity, so changes to the
+ * resolution can be compared without access to a DTR.
+ *
+ * Archives are recorded during a build by setting the system property <code>nwdibuild.dtr.traffic.folder</code> to a folder on the
+ * Jenkins master. Without an archive a small one is recorded from the fixtures of the parser tests.
+ *
+ * Run with
+ * <code>java -cp ... org.arachna.netweaver.hudson.dtr.browser.DtrReplayBenchmark [archive.zip|-] [latency ms] [iterations] [parallelism]</code>.
+ *
+ * @author Dirk Weigenand
+ */
+public final class DtrReplayBenchmark {
+    /**
+     * default injected latency per request in milliseconds.
+     */
+    private static final int LATENCY = 20;
+
+    /**
+     * default number of iterations.
+     */
+    private static final int ITERATIONS = 5;
+
+    /**
+     * parameter of an activity query naming the inactive workspace of the compartment queried.
+     */
+    private static final String WORKSPACE_PARAMETER = "wspPath=";
+
+    /**
+     * 1000 * 1000 nanoseconds.
+     */
+    private static final double MILLION = 1000000d;
+
+    /**
+     * the archive to replay.
+     */
+    private final DtrTrafficArchive archive;
+
+    /**
+     * Create a benchmark replaying the given archive.
+     *
+     * @param archive
+     *            the archive to replay.
+     */
+    private DtrReplayBenchmark(final DtrTrafficArchive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Execute the benchmark.
+     *
+     * @param args
+     *            optional archive (<code>-</code> to record one from the test fixtures), latency per request, number of iterations and
+     *            number of concurrent DTR requests.
+     * @throws Exception
+     *             when reading or recording the archive fails.
+     */
+    public static void main(final String[] args) throws Exception {
+        final DtrTrafficArchive archive =
+            args.length > 0 && !"-".equals(args[0]) ? DtrTrafficArchive.read(new File(args[0])) : recordFixtures();
+        final long latency = args.length > 1 ? Long.parseLong(args[1]) : LATENCY;
+        final int iterations = args.length > 2 ? Integer.parseInt(args[2]) : ITERATIONS;
+        final int parallelism = args.length > 3 ? Integer.parseInt(args[3]) : DtrBrowser.DEFAULT_PARALLELISM;
+
+        System.out.println(String.format("archive: %d pages %s", archive.getRequests().size(), archive.getRequestCounts()));
+        System.out.println(String.format("latency: %d ms, parallelism: %d", latency, parallelism));
+        System.out.println(String.format("%-10s %10s %10s %12s %12s %10s", "iteration", "activities", "requests", "time [ms]",
+            "act/s", "req/act"));
+
+        final DtrReplayBenchmark benchmark = new DtrReplayBenchmark(archive);
+
+        for (int i = 0; i < iterations; i++) {
+            benchmark.run(Integer.toString(i + 1), latency, parallelism);
+        }
+    }
+
+    /**
+     * Resolve the activities of the compartments queried in the archive against a replay server and print the throughput.
+     *
+     * @param name
+     *            name of run.
+     * @param latency
+     *            injected latency per request in milliseconds.
+     * @param parallelism
+     *            number of concurrent DTR requests.
+     * @throws IOException
+     *             when the replay server could not be started.
+     */
+    private void run(final String name, final long latency, final int parallelism) throws IOException {
+        final DtrReplayServer server = new DtrReplayServer(archive, latency, latency / 2);
+        final String url = server.start();
+
+        try {
+            final DtrBrowser browser = new DtrBrowser(createConfiguration(url), "user", "password", parallelism);
+            final long start = System.nanoTime();
+            final List<Activity> activities =
+                browser.getActivitiesWithResourcesAndDevelopmentComponents(new DevelopmentComponentFactory(), new Date(0));
+            browser.resolveResourceDetails();
+            final double duration = (System.nanoTime() - start) / MILLION;
+            final int requests = server.getServed() + server.getMissing();
+
+            System.out.println(String.format("%-10s %10d %10d %12.1f %12.1f %10.2f", name, activities.size(), requests, duration,
+                activities.size() * 1000d / duration, activities.isEmpty() ? 0d : (double)requests / activities.size()));
+
+            if (server.getMissing() > 0) {
+                System.out.println(String.format("%d requests were not contained in the archive.", server.getMissing()));
+            }
+        }
+        finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Create a development configuration containing the compartments whose activities were queried in the archive. Their DTR is the
+     * given replay server.
+     *
+     * @param url
+     *            URL of the replay server.
+     * @return development configuration containing the compartments queried in the archive.
+     * @throws UnsupportedEncodingException
+     *             when decoding a request fails.
+     */
+    private DevelopmentConfiguration createConfiguration(final String url) throws UnsupportedEncodingException {
+        final DevelopmentConfiguration config = new DevelopmentConfiguration("Replay");
+        config.setCmsUrl(url);
+
+        for (final String location : getQueriedWorkspaces()) {
+            final String[] segments = location.split("/");
+            final Compartment compartment =
+                new Compartment(segments.length > 2 ? segments[2] : location, CompartmentState.Source, "example.com", "",
+                    "replay");
+            compartment.setDtrUrl(url + "/dtr");
+            compartment.setInactiveLocation(location);
+            config.add(compartment);
+        }
+
+        return config;
+    }
+
+    /**
+     * Returns the inactive workspaces of the compartments whose activities were queried in the archive.
+     *
+     * @return inactive workspaces (e.g. <code>ws/Example/example.com_EXAMPLE_SC1/dev/inactive/</code>).
+     * @throws UnsupportedEncodingException
+     *             when decoding a request fails.
+     */
+    private Set<String> getQueriedWorkspaces() throws UnsupportedEncodingException {
+        final Set<String> workspaces = new TreeSet<String>();
+
+        for (final String request : archive.getRequests()) {
+            final int start = request.indexOf(WORKSPACE_PARAMETER);
+
+            if (DtrRequestMetrics.Endpoint.of(request) == DtrRequestMetrics.Endpoint.ActivityQuery && start > -1) {
+                final int end = request.indexOf('&', start);
+                final String workspace =
+                    URLDecoder.decode(request.substring(start + WORKSPACE_PARAMETER.length(), end > -1 ? end : request.length()),
+                        AbstractResourceParser.ENCODING);
+                workspaces.add(workspace.startsWith("/") ? workspace.substring(1) : workspace);
+            }
+        }
+
+        return workspaces;
+    }
+
+    /**
+     * Record an archive by resolving the activities of one compartment served from the fixtures of the parser tests: the activity list
+     * <code>ExampleTrackActivityQuery.html</code>, the version set <code>ResourceList.html</code> and the details
+     * <code>ResourceDetails.htm</code> and <code>ResourceDetails1.html</code>.
+     *
+     * @return the recorded archive.
+     * @throws IOException
+     *             when recording fails.
+     */
+    private static DtrTrafficArchive recordFixtures() throws IOException {
+        final Map<DtrRequestMetrics.Endpoint, byte[]> fixtures = new HashMap<DtrRequestMetrics.Endpoint, byte[]>();
+        fixtures.put(DtrRequestMetrics.Endpoint.ActivityQuery, read("ExampleTrackActivityQuery.html"));
+        fixtures.put(DtrRequestMetrics.Endpoint.ResourceSetDetails, read("ResourceList.html"));
+        fixtures.put(DtrRequestMetrics.Endpoint.ActivityDetails, read("ResourceDetails.htm"));
+        fixtures.put(DtrRequestMetrics.Endpoint.ResourceDetails, read("ResourceDetails1.html"));
+
+        final HttpServer server = startFixtureServer(fixtures);
+        final String url = String.format("http://127.0.0.1:%d", server.getAddress().getPort());
+        final File file = File.createTempFile("dtr-traffic", ".zip");
+        final DtrTrafficRecorder recorder = new DtrTrafficRecorder(file);
+
+        try {
+            final DevelopmentConfiguration config = new DevelopmentConfiguration("Example");
+            config.setCmsUrl(url);
+            final Compartment compartment =
+                new Compartment("example.com_EXAMPLE_SC1", CompartmentState.Source, "example.com", "", "EXAMPLE_SC1");
+            compartment.setDtrUrl(url + "/dtr");
+            compartment.setInactiveLocation("ws/Example/example.com_EXAMPLE_SC1/dev/inactive/");
+            config.add(compartment);
+
+            final DtrBrowser browser = new DtrBrowser(config, "user", "password");
+            browser.setTrafficRecorder(recorder);
+            browser.getActivitiesWithResourcesAndDevelopmentComponents(new DevelopmentComponentFactory(), new Date(0));
+            browser.resolveResourceDetails();
+            recorder.close();
+
+            return DtrTrafficArchive.read(file);
+        }
+        finally {
+            server.stop(0);
+            file.delete();
+        }
+    }
+
+    /**
+     * Read the given fixture.
+     *
+     * @param name
+     *            name of fixture.
+     * @return content of fixture.
+     * @throws IOException
+     *             when reading the fixture fails.
+     */
+    private static byte[] read(final String name) throws IOException {
+        final InputStream input = DtrReplayBenchmark.class.getResourceAsStream(name);
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+
+        try {
+            int count = input.read(buffer);
+
+            while (count > -1) {
+                content.write(buffer, 0, count);
+                count = input.read(buffer);
+            }
+        }
+        finally {
+            input.close();
+        }
+
+        return content.toByteArray();
+    }
+
+    /**
+     * Start a server answering requests with the fixture registered for the requested page type (activity query, version set, activity
+     * details or resource details).
+     *
+     * @param fixtures
+     *            fixtures mapped by endpoint.
+     * @return the started server.
+     * @throws IOException
+     *             when the server could not be started.
+     */
+    private static HttpServer startFixtureServer(final Map<DtrRequestMetrics.Endpoint, byte[]> fixtures) throws IOException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                final byte[] page = fixtures.get(DtrRequestMetrics.Endpoint.of(exchange.getRequestURI().toString()));
+
+                try {
+                    if (page == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                    }
+                    else {
+                        exchange.sendResponseHeaders(200, page.length);
+                        exchange.getResponseBody().write(page);
+                    }
+                }
+                finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        return server;
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP server replaying the pages of a {@link DtrTrafficArchive}. Requests not contained in the archive are answered with
+ * <code>404</code>.
+ *
+ * Optionally a latency is injected before each page is sent: a fixed delay plus a random jitter (uniformly distributed between zero and
+ * the given jitter).
+ *
+ * @author Dirk Weigenand
+ */
+public final class DtrReplayServer {
+    /**
+     * the archive to replay.
+     */
+    private final DtrTrafficArchive archive;
+
+    /**
+     * fixed delay in milliseconds before a page is sent.
+     */
+    private final long latency;
+
+    /**
+     * maximum random delay in milliseconds added to the fixed delay.
+     */
+    private final long jitter;
+
+    /**
+     * random number generator for jitter.
+     */
+    private final Random random = new Random();
+
+    /**
+     * number of pages served.
+     */
+    private final AtomicInteger served = new AtomicInteger();
+
+    /**
+     * number of requests not found in the archive.
+     */
+    private final AtomicInteger missing = new AtomicInteger();
+
+    /**
+     * the HTTP server.
+     */
+    private HttpServer server;
+
+    /**
+     * threads serving requests.
+     */
+    private ExecutorService executor;
+
+    /**
+     * Create a replay server for the given archive.
+     *
+     * @param archive
+     *            the archive to replay.
+     * @param latency
+     *            fixed delay in milliseconds before a page is sent.
+     * @param jitter
+     *            maximum random delay in milliseconds added to the fixed delay.
+     */
+    public DtrReplayServer(final DtrTrafficArchive archive, final long latency, final long jitter) {
+        this.archive = archive;
+        this.latency = latency;
+        this.jitter = jitter;
+    }
+
+    /**
+     * Start the server on a free port of the loopback interface.
+     *
+     * @return URL of the server (e.g. <code>http://127.0.0.1:4711</code>).
+     * @throws IOException
+     *             when the server could not be started.
+     */
+    public String start() throws IOException {
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                replay(exchange);
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+
+        return String.format("http://127.0.0.1:%d", server.getAddress().getPort());
+    }
+
+    /**
+     * Stop the server.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the number of pages served.
+     *
+     * @return the number of pages served.
+     */
+    public int getServed() {
+        return served.get();
+    }
+
+    /**
+     * Returns the number of requests not found in the archive.
+     *
+     * @return the number of requests not found in the archive.
+     */
+    public int getMissing() {
+        return missing.get();
+    }
+
+    /**
+     * Answer the given request with the page recorded for it.
+     *
+     * @param exchange
+     *            the request/response exchange.
+     * @throws IOException
+     *             when sending the response fails.
+     */
+    private void replay(final HttpExchange exchange) throws IOException {
+        try {
+            delay();
+
+            final byte[] page = archive.getPage(exchange.getRequestURI().toString());
+
+            if (page == null) {
+                missing.incrementAndGet();
+                exchange.sendResponseHeaders(404, -1);
+            }
+            else {
+                served.incrementAndGet();
+                exchange.getResponseHeaders().add("Content-Type", "text/html; charset=" + AbstractResourceParser.ENCODING);
+                exchange.sendResponseHeaders(200, page.length);
+                exchange.getResponseBody().write(page);
+            }
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Wait for the configured latency.
+     */
+    private void delay() {
+        long delay = latency;
+
+        if (jitter > 0) {
+            synchronized (random) {
+                delay += (long)(random.nextDouble() * jitter);
+            }
+        }
+
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
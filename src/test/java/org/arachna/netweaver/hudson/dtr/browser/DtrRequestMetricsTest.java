@@ -0,0 +1,100 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.arachna.netweaver.hudson.dtr.browser.DtrRequestMetrics.Endpoint;
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link DtrRequestMetrics} and {@link EndpointMetrics}.
+ *
+ * @author Dirk Weigenand
+ */
+public class DtrRequestMetricsTest {
+    /**
+     * URL of DTR server.
+     */
+    private static final String DTR_URL = "http://dtr.example.com:50000";
+
+    /**
+     * Test that URLs are mapped to the DTR reports requested.
+     */
+    @Test
+    public void testEndpointOfUrl() {
+        assertThat(Endpoint.of(DTR_URL + "/dtr/system-tools/reports/ActivityQuery?wspath=/ws/Example"),
+            is(equalTo(Endpoint.ActivityQuery)));
+        assertThat(Endpoint.of(DTR_URL + "/dtr/system-tools/reports/ResourceDetails?technical=false&path=/act/act_1"),
+            is(equalTo(Endpoint.ActivityDetails)));
+        assertThat(Endpoint.of(DTR_URL + "/dtr/system-tools/reports/ResourceDetails?technical=false&path=/vh/4711"),
+            is(equalTo(Endpoint.ResourceDetails)));
+        assertThat(Endpoint.of(DTR_URL
+            + "/dtr/system-tools/reports/ResourceSetDetails?namespace=DAV:&path=/act/act_1&name=activity-version-set"),
+            is(equalTo(Endpoint.ResourceSetDetails)));
+        assertThat(Endpoint.of(DTR_URL + "/dtr/ws/Example"), is(equalTo(Endpoint.Other)));
+    }
+
+    /**
+     * Test that latencies are counted in the matching bucket of the histogram.
+     */
+    @Test
+    public void testLatencyHistogram() {
+        final EndpointMetrics metrics = new DtrRequestMetrics().get(Endpoint.ActivityQuery);
+        metrics.recordRequest(10, false);
+        metrics.recordRequest(11, false);
+        metrics.recordRequest(60000, true);
+
+        final long[] histogram = metrics.getLatencyHistogram();
+        assertThat(histogram[0], is(equalTo(1L)));
+        assertThat(histogram[1], is(equalTo(1L)));
+        assertThat(histogram[histogram.length - 1], is(equalTo(1L)));
+        assertThat(metrics.getRequests(), is(equalTo(3L)));
+        assertThat(metrics.getErrors(), is(equalTo(1L)));
+        assertThat(metrics.getLatency(), is(equalTo(60021L)));
+    }
+
+    /**
+     * Test that the bytes read from a page are recorded once when the page is closed.
+     *
+     * @throws IOException
+     *             when reading the page fails
+     */
+    @Test
+    public void testMeteredInputStreamRecordsBytesRead() throws IOException {
+        final DtrRequestMetrics metrics = new DtrRequestMetrics();
+        final EndpointMetrics endpointMetrics = metrics.get(Endpoint.ResourceDetails);
+        endpointMetrics.recordRequest(1, false);
+
+        final InputStream page = new MeteredInputStream(new ByteArrayInputStream(new byte[1000]), endpointMetrics);
+        page.read();
+        page.read(new byte[100]);
+
+        while (page.read(new byte[256]) > -1) {
+            // read the whole page
+        }
+
+        page.close();
+        page.close();
+
+        assertThat(endpointMetrics.getBytes(), is(equalTo(1000L)));
+
+        final List<Endpoint> requested = new ArrayList<Endpoint>();
+
+        for (final EndpointMetrics requestedEndpoint : metrics.getRequestedEndpoints()) {
+            requested.add(requestedEndpoint.getEndpoint());
+        }
+
+        assertThat(requested, contains(Endpoint.ResourceDetails));
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link DtrTrafficRecorder}, {@link DtrTrafficArchive} and {@link DtrReplayServer}.
+ *
+ * @author Dirk Weigenand
+ */
+public class DtrTrafficRecorderTest {
+    /**
+     * request of an activity query.
+     */
+    private static final String ACTIVITY_QUERY =
+        "/dtr/system-tools/reports/ActivityQuery?wspPath=/ws/Example/example.com_EXAMPLE_SC1/dev/inactive/&isnFrom=";
+
+    /**
+     * request of a resource detail page.
+     */
+    private static final String RESOURCE_DETAILS = "/dtr/system-tools/reports/ResourceDetails?technical=false&path=/vh/4711";
+
+    /**
+     * the archive file.
+     */
+    private File archiveFile;
+
+    /**
+     * Create a temporary archive file.
+     *
+     * @throws IOException
+     *             when the file could not be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        archiveFile = File.createTempFile("dtr-traffic", ".zip");
+    }
+
+    /**
+     * Remove the archive file.
+     */
+    @After
+    public void tearDown() {
+        archiveFile.delete();
+    }
+
+    /**
+     * Test that the pages read by a client are recorded, can be read back from the archive and are served by the replay server.
+     *
+     * @throws IOException
+     *             when recording or replaying fails
+     */
+    @Test
+    public void testRecordAndReplay() throws IOException {
+        final Map<String, byte[]> pages = new HashMap<String, byte[]>();
+        pages.put(ACTIVITY_QUERY, "<html>activities</html>".getBytes(AbstractResourceParser.ENCODING));
+        pages.put(RESOURCE_DETAILS, "<html>details</html>".getBytes(AbstractResourceParser.ENCODING));
+
+        final DtrReplayServer origin = new DtrReplayServer(DtrTrafficArchive.create(pages), 0, 0);
+        final String url = origin.start();
+        final DtrTrafficRecorder recorder = new DtrTrafficRecorder(archiveFile);
+        final DtrHttpClient client = new DtrHttpClient("user", "password");
+
+        try {
+            client.setRecorder(recorder);
+            assertThat(read(client, url + ACTIVITY_QUERY), is(equalTo(pages.get(ACTIVITY_QUERY))));
+            assertThat(read(client, url + RESOURCE_DETAILS), is(equalTo(pages.get(RESOURCE_DETAILS))));
+        }
+        finally {
+            recorder.close();
+            origin.stop();
+        }
+
+        final DtrTrafficArchive archive = DtrTrafficArchive.read(archiveFile);
+        assertThat(recorder.getPages(), is(equalTo(2)));
+        assertThat(archive.getRequests(), contains(ACTIVITY_QUERY, RESOURCE_DETAILS));
+
+        final DtrReplayServer replay = new DtrReplayServer(archive, 1, 1);
+        final String replayUrl = replay.start();
+
+        try {
+            final DtrHttpClient replayClient = new DtrHttpClient("user", "password");
+            assertThat(read(replayClient, replayUrl + RESOURCE_DETAILS), is(equalTo(pages.get(RESOURCE_DETAILS))));
+            read(replayClient, replayUrl + "/dtr/unknown");
+            assertThat(replay.getServed(), is(equalTo(1)));
+            assertThat(replay.getMissing(), is(equalTo(1)));
+        }
+        finally {
+            replay.stop();
+        }
+    }
+
+    /**
+     * Test that scheme, host and port are stripped from recorded URLs.
+     */
+    @Test
+    public void testGetRequest() {
+        assertThat(DtrTrafficArchive.getRequest("http://dtr.example.com:50000" + RESOURCE_DETAILS), is(equalTo(RESOURCE_DETAILS)));
+        assertThat(DtrTrafficArchive.getRequest("http://dtr.example.com"), is(equalTo("/")));
+    }
+
+    /**
+     * Read the page at the given URL.
+     *
+     * @param client
+     *            client to use.
+     * @param url
+     *            URL of page.
+     * @return content of page.
+     * @throws IOException
+     *             when reading the page fails.
+     */
+    private byte[] read(final DtrHttpClient client, final String url) throws IOException {
+        return DtrTrafficArchive.read(client.getContent(url));
+    }
+}
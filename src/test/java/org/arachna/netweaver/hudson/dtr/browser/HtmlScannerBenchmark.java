@@ -0,0 +1,293 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.jaxen.JaxenException;
+import org.jaxen.dom.DOMXPath;
+import org.w3c.dom.Document;
+
+/**
+ * Benchmark comparing the streaming parsers based on {@link HtmlScanner} with reading the same pages into a DOM using JTidy and selecting
+ * the relevant nodes using XPath (as the parsers did before).
+ *
+ * The fixtures of the parser tests are used as input. Additionally an activity list containing a large number of activities is generated
+ * from <code>ExampleTrackActivityQuery.html</code> to compare throughput and memory consumption for large pages.
+ *
+ * Run with <code>java -cp ... org.arachna.netweaver.hudson.dtr.browser.HtmlScannerBenchmark [iterations] [activities]</code>.
+ *
+ * @author Dirk Weigenand
+ */
+public final class HtmlScannerBenchmark {
+    /**
+     * default number of iterations per fixture.
+     */
+    private static final int ITERATIONS = 200;
+
+    /**
+     * default number of activities in the generated activity list.
+     */
+    private static final int ACTIVITIES = 20000;
+
+    /**
+     * XPath expression formerly used to extract activities.
+     */
+    private static final String ACTIVITY_XPATH =
+        "//a[starts-with(@href, '/dtr/system-tools/reports/ResourceDetails?') and contains(@href, 'path=/act/')]/../..";
+
+    /**
+     * XPath expression formerly used to extract resources.
+     */
+    private static final String RESOURCE_XPATH =
+        "//a[starts-with(@href, '/dtr/system-tools/reports/ResourceDetails?') and contains(@href, 'path=/vh/')]";
+
+    /**
+     * XPath expression formerly used to extract properties.
+     */
+    private static final String PROPERTY_XPATH = "/html/body/table[3]/tr/td";
+
+    /**
+     * 1000 * 1000 nanoseconds.
+     */
+    private static final double MILLION = 1000000d;
+
+    /**
+     * bytes per kilo byte.
+     */
+    private static final int KILO_BYTE = 1024;
+
+    /**
+     * number of iterations per fixture.
+     */
+    private final int iterations;
+
+    /**
+     * Create a benchmark executing the given number of iterations per fixture.
+     *
+     * @param iterations
+     *            number of iterations per fixture.
+     */
+    private HtmlScannerBenchmark(final int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * Execute the benchmark.
+     *
+     * @param args
+     *            optional number of iterations and number of activities in the generated activity list.
+     * @throws Exception
+     *             when reading a fixture fails.
+     */
+    public static void main(final String[] args) throws Exception {
+        final HtmlScannerBenchmark benchmark = new HtmlScannerBenchmark(args.length > 0 ? Integer.parseInt(args[0]) : ITERATIONS);
+        final int activities = args.length > 1 ? Integer.parseInt(args[1]) : ACTIVITIES;
+
+        System.out.println(String.format("%-36s %10s %12s %12s %8s", "page", "size", "DOM [ms]", "stream [ms]", "speedup"));
+        benchmark.run("ExampleTrackActivityQuery.html", benchmark.read("ExampleTrackActivityQuery.html"), ACTIVITY_XPATH,
+            new ActivityListPageParser());
+        benchmark.run("ExampleTrackActivityQuery-en.html", benchmark.read("ExampleTrackActivityQuery-en.html"), ACTIVITY_XPATH,
+            new ActivityListPageParser());
+        benchmark.run("ResourceList.html", benchmark.read("ResourceList.html"), RESOURCE_XPATH, new ResourceListPageParser());
+        benchmark.run("ResourceDetails.htm", benchmark.read("ResourceDetails.htm"), PROPERTY_XPATH, new DetailPageParser());
+        benchmark.run("ResourceDetails1.html", benchmark.read("ResourceDetails1.html"), PROPERTY_XPATH, new DetailPageParser());
+
+        final byte[] largeList = benchmark.createActivityList(activities);
+        new HtmlScannerBenchmark(1).run(String.format("generated (%d activities)", activities), largeList, ACTIVITY_XPATH,
+            new ActivityListPageParser());
+        benchmark.compareMemory(largeList);
+    }
+
+    /**
+     * Parse the given page with both methods and print the average durations.
+     *
+     * @param name
+     *            name of page.
+     * @param page
+     *            content of page.
+     * @param xPath
+     *            XPath expression to select nodes from the DOM.
+     * @param parser
+     *            streaming parser for page.
+     * @throws JaxenException
+     *             when evaluating the XPath expression fails.
+     */
+    private void run(final String name, final byte[] page, final String xPath, final PageParser parser) throws JaxenException {
+        // warm up
+        for (int i = 0; i < Math.min(iterations, ITERATIONS / 10); i++) {
+            selectNodes(page, xPath);
+            parser.parse(new ByteArrayInputStream(page));
+        }
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < iterations; i++) {
+            selectNodes(page, xPath);
+        }
+
+        final double dom = (System.nanoTime() - start) / MILLION / iterations;
+        start = System.nanoTime();
+
+        for (int i = 0; i < iterations; i++) {
+            parser.parse(new ByteArrayInputStream(page));
+        }
+
+        final double stream = (System.nanoTime() - start) / MILLION / iterations;
+
+        System.out.println(String.format("%-36s %10d %12.3f %12.3f %7.1fx", name, page.length, dom, stream, dom / stream));
+    }
+
+    /**
+     * Print the heap used while parsing the given activity list with both methods.
+     *
+     * @param page
+     *            the activity list.
+     * @throws JaxenException
+     *             when evaluating the XPath expression fails.
+     */
+    private void compareMemory(final byte[] page) throws JaxenException {
+        final Runtime runtime = Runtime.getRuntime();
+
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        final Document document = JTidyHelper.getDocument(new ByteArrayInputStream(page));
+        final int rows = new DOMXPath(ACTIVITY_XPATH).selectNodes(document).size();
+        System.gc();
+        final long dom = runtime.totalMemory() - runtime.freeMemory() - before;
+
+        System.gc();
+        before = runtime.totalMemory() - runtime.freeMemory();
+        final ActivityListParser parser = new ActivityListParser(new ActivityFilter() {
+            @Override
+            public boolean accept(final Activity activity) {
+                return false;
+            }
+        });
+        parser.parse(new ByteArrayInputStream(page));
+        System.gc();
+        final long stream = runtime.totalMemory() - runtime.freeMemory() - before;
+
+        System.out.println(String.format("heap retained for %d bytes: DOM %d KB (%d rows selected), stream %d KB", page.length,
+            dom / KILO_BYTE, rows, stream / KILO_BYTE));
+    }
+
+    /**
+     * Read the DOM of the given page and select nodes using the given XPath expression.
+     *
+     * @param page
+     *            content of page.
+     * @param xPath
+     *            XPath expression.
+     * @return number of selected nodes.
+     * @throws JaxenException
+     *             when evaluating the XPath expression fails.
+     */
+    private int selectNodes(final byte[] page, final String xPath) throws JaxenException {
+        return new DOMXPath(xPath).selectNodes(JTidyHelper.getDocument(new ByteArrayInputStream(page))).size();
+    }
+
+    /**
+     * Create an activity list containing the given number of activities by repeating the rows of
+     * <code>ExampleTrackActivityQuery.html</code>.
+     *
+     * @param activities
+     *            number of activities.
+     * @return the generated activity list.
+     * @throws IOException
+     *             when reading the fixture fails.
+     */
+    private byte[] createActivityList(final int activities) throws IOException {
+        final String page = new String(read("ExampleTrackActivityQuery.html"), AbstractResourceParser.ENCODING);
+        final int tableEnd = page.lastIndexOf("</table>");
+        final int firstRow = page.lastIndexOf("</tr>", page.lastIndexOf("<a", page.indexOf("path=/act/"))) + "</tr>".length();
+        final String rows = page.substring(firstRow, tableEnd);
+        final StringBuilder list = new StringBuilder(page.substring(0, firstRow));
+
+        for (int i = 0; i < activities / 2; i++) {
+            list.append(rows.replace("path=/act/act_", "path=/act/act" + i + "_"));
+        }
+
+        list.append(page.substring(tableEnd));
+
+        return list.toString().getBytes(AbstractResourceParser.ENCODING);
+    }
+
+    /**
+     * Read the given fixture.
+     *
+     * @param name
+     *            name of fixture.
+     * @return content of fixture.
+     * @throws IOException
+     *             when reading the fixture fails.
+     */
+    private byte[] read(final String name) throws IOException {
+        final InputStream input = getClass().getResourceAsStream(name);
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+
+        try {
+            int count = input.read(buffer);
+
+            while (count > -1) {
+                content.write(buffer, 0, count);
+                count = input.read(buffer);
+            }
+        }
+        finally {
+            input.close();
+        }
+
+        return content.toByteArray();
+    }
+
+    /**
+     * Streaming parser of a page.
+     */
+    private interface PageParser {
+        /**
+         * Parse the given page.
+         *
+         * @param page
+         *            the page to parse.
+         */
+        void parse(InputStream page);
+    }
+
+    /**
+     * Parser for activity lists.
+     */
+    private static final class ActivityListPageParser implements PageParser {
+        @Override
+        public void parse(final InputStream page) {
+            new ActivityListParser().parse(page);
+        }
+    }
+
+    /**
+     * Parser for version sets.
+     */
+    private static final class ResourceListPageParser implements PageParser {
+        @Override
+        public void parse(final InputStream page) {
+            new ActivityResourceParser(new DevelopmentComponentFactory(), new Activity(null, null, "", new Date())).parse(page);
+        }
+    }
+
+    /**
+     * Parser for detail pages.
+     */
+    private static final class DetailPageParser implements PageParser {
+        @Override
+        public void parse(final InputStream page) {
+            new ActivityDetailParser(new Activity(null, null, "", new Date())).parse(page);
+        }
+    }
+}
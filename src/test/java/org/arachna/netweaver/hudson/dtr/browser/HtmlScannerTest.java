@@ -0,0 +1,157 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link HtmlScanner}.
+ *
+ * @author Dirk Weigenand
+ */
+public class HtmlScannerTest {
+    /**
+     * events reported by the scanner.
+     */
+    private List<String> events;
+
+    /**
+     * scanner under test.
+     */
+    private HtmlScanner scanner;
+
+    /**
+     * Set up a scanner recording the events reported.
+     */
+    @Before
+    public void setUp() {
+        events = new ArrayList<String>();
+        scanner = new HtmlScanner(new HtmlScanner.Handler() {
+            @Override
+            void startElement(final String name, final Map<String, String> attributes, final int depth) {
+                events.add(String.format("%d<%s%s>", depth, name, attributes.isEmpty() ? "" : attributes.toString()));
+            }
+
+            @Override
+            void endElement(final String name, final int depth) {
+                events.add(String.format("%d</%s>", depth, name));
+            }
+
+            @Override
+            void text(final String text, final int depth) {
+                events.add(String.format("%d'%s'", depth, text));
+            }
+        });
+    }
+
+    /**
+     * Test that element and attribute names are lower cased and quoted, unquoted and empty attribute values are read.
+     *
+     * @throws IOException
+     *             when scanning fails
+     */
+    @Test
+    public void testAttributes() throws IOException {
+        scan("<INPUT Type=checkbox name='closedOnly' value=\"a > b\" checked>");
+
+        assertThat(events.toString(), is(equalTo("[0<input{type=checkbox, name=closedOnly, value=a > b, checked=}>, 0</input>]")));
+    }
+
+    /**
+     * Test that entities in text and attribute values are resolved.
+     *
+     * @throws IOException
+     *             when scanning fails
+     */
+    @Test
+    public void testEntities() throws IOException {
+        scan("<a href=\"/x?a=1&amp;b=2\">&lt;Empty&gt;&#65;&#x42;&unknown; & more</a>");
+
+        assertThat(events.toString(), is(equalTo("[0<a{href=/x?a=1&b=2}>, 0'<Empty>AB&unknown; & more', 0</a>]")));
+    }
+
+    /**
+     * Test that comments, declarations and script content are skipped.
+     *
+     * @throws IOException
+     *             when scanning fails
+     */
+    @Test
+    public void testCommentsAndScriptsAreSkipped() throws IOException {
+        scan("<!DOCTYPE html><p><!-- <td> -- --></p><script>if (a < b) { x = '</p>'; }</script>");
+
+        assertThat(events.toString(), is(equalTo("[0<p>, 0</p>, 0<script>, 0</script>]")));
+    }
+
+    /**
+     * Test that void elements are closed immediately and unmatched end tags are ignored.
+     *
+     * @throws IOException
+     *             when scanning fails
+     */
+    @Test
+    public void testVoidElementsAndUnmatchedEndTags() throws IOException {
+        scan("<b>x<br>y</i></b>");
+
+        assertThat(events.toString(), is(equalTo("[0<b>, 0'x', 1<br>, 1</br>, 0'y', 0</b>]")));
+    }
+
+    /**
+     * Test that table cells and rows are closed implicitly.
+     *
+     * @throws IOException
+     *             when scanning fails
+     */
+    @Test
+    public void testTableCellsAndRowsAreClosedImplicitly() throws IOException {
+        scan("<table><tr><td>1<td>2<tr><td>3</table>");
+
+        assertThat(events.toString(), is(equalTo("[0<table>, 1<tr>, 2<td>, 2'1', 2</td>, 2<td>, 2'2', 2</td>, 1</tr>, 1<tr>, 2<td>, "
+            + "2'3', 2</td>, 1</tr>, 0</table>]")));
+    }
+
+    /**
+     * Test that elements still open at the end of input are closed.
+     *
+     * @throws IOException
+     *             when scanning fails
+     */
+    @Test
+    public void testOpenElementsAreClosedAtEndOfInput() throws IOException {
+        scan("<html><body>text");
+
+        assertThat(events.toString(), is(equalTo("[0<html>, 1<body>, 1'text', 1</body>, 0</html>]")));
+    }
+
+    /**
+     * Test method for {@link HtmlScanner#normalize(CharSequence)}.
+     */
+    @Test
+    public void testNormalize() {
+        assertThat(HtmlScanner.normalize("\n\t\tAnpassung\n\t\tconfigArchive  "), is(equalTo("Anpassung configArchive")));
+    }
+
+    /**
+     * Scan the given HTML.
+     *
+     * @param html
+     *            HTML to scan.
+     * @throws IOException
+     *             when scanning fails
+     */
+    private void scan(final String html) throws IOException {
+        scanner.scan(new StringReader(html));
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.dtr.browser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+import org.junit.Test;
+
+/**
+ * Unit test for {@link WorkspaceListParser}.
+ * 
+ * @author Dirk Weigenand
+ */
+public class WorkspaceListParserTest {
+    /**
+     * Test method for {@link org.arachna.netweaver.hudson.dtr.browser.WorkspaceListParser#getWorkspaces()}.
+     */
+    @Test
+    public final void testExtractWorkspaces() {
+        final WorkspaceListParser parser = new WorkspaceListParser("ws/Example");
+        parser.parse(this.getClass().getResourceAsStream("ExampleTrack.htm"));
+
+        assertThat(parser.getWorkspaces(), contains("ws/Example/example.com_EXAMPLE_SC1", "ws/Example/example.com_EXAMPLE_SC2",
+            "ws/Example/example.com_EXAMPLE_SC3"));
+    }
+}
@@ -0,0 +1,331 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import hudson.util.StreamTaskListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.Compartment;
+import org.arachna.netweaver.dc.types.CompartmentState;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link ArchiveDCStore}.
+ *
+ * @author Dirk Weigenand
+ */
+public class ArchiveDCStoreTest {
+    /**
+     * content of development component descriptor.
+     */
+    private static final String DCDEF = "<development-component/>";
+
+    /**
+     * folder containing workspaces and archive store.
+     */
+    private File folder;
+
+    /**
+     * registry for development components.
+     */
+    private DevelopmentComponentFactory dcFactory;
+
+    /**
+     * development configuration containing {@link #component}.
+     */
+    private DevelopmentConfiguration config;
+
+    /**
+     * development component in archive state.
+     */
+    private DevelopmentComponent component;
+
+    /**
+     * Set up fixture.
+     *
+     * @throws IOException
+     *             when creating the folder fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        folder = File.createTempFile("archivestore", "");
+        folder.delete();
+
+        dcFactory = new DevelopmentComponentFactory();
+        config = new DevelopmentConfiguration("DI0_Example_D");
+        config.setVersion("3030");
+
+        final Compartment compartment = Compartment.create("sap.com_SAP_BUILDT_1", CompartmentState.Archive);
+        config.add(compartment);
+        component = dcFactory.create("sap.com", "tc/bi/anttasks");
+        compartment.add(component);
+    }
+
+    /**
+     * Remove the workspaces and the archive store.
+     *
+     * @throws IOException
+     *             when removing the folder fails
+     */
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(folder);
+    }
+
+    /**
+     * Test that a development component synchronized into one workspace is linked into other workspaces.
+     *
+     * @throws Exception
+     *             when accessing the workspaces fails
+     */
+    @Test
+    public void testAdoptedComponentIsLinkedIntoOtherWorkspaces() throws Exception {
+        synchronize("ws1");
+        adopt("ws1", 0);
+
+        assertThat(readDcDef("ws1"), is(equalTo(DCDEF)));
+        final ArchiveDCStore store = createStore("ws2", 0);
+        assertThat(store.link(), contains(component));
+        store.releaseLeases();
+        assertThat(readDcDef("ws2"), is(equalTo(DCDEF)));
+        assertThat(getComp("ws2").getCanonicalFile(), is(equalTo(getComp("ws1").getCanonicalFile())));
+    }
+
+    /**
+     * Test that development components stored for another version of the development configuration are not linked.
+     *
+     * @throws Exception
+     *             when accessing the workspaces fails
+     */
+    @Test
+    public void testComponentsOfOtherVersionsAreNotLinked() throws Exception {
+        synchronize("ws1");
+        adopt("ws1", 0);
+        config.setVersion("3031");
+
+        final ArchiveDCStore store = createStore("ws2", 0);
+        assertThat(store.link().isEmpty(), is(true));
+        assertThat(getComp("ws2").exists(), is(false));
+        store.releaseLeases();
+    }
+
+    /**
+     * Test that least recently used entries are evicted when the store exceeds its budget and links to them are removed.
+     *
+     * @throws Exception
+     *             when accessing the workspaces fails
+     */
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() throws Exception {
+        synchronize("ws1");
+        adopt("ws1", 0);
+        getComp("ws1").getCanonicalFile().setLastModified(System.currentTimeMillis() - 60000);
+
+        final ArchiveDCStore store = createStore("ws1", 1);
+        store.evict();
+
+        assertThat(store.link().isEmpty(), is(true));
+        assertThat(getComp("ws1").exists(), is(false));
+    }
+
+    /**
+     * Test that the lock and lease files of evicted entries and the folders left empty are deleted.
+     *
+     * @throws Exception
+     *             when accessing the workspaces fails
+     */
+    @Test
+    public void testLockAndLeaseFilesOfEvictedEntriesAreDeleted() throws Exception {
+        synchronize("ws1");
+        adopt("ws1", 0);
+        getComp("ws1").getCanonicalFile().setLastModified(System.currentTimeMillis() - 60000);
+
+        createStore("ws1", 1).evict();
+
+        assertThat(getStoreFolder().list().length, is(equalTo(0)));
+    }
+
+    /**
+     * Test that linking development components missing from the store leaves no lock files behind.
+     *
+     * @throws Exception
+     *             when accessing the workspaces fails
+     */
+    @Test
+    public void testLinkingMissingEntriesLeavesNoLockFiles() throws Exception {
+        final ArchiveDCStore store = createStore("ws1", 0);
+
+        assertThat(store.link().isEmpty(), is(true));
+        assertThat(getStoreFolder().list().length, is(equalTo(0)));
+        store.releaseLeases();
+    }
+
+    /**
+     * Test that entries used since the store was created are not evicted.
+     *
+     * @throws Exception
+     *             when accessing the workspaces fails
+     */
+    @Test
+    public void testRecentlyUsedEntriesAreKept() throws Exception {
+        synchronize("ws1");
+        adopt("ws1", 1);
+
+        assertThat(readDcDef("ws1"), is(equalTo(DCDEF)));
+    }
+
+    /**
+     * Test that entries leased by a build are not evicted until the build released them.
+     *
+     * @throws Exception
+     *             when accessing the workspaces fails
+     */
+    @Test
+    public void testLeasedEntriesAreKept() throws Exception {
+        synchronize("ws1");
+        adopt("ws1", 0);
+
+        final ArchiveDCStore other = createStore("ws2", 0);
+        assertThat(other.link(), contains(component));
+        getComp("ws1").getCanonicalFile().setLastModified(System.currentTimeMillis() - 60000);
+
+        final ArchiveDCStore store = createStore("ws1", 1);
+        store.evict();
+
+        assertThat(readDcDef("ws2"), is(equalTo(DCDEF)));
+
+        other.releaseLeases();
+        store.evict();
+
+        assertThat(getComp("ws2").exists(), is(false));
+        assertThat(getStoreFolder().list().length, is(equalTo(0)));
+    }
+
+    /**
+     * Test that the handles of entries are removed when no build uses them anymore.
+     *
+     * @throws Exception
+     *             when accessing the workspaces fails
+     */
+    @Test
+    public void testHandlesAreRemovedWhenNotInUse() throws Exception {
+        synchronize("ws1");
+        final ArchiveDCStore store = createStore("ws1", 0);
+        store.adopt();
+
+        assertThat(ArchiveDCStore.getHandleCount(), is(equalTo(1)));
+
+        store.releaseLeases();
+
+        assertThat(ArchiveDCStore.getHandleCount(), is(equalTo(0)));
+    }
+
+    /**
+     * Adopt the development components synchronized into the given workspace into the store and release the leases afterwards (as when
+     * the build finished).
+     *
+     * @param workspace
+     *            name of workspace.
+     * @param budget
+     *            maximum size of archive store in bytes.
+     * @throws Exception
+     *             when accessing the workspace fails
+     */
+    private void adopt(final String workspace, final long budget) throws Exception {
+        final ArchiveDCStore store = createStore(workspace, budget);
+
+        try {
+            store.adopt();
+        }
+        finally {
+            store.releaseLeases();
+        }
+    }
+
+    /**
+     * Create an archive store for the given workspace.
+     *
+     * @param workspace
+     *            name of workspace.
+     * @param budget
+     *            maximum size of archive store in bytes.
+     * @return the archive store.
+     */
+    private ArchiveDCStore createStore(final String workspace, final long budget) {
+        return new ArchiveDCStore(getStoreFolder(), budget, config, createAntHelper(workspace), new StreamTaskListener(
+            new ByteArrayOutputStream()));
+    }
+
+    /**
+     * Returns the folder of the archive store.
+     *
+     * @return the folder of the archive store.
+     */
+    private File getStoreFolder() {
+        return new File(folder, "store");
+    }
+
+    /**
+     * Simulate synchronizing {@link #component} into the given workspace.
+     *
+     * @param workspace
+     *            name of workspace.
+     * @throws IOException
+     *             when writing fails
+     */
+    private void synchronize(final String workspace) throws IOException {
+        FileUtils.writeStringToFile(new File(getComp(workspace), ".dcdef"), DCDEF);
+        FileUtils.writeStringToFile(new File(getComp(workspace), "gen/default/public/api/lib/java/anttasks.jar"), "anttasks.jar");
+    }
+
+    /**
+     * Read the development component descriptor of {@link #component} in the given workspace.
+     *
+     * @param workspace
+     *            name of workspace.
+     * @return the content of the development component descriptor.
+     * @throws IOException
+     *             when reading fails
+     */
+    private String readDcDef(final String workspace) throws IOException {
+        return FileUtils.readFileToString(new File(getComp(workspace), ".dcdef"));
+    }
+
+    /**
+     * Returns the folder of {@link #component} in the given workspace.
+     *
+     * @param workspace
+     *            name of workspace.
+     * @return the <code>_comp</code> folder of {@link #component}.
+     */
+    private File getComp(final String workspace) {
+        return new File(createAntHelper(workspace).getBaseLocation(component));
+    }
+
+    /**
+     * Create a helper for the given workspace.
+     *
+     * @param workspace
+     *            name of workspace.
+     * @return helper for the given workspace.
+     */
+    private AntHelper createAntHelper(final String workspace) {
+        return new AntHelper(new File(folder, workspace).getAbsolutePath(), dcFactory);
+    }
+}
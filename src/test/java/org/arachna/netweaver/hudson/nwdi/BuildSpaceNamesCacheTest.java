@@ -0,0 +1,129 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link BuildSpaceNamesCache}.
+ *
+ * @author Dirk Weigenand
+ */
+public class BuildSpaceNamesCacheTest {
+    /**
+     * URL of CBS.
+     */
+    private static final String CBS_URL = "http://cbs.example.org:50000";
+
+    /**
+     * tasks submitted to the executor but not run yet.
+     */
+    private final List<Runnable> pending = new ArrayList<Runnable>();
+
+    /**
+     * number of times the build space names were listed.
+     */
+    private int loads;
+
+    /**
+     * whether listing the build space names should fail.
+     */
+    private boolean failing;
+
+    /**
+     * cache under test.
+     */
+    private BuildSpaceNamesCache cache;
+
+    /**
+     * Set up fixture.
+     */
+    @Before
+    public void setUp() {
+        cache = new BuildSpaceNamesCache(new BuildSpaceNamesCache.Loader() {
+            public Collection<String> load(final String cbsUrl) throws IOException {
+                loads++;
+
+                if (failing) {
+                    throw new IOException("CBS not reachable");
+                }
+
+                return Arrays.asList("JDI_EXAMPLE_D", "JDI_DEMO_D");
+            }
+        }, new Executor() {
+            public void execute(final Runnable command) {
+                pending.add(command);
+            }
+        });
+    }
+
+    /**
+     * Test that the names are listed in the background and returned sorted from memory afterwards.
+     */
+    @Test
+    public void testNamesAreListedInBackground() {
+        assertThat(cache.get(CBS_URL).isEmpty(), is(true));
+        assertThat(cache.isLoading(CBS_URL), is(true));
+
+        runPending();
+
+        assertThat(cache.get(CBS_URL), contains("JDI_DEMO_D", "JDI_EXAMPLE_D"));
+        assertThat(cache.isLoading(CBS_URL), is(false));
+        assertThat(loads, is(equalTo(1)));
+    }
+
+    /**
+     * Test that the names are listed only once while a listing is pending.
+     */
+    @Test
+    public void testPendingListingIsNotRepeated() {
+        cache.get(CBS_URL);
+        cache.get(CBS_URL);
+        cache.refresh(CBS_URL);
+
+        assertThat(pending.size(), is(equalTo(1)));
+    }
+
+    /**
+     * Test that refreshing lists the names again although their time to live did not expire and keeps them when listing fails.
+     */
+    @Test
+    public void testRefreshKeepsNamesWhenListingFails() {
+        cache.get(CBS_URL);
+        runPending();
+
+        failing = true;
+        cache.refresh(CBS_URL);
+        runPending();
+
+        assertThat(loads, is(equalTo(2)));
+        assertThat(cache.get(CBS_URL), contains("JDI_DEMO_D", "JDI_EXAMPLE_D"));
+        assertThat(pending.isEmpty(), is(true));
+    }
+
+    /**
+     * Run the tasks submitted to the executor.
+     */
+    private void runPending() {
+        final List<Runnable> tasks = new ArrayList<Runnable>(pending);
+        pending.clear();
+
+        for (final Runnable task : tasks) {
+            task.run();
+        }
+    }
+}
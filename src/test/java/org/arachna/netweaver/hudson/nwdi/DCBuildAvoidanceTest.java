@@ -0,0 +1,327 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.BuildVariant;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.JdkHomeAlias;
+import org.arachna.netweaver.dc.types.JdkHomePaths;
+import org.arachna.netweaver.dc.types.PublicPartReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link DCBuildAvoidance}.
+ *
+ * @author Dirk Weigenand
+ */
+public class DCBuildAvoidanceTest {
+    /**
+     * vendor of development components.
+     */
+    private static final String EXAMPLE_COM = "example.com";
+
+    /**
+     * workspace containing the development components.
+     */
+    private File workspace;
+
+    /**
+     * registry for development components.
+     */
+    private DevelopmentComponentFactory dcFactory;
+
+    /**
+     * helper to determine the location of development components.
+     */
+    private AntHelper antHelper;
+
+    /**
+     * development component used by {@link #app}.
+     */
+    private DevelopmentComponent lib;
+
+    /**
+     * development component using {@link #lib} and {@link #archive}.
+     */
+    private DevelopmentComponent app;
+
+    /**
+     * development component used by {@link #app} that is not built.
+     */
+    private DevelopmentComponent archive;
+
+    /**
+     * description of the toolchain used for building.
+     */
+    private String toolchain = DCInputDigester.describeToolchain(null, new JdkHomePaths());
+
+    /**
+     * Set up fixture.
+     *
+     * @throws IOException
+     *             when creating the workspace fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        workspace = File.createTempFile("workspace", "");
+        workspace.delete();
+        dcFactory = new DevelopmentComponentFactory();
+        antHelper = new AntHelper(workspace.getAbsolutePath(), dcFactory);
+
+        lib = dcFactory.create(EXAMPLE_COM, "lib");
+        archive = dcFactory.create(EXAMPLE_COM, "archive");
+        app = dcFactory.create(EXAMPLE_COM, "app");
+        app.add(new PublicPartReference(EXAMPLE_COM, "lib", "api"));
+        app.add(new PublicPartReference(EXAMPLE_COM, "archive", "api"));
+
+        write(lib, "src/packages/Lib.java", "class Lib {}");
+        write(lib, ".dcdef", "<development-component/>");
+        write(lib, "gen/default/public/api/lib/java/lib.jar", "lib.jar");
+        write(app, "src/packages/App.java", "class App {}");
+        write(app, "def/api.pp", "<public-part/>");
+        write(app, "gen/default/deploy/app.sda", "app.sda");
+        write(archive, "gen/default/public/api/lib/java/archive.jar", "archive.jar");
+    }
+
+    /**
+     * Remove the workspace.
+     *
+     * @throws IOException
+     *             when removing the workspace fails
+     */
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(workspace);
+    }
+
+    /**
+     * Test that build results of unchanged development components are restored from the build cache.
+     *
+     * @throws IOException
+     *             when accessing the workspace fails
+     */
+    @Test
+    public void testUnchangedComponentsAreRestored() throws IOException {
+        assertThat(build(), contains(lib, app));
+        FileUtils.deleteDirectory(getFile(app, "gen/default"));
+
+        assertThat(build().isEmpty(), is(true));
+        assertThat(FileUtils.readFileToString(getFile(app, "gen/default/deploy/app.sda")), is(equalTo("app.sda")));
+    }
+
+    /**
+     * Test that changing the sources of a development component invalidates its build results and those of the components using it.
+     *
+     * @throws IOException
+     *             when accessing the workspace fails
+     */
+    @Test
+    public void testChangedSourcesAreBuilt() throws IOException {
+        build();
+        write(lib, "src/packages/Lib.java", "class Lib { int i; }");
+
+        assertThat(build(), contains(lib, app));
+    }
+
+    /**
+     * Test that changing the public part definitions of a development component invalidates its build results.
+     *
+     * @throws IOException
+     *             when accessing the workspace fails
+     */
+    @Test
+    public void testChangedPublicPartDefinitionIsBuilt() throws IOException {
+        build();
+        write(app, "def/api.pp", "<public-part name='api'/>");
+
+        assertThat(build(), contains(app));
+    }
+
+    /**
+     * Test that changing the build results of a development component does not invalidate them.
+     *
+     * @throws IOException
+     *             when accessing the workspace fails
+     */
+    @Test
+    public void testChangedBuildResultsAreIgnored() throws IOException {
+        build();
+        write(app, "gen/default/logs/build.log", "build log");
+
+        assertThat(build().isEmpty(), is(true));
+    }
+
+    /**
+     * Test that changing a public part used from a development component not built invalidates the build results of the using components.
+     *
+     * @throws IOException
+     *             when accessing the workspace fails
+     */
+    @Test
+    public void testChangedUsedPublicPartIsBuilt() throws IOException {
+        build();
+        write(archive, "gen/default/public/api/lib/java/archive.jar", "archive.jar (new)");
+
+        assertThat(build(), contains(app));
+    }
+
+    /**
+     * Test that the results of development components not reported as built successfully (failed or not reached by dctool) are not put
+     * into the build cache.
+     *
+     * @throws IOException
+     *             when accessing the workspace fails
+     */
+    @Test
+    public void testComponentsNotBuiltSuccessfullyAreNotCached() throws IOException {
+        final DCBuildAvoidance avoidance = createBuildAvoidance();
+        avoidance.restore(Arrays.asList(lib, app));
+        avoidance.store(Arrays.asList(lib));
+
+        assertThat(build(), contains(app));
+    }
+
+    /**
+     * Test that the least recently used build results are evicted when the build cache exceeds its budget.
+     *
+     * @throws IOException
+     *             when accessing the workspace fails
+     */
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() throws IOException {
+        DCBuildAvoidance avoidance = createBuildAvoidance(0);
+        avoidance.restore(Arrays.asList(lib, app));
+        avoidance.store(Arrays.asList(lib));
+        final File libEntry = getCacheEntries().iterator().next();
+        libEntry.setLastModified(System.currentTimeMillis() - 3600000);
+
+        avoidance.store(Arrays.asList(app));
+        final Collection<File> entries = getCacheEntries();
+        entries.remove(libEntry);
+        final File appEntry = entries.iterator().next();
+
+        avoidance = createBuildAvoidance(appEntry.length());
+        avoidance.store(Collections.<DevelopmentComponent> emptyList());
+
+        assertThat(libEntry.exists(), is(false));
+        assertThat(appEntry.exists(), is(true));
+        assertThat(build(), contains(lib));
+    }
+
+    /**
+     * Test that changing the toolchain (build variant or JDK homes) invalidates the build results.
+     *
+     * @throws IOException
+     *             when accessing the workspace fails
+     */
+    @Test
+    public void testChangedToolchainIsBuilt() throws IOException {
+        build();
+        final BuildVariant variant = new BuildVariant("default", true);
+        variant.addBuildOption(BuildVariant.COM_SAP_JDK_HOME_PATH_KEY, "JDK1.6.0_HOME");
+        toolchain = DCInputDigester.describeToolchain(variant, new JdkHomePaths());
+
+        assertThat(build(), contains(lib, app));
+        assertThat(build().isEmpty(), is(true));
+
+        final JdkHomePaths paths = new JdkHomePaths();
+        paths.add(JdkHomeAlias.Jdk160Home, "/opt/jdk1.6.0_45");
+        toolchain = DCInputDigester.describeToolchain(variant, paths);
+
+        assertThat(build(), contains(lib, app));
+    }
+
+    /**
+     * Restore the development components from the build cache and put the results of the remaining ones into the cache.
+     *
+     * @return the development components that had to be built.
+     * @throws IOException
+     *             when accessing the workspace fails
+     */
+    private List<DevelopmentComponent> build() throws IOException {
+        final DCBuildAvoidance avoidance = createBuildAvoidance();
+        final List<DevelopmentComponent> components = avoidance.restore(Arrays.asList(lib, app));
+        avoidance.store(components);
+
+        return components;
+    }
+
+    /**
+     * Create the build avoidance for the workspace.
+     *
+     * @return the build avoidance.
+     */
+    private DCBuildAvoidance createBuildAvoidance() {
+        return createBuildAvoidance(0);
+    }
+
+    /**
+     * Create the build avoidance for the workspace using a build cache of the given size.
+     *
+     * @param budget
+     *            maximum size of the build cache in bytes (not limited when not positive).
+     * @return the build avoidance.
+     */
+    private DCBuildAvoidance createBuildAvoidance(final long budget) {
+        return new DCBuildAvoidance(antHelper, dcFactory, toolchain, new DCBuildCache(new File(workspace, ".dcbuildcache"), budget),
+            new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    /**
+     * Returns the entries of the build cache.
+     *
+     * @return the entries of the build cache.
+     */
+    private Collection<File> getCacheEntries() {
+        return FileUtils.listFiles(new File(workspace, ".dcbuildcache"), new String[] { "zip" }, true);
+    }
+
+    /**
+     * Write the given content to the given file of the given development component.
+     *
+     * @param component
+     *            development component.
+     * @param path
+     *            path of file relative to the development component.
+     * @param content
+     *            content to write.
+     * @throws IOException
+     *             when writing fails
+     */
+    private void write(final DevelopmentComponent component, final String path, final String content) throws IOException {
+        FileUtils.writeStringToFile(getFile(component, path), content);
+    }
+
+    /**
+     * Returns the given file of the given development component.
+     *
+     * @param component
+     *            development component.
+     * @param path
+     *            path of file relative to the development component.
+     * @return the file.
+     */
+    private File getFile(final DevelopmentComponent component, final String path) {
+        return new File(antHelper.getBaseLocation(component), path);
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link DCBuildDurations}.
+ *
+ * @author Dirk Weigenand
+ */
+public class DCBuildDurationsTest {
+    /**
+     * vendor of development components.
+     */
+    private static final String EXAMPLE_ORG = "example.org";
+
+    /**
+     * file containing the history.
+     */
+    private File file;
+
+    /**
+     * registry for development components.
+     */
+    private DevelopmentComponentFactory dcFactory;
+
+    /**
+     * Set up fixture.
+     *
+     * @throws IOException
+     *             when creating the file fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("dc-build-durations", ".dat");
+        file.delete();
+        dcFactory = new DevelopmentComponentFactory();
+    }
+
+    /**
+     * Remove the history.
+     */
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Test that added durations are read back by another instance.
+     */
+    @Test
+    public void testDurationsArePersisted() {
+        new DCBuildDurations(file).add(1, durations("dc1", 1000L, "dc2", 3000L));
+        new DCBuildDurations(file).add(2, durations("dc1", 2000L));
+
+        final DCBuildDurations history = new DCBuildDurations(file);
+
+        assertThat(history.getBuildNumbers(), contains(1, 2));
+        assertThat(history.getDurations(key("dc1")).get(2), is(equalTo(2000L)));
+        assertThat(history.getSlowestComponents(2), contains(key("dc2"), key("dc1")));
+    }
+
+    /**
+     * Test that only the last builds are kept.
+     */
+    @Test
+    public void testOldestBuildsAreDropped() {
+        final DCBuildDurations history = new DCBuildDurations(file);
+
+        for (int build = 1; build <= DCBuildDurations.MAX_BUILDS + 2; build++) {
+            history.add(build, durations("dc1", 1000L));
+        }
+
+        assertThat(new DCBuildDurations(file).getBuildNumbers().size(), is(equalTo(DCBuildDurations.MAX_BUILDS)));
+        assertThat(new DCBuildDurations(file).getBuildNumbers().get(0), is(equalTo(3)));
+    }
+
+    /**
+     * Test that development components are estimated by their average duration and unknown ones by the average of the known ones.
+     */
+    @Test
+    public void testEstimates() {
+        final DCBuildDurations history = new DCBuildDurations(file);
+        history.add(1, durations("dc1", 1000L, "dc2", 5000L));
+        history.add(2, durations("dc1", 3000L));
+
+        final DevelopmentComponent dc1 = dcFactory.create(EXAMPLE_ORG, "dc1");
+        final DevelopmentComponent dc2 = dcFactory.create(EXAMPLE_ORG, "dc2");
+        final DevelopmentComponent dc3 = dcFactory.create(EXAMPLE_ORG, "dc3");
+        final Map<DevelopmentComponent, Long> estimates = history.getEstimates(Arrays.asList(dc1, dc2, dc3));
+
+        assertThat(estimates.get(dc1), is(equalTo(2000L)));
+        assertThat(estimates.get(dc2), is(equalTo(5000L)));
+        assertThat(estimates.get(dc3), is(equalTo(3500L)));
+    }
+
+    /**
+     * Create durations for the given development components.
+     *
+     * @param namesAndDurations
+     *            alternating names of development components and their durations.
+     * @return the durations mapped by the keys of the development components.
+     */
+    private Map<String, Long> durations(final Object... namesAndDurations) {
+        final Map<String, Long> durations = new HashMap<String, Long>();
+
+        for (int i = 0; i < namesAndDurations.length; i += 2) {
+            durations.put(key((String)namesAndDurations[i]), (Long)namesAndDurations[i + 1]);
+        }
+
+        return durations;
+    }
+
+    /**
+     * Returns the key of the development component with the given name.
+     *
+     * @param name
+     *            name of development component.
+     * @return key of the development component.
+     */
+    private String key(final String name) {
+        return DCBuildDurations.getKey(EXAMPLE_ORG, name);
+    }
+}
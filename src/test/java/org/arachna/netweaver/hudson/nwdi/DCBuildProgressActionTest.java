@@ -0,0 +1,156 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.arachna.netweaver.dc.types.Compartment;
+import org.arachna.netweaver.dc.types.CompartmentState;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.hudson.nwdi.DCBuildProgressAction.DCBuildStatus;
+import org.arachna.netweaver.hudson.nwdi.DCBuildProgressAction.DCBuildStatus.State;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link DCBuildProgressAction} and {@link DCBuildProgressListener}.
+ *
+ * @author Dirk Weigenand
+ */
+public class DCBuildProgressActionTest {
+    /**
+     * name of compartment.
+     */
+    private static final String COMPARTMENT = "example.org_EXAMPLE_SC_1";
+
+    /**
+     * progress under test.
+     */
+    private DCBuildProgressAction progress;
+
+    /**
+     * listener updating {@link #progress}.
+     */
+    private DCBuildProgressListener listener;
+
+    /**
+     * Set up fixture.
+     */
+    @Before
+    public void setUp() {
+        final DevelopmentComponentFactory dcFactory = new DevelopmentComponentFactory();
+        final Compartment compartment = Compartment.create(COMPARTMENT, CompartmentState.Source);
+        final DevelopmentComponent dc1 = dcFactory.create("example.org", "example/dc1");
+        final DevelopmentComponent dc2 = dcFactory.create("example.org", "example/dc2");
+        final DevelopmentComponent dc3 = dcFactory.create("example.org", "example/dc3");
+        compartment.add(dc1);
+        compartment.add(dc2);
+        compartment.add(dc3);
+
+        progress = new DCBuildProgressAction(Arrays.asList(dc1, dc2, dc3));
+        listener = new DCBuildProgressListener(progress);
+    }
+
+    /**
+     * Test that all development components are queued before building started.
+     */
+    @Test
+    public void testComponentsAreQueuedInitially() {
+        assertThat(progress.getQueued(), is(equalTo(3)));
+        assertThat(progress.getRevision(), is(equalTo(0)));
+        assertThat(progress.isFinished(), is(false));
+    }
+
+    /**
+     * Test that the state of the development components follows the output of the dctool.
+     */
+    @Test
+    public void testStateFollowsDCToolOutput() {
+        listener.processLine(startOf("example/dc1"));
+        assertThat(getState(0), is(equalTo(State.Building)));
+        assertThat(progress.getBuilding(), is(equalTo(1)));
+
+        listener.processLine("Finished 1 DC build(s).");
+        listener.processLine("1 build(s) succeeded (or yield warnings), 0 build(s) failed.");
+        listener.processLine(startOf("example/dc2"));
+        listener.processLine("0 build(s) succeeded (or yield warnings), 1 build(s) failed.");
+
+        assertThat(getState(0), is(equalTo(State.Succeeded)));
+        assertThat(getState(1), is(equalTo(State.Failed)));
+        assertThat(getState(2), is(equalTo(State.Queued)));
+        assertThat(progress.getRevision(), is(equalTo(4)));
+    }
+
+    /**
+     * Test that finishing marks components still being built as failed and components still queued as not built.
+     */
+    @Test
+    public void testFinishResolvesPendingComponents() {
+        listener.processLine(startOf("example/dc1"));
+        progress.finish(System.currentTimeMillis());
+
+        assertThat(progress.isFinished(), is(true));
+        assertThat(getState(0), is(equalTo(State.Failed)));
+        assertThat(progress.getNotBuilt(), is(equalTo(2)));
+    }
+
+    /**
+     * Test that the elapsed time of a development component is its build duration.
+     */
+    @Test
+    public void testElapsedTimeIsBuildDuration() {
+        progress.started("example/dc1", COMPARTMENT, 1000);
+        progress.ended("example/dc1", COMPARTMENT, true, 3500);
+
+        assertThat(progress.getComponents().get(0).getElapsed(), is(equalTo(2500L)));
+    }
+
+    /**
+     * Test that the execution time reported by the dctool is recorded as duration of successfully built development components.
+     */
+    @Test
+    public void testExecutionTimeIsRecordedAsDuration() {
+        listener.processLine(startOf("example/dc1"));
+        listener.processLine("1 build(s) succeeded (or yield warnings), 0 build(s) failed.");
+        listener.processLine("Execution time: 752 [ms]");
+        listener.processLine(startOf("example/dc2"));
+        listener.processLine("0 build(s) succeeded (or yield warnings), 1 build(s) failed.");
+        listener.processLine("Execution time: 528 [ms]");
+
+        assertThat(progress.getComponents().get(0).getElapsed(), is(equalTo(752L)));
+        assertThat(progress.getMeasuredDurations().size(), is(equalTo(1)));
+        assertThat(progress.getMeasuredDurations().get(DCBuildDurations.getKey("example.org", "example/dc1")), is(equalTo(752L)));
+    }
+
+    /**
+     * Create the line of dctool output marking the start of building the given development component.
+     *
+     * @param name
+     *            name of development component.
+     * @return line of dctool output marking the start of building the given development component.
+     */
+    private String startOf(final String name) {
+        return String.format("\"Build of DC \"%s\" from  compartment \"%s\" based on sync mode \"SYNCHED_AS_INACTIVE_SOURCE\" ", name,
+            COMPARTMENT);
+    }
+
+    /**
+     * Returns the state of the development component at the given position.
+     *
+     * @param index
+     *            position of development component.
+     * @return the state of the development component at the given position.
+     */
+    private State getState(final int index) {
+        final List<DCBuildStatus> components = progress.getComponents();
+
+        return components.get(index).getState();
+    }
+}
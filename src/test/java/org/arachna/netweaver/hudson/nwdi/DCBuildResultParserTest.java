@@ -5,6 +5,7 @@ package org.arachna.netweaver.hudson.nwdi;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 
 import java.io.InputStreamReader;
 import java.io.Reader;
@@ -68,6 +69,18 @@ public class DCBuildResultParserTest {
         assertThat(results.hasBuildErrors(), equalTo(true));
     }
 
+    /**
+     * Test that development components are reported as built successfully only when the DC tool says so.
+     */
+    @Test
+    public void testSuccessfulBuildsAreReported() {
+        final BuildResults results = buildResultParser.parse(getBuildResultText("DCBuildResultWithBuildErrors.txt"));
+
+        assertThat(results.getDcsBuiltSuccessfully(),
+            contains(config.getCompartment("example.org_EXAMPLE_SC_1").getDevelopmentComponent("sc/example_sc_description")));
+        assertThat(results.getDcsWithBuildErrors().size(), equalTo(2));
+    }
+
     /**
      * @return
      */
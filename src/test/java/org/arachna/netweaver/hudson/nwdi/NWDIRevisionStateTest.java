@@ -0,0 +1,86 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link NWDIRevisionState}.
+ *
+ * @author Dirk Weigenand
+ */
+public class NWDIRevisionStateTest {
+    /**
+     * name of compartment used in tests.
+     */
+    private static final String EXAMPLE_SC1 = "example.com_EXAMPLE_SC1_1";
+
+    /**
+     * Test that the start state knows no integration sequence numbers (so all activities are queried filtered by their check in date).
+     */
+    @Test
+    public void testStartStateHasNoIntegrationSequenceNumbers() {
+        assertThat(NWDIRevisionState.START_STATE.getIntegrationSequenceNumbers().isEmpty(), is(true));
+    }
+
+    /**
+     * Test that the state is not affected by changes of the map it was created with.
+     */
+    @Test
+    public void testIntegrationSequenceNumbersAreCopied() {
+        final Map<String, Integer> isns = new HashMap<String, Integer>();
+        isns.put(EXAMPLE_SC1, Integer.valueOf(31));
+        final NWDIRevisionState state = new NWDIRevisionState(isns);
+        isns.put(EXAMPLE_SC1, Integer.valueOf(12));
+
+        assertThat(state.getIntegrationSequenceNumbers().get(EXAMPLE_SC1), is(equalTo(Integer.valueOf(31))));
+    }
+
+    /**
+     * Test that the integration sequence numbers are kept when the state is persisted with a build and loaded again.
+     *
+     * @throws Exception
+     *             when writing or reading the state fails
+     */
+    @Test
+    public void testIntegrationSequenceNumbersAreKeptWhenReloaded() throws Exception {
+        final Map<String, Integer> isns = new HashMap<String, Integer>();
+        isns.put(EXAMPLE_SC1, Integer.valueOf(31));
+        isns.put("example.com_OTHER_SC_1", Integer.valueOf(7));
+
+        assertThat(reload(new NWDIRevisionState(isns)).getIntegrationSequenceNumbers(), is(equalTo(isns)));
+    }
+
+    /**
+     * Write the given state and read it again.
+     *
+     * @param state
+     *            the state to reload.
+     * @return the reloaded state.
+     * @throws IOException
+     *             when writing or reading the state fails
+     * @throws ClassNotFoundException
+     *             when reading the state fails
+     */
+    private NWDIRevisionState reload(final NWDIRevisionState state) throws IOException, ClassNotFoundException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream output = new ObjectOutputStream(bytes);
+        output.writeObject(state);
+        output.close();
+
+        return (NWDIRevisionState)new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    }
+}
@@ -0,0 +1,401 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.arachna.netweaver.dc.types.Compartment;
+import org.arachna.netweaver.dc.types.CompartmentState;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
+import org.arachna.netweaver.dc.types.PublicPartReference;
+import org.arachna.netweaver.tools.DIToolOutput;
+import org.arachna.netweaver.tools.DIToolOutputListener;
+import org.arachna.netweaver.tools.DIToolCommandExecutionResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link ParallelDCBuilder}.
+ *
+ * @author Dirk Weigenand
+ */
+public class ParallelDCBuilderTest {
+    /**
+     * vendor of development components.
+     */
+    private static final String EXAMPLE_ORG = "example.org";
+
+    /**
+     * name of compartment.
+     */
+    private static final String COMPARTMENT = "example.org_EXAMPLE_SC_1";
+
+    /**
+     * registry for development components.
+     */
+    private DevelopmentComponentFactory dcFactory;
+
+    /**
+     * development configuration containing the development components.
+     */
+    private DevelopmentConfiguration config;
+
+    /**
+     * compartment containing the development components.
+     */
+    private Compartment compartment;
+
+    /**
+     * workspace the output of the sessions is spooled to.
+     */
+    private File workspace;
+
+    /**
+     * Set up fixture.
+     *
+     * @throws IOException
+     *             when creating the workspace fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        workspace = File.createTempFile("workspace", "");
+        workspace.delete();
+        workspace.mkdirs();
+        dcFactory = new DevelopmentComponentFactory();
+        config = new DevelopmentConfiguration("DI0_Example_D");
+        compartment = Compartment.create(COMPARTMENT, CompartmentState.Source);
+        config.add(compartment);
+    }
+
+    /**
+     * Remove the workspace.
+     *
+     * @throws IOException
+     *             when removing the workspace fails
+     */
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(workspace);
+    }
+
+    /**
+     * Test that every development component is built after the components it uses and that no more than the configured number of sessions
+     * run concurrently.
+     *
+     * @throws Exception
+     *             when building fails
+     */
+    @Test
+    public void testBuildRespectsDependenciesAndSessionLimit() throws Exception {
+        final DevelopmentComponent lib = create("lib");
+        final DevelopmentComponent a = create("a", "lib");
+        final DevelopmentComponent b = create("b", "lib");
+        final DevelopmentComponent c = create("c", "lib");
+        final DevelopmentComponent d = create("d", "lib");
+        final DevelopmentComponent app = create("app", "a", "b", "c", "d");
+        final RecordingSession session = new RecordingSession();
+
+        final ParallelDCBuilder builder = createBuilder(2);
+        final DIToolCommandExecutionResult result = builder.build(waves(Arrays.asList(lib), Arrays.asList(a, b, c, d), Arrays.asList(app)), session);
+
+        assertThat(result.isExitCodeOk(), is(true));
+        assertThat(session.built, containsInAnyOrder(lib, a, b, c, d, app));
+        assertThat(session.sessions.size(), is(equalTo(4)));
+        assertThat(session.maxConcurrent.get(), is(lessThanOrEqualTo(2)));
+        assertThat(builder.getFailedComponents().isEmpty(), is(true));
+        assertThat(builder.getSkippedComponents().isEmpty(), is(true));
+    }
+
+    /**
+     * Test that development components using a component whose build failed are skipped (transitively).
+     *
+     * @throws Exception
+     *             when building fails
+     */
+    @Test
+    public void testDependentsOfFailedComponentAreSkipped() throws Exception {
+        final DevelopmentComponent lib = create("lib");
+        final DevelopmentComponent a = create("a", "lib");
+        final DevelopmentComponent b = create("b", "lib");
+        final DevelopmentComponent c = create("c", "a");
+        final DevelopmentComponent d = create("d", "c");
+        final DevelopmentComponent e = create("e", "b");
+        final RecordingSession session = new RecordingSession(a);
+
+        final ParallelDCBuilder builder = createBuilder(3);
+        final DIToolCommandExecutionResult result =
+            builder.build(waves(Arrays.asList(lib), Arrays.asList(a, b), Arrays.asList(c, e), Arrays.asList(d)), session);
+
+        assertThat(result.isExitCodeOk(), is(false));
+        assertThat(session.built, containsInAnyOrder(lib, a, b, e));
+        assertThat(builder.getFailedComponents(), contains(a));
+        assertThat(builder.getSkippedComponents(), contains(c, d));
+        assertThat(builder.getBuiltComponents(), containsInAnyOrder(lib, b, e));
+    }
+
+    /**
+     * Test that all development components of a session are considered failed when the session fails without reporting failed builds.
+     *
+     * @throws Exception
+     *             when building fails
+     */
+    @Test
+    public void testFailedSessionFailsAllItsComponents() throws Exception {
+        final DevelopmentComponent lib = create("lib");
+        final DevelopmentComponent a = create("a", "lib");
+        final DIToolCommandExecutionResult result =
+            createBuilder(2).build(waves(Arrays.asList(lib), Arrays.asList(a)), new ParallelDCBuilder.DCToolSession() {
+                @Override
+                public DIToolCommandExecutionResult build(final String name, final Collection<DevelopmentComponent> components,
+                    final OutputStream output, final DIToolOutputListener listener) {
+                    return new DIToolCommandExecutionResult("", 2);
+                }
+            });
+
+        assertThat(result.getExitCode(), is(equalTo(2)));
+    }
+
+    /**
+     * Test that with estimated build durations the components on the longest critical path are started first and the components are
+     * distributed to the sessions by their estimated build durations.
+     *
+     * @throws Exception
+     *             when building fails
+     */
+    @Test
+    public void testCriticalPathFirstWithEstimatedDurations() throws Exception {
+        final DevelopmentComponent lib = create("lib");
+        final DevelopmentComponent x = create("x");
+        final DevelopmentComponent y = create("y");
+        final DevelopmentComponent app = create("app", "x");
+        final Map<DevelopmentComponent, Long> estimates = new HashMap<DevelopmentComponent, Long>();
+        estimates.put(lib, 100L);
+        estimates.put(x, 10L);
+        estimates.put(y, 100L);
+        estimates.put(app, 1000L);
+        final RecordingSession session = new RecordingSession();
+
+        final ParallelDCBuilder builder = createBuilder(2);
+        builder.setEstimatedDurations(estimates);
+        builder.build(waves(Arrays.asList(lib, x, y), Arrays.asList(app)), session);
+
+        assertThat(session.batches, containsInAnyOrder(Arrays.asList(x, y), Arrays.asList(lib), Arrays.asList(app)));
+    }
+
+    /**
+     * Test that the spooled output of the sessions is copied to the console and merged into the result.
+     *
+     * @throws Exception
+     *             when building fails
+     */
+    @Test
+    public void testOutputOfSessionsIsCopiedToConsole() throws Exception {
+        final DevelopmentComponent lib = create("lib");
+        final DevelopmentComponent a = create("a", "lib");
+        final DevelopmentComponent b = create("b", "lib");
+        final ByteArrayOutputStream console = new ByteArrayOutputStream();
+
+        final DIToolCommandExecutionResult result =
+            new ParallelDCBuilder(config, dcFactory.createDependencyGraph(), 2, workspace, new PrintStream(console, true)).build(
+                waves(Arrays.asList(lib), Arrays.asList(a, b)), new RecordingSession());
+
+        assertThat(console.toString(), containsString("\"Build of DC \"lib\""));
+        assertThat(console.toString(), containsString("\"Build of DC \"a\""));
+        assertThat(console.toString(), containsString("\"Build of DC \"b\""));
+        assertThat(result.getOutput(), containsString("\"Build of DC \"lib\""));
+        assertThat(result.getOutput(), containsString("\"Build of DC \"a\""));
+        assertThat(result.getOutput(), containsString("\"Build of DC \"b\""));
+    }
+
+    /**
+     * Test that the output of the sessions is spooled into the workspace and removed after it was copied to the console.
+     *
+     * @throws Exception
+     *             when building fails
+     */
+    @Test
+    public void testOutputIsSpooledIntoWorkspace() throws Exception {
+        final DevelopmentComponent lib = create("lib");
+        final List<String> spooled = Collections.synchronizedList(new ArrayList<String>());
+
+        createBuilder(2).build(waves(Arrays.asList(lib)), new ParallelDCBuilder.DCToolSession() {
+            @Override
+            public DIToolCommandExecutionResult build(final String name, final Collection<DevelopmentComponent> components,
+                final OutputStream output, final DIToolOutputListener listener) {
+                spooled.addAll(Arrays.asList(workspace.list()));
+
+                return new DIToolCommandExecutionResult("", 0);
+            }
+        });
+
+        assertThat(spooled, contains("dctool-1-1.log"));
+        assertThat(workspace.list().length, is(equalTo(0)));
+    }
+
+    /**
+     * Create a builder for the development components created so far.
+     *
+     * @param sessions
+     *            maximum number of concurrent sessions.
+     * @return the builder.
+     */
+    private ParallelDCBuilder createBuilder(final int sessions) {
+        return new ParallelDCBuilder(config, dcFactory.createDependencyGraph(), sessions, workspace, new PrintStream(
+            new ByteArrayOutputStream()));
+    }
+
+    /**
+     * Create a list of waves from the given development components.
+     *
+     * @param waves
+     *            the development components of each wave.
+     * @return list of waves.
+     */
+    private List<List<DevelopmentComponent>> waves(final List<DevelopmentComponent>... waves) {
+        return Arrays.asList(waves);
+    }
+
+    /**
+     * Create a development component referencing the given components.
+     *
+     * @param name
+     *            name of development component.
+     * @param references
+     *            names of referenced development components.
+     * @return the created development component.
+     */
+    private DevelopmentComponent create(final String name, final String... references) {
+        final DevelopmentComponent component = dcFactory.create(EXAMPLE_ORG, name);
+
+        for (final String reference : references) {
+            component.add(new PublicPartReference(EXAMPLE_ORG, reference, "api"));
+        }
+
+        compartment.add(component);
+
+        return component;
+    }
+
+    /**
+     * Session recording the development components built. Verifies that the used components of each development component were built
+     * before.
+     *
+     * @author Dirk Weigenand
+     */
+    private final class RecordingSession implements ParallelDCBuilder.DCToolSession {
+        /**
+         * development components built so far.
+         */
+        private final List<DevelopmentComponent> built = Collections.synchronizedList(new ArrayList<DevelopmentComponent>());
+
+        /**
+         * development components built per session.
+         */
+        private final List<List<DevelopmentComponent>> batches =
+            Collections.synchronizedList(new ArrayList<List<DevelopmentComponent>>());
+
+        /**
+         * names of the sessions executed.
+         */
+        private final Set<String> sessions = Collections.synchronizedSet(new HashSet<String>());
+
+        /**
+         * number of sessions currently running.
+         */
+        private final AtomicInteger concurrent = new AtomicInteger();
+
+        /**
+         * maximum number of sessions running concurrently.
+         */
+        private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+        /**
+         * development components whose build shall fail.
+         */
+        private final Set<DevelopmentComponent> failing;
+
+        /**
+         * Create a session failing to build the given development components.
+         *
+         * @param failing
+         *            development components whose build shall fail.
+         */
+        RecordingSession(final DevelopmentComponent... failing) {
+            this.failing = new HashSet<DevelopmentComponent>(Arrays.asList(failing));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public DIToolCommandExecutionResult build(final String name, final Collection<DevelopmentComponent> components,
+            final OutputStream output, final DIToolOutputListener listener) throws IOException, InterruptedException {
+            final int running = concurrent.incrementAndGet();
+            sessions.add(name);
+            batches.add(new ArrayList<DevelopmentComponent>(components));
+
+            synchronized (maxConcurrent) {
+                maxConcurrent.set(Math.max(maxConcurrent.get(), running));
+            }
+
+            final StringBuilder log = new StringBuilder();
+
+            for (final DevelopmentComponent component : components) {
+                for (final DevelopmentComponent used : dcFactory.createDependencyGraph().getUsedComponents(component)) {
+                    if (!built.contains(used)) {
+                        throw new IllegalStateException(component.getName() + " built before " + used.getName());
+                    }
+                }
+
+                Thread.sleep(20);
+                log.append(String.format("\"Build of DC \"%s\" from  compartment \"%s\" based on sync mode \"SYNCHED_AS_INACTIVE_SOURCE\" %n",
+                    component.getName(), COMPARTMENT));
+
+                if (failing.contains(component)) {
+                    log.append("0 build(s) succeeded (or yield warnings), 1 build(s) failed.\n");
+                }
+                else {
+                    log.append("1 build(s) succeeded (or yield warnings), 0 build(s) failed.\n");
+                }
+
+                built.add(component);
+            }
+
+            concurrent.decrementAndGet();
+
+            final DIToolOutput parsed = new DIToolOutput(listener);
+            parsed.write(log.toString().getBytes());
+            parsed.close();
+            output.write(log.toString().getBytes());
+
+            return new DIToolCommandExecutionResult(parsed.toString(), 0);
+        }
+    }
+}
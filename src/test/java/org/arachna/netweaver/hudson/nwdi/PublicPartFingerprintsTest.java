@@ -0,0 +1,238 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.PublicPartReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link PublicPartFingerprints}.
+ *
+ * @author Dirk Weigenand
+ */
+public class PublicPartFingerprintsTest {
+    /**
+     * vendor of development components.
+     */
+    private static final String EXAMPLE_COM = "example.com";
+
+    /**
+     * workspace containing the development components.
+     */
+    private File workspace;
+
+    /**
+     * helper to determine the location of development components.
+     */
+    private AntHelper antHelper;
+
+    /**
+     * development component used by {@link #app}.
+     */
+    private DevelopmentComponent lib;
+
+    /**
+     * development component using the public part 'api' of {@link #lib}.
+     */
+    private DevelopmentComponent app;
+
+    /**
+     * markers recording which development components were built successfully.
+     */
+    private DCBuildSuccessMarkers markers;
+
+    /**
+     * fingerprints under test.
+     */
+    private PublicPartFingerprints fingerprints;
+
+    /**
+     * Set up fixture.
+     *
+     * @throws IOException
+     *             when creating the workspace fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        workspace = File.createTempFile("workspace", "");
+        workspace.delete();
+
+        final DevelopmentComponentFactory dcFactory = new DevelopmentComponentFactory();
+        antHelper = new AntHelper(workspace.getAbsolutePath(), dcFactory);
+
+        lib = dcFactory.create(EXAMPLE_COM, "lib");
+        app = dcFactory.create(EXAMPLE_COM, "app");
+        app.add(new PublicPartReference(EXAMPLE_COM, "lib", "api"));
+
+        writeJar("api", "Lib.class", "class Lib {}", 1000000000000L);
+        writeJar("internal", "Impl.class", "class Impl {}", 1000000000000L);
+        markers = new DCBuildSuccessMarkers(antHelper);
+        FileUtils.forceMkdir(new File(antHelper.getBaseLocation(app), "gen/default"));
+        markers.mark(Arrays.asList(lib, app));
+
+        fingerprints = new PublicPartFingerprints(antHelper, dcFactory, markers);
+        fingerprints.record(Arrays.asList(lib, app));
+    }
+
+    /**
+     * Remove the workspace.
+     *
+     * @throws IOException
+     *             when removing the workspace fails
+     */
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(workspace);
+    }
+
+    /**
+     * Test that repackaging a public part with the same content but other time stamps is not regarded as a change.
+     *
+     * @throws IOException
+     *             when accessing the workspace fails
+     */
+    @Test
+    public void testRepackagedPublicPartIsUnchanged() throws IOException {
+        writeJar("api", "Lib.class", "class Lib {}", 1300000000000L);
+
+        assertThat(fingerprints.usesChangedPublicPart(app, rebuilt()), is(false));
+    }
+
+    /**
+     * Test that changing the content of a used public part is regarded as a change.
+     *
+     * @throws IOException
+     *             when accessing the workspace fails
+     */
+    @Test
+    public void testChangedPublicPartIsChanged() throws IOException {
+        writeJar("api", "Lib.class", "class Lib { int i; }", 1000000000000L);
+
+        assertThat(fingerprints.usesChangedPublicPart(app, rebuilt()), is(true));
+    }
+
+    /**
+     * Test that changing a public part the using component does not reference is not regarded as a change.
+     *
+     * @throws IOException
+     *             when accessing the workspace fails
+     */
+    @Test
+    public void testChangedUnusedPublicPartIsIgnored() throws IOException {
+        writeJar("internal", "Impl.class", "class Impl { int i; }", 1000000000000L);
+
+        assertThat(fingerprints.usesChangedPublicPart(app, rebuilt()), is(false));
+    }
+
+    /**
+     * Test that public parts of components that were not rebuilt are not compared.
+     *
+     * @throws IOException
+     *             when accessing the workspace fails
+     */
+    @Test
+    public void testPublicPartsOfComponentsNotRebuiltAreIgnored() throws IOException {
+        writeJar("api", "Lib.class", "class Lib { int i; }", 1000000000000L);
+
+        assertThat(fingerprints.usesChangedPublicPart(app, Collections.<DevelopmentComponent> emptyList()), is(false));
+    }
+
+    /**
+     * Test that only recorded components whose last build succeeded are regarded as having build results.
+     *
+     * @throws IOException
+     *             when accessing the workspace fails
+     */
+    @Test
+    public void testHasBuildResults() throws IOException {
+        assertThat(fingerprints.hasBuildResults(app), is(true));
+
+        FileUtils.deleteDirectory(new File(antHelper.getBaseLocation(app), "gen"));
+        fingerprints.record(Arrays.asList(lib, app));
+
+        assertThat(fingerprints.hasBuildResults(app), is(false));
+    }
+
+    /**
+     * Test that build results left behind by a build that did not succeed are not regarded as build results.
+     *
+     * @throws IOException
+     *             when accessing the workspace fails
+     */
+    @Test
+    public void testResultsOfFailedBuildAreNoBuildResults() throws IOException {
+        markers.remove(Arrays.asList(app));
+        fingerprints = new PublicPartFingerprints(antHelper, new DevelopmentComponentFactory(), markers);
+        fingerprints.record(Arrays.asList(lib, app));
+
+        assertThat(new File(antHelper.getBaseLocation(app), "gen/default").isDirectory(), is(true));
+        assertThat(fingerprints.hasBuildResults(app), is(false));
+        assertThat(fingerprints.hasBuildResults(lib), is(true));
+    }
+
+    /**
+     * Returns the rebuilt development components.
+     *
+     * @return the rebuilt development components.
+     */
+    private Collection<DevelopmentComponent> rebuilt() {
+        return Arrays.asList(lib);
+    }
+
+    /**
+     * Write a JAR with a manifest and the given entry into the given public part of {@link #lib}.
+     *
+     * @param publicPart
+     *            name of public part.
+     * @param name
+     *            name of entry.
+     * @param content
+     *            content of entry.
+     * @param time
+     *            time stamp of entries.
+     * @throws IOException
+     *             when writing fails
+     */
+    private void writeJar(final String publicPart, final String name, final String content, final long time) throws IOException {
+        final File jar = new File(antHelper.getBaseLocation(lib), "gen/default/public/" + publicPart + "/lib/java/lib.jar");
+        FileUtils.forceMkdir(jar.getParentFile());
+
+        final ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(jar));
+
+        try {
+            ZipEntry entry = new ZipEntry("META-INF/MANIFEST.MF");
+            entry.setTime(time);
+            zip.putNextEntry(entry);
+            zip.write(("Created-At: " + time).getBytes("UTF-8"));
+            zip.closeEntry();
+
+            entry = new ZipEntry(name);
+            entry.setTime(time);
+            zip.putNextEntry(entry);
+            zip.write(content.getBytes("UTF-8"));
+            zip.closeEntry();
+        }
+        finally {
+            zip.close();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.arachna.netweaver.dc.types.Compartment;
+import org.arachna.netweaver.dc.types.CompartmentState;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.PublicPartReference;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link RebuildImpactRecord}.
+ *
+ * @author Dirk Weigenand
+ */
+public class RebuildImpactRecordTest {
+    /**
+     * vendor of development components.
+     */
+    private static final String EXAMPLE_COM = "example.com";
+
+    /**
+     * version of development configuration.
+     */
+    private static final String VERSION = "42";
+
+    /**
+     * registry for development components.
+     */
+    private DevelopmentComponentFactory dcFactory;
+
+    /**
+     * compartment containing the development components.
+     */
+    private Compartment compartment;
+
+    /**
+     * Set up fixture: 'app' uses 'helper' uses 'lib', 'tool' uses 'lib' via 'external' which is not contained in a compartment.
+     */
+    @Before
+    public void setUp() {
+        dcFactory = new DevelopmentComponentFactory();
+        compartment = Compartment.create("example.com_EXAMPLE_SC", CompartmentState.Source);
+
+        create("lib");
+        create("helper", "lib");
+        create("app", "helper");
+        dcFactory.create(EXAMPLE_COM, "external").add(new PublicPartReference(EXAMPLE_COM, "lib"));
+        create("tool", "external");
+        dcFactory.updateUsingDCs();
+    }
+
+    /**
+     * Test that the impact of a change is determined from the record of a build loaded from disk (where the development components the
+     * build used are not available anymore).
+     *
+     * @throws Exception
+     *             when writing or reading the record fails
+     */
+    @Test
+    public void testImpactOfReloadedBuild() throws Exception {
+        final RebuildImpactRecord record = reload(RebuildImpactRecord.create(dcFactory.getRebuildImpactIndex(VERSION)));
+        final RebuildImpact impact = RebuildImpact.create(record.getRebuildImpactIndex(), record.getDevelopmentComponentFactory(),
+            "example.com~lib,example.com~unknown");
+
+        assertThat(impact.getVersion(), is(equalTo(VERSION)));
+        assertThat(impact.getChangedComponents(), containsInAnyOrder("example.com~lib"));
+        assertThat(impact.getImpactedComponents(), containsInAnyOrder("example.com~lib", "example.com~helper", "example.com~app"));
+    }
+
+    /**
+     * Test that the record is not affected by changes of the development components after it was taken.
+     *
+     * @throws Exception
+     *             when writing or reading the record fails
+     */
+    @Test
+    public void testRecordIsSnapshot() throws Exception {
+        final RebuildImpactRecord record = RebuildImpactRecord.create(dcFactory.getRebuildImpactIndex(VERSION));
+        create("late", "lib");
+        dcFactory.updateUsingDCs();
+
+        assertThat(RebuildImpact.create(record.getRebuildImpactIndex(), record.getDevelopmentComponentFactory(), "example.com~lib")
+            .getImpactedComponents(), containsInAnyOrder("example.com~lib", "example.com~helper", "example.com~app"));
+    }
+
+    /**
+     * Write the given record and read it again (dropping transient state like loading a build from disk does).
+     *
+     * @param record
+     *            the record to reload.
+     * @return the reloaded record.
+     * @throws IOException
+     *             when writing or reading the record fails
+     * @throws ClassNotFoundException
+     *             when reading the record fails
+     */
+    private RebuildImpactRecord reload(final RebuildImpactRecord record) throws IOException, ClassNotFoundException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream output = new ObjectOutputStream(bytes);
+        output.writeObject(record);
+        output.close();
+
+        return (RebuildImpactRecord)new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    }
+
+    /**
+     * Create a development component in the compartment using the given development components.
+     *
+     * @param name
+     *            name of development component.
+     * @param usedComponents
+     *            names of the used development components.
+     * @return the development component.
+     */
+    private DevelopmentComponent create(final String name, final String... usedComponents) {
+        final DevelopmentComponent component = dcFactory.create(EXAMPLE_COM, name);
+        compartment.add(component);
+
+        for (final String usedComponent : usedComponents) {
+            component.add(new PublicPartReference(EXAMPLE_COM, usedComponent));
+        }
+
+        return component;
+    }
+}
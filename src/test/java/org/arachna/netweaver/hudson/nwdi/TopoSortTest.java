@@ -2,9 +2,14 @@ package org.arachna.netweaver.hudson.nwdi;
 
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.collection.IsEmptyCollection.empty;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 
 import org.arachna.netweaver.dc.types.Compartment;
@@ -157,6 +162,65 @@ public class TopoSortTest {
         assertThat(result.getDevelopmentComponents(), hasItems(one, two, three, four));
         assertThat(result.getCircularDependencies(), empty());
     }
+
+    @Test
+    public void fourDCsAreSortedIntoWaves() {
+        final DevelopmentComponent one = create("one");
+        final DevelopmentComponent two = create("two");
+        final DevelopmentComponent three = create("three", "one", "two");
+        final DevelopmentComponent four = create("four", "three", "one");
+
+        final TopoSortResult result = sort(one, two);
+        assertThat(result.getWaves(), hasSize(3));
+        assertThat(result.getWaves().get(0), containsInAnyOrder(one, two));
+        assertThat(result.getWaves().get(1), contains(three));
+        assertThat(result.getWaves().get(2), contains(four));
+        assertThat(new ArrayList<DevelopmentComponent>(result.getDevelopmentComponents()).subList(2, 4), contains(three, four));
+    }
+
+    @Test
+    public void cycleIsReportedOnceAsStronglyConnectedComponent() {
+        final DevelopmentComponent one = create("one", "four");
+        final DevelopmentComponent two = create("two");
+        final DevelopmentComponent three = create("three", "one", "two");
+        final DevelopmentComponent four = create("four", "three");
+        final DevelopmentComponent five = create("five", "four");
+
+        final TopoSortResult result = sort(one, two);
+        assertThat(result.getDevelopmentComponents(), contains(two));
+        assertThat(result.getCycles(), hasSize(1));
+        assertThat(result.getCycles().get(0), containsInAnyOrder(one, three, four));
+        assertThat(result.getCycles().get(0), not(hasItem(five)));
+        assertThat(result.getCircularDependencies(), hasSize(3));
+        assertThat(result.getCircularDependencies(), hasItems(new CircularDependency(four, one), new CircularDependency(three, four),
+            new CircularDependency(one, three)));
+    }
+
+    @Test
+    public void longChainIsSortedWithoutDeepRecursion() {
+        final int length = 100000;
+        final DevelopmentComponent first = create("dc0");
+
+        for (int i = 1; i < length; i++) {
+            create("dc" + i, "dc" + (i - 1));
+        }
+
+        final TopoSortResult result = sort(first);
+        assertThat(result.getDevelopmentComponents(), hasSize(length));
+        assertThat(result.getWaves(), hasSize(length));
+        assertThat(result.getCycles(), empty());
+    }
+
+    private DevelopmentComponent create(final String name, final String... usedDCs) {
+        final DevelopmentComponent component = dcFactory.create("example.org", name, DevelopmentComponentType.Java);
+        sourceCompartment.add(component);
+
+        for (final String usedDC : usedDCs) {
+            component.add(new PublicPartReference("example.org", usedDC));
+        }
+
+        return component;
+    }
     //
     // @Test
     // public void fourDCsWithCircularDependencies() {
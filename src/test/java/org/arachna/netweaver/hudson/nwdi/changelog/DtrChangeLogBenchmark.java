@@ -0,0 +1,257 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi.changelog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.util.Date;
+import java.util.Iterator;
+
+import org.arachna.netweaver.hudson.nwdi.changelog.DtrChangeLogEntry.Action;
+import org.arachna.netweaver.hudson.nwdi.changelog.DtrChangeLogEntry.Item;
+import org.arachna.xml.DigesterHelper;
+
+/**
+ * Benchmark comparing reading a change log using the {@link DtrChangeLogReader} with reading it using Digester and the rules of the
+ * {@link DtrChangeLogRulesModuleProducer} (as the {@link DtrChangeLogParser} did before).
+ *
+ * A change log containing a large number of change sets is generated using the {@link DtrChangeLogWriter}. Besides reading the whole change
+ * log the time needed to read only the first change sets is measured.
+ *
+ * Run with <code>java -cp ... org.arachna.netweaver.hudson.nwdi.changelog.DtrChangeLogBenchmark [iterations] [change sets]</code>.
+ *
+ * @author Dirk Weigenand
+ */
+public final class DtrChangeLogBenchmark {
+    /**
+     * default number of iterations.
+     */
+    private static final int ITERATIONS = 20;
+
+    /**
+     * number of iterations executed before measuring.
+     */
+    private static final int WARM_UP = 5;
+
+    /**
+     * default number of change sets in the generated change log.
+     */
+    private static final int CHANGE_SETS = 20000;
+
+    /**
+     * number of items per generated change set.
+     */
+    private static final int ITEMS = 5;
+
+    /**
+     * number of change sets read when only the first ones are of interest.
+     */
+    private static final int PAGE_SIZE = 50;
+
+    /**
+     * 1000 * 1000 nanoseconds.
+     */
+    private static final double MILLION = 1000000d;
+
+    /**
+     * encoding of change log.
+     */
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * number of iterations.
+     */
+    private final int iterations;
+
+    /**
+     * Create a benchmark executing the given number of iterations.
+     *
+     * @param iterations
+     *            number of iterations.
+     */
+    private DtrChangeLogBenchmark(final int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * Execute the benchmark.
+     *
+     * @param args
+     *            optional number of iterations and number of change sets in the generated change log.
+     * @throws Exception
+     *             when generating or reading the change log fails.
+     */
+    public static void main(final String[] args) throws Exception {
+        final DtrChangeLogBenchmark benchmark = new DtrChangeLogBenchmark(args.length > 0 ? Integer.parseInt(args[0]) : ITERATIONS);
+        final int changeSets = args.length > 1 ? Integer.parseInt(args[1]) : CHANGE_SETS;
+
+        long start = System.nanoTime();
+        final byte[] changeLog = benchmark.createChangeLog(changeSets);
+        System.out.println(String.format("wrote %d change sets (%d bytes) in %.3f ms", changeSets, changeLog.length,
+            (System.nanoTime() - start) / MILLION));
+
+        // warm up
+        for (int i = 0; i < Math.min(benchmark.iterations, WARM_UP); i++) {
+            benchmark.readUsingDigester(changeLog);
+            benchmark.readUsingReader(changeLog, Integer.MAX_VALUE);
+        }
+
+        start = System.nanoTime();
+
+        for (int i = 0; i < benchmark.iterations; i++) {
+            benchmark.readUsingDigester(changeLog);
+        }
+
+        final double digester = (System.nanoTime() - start) / MILLION / benchmark.iterations;
+        start = System.nanoTime();
+
+        for (int i = 0; i < benchmark.iterations; i++) {
+            benchmark.readUsingReader(changeLog, Integer.MAX_VALUE);
+        }
+
+        final double stream = (System.nanoTime() - start) / MILLION / benchmark.iterations;
+        start = System.nanoTime();
+
+        for (int i = 0; i < benchmark.iterations; i++) {
+            benchmark.readUsingReader(changeLog, PAGE_SIZE);
+        }
+
+        final double page = (System.nanoTime() - start) / MILLION / benchmark.iterations;
+
+        System.out.println(String.format("%-24s %12s %14s", "parser", "time [ms]", "change sets/s"));
+        benchmark.print("Digester", digester, changeSets);
+        benchmark.print("StAX", stream, changeSets);
+        benchmark.print(String.format("StAX (first %d)", PAGE_SIZE), page, PAGE_SIZE);
+    }
+
+    /**
+     * Print the duration and throughput of reading the given number of change sets.
+     *
+     * @param name
+     *            name of parser.
+     * @param duration
+     *            average duration in milliseconds.
+     * @param changeSets
+     *            number of change sets read.
+     */
+    private void print(final String name, final double duration, final int changeSets) {
+        System.out.println(String.format("%-24s %12.3f %14.0f", name, duration, changeSets / duration * 1000d));
+    }
+
+    /**
+     * Read the given change log using Digester and sort the change sets afterwards.
+     *
+     * @param changeLog
+     *            the change log.
+     * @return number of change sets read.
+     * @throws IOException
+     *             when creating the reader fails.
+     */
+    private int readUsingDigester(final byte[] changeLog) throws IOException {
+        final DtrChangeLogSet changeSet = new DtrChangeLogSet(null);
+        new DigesterHelper<DtrChangeLogSet>(new DtrChangeLogRulesModuleProducer()).update(open(changeLog), changeSet);
+        changeSet.sort();
+
+        return count(changeSet);
+    }
+
+    /**
+     * Read the given number of change sets from the given change log using the {@link DtrChangeLogReader}.
+     *
+     * @param changeLog
+     *            the change log.
+     * @param limit
+     *            maximum number of change sets to read.
+     * @return number of change sets read.
+     * @throws IOException
+     *             when reading the change log fails.
+     */
+    private int readUsingReader(final byte[] changeLog, final int limit) throws IOException {
+        final DtrChangeLogSet changeSet = new DtrChangeLogSet(null);
+
+        if (limit == Integer.MAX_VALUE) {
+            new DtrChangeLogParser().parse(changeSet, open(changeLog));
+        }
+        else {
+            new DtrChangeLogReader(open(changeLog)).read(new DtrChangeLogReader.Handler() {
+                private int count;
+
+                public boolean accept(final DtrChangeLogEntry entry) {
+                    changeSet.add(entry);
+
+                    return ++count < limit;
+                }
+            });
+        }
+
+        return count(changeSet);
+    }
+
+    /**
+     * Count the entries of the given change set.
+     *
+     * @param changeSet
+     *            change set to count the entries of.
+     * @return number of entries.
+     */
+    private int count(final DtrChangeLogSet changeSet) {
+        int count = 0;
+
+        for (final Iterator<DtrChangeLogEntry> entries = changeSet.iterator(); entries.hasNext(); entries.next()) {
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Open a reader for the given change log.
+     *
+     * @param changeLog
+     *            the change log.
+     * @return reader for the given change log.
+     * @throws IOException
+     *             when the encoding is not supported.
+     */
+    private Reader open(final byte[] changeLog) throws IOException {
+        return new InputStreamReader(new ByteArrayInputStream(changeLog), ENCODING);
+    }
+
+    /**
+     * Create a change log containing the given number of change sets.
+     *
+     * @param changeSets
+     *            number of change sets.
+     * @return the generated change log.
+     * @throws IOException
+     *             when writing the change log fails.
+     */
+    private byte[] createChangeLog(final int changeSets) throws IOException {
+        final DtrChangeLogSet changeSet = new DtrChangeLogSet(null);
+        final long checkInTime = System.currentTimeMillis() - changeSets * 1000L;
+
+        for (int i = 0; i < changeSets; i++) {
+            final DtrChangeLogEntry entry =
+                new DtrChangeLogEntry("user" + i % 10, "change " + i, "/dtr/system-tools/reports/ResourceDetails?path=/act/act_" + i
+                    + "&technical=false", new Date(checkInTime + i * 1000L));
+            entry.setDescription("description of change " + i);
+
+            for (int j = 0; j < ITEMS; j++) {
+                entry.add(new Item(String.format("example.org/dc%d/comp_/src/packages/org/example/Class%d.java", i % 100, j),
+                    Action.EDIT));
+            }
+
+            changeSet.add(entry);
+        }
+
+        final ByteArrayOutputStream changeLog = new ByteArrayOutputStream();
+        new DtrChangeLogWriter(changeSet, new OutputStreamWriter(changeLog, ENCODING)).write();
+
+        return changeLog.toByteArray();
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi.changelog;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.Date;
+
+import org.arachna.netweaver.hudson.nwdi.changelog.DtrChangeLogEntry.Action;
+import org.arachna.netweaver.hudson.nwdi.changelog.DtrChangeLogEntry.Item;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link DtrChangeLogIndex}.
+ *
+ * @author Dirk Weigenand
+ */
+public class DtrChangeLogIndexTest {
+    /**
+     * the change log.
+     */
+    private File changeLog;
+
+    /**
+     * Set up fixture.
+     *
+     * @throws IOException
+     *             when creating the change log fails.
+     */
+    @Before
+    public void setUp() throws IOException {
+        changeLog = File.createTempFile("changelog", ".xml");
+    }
+
+    /**
+     * Remove change log and offset table.
+     */
+    @After
+    public void tearDown() {
+        DtrChangeLogIndex.getFile(changeLog).delete();
+        changeLog.delete();
+    }
+
+    /**
+     * Test that the ranges of change sets read using the offset table start with the change sets requested.
+     *
+     * @throws IOException
+     *             when reading the change log fails.
+     */
+    @Test
+    public void testRangesStartWithRequestedChangeSet() throws IOException {
+        write(changeLog, 3);
+        final DtrChangeLogIndex index = DtrChangeLogIndex.create(changeLog);
+
+        assertThat(index.size(), is(equalTo(3)));
+        assertThat(new String(index.read(changeLog, 1, 2), "UTF-8"), startsWith("<changeset activityUrl=\"/dtr/act/1\">"));
+        assertThat(new String(index.read(changeLog, 2, 3), "UTF-8").trim().endsWith("</changeset>"), is(true));
+        assertThat(DtrChangeLogIndex.getFile(changeLog).exists(), is(true));
+    }
+
+    /**
+     * Test that the offset table is created again when the change log was replaced.
+     *
+     * @throws IOException
+     *             when reading the change log fails.
+     */
+    @Test
+    public void testOutdatedTableIsReplaced() throws IOException {
+        write(changeLog, 3);
+        DtrChangeLogIndex.create(changeLog);
+        write(changeLog, 5);
+
+        assertThat(DtrChangeLogIndex.load(changeLog).size(), is(equalTo(5)));
+    }
+
+    /**
+     * Test that change logs written before offset tables were kept are indexed.
+     *
+     * @throws IOException
+     *             when reading the change log fails.
+     */
+    @Test
+    public void testExistingChangeLogIsIndexed() throws IOException {
+        final InputStream fixture = getClass().getResourceAsStream("/org/arachna/netweaver/hudson/nwdi/changelog/changelog.xml");
+        final OutputStream output = new FileOutputStream(changeLog);
+        final byte[] buffer = new byte[4096];
+
+        try {
+            int count = fixture.read(buffer);
+
+            while (count > -1) {
+                output.write(buffer, 0, count);
+                count = fixture.read(buffer);
+            }
+        }
+        finally {
+            output.close();
+            fixture.close();
+        }
+
+        assertThat(DtrChangeLogIndex.load(changeLog).size(), is(equalTo(1)));
+    }
+
+    /**
+     * Write a change log containing the given number of change sets.
+     *
+     * @param file
+     *            file to write the change log into.
+     * @param changeSets
+     *            number of change sets.
+     * @throws IOException
+     *             when writing the change log fails.
+     */
+    static void write(final File file, final int changeSets) throws IOException {
+        final DtrChangeLogSet changeSet = new DtrChangeLogSet(null);
+
+        for (int i = 0; i < changeSets; i++) {
+            final DtrChangeLogEntry entry = new DtrChangeLogEntry("user", "change <" + i + ">", "/dtr/act/" + i, new Date(i * 1000L));
+            entry.add(new Item("example.org/dc/comp_/src/Class" + i + ".java", Action.EDIT));
+            changeSet.add(entry);
+        }
+
+        new DtrChangeLogWriter(changeSet, new OutputStreamWriter(new FileOutputStream(file), "UTF-8")).write();
+    }
+}
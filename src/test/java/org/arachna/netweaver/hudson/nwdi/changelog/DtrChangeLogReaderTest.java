@@ -0,0 +1,140 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi.changelog;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.arachna.netweaver.hudson.nwdi.changelog.DtrChangeLogEntry.Action;
+import org.arachna.netweaver.hudson.nwdi.changelog.DtrChangeLogEntry.Item;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link DtrChangeLogReader} and {@link DtrChangeLogWriter}.
+ *
+ * @author Dirk Weigenand
+ */
+public class DtrChangeLogReaderTest {
+    /**
+     * number of change sets in the change log.
+     */
+    private static final int CHANGE_SETS = 5;
+
+    /**
+     * check in time of the first change set.
+     */
+    private static final long CHECK_IN_TIME = 1352674000000L;
+
+    /**
+     * change log written by the {@link DtrChangeLogWriter}.
+     */
+    private String changeLog;
+
+    /**
+     * Set up fixture.
+     *
+     * @throws IOException
+     *             when writing the change log fails.
+     */
+    @Before
+    public void setUp() throws IOException {
+        final DtrChangeLogSet changeSet = new DtrChangeLogSet(null);
+
+        for (int i = 0; i < CHANGE_SETS; i++) {
+            final DtrChangeLogEntry entry =
+                new DtrChangeLogEntry("user&" + i, "fix <b> & \"quote\" " + i, "/dtr/act?path=/act/" + i + "&technical=false", new Date(
+                    CHECK_IN_TIME + i * 1000L));
+            entry.setDescription("line 1\nline 2 <i>");
+            entry.add(new Item("example.org/dc" + i + "/comp_/src/A&B<" + i + ">.java", Action.EDIT));
+            entry.add(new Item("example.org/dc" + i + "/comp_/src/New.java", Action.ADD));
+            changeSet.add(entry);
+        }
+
+        final StringWriter writer = new StringWriter();
+        new DtrChangeLogWriter(changeSet, writer).write();
+        changeLog = writer.toString();
+    }
+
+    /**
+     * Test that all fields are escaped when writing and restored when reading.
+     *
+     * @throws IOException
+     *             when reading the change log fails.
+     */
+    @Test
+    public void testFieldsSurviveRoundTrip() throws IOException {
+        final List<DtrChangeLogEntry> entries = read(Integer.MAX_VALUE);
+        final DtrChangeLogEntry entry = entries.get(2);
+
+        assertThat(entries.size(), is(equalTo(CHANGE_SETS)));
+        assertThat(entry.getUser(), is(equalTo("user&2")));
+        assertThat(entry.getUnescapedMsg(), is(equalTo("fix <b> & \"quote\" 2")));
+        assertThat(entry.getUnescapedDescription(), is(equalTo("line 1\nline 2 <i>")));
+        assertThat(entry.getActivityUrl(), is(equalTo("/dtr/act?path=/act/2&technical=false")));
+        assertThat(entry.getCheckInTime(), is(equalTo(new Date(CHECK_IN_TIME + 2000L))));
+        assertThat(entry.getItems(), contains(new Item("example.org/dc2/comp_/src/A&B<2>.java", Action.EDIT), new Item(
+            "example.org/dc2/comp_/src/New.java", Action.ADD)));
+    }
+
+    /**
+     * Test that reading stops when the handler asks to.
+     *
+     * @throws IOException
+     *             when reading the change log fails.
+     */
+    @Test
+    public void testReadingStopsWhenLimitIsReached() throws IOException {
+        final List<DtrChangeLogEntry> entries = read(2);
+
+        assertThat(entries.size(), is(equalTo(2)));
+        assertThat(entries.get(1).getActivityUrl(), is(equalTo("/dtr/act?path=/act/1&technical=false")));
+    }
+
+    /**
+     * Test that the parser reads the change log written by the writer.
+     */
+    @Test
+    public void testParserReadsWrittenChangeLog() {
+        final DtrChangeLogSet changeSet = new DtrChangeLogSet(null);
+        new DtrChangeLogParser().parse(changeSet, new StringReader(changeLog));
+
+        final DtrChangeLogEntry entry = changeSet.iterator().next();
+
+        assertThat(entry.getUser(), is(equalTo("user&0")));
+        assertThat(entry.getUnescapedMsg(), is(equalTo("fix <b> & \"quote\" 0")));
+    }
+
+    /**
+     * Read the given number of change sets from the change log.
+     *
+     * @param limit
+     *            maximum number of change sets to read.
+     * @return the change sets read.
+     * @throws IOException
+     *             when reading the change log fails.
+     */
+    private List<DtrChangeLogEntry> read(final int limit) throws IOException {
+        final List<DtrChangeLogEntry> entries = new ArrayList<DtrChangeLogEntry>();
+
+        new DtrChangeLogReader(new StringReader(changeLog)).read(new DtrChangeLogReader.Handler() {
+            public boolean accept(final DtrChangeLogEntry entry) {
+                entries.add(entry);
+
+                return entries.size() < limit;
+            }
+        });
+
+        return entries;
+    }
+}
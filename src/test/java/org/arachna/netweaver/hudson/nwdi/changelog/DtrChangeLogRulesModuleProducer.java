@@ -15,6 +15,9 @@ import org.xml.sax.Attributes;
 /**
  * Producer for rules to parse a DTR change log file.
  * 
+ * The {@link DtrChangeLogParser} used these rules before reading change logs using the {@link DtrChangeLogReader}. They are kept as
+ * baseline for the {@link DtrChangeLogBenchmark}.
+ * 
  * @author Dirk Weigenand
  */
 public class DtrChangeLogRulesModuleProducer implements RulesModuleProducer {
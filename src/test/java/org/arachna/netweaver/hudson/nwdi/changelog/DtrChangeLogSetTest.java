@@ -0,0 +1,136 @@
+/**
+ *
+ */
+package org.arachna.netweaver.hudson.nwdi.changelog;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.arachna.netweaver.hudson.nwdi.changelog.DtrChangeLogSet.Page;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for reading a {@link DtrChangeLogSet} page by page from a change log file.
+ *
+ * @author Dirk Weigenand
+ */
+public class DtrChangeLogSetTest {
+    /**
+     * number of change sets in the change log.
+     */
+    private static final int CHANGE_SETS = 250;
+
+    /**
+     * the change log.
+     */
+    private File changeLog;
+
+    /**
+     * cache for pages of the change log.
+     */
+    private DtrChangeLogPageCache cache;
+
+    /**
+     * change log set under test.
+     */
+    private DtrChangeLogSet changeSet;
+
+    /**
+     * Set up fixture.
+     *
+     * @throws IOException
+     *             when creating the change log fails.
+     */
+    @Before
+    public void setUp() throws IOException {
+        changeLog = File.createTempFile("changelog", ".xml");
+        DtrChangeLogIndexTest.write(changeLog, CHANGE_SETS);
+        cache = new DtrChangeLogPageCache(Long.MAX_VALUE);
+        changeSet = new DtrChangeLogSet(null, changeLog, DtrChangeLogIndex.create(changeLog), cache);
+    }
+
+    /**
+     * Remove change log and offset table.
+     */
+    @After
+    public void tearDown() {
+        DtrChangeLogIndex.getFile(changeLog).delete();
+        changeLog.delete();
+    }
+
+    /**
+     * Test that pages contain the change sets at their position.
+     */
+    @Test
+    public void testPagesContainChangeSetsAtTheirPosition() {
+        final Page page = changeSet.getPage("2");
+
+        assertThat(changeSet.size(), is(equalTo(CHANGE_SETS)));
+        assertThat(page.getPageCount(), is(equalTo(3)));
+        assertThat(page.getOffset(), is(equalTo(200)));
+        assertThat(page.getEntries().size(), is(equalTo(50)));
+        assertThat(page.getEntries().get(0).getActivityUrl(), is(equalTo("/dtr/act/200")));
+        assertThat(page.hasNext(), is(false));
+        assertThat(page.getEntries().get(0).getParent(), is(sameInstance((Object)changeSet)));
+    }
+
+    /**
+     * Test that invalid page numbers show the nearest page.
+     */
+    @Test
+    public void testInvalidPageNumbers() {
+        assertThat(changeSet.getPage(null).getNumber(), is(equalTo(0)));
+        assertThat(changeSet.getPage("x").getNumber(), is(equalTo(0)));
+        assertThat(changeSet.getPage("7").getNumber(), is(equalTo(2)));
+    }
+
+    /**
+     * Test that iterating visits all change sets in order.
+     */
+    @Test
+    public void testIteratorReadsAllPages() {
+        int count = 0;
+
+        for (final DtrChangeLogEntry entry : changeSet) {
+            assertThat(entry.getActivityUrl(), is(equalTo("/dtr/act/" + count)));
+            count++;
+        }
+
+        assertThat(count, is(equalTo(CHANGE_SETS)));
+    }
+
+    /**
+     * Test that pages are cached and the least recently used ones are dropped when the budget is exceeded.
+     *
+     * @throws IOException
+     *             when reading the change log fails.
+     */
+    @Test
+    public void testCacheIsBoundedByBudget() throws IOException {
+        final List<DtrChangeLogEntry> first = changeSet.getPage("0").getEntries();
+
+        assertThat(changeSet.getPage("0").getEntries(), is(sameInstance(first)));
+
+        final DtrChangeLogIndex index = DtrChangeLogIndex.load(changeLog);
+        final long pageSize = index.read(changeLog, 0, DtrChangeLogSet.PAGE_SIZE).length;
+        cache = new DtrChangeLogPageCache(pageSize * 2);
+        changeSet = new DtrChangeLogSet(null, changeLog, index, cache);
+
+        final List<DtrChangeLogEntry> page = changeSet.getPage("0").getEntries();
+        changeSet.getPage("1");
+        changeSet.getPage("2");
+
+        assertThat(cache.getSize(), is(lessThanOrEqualTo(pageSize * 2)));
+        assertThat(changeSet.getPage("0").getEntries(), is(not(sameInstance(page))));
+    }
+}
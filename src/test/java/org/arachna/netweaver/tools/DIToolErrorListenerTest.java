@@ -0,0 +1,53 @@
+/**
+ *
+ */
+package org.arachna.netweaver.tools;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link DIToolErrorListener}.
+ *
+ * @author Dirk Weigenand
+ */
+public class DIToolErrorListenerTest {
+    /**
+     * Test that the first line containing an error message is reported.
+     *
+     * @throws IOException
+     *             when writing fails
+     */
+    @Test
+    public void testFirstErrorIsReported() throws IOException {
+        final DIToolErrorListener listener = new DIToolErrorListener(Pattern.compile("^ERROR:.*"));
+        final DIToolOutput output = new DIToolOutput(listener);
+        output.write("synchronizing\nERROR: first\nERROR: second\n".getBytes());
+        output.close();
+
+        assertThat(listener.hasError(), is(true));
+        assertThat(listener.getError(), is(equalTo("ERROR: first")));
+    }
+
+    /**
+     * Test that output without error messages is not reported.
+     *
+     * @throws IOException
+     *             when writing fails
+     */
+    @Test
+    public void testOutputWithoutErrors() throws IOException {
+        final DIToolErrorListener listener = new DIToolErrorListener(Pattern.compile("^ERROR:.*"));
+        final DIToolOutput output = new DIToolOutput(listener);
+        output.write("synchronizing\nno ERROR: here\n".getBytes());
+        output.close();
+
+        assertThat(listener.hasError(), is(false));
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ *
+ */
+package org.arachna.netweaver.tools;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link DIToolOutput}.
+ *
+ * @author Dirk Weigenand
+ */
+public class DIToolOutputTest {
+    /**
+     * lines handed to the listener.
+     */
+    private List<String> lines;
+
+    /**
+     * listener collecting the lines handed to it.
+     */
+    private DIToolOutputListener listener;
+
+    /**
+     * Set up fixture.
+     */
+    @Before
+    public void setUp() {
+        lines = new ArrayList<String>();
+        listener = new DIToolOutputListener() {
+            public void processLine(final String line) {
+                lines.add(line);
+            }
+        };
+    }
+
+    /**
+     * Test that lines split across several writes are handed to the listener as a whole and without line terminators.
+     *
+     * @throws IOException
+     *             when writing fails
+     */
+    @Test
+    public void testLinesAreAssembledAcrossWrites() throws IOException {
+        final DIToolOutput output = new DIToolOutput(listener);
+        output.write("first li".getBytes());
+        output.write("ne\r\nsecond line\nthi".getBytes());
+        output.write('r');
+        output.write('d');
+        output.close();
+
+        assertThat(lines, contains("first line", "second line", "third"));
+    }
+
+    /**
+     * Test that the whole output is kept when there are no listeners.
+     *
+     * @throws IOException
+     *             when writing fails
+     */
+    @Test
+    public void testWholeOutputIsKeptWithoutListeners() throws IOException {
+        final StringBuilder expected = new StringBuilder();
+        final DIToolOutput output = new DIToolOutput();
+
+        for (int i = 0; i < DIToolOutput.RETAINED_CHARACTERS; i++) {
+            final String line = String.format("line %d%n", i);
+            expected.append(line);
+            output.write(line.getBytes());
+        }
+
+        output.close();
+
+        assertThat(output.toString(), is(equalTo(expected.toString())));
+    }
+
+    /**
+     * Test that only the end of the output is kept when listeners process the output.
+     *
+     * @throws IOException
+     *             when writing fails
+     */
+    @Test
+    public void testOnlyEndOfOutputIsKeptWithListeners() throws IOException {
+        final StringBuilder expected = new StringBuilder();
+        final DIToolOutput output = new DIToolOutput(listener);
+
+        for (int i = 0; i < DIToolOutput.RETAINED_CHARACTERS; i++) {
+            final String line = String.format("line %d\n", i);
+            expected.append(line);
+            output.write(line.getBytes());
+        }
+
+        output.close();
+
+        assertThat(lines.size(), is(equalTo(DIToolOutput.RETAINED_CHARACTERS)));
+        assertThat(output.toString(), is(equalTo(expected.substring(expected.length() - DIToolOutput.RETAINED_CHARACTERS))));
+    }
+}
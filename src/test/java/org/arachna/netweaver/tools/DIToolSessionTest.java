@@ -0,0 +1,169 @@
+/**
+ *
+ */
+package org.arachna.netweaver.tools;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.arachna.netweaver.tools.dc.LoadConfigCommands;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link DIToolSession}.
+ *
+ * @author Dirk Weigenand
+ */
+public class DIToolSessionTest {
+    /**
+     * prompt of the simulated tool.
+     */
+    private static final String PROMPT = "dc>";
+
+    /**
+     * session under test.
+     */
+    private DIToolSession session;
+
+    /**
+     * thread simulating the tool.
+     */
+    private Thread tool;
+
+    /**
+     * Set up fixture: start a simulated tool printing its prompt, echoing each line read (like dctool, an empty line is answered with a
+     * prompt, too) and exiting on 'exit'.
+     *
+     * @throws IOException
+     *             when connecting to the simulated tool fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        final PipedOutputStream stdin = new PipedOutputStream();
+        final PipedInputStream toolInput = new PipedInputStream(stdin);
+        final PipedInputStream stdout = new PipedInputStream();
+        final PrintStream toolOutput = new PrintStream(new PipedOutputStream(stdout), true);
+
+        tool = new Thread(new Runnable() {
+            public void run() {
+                final BufferedReader commands = new BufferedReader(new InputStreamReader(toolInput));
+
+                try {
+                    toolOutput.print("Started" + PROMPT);
+                    String command = commands.readLine();
+
+                    while (command != null && !"exit".equals(command)) {
+                        toolOutput.print("executed " + command + "\n" + PROMPT);
+                        command = commands.readLine();
+                    }
+                }
+                catch (final IOException e) {
+                    // session closed
+                }
+                finally {
+                    toolOutput.close();
+                }
+            }
+        });
+        tool.start();
+
+        session = new DIToolSession(stdin, stdout, PROMPT, "\n");
+    }
+
+    /**
+     * Wait for the simulated tool to end.
+     *
+     * @throws InterruptedException
+     *             when waiting is interrupted
+     */
+    @After
+    public void tearDown() throws InterruptedException {
+        tool.join();
+    }
+
+    /**
+     * Test that the output of each batch is written to the sink given for it.
+     *
+     * @throws IOException
+     *             when communicating with the tool fails
+     */
+    @Test
+    public void testBatchesWriteTheirOwnOutput() throws IOException {
+        final ByteArrayOutputStream first = new ByteArrayOutputStream();
+        final ByteArrayOutputStream second = new ByteArrayOutputStream();
+
+        assertThat(session.execute(Arrays.asList("loadconfig", "syncdc"), first), is(true));
+        assertThat(session.execute(Arrays.asList("builddc"), second), is(true));
+        session.close("exit", new ByteArrayOutputStream());
+
+        assertThat(first.toString(), is(equalTo("Started" + PROMPT + "executed loadconfig\n" + PROMPT + "executed syncdc\n" + PROMPT)));
+        assertThat(second.toString(), is(equalTo("executed builddc\n" + PROMPT)));
+    }
+
+    /**
+     * Test that the commands initializing a NetWeaver 7.0 dctool finish their batch, so the output of the next batch is not attributed to
+     * it.
+     *
+     * @throws IOException
+     *             when communicating with the tool fails
+     */
+    @Test
+    public void testV70LoadConfigCommandsFinishTheirBatch() throws IOException {
+        final List<String> commands = LoadConfigCommands.createV70Commands();
+        final ByteArrayOutputStream first = new ByteArrayOutputStream();
+        final ByteArrayOutputStream second = new ByteArrayOutputStream();
+
+        assertThat(session.execute(commands, first), is(true));
+        assertThat(session.execute(Arrays.asList("syncdc"), second), is(true));
+        session.close("exit", new ByteArrayOutputStream());
+
+        assertThat(first.toString().endsWith("executed " + commands.get(commands.size() - 1) + "\n" + PROMPT), is(true));
+        assertThat(second.toString(), is(equalTo("executed syncdc\n" + PROMPT)));
+    }
+
+    /**
+     * Test that a command spanning several lines is waited for until the tool answered each line.
+     *
+     * @throws IOException
+     *             when communicating with the tool fails
+     */
+    @Test
+    public void testCommandSpanningSeveralLines() throws IOException {
+        final ByteArrayOutputStream first = new ByteArrayOutputStream();
+        final ByteArrayOutputStream second = new ByteArrayOutputStream();
+
+        assertThat(session.execute(Arrays.asList("loadconfig;\n"), first), is(true));
+        assertThat(session.execute(Arrays.asList("syncdc"), second), is(true));
+        session.close("exit", new ByteArrayOutputStream());
+
+        assertThat(second.toString(), is(equalTo("executed syncdc\n" + PROMPT)));
+    }
+
+    /**
+     * Test that a batch interrupted by the end of the tool process is reported as failed.
+     *
+     * @throws IOException
+     *             when communicating with the tool fails
+     */
+    @Test
+    public void testBatchInterruptedByEndOfToolFails() throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertThat(session.execute(Arrays.asList("loadconfig", "exit", "builddc"), output), is(false));
+        assertThat(session.isAlive(), is(false));
+        session.close("exit", output);
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ *
+ */
+package org.arachna.netweaver.tools.cbs;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.arachna.netweaver.dc.types.Compartment;
+import org.arachna.netweaver.dc.types.CompartmentState;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for {@link DCListSnapshot}.
+ *
+ * @author Dirk Weigenand
+ */
+public class DCListSnapshotTest {
+    /**
+     * name of compartment.
+     */
+    private static final String COMPARTMENT = "springsource.org_SPRINGFRAMEWORK_1";
+
+    /**
+     * file containing the snapshot.
+     */
+    private File file;
+
+    /**
+     * snapshot under test.
+     */
+    private DCListSnapshot snapshot;
+
+    /**
+     * Set up fixture: take a snapshot of a development configuration in version 3030.
+     *
+     * @throws IOException
+     *             when creating the file fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("dc-list", ".txt");
+        file.delete();
+        snapshot = new DCListSnapshot(file);
+
+        final DevelopmentComponentFactory dcFactory = new DevelopmentComponentFactory();
+        final DevelopmentConfiguration config = createConfig("3030");
+        config.getCompartment(COMPARTMENT).add(dcFactory.create("springsource.org", "lib/spring"));
+        config.getCompartment(COMPARTMENT).add(dcFactory.create("springsource.org", "lib/jee/spring"));
+        snapshot.store(config);
+    }
+
+    /**
+     * Remove the snapshot.
+     */
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Test that the development components are restored for the same version of the development configuration.
+     */
+    @Test
+    public void testRestoreSameVersion() {
+        final DevelopmentComponentFactory dcFactory = new DevelopmentComponentFactory();
+        final DevelopmentConfiguration config = createConfig("3030");
+
+        assertThat(new DCListSnapshot(file).restore(config, dcFactory), is(true));
+        assertThat(dcFactory.getAll().size(), is(equalTo(2)));
+        assertThat(config.getCompartment(COMPARTMENT).getDevelopmentComponent("lib/jee/spring"), notNullValue());
+    }
+
+    /**
+     * Test that nothing is restored for another version of the development configuration.
+     */
+    @Test
+    public void testNothingRestoredForOtherVersion() {
+        final DevelopmentComponentFactory dcFactory = new DevelopmentComponentFactory();
+
+        assertThat(snapshot.restore(createConfig("3031"), dcFactory), is(false));
+        assertThat(dcFactory.getAll().isEmpty(), is(true));
+    }
+
+    /**
+     * Test that nothing is restored when a compartment of the snapshot is missing in the development configuration.
+     */
+    @Test
+    public void testNothingRestoredForMissingCompartment() {
+        final DevelopmentConfiguration config = new DevelopmentConfiguration("DI0_Example_D");
+        config.setVersion("3030");
+
+        assertThat(snapshot.restore(config, new DevelopmentComponentFactory()), is(false));
+    }
+
+    /**
+     * Test that the snapshot is discarded when a development component (e.g. created by an activity) is missing from it.
+     */
+    @Test
+    public void testIncompleteSnapshotIsDiscarded() {
+        final DevelopmentComponentFactory dcFactory = new DevelopmentComponentFactory();
+        snapshot.restore(createConfig("3030"), dcFactory);
+        final DevelopmentComponent component = dcFactory.create("springsource.org", "lib/spring/aop");
+
+        assertThat(snapshot.discardIfIncomplete(Arrays.asList(dcFactory.get("springsource.org", "lib/spring"), component)), is(true));
+        assertThat(file.exists(), is(false));
+        assertThat(snapshot.restore(createConfig("3030"), new DevelopmentComponentFactory()), is(false));
+    }
+
+    /**
+     * Test that the snapshot is kept when it contains all given development components.
+     */
+    @Test
+    public void testCompleteSnapshotIsKept() {
+        final DevelopmentComponentFactory dcFactory = new DevelopmentComponentFactory();
+        snapshot.restore(createConfig("3030"), dcFactory);
+
+        assertThat(snapshot.discardIfIncomplete(dcFactory.getAll()), is(false));
+        assertThat(file.exists(), is(true));
+    }
+
+    /**
+     * Create a development configuration of the given version.
+     *
+     * @param version
+     *            version of development configuration.
+     * @return the development configuration.
+     */
+    private DevelopmentConfiguration createConfig(final String version) {
+        final DevelopmentConfiguration config = new DevelopmentConfiguration("DI0_Example_D");
+        config.setVersion(version);
+        config.add(Compartment.create("springsource.org", "SPRINGFRAMEWORK", CompartmentState.Archive, ""));
+
+        return config;
+    }
+}
@@ -3,6 +3,8 @@
  */
 package org.arachna.netweaver.tools.dc;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 import hudson.FilePath;
 import hudson.Launcher;
 import hudson.Util;
@@ -141,6 +143,20 @@ public class DCToolCommandExecutorTest {
         }
     }
 
+    /**
+     * Test that the error messages of dctool are recognized (also when preceded by prompts) but compiler errors in build logs are not.
+     */
+    @Test
+    public final void testErrorMarker() {
+        assertThat(DCToolCommandExecutor.ERROR_MARKER.matcher("dc>ERROR: Could not load development configuration.").matches(),
+            is(true));
+        assertThat(DCToolCommandExecutor.ERROR_MARKER.matcher("dc>dc>Error: Sync of DC example/dc1 failed.").matches(), is(true));
+        assertThat(DCToolCommandExecutor.ERROR_MARKER.matcher("[Error] Command syncdc failed").matches(), is(true));
+        assertThat(DCToolCommandExecutor.ERROR_MARKER.matcher("Example.java:12: error: cannot find symbol").matches(), is(false));
+        assertThat(DCToolCommandExecutor.ERROR_MARKER.matcher("0 build(s) succeeded (or yield warnings), 1 build(s) failed.").matches(),
+            is(false));
+    }
+
     /**
      * dummy DCToolCommandBuild used for testing.
      * 
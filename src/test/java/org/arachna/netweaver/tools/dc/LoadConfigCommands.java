@@ -0,0 +1,32 @@
+/**
+ *
+ */
+package org.arachna.netweaver.tools.dc;
+
+import java.util.List;
+
+import org.arachna.netweaver.dc.types.JdkHomePaths;
+import org.arachna.netweaver.tools.DIToolDescriptor;
+
+/**
+ * Provides the commands dctool is initialized with for JUnit tests outside this package.
+ *
+ * @author Dirk Weigenand
+ */
+public final class LoadConfigCommands {
+    /**
+     * Utility class.
+     */
+    private LoadConfigCommands() {
+    }
+
+    /**
+     * Create the commands initializing a NetWeaver 7.0 dctool (spool, trace file, timing and loadconfig).
+     *
+     * @return the commands initializing a NetWeaver 7.0 dctool.
+     */
+    public static List<String> createV70Commands() {
+        return new LoadConfigCommandBuilder(new DIToolDescriptor("developer", "secret", "", "", new JdkHomePaths()),
+            LoadConfigTemplate.V70).execute();
+    }
+}
@@ -17,6 +17,7 @@ import org.arachna.netweaver.dc.types.DevelopmentComponent;
 import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
 import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
 import org.arachna.netweaver.dc.types.JdkHomeAlias;
+import org.arachna.netweaver.dc.types.PublicPartReference;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -89,4 +90,21 @@ public class SyncDevelopmentComponentsInArchiveStateCommandBuilderTest {
         final String expected = String.format(SYNCDC_IN_ARCHIVE_MODE_TEMPLATE, EXAMPLE_SC, usedDC.getName(), usedDC.getVendor());
         assertThat(commands.get(0), equalTo(expected));
     }
+
+    /**
+     * Assert that development components provided by the archive store are not synchronized.
+     */
+    @Test
+    public void assertSynchronizerSkipsDCsProvidedByArchiveStore() {
+        final DevelopmentComponent usedDC = dcFactory.get(VENDOR, "dc1");
+        final DevelopmentComponent component = dcFactory.create(VENDOR, "dc2");
+        component.add(new PublicPartReference(VENDOR, "dc1"));
+
+        final AntHelper antHelper = new AntHelper("", dcFactory);
+        final List<String> commands =
+            new SyncDevelopmentComponentsInArchiveStateCommandBuilder(createDevelopmentConfiguration(), dcFactory, antHelper,
+                Arrays.asList(component), Arrays.asList(usedDC)).executeInternal();
+
+        assertThat(commands.isEmpty(), equalTo(true));
+    }
 }